@@ -1,11 +1,6 @@
-import LLVMIR.IRBuilder;
-import ast.CompUnitNode;
-import backEnd.MipsBuilder;
-import frontEnd.Lexer;
-import frontEnd.Parser;
-import frontEnd.SemanticAnalyzer;
-import error.ErrorHandler;
-import midEnd.Optimizer;
+import driver.CompilerDriver;
+import util.Artifact;
+import util.CompilationContext;
 
 import java.nio.file.Files;
 import java.nio.file.Paths;
@@ -13,38 +8,68 @@ import java.nio.file.Paths;
 public class Compiler {
     public static void main(String[] args) {
         try {
-            // 读取源代码文件
-            String content = new String(Files.readAllBytes(Paths.get("testfile.txt")));
-            // 获取词法分析器实例
-            Lexer lexer = Lexer.getInstance();
-            // 进行词法分析
-            lexer.analyze(content);
-            // 获取解析器实例
-            Parser parser = Parser.getInstance();
-            // 进行语法分析，生成 AST
-            CompUnitNode compUnitNode = parser.parseCompUnit();
-            //进行语义分析
-            SemanticAnalyzer semanticAnalyzer = SemanticAnalyzer.getInstance();
-            semanticAnalyzer.analyze(compUnitNode);
-            // 输出错误信息到 error.txt
-            ErrorHandler.getInstance().outputErrors();
-            // 如果存在错误，不继续进行后续操作
-            if (ErrorHandler.getInstance().errorOccured()) {
-                return;
+            // 在输出到当前目录的上下文中完成整条编译流水线
+            CompilationContext context = new CompilationContext(Paths.get(""));
+            boolean timePasses = false;
+            boolean stream = false;
+            boolean fused = false;
+            for (int i = 0; i < args.length; i++) {
+                if (args[i].equals("-time-passes")) {
+                    timePasses = true;
+                } else if (args[i].equals("-stream")) {
+                    // 流式词法分析：内存映射读取源文件，语法分析需要时才产生 Token
+                    stream = true;
+                } else if (args[i].equals("-fused")) {
+                    // 语义检查与 IR 生成在同一次遍历中完成，有语义错误时退回常规流程报告错误
+                    fused = true;
+                } else if (args[i].equals("-opt-rounds") && i + 1 < args.length) {
+                    // 优化轮数上限，达到不动点时会提前结束
+                    context.getOptimizer().setMaxRounds(Integer.parseInt(args[++i]));
+                } else if (args[i].equals("-opt-threads") && i + 1 < args.length) {
+                    // 按函数并行优化的线程数，默认为处理器核数
+                    context.getOptimizer().setThreads(Integer.parseInt(args[++i]));
+                } else if (args[i].equals("-skip") && i + 1 < args.length) {
+                    // 不输出的调试文件，逗号分隔，如 -skip llvm_ir,lexer,parser,symbol
+                    for (String name : args[++i].split(",")) {
+                        context.setArtifactEnabled(Artifact.fromName(name.trim()), false);
+                    }
+                } else if (args[i].equals("-emit") && i + 1 < args.length) {
+                    // 只输出列出的调试文件（mips.txt 总会输出），none 表示一个都不输出
+                    String list = args[++i];
+                    for (Artifact artifact : Artifact.values()) {
+                        context.setArtifactEnabled(artifact, false);
+                    }
+                    if (!list.equals("none")) {
+                        for (String name : list.split(",")) {
+                            context.setArtifactEnabled(Artifact.fromName(name.trim()), true);
+                        }
+                    }
+                } else if (args[i].equals("-lex-threads") && i + 1 < args.length) {
+                    // 大文件分块并行词法分析的线程数，默认为处理器核数
+                    context.getLexer().setThreads(Integer.parseInt(args[++i]));
+                } else if (args[i].equals("-codegen-threads") && i + 1 < args.length) {
+                    // 按函数并行生成汇编的线程数，默认为处理器核数
+                    context.getMipsBuilder().setThreads(Integer.parseInt(args[++i]));
+                }
+            }
+            if (timePasses) {
+                context.enableTimePasses();
+            }
+            if (fused) {
+                context.enableFusedFrontEnd();
+            }
+            if (stream) {
+                CompilerDriver.compile(context, Paths.get("testfile.txt"));
+            } else {
+                // 读取源代码文件
+                String content = new String(Files.readAllBytes(Paths.get("testfile.txt")));
+                CompilerDriver.compile(context, content);
+            }
+            // 各 pass 的调试信息输出到 stdout，计时报告输出到 stderr 以便分开收集
+            if (timePasses) {
+                context.getPassTimer().printTable(System.err);
+                context.getPassTimer().writeJson(context.resolve("time_passes.json"));
             }
-            // 构建并生成main函数
-            IRBuilder irBuilder = IRBuilder.getInstance();
-            irBuilder.analyze(compUnitNode);
-
-            // optimize
-            Optimizer optimizer = Optimizer.getInstance();
-            optimizer.run(irBuilder.getModule());
-            irBuilder.outputLLVMIRToFile();
-            // 构建并生成 MIPS 汇编代码
-            MipsBuilder mipsBuilder = MipsBuilder.getInstance();
-            mipsBuilder.mipsBuilder(irBuilder.getModule());
-
-
         } catch (Exception e) {
             System.err.println(e.getMessage());
         }
@@ -2,7 +2,6 @@ package LLVMIR.Base;
 
 import LLVMIR.Base.Core.User;
 import LLVMIR.Base.Core.Value;
-import LLVMIR.Global.GlobalVar;
 import LLVMIR.Ins.Branch;
 import LLVMIR.Ins.Mem.Phi;
 import LLVMIR.LLVMType.LLVMType;
@@ -17,14 +16,13 @@ import java.util.List;
  * 表示 LLVM IR 中的基本块，每个基本块是一个指令的序列
  */
 public class BasicBlock extends User {
-    private final ArrayList<Instruction> instrs; // 基本块中的指令
+    private final InstructionList instrs; // 基本块中的指令
     private final Function parentFunc;      // 所属的函数
     private ArrayList<BasicBlock> predecessors; // 前驱基本块
     private ArrayList<BasicBlock> successors; // 后继基本块
-    // 支配者基本块列表
-    private ArrayList<BasicBlock> dominators;
-    // 被支配基本块列表
-    private ArrayList<BasicBlock> dominatedBy;
+    // 支配树上的先序和后序编号，入口不可达的块为 -1
+    private int domPreorder = -1;
+    private int domPostorder = -1;
     // 直接支配者
     private BasicBlock immediateDominator;
     // 直接支配的基本块列表
@@ -34,8 +32,6 @@ public class BasicBlock extends User {
     // 直接支配树的深度
     private int imdomDepth;
     // 活跃变量分析所需的属性
-    private HashSet<Value> defSet;
-    private HashSet<Value> useSet;
     private HashSet<Value> inSet;
     private HashSet<Value> outSet;
 
@@ -54,18 +50,14 @@ public class BasicBlock extends User {
             throw new IllegalArgumentException("Parent function cannot be null");
         }
 
-        this.instrs = new ArrayList<>();
+        this.instrs = new InstructionList();
         this.parentFunc = parentFunc;
 
         this.predecessors = new ArrayList<>();
         this.successors = new ArrayList<>();
-        this.dominators = new ArrayList<>();
-        this.dominatedBy = new ArrayList<>();
         this.immediateDominates = new ArrayList<>();
         this.dominanceFrontier = new ArrayList<>();
         this.imdomDepth = 0;
-        this.defSet = new HashSet<>();
-        this.useSet = new HashSet<>();
         this.inSet = new HashSet<>();
         this.outSet = new HashSet<>();
     }
@@ -89,7 +81,7 @@ public class BasicBlock extends User {
      */
     public boolean hasRet() {
         return !instrs.isEmpty() &&
-                instrs.get(instrs.size() - 1).getInstrType() == Instruction.InstrType.RETURN;
+                instrs.getLast().getInstrType() == Instruction.InstrType.RETURN;
     }
 
     /**
@@ -97,7 +89,7 @@ public class BasicBlock extends User {
      *
      * @return 指令列表
      */
-    public ArrayList<Instruction> getInstrs() {
+    public InstructionList getInstrs() {
         return instrs;
     }
 
@@ -129,7 +121,7 @@ public class BasicBlock extends User {
         if (instrs.isEmpty()) return false;
 
         // 获取最后一条指令，判断是否是跳转指令
-        Instruction lastInstr = instrs.get(instrs.size() - 1);
+        Instruction lastInstr = instrs.getLast();
         return lastInstr instanceof Branch ;
     }
 
@@ -149,12 +141,11 @@ public class BasicBlock extends User {
         this.successors = successors;
     }
     public void deleteForPhi(BasicBlock block){
-        for(User user:users){
+        for(User user:getUsers()){
             if(user instanceof Phi phi && phi.getParentBlock()==block){
                 for(int i=0;i<=phi.getIncomingBlocks().size()-1;i++){
                     if(phi.getIncomingBlocks().get(i)==this){
-                        phi.getIncomingBlocks().remove(i);
-                        phi.getOperands().remove(i);
+                        phi.removeIncoming(i);
                         i--;
                     }
                 }
@@ -164,8 +155,7 @@ public class BasicBlock extends User {
 
     // 获取最后一条指令
     public Instruction getLastInstr() {
-        if (instrs.isEmpty()) return null;
-        return instrs.get(instrs.size() - 1);
+        return instrs.getLast();
     }
 
     // 添加前驱和后继
@@ -187,14 +177,6 @@ public class BasicBlock extends User {
     }
 
 
-    public HashSet<Value> getDefSet() {
-        return defSet;
-    }
-
-    public HashSet<Value> getUseSet() {
-        return useSet;
-    }
-
     public HashSet<Value> getInSet() {
         return inSet;
     }
@@ -211,62 +193,28 @@ public class BasicBlock extends User {
         this.outSet = outSet;
     }
 
-    public void setDefSet(HashSet<Value> defSet) {
-        this.defSet = defSet;
-    }
-
-    public void setUseSet(HashSet<Value> useSet) {
-        this.useSet = useSet;
+    // 设置支配树上的先序和后序编号，不可达的块传 -1
+    public void setDomOrder(int preorder, int postorder) {
+        this.domPreorder = preorder;
+        this.domPostorder = postorder;
     }
 
-    // 计算Def和Use集合
-    public void computeDefUse() {
-        HashSet<Value> def = new HashSet<>();
-        HashSet<Value> use = new HashSet<>();
-        // 遍历基本块中的指令
-        for(Instruction instr:instrs){
-            if(instr instanceof Phi){
-                for(Value value:instr.getOperands()){
-                    if(value instanceof Instruction || value instanceof Param || value instanceof GlobalVar){
-                        use.add(value);
-                    }
-                }
-            }
-        }
-        for (Instruction instr : instrs) {
-            // 遍历指令的操作数
-            for (Value value : instr.getOperands()) {
-                // 如果操作数不在 Def 集合中，且是指令、参数或全局变量，则加入 Use 集合
-                if (!def.contains(value) && (value instanceof Instruction || value instanceof Param || value instanceof GlobalVar)) {
-                    use.add(value);
-                }
-            }
-            // 如果指令有左值，且不在 Use 集合中，则加入 Def 集合
-            if (!use.contains(instr) && instr.hasLVal()) {
-                def.add(instr);
-            }
-        }
-        this.useSet = use;
-        this.defSet = def;
-    }
-    // 获取支配者基本块列表
-    public ArrayList<BasicBlock> getDominators() {
-        return dominators;
-    }
-
-    // 设置支配者基本块列表
-    public void setDom(ArrayList<BasicBlock> dominators) {
-        this.dominators = dominators;
-    }
-
-    // 获取被支配基本块列表
-    public ArrayList<BasicBlock> getDominatedBy() {
-        return dominatedBy;
+    /**
+     * 判断本块是否支配另一个块，块总是支配自己。
+     * a 支配 b 当且仅当 a 是支配树上 b 的祖先，即 pre(a) <= pre(b) 且 post(b) <= post(a)，只需 O(1)。
+     * 结果以最近一次构建 CFG 时为准，入口不可达的块不支配也不被支配
+     *
+     * @param other 另一个基本块
+     * @return 是否支配
+     */
+    public boolean dominates(BasicBlock other) {
+        return domPreorder >= 0 && other.domPreorder >= 0
+                && domPreorder <= other.domPreorder && other.domPostorder <= domPostorder;
     }
 
-    // 设置被支配基本块列表
-    public void setDominatedBy(ArrayList<BasicBlock> dominatedBy) {
-        this.dominatedBy = dominatedBy;
+    // 判断本块是否严格支配另一个块（支配且不是同一个块）
+    public boolean strictlyDominates(BasicBlock other) {
+        return this != other && dominates(other);
     }
 
     // 获取直接支配者
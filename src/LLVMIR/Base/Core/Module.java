@@ -1,14 +1,17 @@
 package LLVMIR.Base.Core;
 
+import LLVMIR.Base.BasicBlock;
 import LLVMIR.Base.Core.Value;
 import LLVMIR.Global.ConstStr;
 import LLVMIR.Global.GlobalVar;
 import LLVMIR.Global.Function;
 import LLVMIR.LLVMType.LLVMType;
+import util.ChannelWriter;
 
-import java.io.BufferedWriter;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -93,6 +96,21 @@ public class Module extends Value {
         return constStrs;
     }
 
+    /**
+     * 统计模块中所有函数的指令条数，用于衡量 IR 规模
+     *
+     * @return 指令条数
+     */
+    public int getInstrCount() {
+        int count = 0;
+        for (Function function : functions) {
+            for (BasicBlock block : function.getBasicBlocks()) {
+                count += block.getInstrs().size();
+            }
+        }
+        return count;
+    }
+
     /**
      * 返回模块的 LLVM IR 表示字符串
      *
@@ -100,32 +118,45 @@ public class Module extends Value {
      */
     @Override
     public String toString() {
-        StringBuilder sb = new StringBuilder();
-        sb.append("declare i32 @getint() \n")
-                .append("declare i32 @getchar() \n")
-                .append("declare void @putint(i32)\n")
-                .append("declare void @putch(i32)\n")
-                .append("declare void @putstr(i8* )\n");
+        StringWriter sw = new StringWriter();
+        try {
+            writeTo(sw);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return sw.toString();
+    }
+
+    /**
+     * 按 toString() 的格式逐个函数写出 LLVM IR，不在内存中拼接整个模块
+     *
+     * @param writer 输出目标
+     * @throws IOException 写入失败时抛出
+     */
+    public void writeTo(Writer writer) throws IOException {
+        writer.write("declare i32 @getint() \n");
+        writer.write("declare i32 @getchar() \n");
+        writer.write("declare void @putint(i32)\n");
+        writer.write("declare void @putch(i32)\n");
+        writer.write("declare void @putstr(i8* )\n");
 
         // 处理常量字符串
         for (ConstStr cstStr : constStrs) {
-            sb.append(cstStr).append("\n");
+            writer.write(cstStr + "\n");
         }
 
         // 处理全局变量
         for (GlobalVar globalVar : globalVars) {
-            sb.append(globalVar).append("\n");
+            writer.write(globalVar + "\n");
         }
 
         // 处理函数
         for (int i = 0; i < functions.size(); i++) {
-            sb.append(functions.get(i));
+            functions.get(i).writeTo(writer);
             if (i < functions.size() - 1) {
-                sb.append("\n");
+                writer.write("\n");
             }
         }
-
-        return sb.toString();
     }
 
     /**
@@ -134,8 +165,8 @@ public class Module extends Value {
      * @param filename 文件名
      */
     public void writeToFile(String filename) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filename))) {
-            writer.write(this.toString());
+        try (Writer writer = new ChannelWriter(filename)) {
+            writeTo(writer);
         } catch (IOException e) {
             System.err.println("Error writing LLVM IR to file (" + filename + "): " + e.getMessage());
         }
@@ -0,0 +1,47 @@
+package LLVMIR.Base.Core;
+
+/**
+ * 表示一次使用：某个 User 的第 index 个操作数引用了 value。
+ * 同一个 Value 的所有 Use 串成一条双向链表，挂在 Value 上，
+ * 因此增删一次使用是 O(1)，替换所有使用只需沿链表走一遍
+ */
+public class Use {
+    private final User user; // 使用者
+    private int index;       // 在使用者操作数中的位置
+    private Value value;     // 被使用的值
+
+    // 所在链表中的前后节点，由 Value 维护
+    Use prev;
+    Use next;
+
+    Use(User user, int index, Value value) {
+        this.user = user;
+        this.index = index;
+        this.value = value;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    void setIndex(int index) {
+        this.index = index;
+    }
+
+    public Value getValue() {
+        return value;
+    }
+
+    void setValue(Value value) {
+        this.value = value;
+    }
+
+    // 同一个值的下一次使用，没有时为 null
+    public Use getNext() {
+        return next;
+    }
+}
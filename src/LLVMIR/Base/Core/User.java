@@ -3,14 +3,18 @@ package LLVMIR.Base.Core;
 import LLVMIR.LLVMType.LLVMType;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
  * 表示 LLVM IR 中使用值的对象 (User)
  * 包含对操作数 (operands) 的引用。
+ * 每个非空操作数对应一个 {@link Use}，与操作数同下标保存，并挂在被使用值的使用链表上
  */
 public class User extends Value {
     protected ArrayList<Value> operands; // 操作数列表
+    private final ArrayList<Use> uses;   // 与操作数同下标的使用，操作数为空或已移除时为 null
+    private final List<Value> operandView;
 
     /**
      * 构造 User 对象
@@ -21,6 +25,8 @@ public class User extends Value {
     public User(String name, LLVMType type) {
         super(name, type);
         this.operands = new ArrayList<>();
+        this.uses = new ArrayList<>();
+        this.operandView = Collections.unmodifiableList(operands);
     }
 
     /**
@@ -30,13 +36,11 @@ public class User extends Value {
      */
     public void addOperand(Value value) {
         operands.add(value);
-        if (value != null) {
-            value.addUser(this);
-        }
+        uses.add(link(value, operands.size() - 1));
     }
 
     /**
-     * 修改操作数
+     * 修改操作数，只处理本用户对旧操作数的使用
      *
      * @param oldValue 旧操作数
      * @param newValue 新操作数
@@ -45,24 +49,34 @@ public class User extends Value {
         if (oldValue == null || newValue == null) {
             throw new IllegalArgumentException("Operands cannot be null");
         }
-        while (true) {
-            int index = operands.indexOf(oldValue);
-            if (index == -1) {
-                break;
+        Use use = oldValue.getFirstUse();
+        while (use != null) {
+            Use next = use.getNext();
+            if (use.getUser() == this) {
+                replaceUse(use, newValue);
             }
-            operands.set(index, newValue);
-            newValue.addUser(this);
+            use = next;
         }
     }
 
     /**
-     * 移除所有操作数
+     * 让一次使用改为引用新值，由 {@link Value#modifyValueForUsers(Value)} 调用
+     *
+     * @param use      本用户的一次使用
+     * @param newValue 新值
+     */
+    protected void replaceUse(Use use, Value newValue) {
+        operands.set(use.getIndex(), newValue);
+        moveUse(use, newValue);
+    }
+
+    /**
+     * 移除所有操作数的使用，操作数本身保留，仍可读取
      */
     public void removeOperands() {
-        for (Value value : operands) {
-            if (value != null) {
-                value.removeUser(this);
-            }
+        for (int i = 0; i < uses.size(); i++) {
+            unlink(uses.get(i));
+            uses.set(i, null);
         }
     }
 
@@ -76,10 +90,21 @@ public class User extends Value {
         if (pos < 0 || pos >= operands.size()) {
             throw new IndexOutOfBoundsException("Operand position out of bounds: " + pos);
         }
+        unlink(uses.get(pos));
         operands.set(pos, value);
-        if (value != null) {
-            value.addUser(this);
-        }
+        uses.set(pos, link(value, pos));
+    }
+
+    /**
+     * 删除指定位置的操作数，后面的操作数依次前移
+     *
+     * @param pos 位置
+     */
+    public void removeOperand(int pos) {
+        unlink(uses.get(pos));
+        operands.remove(pos);
+        uses.remove(pos);
+        renumber(uses, pos);
     }
 
     /**
@@ -88,10 +113,41 @@ public class User extends Value {
      * @return 操作数列表的只读视图
      */
     public List<Value> getOperands() {
-        return operands;
+        return operandView;
     }
 
-    public void setOperands(Value value,int pos) {
-        this.operands.set(pos,value);
+    public void setOperands(Value value, int pos) {
+        setOperand(value, pos);
+    }
+
+    // 为第 index 个操作数建立使用，操作数为空时返回 null
+    protected Use link(Value value, int index) {
+        if (value == null) {
+            return null;
+        }
+        Use use = new Use(this, index, value);
+        value.addUse(use);
+        return use;
+    }
+
+    // 让一次使用改为引用新值，并移到新值的使用链表上
+    protected static void moveUse(Use use, Value newValue) {
+        use.getValue().transferUse(use, newValue);
+    }
+
+    // 删除中间的元素后，从 from 开始重新记录各使用的下标
+    protected static void renumber(List<Use> uses, int from) {
+        for (int i = from; i < uses.size(); i++) {
+            if (uses.get(i) != null) {
+                uses.get(i).setIndex(i);
+            }
+        }
+    }
+
+    // 解除一次使用，已解除时忽略
+    protected static void unlink(Use use) {
+        if (use != null) {
+            use.getValue().removeUse(use);
+        }
     }
 }
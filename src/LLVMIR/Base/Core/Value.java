@@ -3,7 +3,9 @@ package LLVMIR.Base.Core;
 import LLVMIR.LLVMType.LLVMType;
 
 import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
 
 /**
  * 表示 LLVM IR 中的值 (Value)
@@ -12,7 +14,9 @@ import java.util.List;
 public class Value {
     protected String Name;                // 值的名称
     protected LLVMType type;              // 值的类型
-    protected ArrayList<User> users;           // 使用该值的用户列表
+    private Use firstUse;                 // 使用链表的头
+    private Use lastUse;                  // 使用链表的尾
+    private int useCount;                 // 使用次数
 
     /**
      * 构造 Value 对象
@@ -23,7 +27,6 @@ public class Value {
     public Value(String Name, LLVMType type) {
         this.Name = Name;
         this.type = type;
-        this.users = new ArrayList<>();
     }
 
     /**
@@ -69,50 +72,98 @@ public class Value {
     }
 
     /**
-     * 获取用户列表
+     * 获取使用该值的用户，每个用户只出现一次，按第一次使用的先后排列。
+     * 返回的是新建的列表，修改它不影响使用关系
      *
-     * @return 用户列表的只读视图
+     * @return 用户列表
      */
     public ArrayList<User> getUsers() {
+        ArrayList<User> users = new ArrayList<>();
+        // 用户少时线性查重即可，多时借助集合
+        HashSet<User> seen = useCount > 8 ? new HashSet<>() : null;
+        for (Use use = firstUse; use != null; use = use.next) {
+            User user = use.getUser();
+            if (seen != null ? seen.add(user) : !users.contains(user)) {
+                users.add(user);
+            }
+        }
         return users;
     }
 
     /**
-     * 设置用户列表
+     * 获取第一次使用，沿 {@link Use#getNext()} 可遍历全部使用
+     *
+     * @return 第一次使用，没有时为 null
+     */
+    public Use getFirstUse() {
+        return firstUse;
+    }
+
+    // 是否被使用
+    public boolean hasUsers() {
+        return firstUse != null;
+    }
+
+    /**
+     * 把一次使用接到链表末尾
      *
-     * @param users 新的用户列表
+     * @param use 使用
      */
-    public void setUsers(List<User> users) {
-        if (users == null) {
-            throw new IllegalArgumentException("Users cannot be null");
+    protected void addUse(Use use) {
+        use.prev = lastUse;
+        use.next = null;
+        if (lastUse == null) {
+            firstUse = use;
+        } else {
+            lastUse.next = use;
         }
-        this.users = new ArrayList<>(users); // 深拷贝
+        lastUse = use;
+        useCount++;
     }
 
     /**
-     * 添加用户
+     * 从链表中摘下一次使用
      *
-     * @param user 新用户
+     * @param use 使用
      */
-    public void addUser(User user) {
-        if (user != null && !users.contains(user)) {
-            users.add(user);
+    protected void removeUse(Use use) {
+        if (use.prev == null) {
+            firstUse = use.next;
+        } else {
+            use.prev.next = use.next;
         }
+        if (use.next == null) {
+            lastUse = use.prev;
+        } else {
+            use.next.prev = use.prev;
+        }
+        use.prev = null;
+        use.next = null;
+        useCount--;
     }
 
     /**
-     * 移除用
+     * 按用户稳定排序所有使用，同一用户的使用保持原有先后
      *
-     * @param user 要移除的用
+     * @param comparator 用户的比较器
      */
-    public void removeUser(User user) {
-        if(users.contains(user)){
-            users.remove(user);
+    public void sortUses(Comparator<User> comparator) {
+        Use[] uses = new Use[useCount];
+        int count = 0;
+        for (Use use = firstUse; use != null; use = use.next) {
+            uses[count++] = use;
+        }
+        Arrays.sort(uses, (a, b) -> comparator.compare(a.getUser(), b.getUser()));
+        firstUse = null;
+        lastUse = null;
+        useCount = 0;
+        for (Use use : uses) {
+            addUse(use);
         }
     }
 
     /**
-     * 修改所有用户的值引用
+     * 把所有使用改为引用新值，代价与使用次数成正比
      *
      * @param newValue 替换的新值
      */
@@ -120,9 +171,26 @@ public class Value {
         if (newValue == null) {
             throw new IllegalArgumentException("New value cannot be null");
         }
-        for (User user : users) {
-            user.modifyValue(this, newValue);
+        if (newValue == this) {
+            return;
         }
-        users.clear();
+        Use use = firstUse;
+        while (use != null) {
+            Use next = use.next;
+            use.getUser().replaceUse(use, newValue);
+            use = next;
+        }
+    }
+
+    /**
+     * 将一次使用从本值转到新值上
+     *
+     * @param use      本值的一次使用
+     * @param newValue 新值
+     */
+    void transferUse(Use use, Value newValue) {
+        removeUse(use);
+        use.setValue(newValue);
+        newValue.addUse(use);
     }
 }
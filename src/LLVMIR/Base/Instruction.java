@@ -1,6 +1,7 @@
 package LLVMIR.Base;
 
 import LLVMIR.Base.Core.User;
+import LLVMIR.Base.Core.Value;
 import LLVMIR.LLVMType.LLVMType;
 
 /**
@@ -20,6 +21,11 @@ public class Instruction extends User {
     private final InstrType instrType;     // 指令类型
     private BasicBlock parentBlock; // 指令所属的基本块
 
+    // 所在指令序列及其中的前后指令，由 InstructionList 维护
+    InstructionList list;
+    Instruction prev;
+    Instruction next;
+
     /**
      * 构造指令对象
      *
@@ -64,6 +70,16 @@ public class Instruction extends User {
         this.parentBlock = parentBlock;
     }
 
+    // 同一基本块中的前一条指令，没有或指令不在块中时为 null
+    public Instruction getPrevInstr() {
+        return list == null ? null : prev;
+    }
+
+    // 同一基本块中的后一条指令，没有或指令不在块中时为 null
+    public Instruction getNextInstr() {
+        return list == null ? null : next;
+    }
+
     /**
      * 判断指令是否有LVal
      *
@@ -87,7 +103,54 @@ public class Instruction extends User {
                 || (instrType == InstrType.CALL && !getType().isVoid()) || instrType == InstrType.ALU
                 || instrType == InstrType.ICMP;
     }
-    public String getGvnHash(){
-        return "error";
+
+    /**
+     * 值编号用的哈希值，只由指令种类和操作数决定，与名称无关。
+     * 判定为同值的两条指令哈希值一定相同，见 {@link #isSameValueAs(Instruction)}
+     *
+     * @return 哈希值
+     */
+    public int valueNumberHash() {
+        int hash = instrType.ordinal();
+        for (int i = 0; i < operands.size(); i++) {
+            hash = hash * 31 + operandHash(operands.get(i));
+        }
+        return hash;
+    }
+
+    /**
+     * 判断两条指令是否计算同一个值：指令种类和类型相同，操作数逐个是同一个值或相等的常量
+     *
+     * @param other 另一条指令
+     * @return 是否同值
+     */
+    public boolean isSameValueAs(Instruction other) {
+        if (other.instrType != instrType || !type.isSameType(other.type)
+                || other.operands.size() != operands.size()) {
+            return false;
+        }
+        for (int i = 0; i < operands.size(); i++) {
+            if (!sameOperand(operands.get(i), other.operands.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // 常量按数值取哈希，其余操作数按对象本身
+    protected static int operandHash(Value operand) {
+        if (operand instanceof Constant constant) {
+            return constant.getValue() * 0x9E3779B9;
+        }
+        return operand.hashCode();
+    }
+
+    // 两个操作数是同一个值，或是类型和数值都相同的常量
+    protected static boolean sameOperand(Value a, Value b) {
+        if (a == b) {
+            return true;
+        }
+        return a instanceof Constant constA && b instanceof Constant constB
+                && constA.getValue() == constB.getValue() && constA.getType().isSameType(constB.getType());
     }
 }
@@ -0,0 +1,273 @@
+package LLVMIR.Base;
+
+import java.util.AbstractSequentialList;
+import java.util.ConcurrentModificationException;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+
+/**
+ * 基本块中的指令序列。
+ * 前后指针直接保存在 {@link Instruction} 上，指令同时记录自己所在的序列，
+ * 因此按对象删除、判断是否包含、在某条指令前后插入和替换都是 O(1)，不需要先 indexOf。
+ * 一条指令同一时间只能在一个序列中，移到别的块之前要先从原序列删除。
+ * <p>
+ * 迭代器在返回一条指令时就记下它的后继：遍历中删除当前指令（无论是否通过迭代器）不影响继续遍历，
+ * 在当前指令之后新插入的指令不会被访问到；记下的后继若在访问前被删除，则沿它删除前的位置跳到仍在序列中的指令。
+ * 记下的后继若在访问前被移到了别的序列（包括删除后又插入别处），迭代器无法确定后续位置，抛出 ConcurrentModificationException。
+ * 按下标访问仍需从头遍历，是 O(n)
+ */
+public class InstructionList extends AbstractSequentialList<Instruction> {
+    private Instruction first;
+    private Instruction last;
+    private int size;
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // 第一条指令，序列为空时为 null
+    public Instruction getFirst() {
+        return first;
+    }
+
+    // 最后一条指令，序列为空时为 null
+    public Instruction getLast() {
+        return last;
+    }
+
+    @Override
+    public boolean add(Instruction instr) {
+        linkBefore(instr, null);
+        return true;
+    }
+
+    // 插入到序列开头
+    public void addFirst(Instruction instr) {
+        linkBefore(instr, first);
+    }
+
+    /**
+     * 在 pos 之前插入指令
+     *
+     * @param pos   序列中已有的指令
+     * @param instr 要插入的指令
+     */
+    public void insertBefore(Instruction pos, Instruction instr) {
+        checkMember(pos);
+        linkBefore(instr, pos);
+    }
+
+    /**
+     * 在 pos 之后插入指令
+     *
+     * @param pos   序列中已有的指令
+     * @param instr 要插入的指令
+     */
+    public void insertAfter(Instruction pos, Instruction instr) {
+        checkMember(pos);
+        linkBefore(instr, pos.next);
+    }
+
+    /**
+     * 用新指令替换序列中的旧指令，位置不变
+     *
+     * @param old   序列中已有的指令
+     * @param instr 新指令
+     */
+    public void replace(Instruction old, Instruction instr) {
+        checkMember(old);
+        linkBefore(instr, old);
+        unlink(old);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Instruction instr && instr.list == this;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (!contains(o)) {
+            return false;
+        }
+        unlink((Instruction) o);
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        while (first != null) {
+            unlink(first);
+        }
+    }
+
+    @Override
+    public ListIterator<Instruction> listIterator(int index) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return new Itr(index);
+    }
+
+    private void checkMember(Instruction instr) {
+        if (instr.list != this) {
+            throw new IllegalArgumentException("Instruction is not in this list: " + instr);
+        }
+    }
+
+    // 把 instr 接在 succ 之前，succ 为 null 时接到末尾
+    private void linkBefore(Instruction instr, Instruction succ) {
+        if (instr == null) {
+            throw new IllegalArgumentException("Instruction cannot be null");
+        }
+        if (instr.list != null) {
+            throw new IllegalStateException("Instruction is already in a block: " + instr);
+        }
+        Instruction pred = succ == null ? last : succ.prev;
+        instr.prev = pred;
+        instr.next = succ;
+        if (pred == null) {
+            first = instr;
+        } else {
+            pred.next = instr;
+        }
+        if (succ == null) {
+            last = instr;
+        } else {
+            succ.prev = instr;
+        }
+        instr.list = this;
+        size++;
+    }
+
+    // 摘下指令；保留它的前后指针，停在它上面的迭代器仍能找到后面的指令
+    private void unlink(Instruction instr) {
+        Instruction pred = instr.prev;
+        Instruction succ = instr.next;
+        if (pred == null) {
+            first = succ;
+        } else {
+            pred.next = succ;
+        }
+        if (succ == null) {
+            last = pred;
+        } else {
+            succ.prev = pred;
+        }
+        instr.list = null;
+        size--;
+    }
+
+    private class Itr implements ListIterator<Instruction> {
+        private Instruction next;
+        private Instruction lastReturned;
+        private int nextIndex;
+
+        Itr(int index) {
+            if (index == size) {
+                next = null;
+            } else {
+                next = first;
+                for (int i = 0; i < index; i++) {
+                    next = next.next;
+                }
+            }
+            nextIndex = index;
+        }
+
+        // 跳过已被删除的指令；已被加入别的序列的指令的前后指针指向那个序列，无法再沿它们找回本序列
+        private Instruction skipRemoved(Instruction instr) {
+            while (instr != null && instr.list != InstructionList.this) {
+                if (instr.list != null) {
+                    throw new ConcurrentModificationException("Instruction moved to another list during iteration: " + instr);
+                }
+                instr = instr.next;
+            }
+            return instr;
+        }
+
+        @Override
+        public boolean hasNext() {
+            next = skipRemoved(next);
+            return next != null;
+        }
+
+        @Override
+        public Instruction next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            lastReturned = next;
+            next = next.next;
+            nextIndex++;
+            return lastReturned;
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            return (next == null ? last : next.prev) != null;
+        }
+
+        @Override
+        public Instruction previous() {
+            if (!hasPrevious()) {
+                throw new NoSuchElementException();
+            }
+            next = next == null ? last : next.prev;
+            lastReturned = next;
+            nextIndex--;
+            return lastReturned;
+        }
+
+        @Override
+        public int nextIndex() {
+            return nextIndex;
+        }
+
+        @Override
+        public int previousIndex() {
+            return nextIndex - 1;
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturned == null) {
+                throw new IllegalStateException();
+            }
+            if (next == lastReturned) {
+                next = lastReturned.next;
+            } else {
+                nextIndex--;
+            }
+            if (lastReturned.list == InstructionList.this) {
+                unlink(lastReturned);
+            }
+            lastReturned = null;
+        }
+
+        @Override
+        public void set(Instruction instr) {
+            if (lastReturned == null) {
+                throw new IllegalStateException();
+            }
+            replace(lastReturned, instr);
+            if (next == lastReturned) {
+                next = instr;
+            }
+            lastReturned = instr;
+        }
+
+        @Override
+        public void add(Instruction instr) {
+            linkBefore(instr, skipRemoved(next));
+            lastReturned = null;
+            nextIndex++;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package LLVMIR.Global;
 
 import LLVMIR.Base.*;
+import LLVMIR.Base.Core.Use;
 import LLVMIR.Base.Core.User;
 import LLVMIR.Base.Core.Value;
 import LLVMIR.IRBuilder;
@@ -9,6 +10,10 @@ import LLVMIR.Ins.CIo.*;
 import LLVMIR.LLVMType.LLVMType;
 import backEnd.Base.Register;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.util.*;
 
 /**
@@ -44,6 +49,17 @@ public class Function extends User {
         varId++;
         return varId - 1;
     }
+    // 不同函数中的调用指令可能在并行优化时同时增删对本函数的引用
+    @Override
+    protected synchronized void addUse(Use use) {
+        super.addUse(use);
+    }
+
+    @Override
+    protected synchronized void removeUse(Use use) {
+        super.removeUse(use);
+    }
+
     public void setActiveCnt(int activeCnt) {
         this.activeCnt = activeCnt;
     }
@@ -141,6 +157,22 @@ public class Function extends User {
      */
     @Override
     public String toString() {
+        StringWriter sw = new StringWriter();
+        try {
+            writeTo(sw);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return sw.toString();
+    }
+
+    /**
+     * 按 toString() 的格式写出函数定义，每次只拼接一个基本块
+     *
+     * @param writer 输出目标
+     * @throws IOException 写入失败时抛出
+     */
+    public void writeTo(Writer writer) throws IOException {
         StringBuilder ret = new StringBuilder("define dso_local ");
 
         // 动态获取返回类型
@@ -162,14 +194,14 @@ public class Function extends User {
         }
 
         ret.append(") {\n");
+        writer.write(ret.toString());
 
-        // 构建基本块列表
+        // 逐个写出基本块
         for (BasicBlock block : basicBlocks) {
-            ret.append(block).append("\n");
+            writer.write(block + "\n");
         }
 
-        ret.append("}");
-        return ret.toString();
+        writer.write("}");
     }
 
     public void setPreMap(HashMap<BasicBlock, ArrayList<BasicBlock>> preMap) {
@@ -3,16 +3,16 @@ package LLVMIR.Global;
 import LLVMIR.LLVMType.ArrayType;
 import LLVMIR.LLVMType.LLVMType;
 import LLVMIR.LLVMType.PointerType;
+import LLVMIR.Base.Core.Use;
 import LLVMIR.Base.Core.Value;
 
-import java.util.ArrayList;
-import java.util.Objects;
+import java.util.Arrays;
 
 /**
  * 表示LLVM中的全局变量
  */
 public class GlobalVar extends Value {
-    private final ArrayList<Integer> initial; // 初始值列表
+    private final int[] initial;             // 初始值，数组按长度补零
     private final boolean isZeroInitial;     // 是否零初始化
     private final int len;                   // 数组长度
     private final boolean isConst;           // 是否为常量
@@ -27,33 +27,19 @@ public class GlobalVar extends Value {
      * @param len           数组长度
      * @param isConst       是否为常量
      */
-    public GlobalVar(String name, LLVMType type, ArrayList<Integer> initial, boolean isZeroInitial, int len, boolean isConst) {
+    public GlobalVar(String name, LLVMType type, int[] initial, boolean isZeroInitial, int len, boolean isConst) {
         super(name, type);
 
         this.len = len;
         this.isConst = isConst;
         this.isZeroInitial = isZeroInitial;
 
-        // 初始化列表
-        this.initial = Objects.requireNonNullElseGet(initial, ArrayList::new);
-
-        // 如果是零初始化，填充默认值
-        if (isZeroInitial) {
-            initializeWithZero();
-        }else {
-            // 如果初始值列表长度小于数组长度，填充零值
-            while (this.initial.size() < len) {
-                this.initial.add(0);
-            }
-        }
-    }
-
-    /**
-     * 填充零值到初始化列表
-     */
-    private void initializeWithZero() {
-        for (int i = 0; i < len; i++) {
-            this.initial.add(0);
+        if (isZeroInitial || initial == null) {
+            // 零初始化，填充默认值
+            this.initial = new int[len];
+        } else {
+            // 如果初始值个数小于数组长度，填充零值
+            this.initial = Arrays.copyOf(initial, Math.max(initial.length, len));
         }
     }
 
@@ -109,12 +95,12 @@ public class GlobalVar extends Value {
             arrayBuilder.append("zeroinitializer");
         } else {
             arrayBuilder.append("[");
-            for (int i = 0; i < initial.size(); i++) {
+            for (int i = 0; i < initial.length; i++) {
                 if (i > 0) {
                     arrayBuilder.append(", ");
                 }
                 arrayBuilder.append(Type.getElementType().isInt8() ? "i8 " : "i32 ")
-                        .append(Type.getElementType().isInt8() ? (initial.get(i) & 0xFF) : initial.get(i));
+                        .append(Type.getElementType().isInt8() ? (initial[i] & 0xFF) : initial[i]);
             }
             arrayBuilder.append("]");
         }
@@ -132,16 +118,21 @@ public class GlobalVar extends Value {
         if (isZeroInitial) {
             return pointedType.isInt8() ? "i8 0" : "i32 0";
         } else {
-            int value = initial.isEmpty() ? 0 : initial.get(0); // 如果初始值为空，使用默认值0
+            int value = initial.length == 0 ? 0 : initial[0]; // 如果初始值为空，使用默认值0
             return (pointedType.isInt8() ? "i8 " : "i32 ") + (pointedType.isInt8() ? (value & 0xFF) : value);
         }
     }
 
-    // 初始值列表
-    public ArrayList<Integer> getInitial() {
+    // 初始值，不应修改
+    public int[] getInitial() {
         return initial;
     }
 
+    // 第 index 个初始值
+    public int getInitial(int index) {
+        return initial[index];
+    }
+
     // 是否零初始化
     public boolean isZeroInitial() {
         return isZeroInitial;
@@ -156,4 +147,15 @@ public class GlobalVar extends Value {
         return len;
     }
 
+    // 全局变量被多个函数访问，按函数并行优化时各线程会同时增删它的使用者
+    @Override
+    protected synchronized void addUse(Use use) {
+        super.addUse(use);
+    }
+
+    @Override
+    protected synchronized void removeUse(Use use) {
+        super.removeUse(use);
+    }
+
 }
@@ -15,12 +15,15 @@ import LLVMIR.LLVMType.ArrayType;
 import LLVMIR.LLVMType.LLVMType;
 import LLVMIR.LLVMType.PointerType;
 import ast.*;
+import error.ErrorHandler;
+import frontEnd.SemanticAnalyzer;
 import symbol.FunctionSymbol;
-import symbol.SymbolTable;
 import symbol.VariableSymbol;
 import token.Token;
 import LLVMIR.Global.Function;
 import token.TokenType;
+import util.Artifact;
+import util.CompilationContext;
 
 import java.util.*;
 
@@ -28,12 +31,9 @@ import java.util.*;
  * 中间代码生成器，遍历AST，建立符号表
  */
 public class IRBuilder {
-    private static final IRBuilder  instance = new IRBuilder();
-
     public static IRBuilder getInstance() {
-        return instance;
+        return CompilationContext.current().getIRBuilder();
     }
-    private SymbolTable symbolTable; // 符号表
     private FunctionSymbol currentFunction = null;
     private boolean isGlobal = false;
     private int varId = 0;
@@ -46,6 +46,9 @@ public class IRBuilder {
     private BasicBlock curBlock;
     private Stack<Loop> loopStack = new Stack<>();
     private Module module = new Module();
+    private AstArena ast; // 表达式节点
+    private SemanticAnalyzer checker = null; // 融合模式下同步进行语义检查，常规模式下为 null
+    private boolean fusedFailed = false;     // 融合模式下已发现语义错误，之后不再检查也不再生成 IR
     public static String blockName = "b";
     private static String globalName = "@g";
     private static String strName = "@str";
@@ -53,11 +56,12 @@ public class IRBuilder {
     public static String tempName = "%t";
     private static String funcName = "@func";
 
+    // 变量、函数都取语义分析时绑定在语法树上的符号，生成 IR 时不再查找符号表
     public IRBuilder() {
-        this.symbolTable = SymbolTable.getInstance();
     }
     public void outputLLVMIRToFile() {
-        module.writeToFile("llvm_ir.txt");
+        // 代码生成只读取 IR，可以与 llvm_ir.txt 的输出同时进行
+        CompilationContext.current().getArtifactWriter().write(Artifact.LLVM_IR, module::writeTo);
     }
     // 将 IO 函数声明添加到模块头部
     public void declareIOFunctions() {
@@ -114,10 +118,55 @@ public class IRBuilder {
      * CompUnit → {Decl} {FuncDef} MainFuncDef
      */
     public void analyze(CompUnitNode compUnitNode) {
+        ast = compUnitNode.getArena();
         // 进入全局作用域
         buildCompUnit(compUnitNode);
     }
 
+    /**
+     * 融合模式：语义检查与 IR 生成在同一次遍历中完成。
+     * 每个语法成分先由语义分析器检查并声明符号，再立即生成 IR。发现第一个语义错误后跳过其余的语法成分，
+     * 调用方应丢弃已生成的 IR，重新按常规流程做语义分析以报告全部错误
+     *
+     * @param compUnitNode 编译单元，不能含有语法错误
+     * @param checker      语义分析器
+     * @return 是否完整生成了 IR（没有语义错误）
+     */
+    public boolean analyzeFused(CompUnitNode compUnitNode, SemanticAnalyzer checker) {
+        ast = compUnitNode.getArena();
+        this.checker = checker;
+        fusedFailed = false;
+        checker.beginFused(compUnitNode);
+        try {
+            buildCompUnit(compUnitNode);
+            if (fusedFailed) {
+                return false;
+            }
+            checker.endFused();
+            return true;
+        } finally {
+            this.checker = null;
+        }
+    }
+
+    /**
+     * 融合模式下对当前语法成分进行语义检查。
+     * 已发现过语义错误时不再调用语义分析器；本次检查报告了错误时记录下来，此后的语法成分都被跳过
+     *
+     * @param semanticCheck 对当前语法成分的检查
+     * @return 是否继续生成当前语法成分的 IR，常规模式下总为 true
+     */
+    private boolean check(Runnable semanticCheck) {
+        if (checker == null) {
+            return true;
+        }
+        if (!fusedFailed) {
+            semanticCheck.run();
+            fusedFailed = ErrorHandler.getInstance().errorOccured();
+        }
+        return !fusedFailed;
+    }
+
     /**
      * 遍历编译单元
      * CompUnit → {Decl} {FuncDef} MainFuncDef
@@ -165,6 +214,9 @@ public class IRBuilder {
      * ConstDef → Ident { '[' ConstExp ']' } '=' ConstInitVal
      */
     private void buildConstDef(ConstDefNode constDefNode, Token token) {
+        if (!check(() -> checker.checkConstDef(constDefNode, token))) {
+            return;
+        }
         constDefNode.initializeVariableSymbolForLLVM();
         // 获取常量符号信息（在语义分析阶段已设置好符号信息）
         VariableSymbol constSymbol = constDefNode.getVariableSymbol();
@@ -223,7 +275,7 @@ public class IRBuilder {
      */
     private void initializeScalarConstant(VariableSymbol constSymbol, Alloca allocaInstr) {
         // 获取初始值
-        Value initialValue = new Constant(constSymbol.getInitialValues().get(0));
+        Value initialValue = new Constant(constSymbol.getInitialValue(0));
         // 进行类型转换
         Value convertedValue = convertType(initialValue, constSymbol.getLLVMType());
         // 创建存储指令
@@ -237,7 +289,7 @@ public class IRBuilder {
      * @param allocaInstr 分配的内存指令
      */
     private void initializeArrayConstant(VariableSymbol constSymbol, Alloca allocaInstr) {
-        ArrayList<Integer> initialValues = constSymbol.getInitialValues();
+        int[] initialValues = constSymbol.getInitialValues();
         int length = constSymbol.getLength();
 
         for (int i = 0; i < length; i++) {
@@ -247,7 +299,7 @@ public class IRBuilder {
             curBlock.addInstr(getPtrInstr);
 
             // 获取初始值（如果不足，则补零）
-            int value = (i < initialValues.size()) ? initialValues.get(i) : 0;
+            int value = (i < initialValues.length) ? initialValues[i] : 0;
             Value initialValue = new Constant(value);
             ArrayType arrayType = (ArrayType)constSymbol.getLLVMType();
             // 进行类型转换
@@ -276,6 +328,9 @@ public class IRBuilder {
      * VarDef → Ident { '[' ConstExp ']' } [ '=' InitVal ]
      */
     private void buildVarDef(VarDefNode varDefNode, Token bTypeToken) {
+        if (!check(() -> checker.checkVarDef(varDefNode, bTypeToken))) {
+            return;
+        }
         varDefNode.initializeVariableSymbolForLLVM();
         // 获取并检查变量符号信息（之前语义分析阶段已设置好符号信息）
         VariableSymbol varSymbol = varDefNode.getVariableSymbol();
@@ -377,11 +432,12 @@ public class IRBuilder {
      * FuncDef → FuncType Ident '(' [FuncFParams] ')' Block
      */
     private void buildFuncDef(FuncDefNode funcDefNode) {
+        if (!check(() -> checker.enterFunction(funcDefNode))) {
+            return;
+        }
         // 获取函数符号并设置符号表
         FunctionSymbol functionSymbol = funcDefNode.getFunctionSymbol();
         String returnType = functionSymbol.getReturnType();
-        // 函数参数处理
-        symbolTable.enterScopeForLLVM();
         resetIds();
         // 确定返回类型
         LLVMType retType = switch (returnType) {
@@ -405,6 +461,9 @@ public class IRBuilder {
 
         // 生成函数体
         buildBlock(funcDefNode.getBlockNode(), funcDefNode.getFuncTypeNode().getToken(), true);
+        if (!check(() -> checker.exitFunction(funcDefNode.getBlockNode()))) {
+            return;
+        }
 
         // 确保函数返回指令
         if (!curBlock.hasRet()) {
@@ -413,8 +472,6 @@ public class IRBuilder {
                     : new Ret(new Constant(0), curBlock));
         }
 
-        // 退出函数作用域
-        symbolTable.exitScopeForLLVM();
         curFunc.setVarId(varId);
         curFunc.setBlockId(blockId);
     }
@@ -425,8 +482,10 @@ public class IRBuilder {
      * MainFuncDef → 'int' 'main' '(' ')' Block
      */
     private void buildMainFuncDef(MainFuncDefNode mainFuncDefNode) {
-        // 进入 main 函数作用域，重置 ID 计数器
-        symbolTable.enterScopeForLLVM();
+        // 进入 main 函数作用域（融合模式），重置 ID 计数器
+        if (!check(() -> checker.enterFunction(mainFuncDefNode))) {
+            return;
+        }
         resetIds();
         // 初始化 LLVM Function 对象，设置返回类型为 Int32
         curFunc = new Function("@main", LLVMType.Int32);
@@ -438,14 +497,15 @@ public class IRBuilder {
 
         // 生成函数体的 LLVM IR
         buildBlock(mainFuncDefNode.getBlockNode(),mainFuncDefNode.getToken(),true);
+        if (!check(() -> checker.exitFunction(mainFuncDefNode.getBlockNode()))) {
+            return;
+        }
 
         // 确保函数结尾有返回指令
         if (!curBlock.hasRet()) {
             curBlock.addInstr(new Ret(new Constant(0), curBlock)); // 默认返回值为 0
         }
 
-        // 退出 main 函数作用域
-        symbolTable.exitScopeForLLVM();
         curFunc.setVarId(varId);
         curFunc.setBlockId(blockId);
     }
@@ -513,17 +573,18 @@ public class IRBuilder {
      * 遍历函数实参列表并完成类型转换
      * FuncRParams → Exp { ',' Exp }
      *
-     * @param funcRParamsNode 函数实参节点
+     * @param call 函数调用节点，子节点依次是实参
      * @param expectedTypes 函数形参的类型列表
      * @return 转换后的实参列表
      */
-    private ArrayList<Value> buildFuncRParams(FuncRParamsNode funcRParamsNode, List<LLVMType> expectedTypes) {
+    private ArrayList<Value> buildFuncRParams(int call, List<LLVMType> expectedTypes) {
         ArrayList<Value> values = new ArrayList<>();
-        List<ExpNode> expNodes = funcRParamsNode.getExpNodes();
 
-        for (int i = 0; i < expNodes.size(); i++) {
+        int i = 0;
+        for (int argumentNode = ast.firstChild(call); argumentNode != AstArena.NONE;
+             argumentNode = ast.nextSibling(argumentNode), i++) {
             // 生成实参
-            Value argument = buildExp(expNodes.get(i));
+            Value argument = buildExp(argumentNode);
 
             // 检查是否为数组传参
             if (argument.getType() instanceof PointerType) {
@@ -699,6 +760,9 @@ public class IRBuilder {
      *       | 'printf''('StringConst {','Exp}')'';'
      */
     private void buildStmt(StmtNode stmtNode, Token funcTypeToken) {
+        if (!check(() -> checker.enterStmt(stmtNode))) {
+            return;
+        }
         StmtType type = stmtNode.getStmtType();
         switch (type) {
             case SWITCH:
@@ -721,10 +785,8 @@ public class IRBuilder {
                 break;
 
             case BLOCK:
-                symbolTable.enterScopeForLLVM();
                 // 代码块 Stmt → Block
                 buildBlock(stmtNode.getBlockNode(), funcTypeToken,false);
-                symbolTable.exitScopeForLLVM();
                 break;
 
             case IF:
@@ -969,19 +1031,19 @@ public class IRBuilder {
                 // 其他情况，根据需要添加
                 break;
         }
+        check(() -> checker.exitStmt(stmtNode));
     }
 
 
     public Value buildLValForAssign(LValNode lValNode) {
-        // 获取左值标识符（变量名）
-        String name = lValNode.getToken().getValue();
         // 从符号表中获取符号
         VariableSymbol symbol =  lValNode.getVariableSymbol();
         ArrayList<Value> values = new ArrayList<>();
 
         // 如果左值有下标（数组），则构建对应的偏移值
-        if (lValNode.getExpNode() !=null) {
-            values.add(buildExp(lValNode.getExpNode()));
+        int index = ast.firstChild(lValNode.getNode());
+        if (index != AstArena.NONE) {
+            values.add(buildExp(index));
         }
 
         // 判断左值是标量、数组或多维数组
@@ -1003,205 +1065,169 @@ public class IRBuilder {
      * Exp → AddExp
      */
     private Value buildExp(ExpNode expNode) {
-        return buildAddExp(expNode.getAddExpNode());
+        return buildExp(expNode.getRoot());
     }
 
-
-
-
     /**
-     * 遍历加减表达式
-     * AddExp → MulExp | AddExp ('+' | '−') MulExp
+     * 生成表达式节点的值。
+     * 左结合的二元运算先生成左、右操作数再生成运算指令，与逐项展开 AddExp、MulExp 等文法的顺序相同
+     *
+     * @param node 表达式节点
+     * @return 表达式的值，关系和相等运算的结果为 i1
      */
-    private Value buildAddExp(AddExpNode addExpNode) {
-        // 构建操作数和运算符列表
-        addExpNode.populateLists();
-        List<MulExpNode> mulExpNodes = addExpNode.getMulExpNodes();
-        List<Token> operators = addExpNode.getOperators();
-
-        // 初始操作数
-        Value operand1 = buildMulExp(mulExpNodes.get(0));
-
-        // 遍历后续的 MulExp 和运算符
-        for (int i = 0; i < operators.size(); i++) {
-            Value operand2 = buildMulExp(mulExpNodes.get(i + 1));
-            Token operator = operators.get(i);
-
-            // 根据操作符生成 ALU 指令
-            Alu.OP op = (operator.getType() == TokenType.PLUS) ? Alu.OP.ADD : Alu.OP.SUB;
-            Alu aluInstr = new Alu(tempName + getVarId(), operand1, operand2, op, curBlock);
-            curBlock.addInstr(aluInstr);
-
-            // 更新操作数
-            operand1 = aluInstr;
+    private Value buildExp(int node) {
+        switch (ast.kind(node)) {
+            case AstArena.NUMBER:
+                return new Constant(ast.intValue(node));
+            case AstArena.CHARACTER:
+                return buildCharacter(ast.text(node));
+            case AstArena.LVAL:
+                return buildLValForValue(node);
+            case AstArena.CALL:
+                return buildCall(node);
+            case AstArena.UNARY:
+                return buildUnaryExp(node);
+            case AstArena.BINARY:
+                return buildBinaryExp(node);
+            default:
+                // 如果没有匹配的类型，返回null
+                return null;
         }
-
-        return operand1;
     }
 
-
     /**
-     * 遍历乘除模表达式
-     * MulExp → UnaryExp | MulExp ('*' | '/' | '%') UnaryExp
+     * 生成二元运算
+     * AddExp → AddExp ('+' | '−') MulExp
+     * MulExp → MulExp ('*' | '/' | '%') UnaryExp
+     * RelExp → RelExp ('<' | '<=' | '>' | '>=') AddExp
+     * EqExp → EqExp ('==' | '!=') RelExp
      */
-    private Value buildMulExp(MulExpNode mulExpNode) {
-        // 构建操作数和运算符列表
-        mulExpNode.populateLists();
-        List<UnaryExpNode> unaryExpNodes = mulExpNode.getUnaryExpNodes();
-        List<Token> operators = mulExpNode.getOperators();
-
-        // 初始操作数
-        Value operand1 = buildUnaryExp(unaryExpNodes.get(0));
-
-        // 遍历后续的 UnaryExp 和运算符
-        for (int i = 0; i < operators.size(); i++) {
-            Value operand2 = buildUnaryExp(unaryExpNodes.get(i + 1));
-            Token operator = operators.get(i);
-
-            // 根据操作符生成 ALU 指令
-            Alu.OP op = switch (operator.getType()) {
-                case MULT -> Alu.OP.MUL;
-                case DIV -> Alu.OP.SDIV;
-                case MOD -> Alu.OP.SREM;
-                default -> throw new IllegalStateException("Unexpected value: " + operator.getType());
-            };
-            Alu aluInstr = new Alu(tempName + getVarId(), operand1, operand2, op, curBlock);
-            curBlock.addInstr(aluInstr);
-
-            // 更新操作数
-            operand1 = aluInstr;
+    private Value buildBinaryExp(int node) {
+        int left = ast.firstChild(node);
+        Value operand1 = buildExp(left);
+        Value operand2 = buildExp(ast.nextSibling(left));
+        TokenType operator = ast.op(node);
+
+        switch (operator) {
+            case PLUS, MINU, MULT, DIV, MOD -> {
+                // 根据操作符生成 ALU 指令
+                Alu.OP op = switch (operator) {
+                    case PLUS -> Alu.OP.ADD;
+                    case MINU -> Alu.OP.SUB;
+                    case MULT -> Alu.OP.MUL;
+                    case DIV -> Alu.OP.SDIV;
+                    default -> Alu.OP.SREM;
+                };
+                Alu aluInstr = new Alu(tempName + getVarId(), operand1, operand2, op, curBlock);
+                curBlock.addInstr(aluInstr);
+                return aluInstr;
+            }
+            default -> {
+                // 比较运算，i1 类型的操作数先扩展为 i32
+                if (operand1.getType() == LLVMType.Int1) {
+                    operand1 = new Zext(tempName + getVarId(), operand1, curBlock, LLVMType.Int32);
+                    curBlock.addInstr((Instruction) operand1);
+                }
+                if (operand2.getType() == LLVMType.Int1) {
+                    operand2 = new Zext(tempName + getVarId(), operand2, curBlock, LLVMType.Int32);
+                    curBlock.addInstr((Instruction) operand2);
+                }
+                // 根据操作符生成比较指令
+                Icmp.OP op = switch (operator) {
+                    case LSS -> Icmp.OP.SLT;
+                    case LEQ -> Icmp.OP.SLE;
+                    case GRE -> Icmp.OP.SGT;
+                    case GEQ -> Icmp.OP.SGE;
+                    case EQL -> Icmp.OP.EQ;
+                    case NEQ -> Icmp.OP.NE;
+                    default -> throw new IllegalStateException("Unexpected value: " + operator);
+                };
+                Icmp icmpInstr = new Icmp(operand1, operand2, tempName + getVarId(), curBlock, op);
+                curBlock.addInstr(icmpInstr);
+                return icmpInstr;
+            }
         }
-
-        return operand1;
     }
 
-
-
     /**
-     * 解析一元表达式，包括基本表达式、函数调用和一元运算符操作。
-     * @param unaryExpNode 一元表达式的节点。
-     * @return 解析后生成的LLVM IR值。
+     * 生成函数调用
+     * UnaryExp → Ident '(' [FuncRParams] ')'
      */
-    private Value buildUnaryExp(UnaryExpNode unaryExpNode) {
-        // 如果是基本表达式（PrimaryExp）
-        if (unaryExpNode.getPrimaryExpNode() != null) {
-            // 直接构建基本表达式并返回结果
-            return buildPrimaryExp(unaryExpNode.getPrimaryExpNode());
-        }
-        else if (unaryExpNode.getIdent() != null) {
-            // 函数调用
-            String functionName = unaryExpNode.getIdent();
-
-            // 获取函数定义
-            Function function = ((FunctionSymbol) symbolTable.lookup(functionName)).getLLVMIR();
-
-            // 获取形参类型列表
-            List<LLVMType> paramTypes = function.getParams().stream()
-                    .map(Param::getType)
-                    .toList();
-
-            // 构建实参
-            ArrayList<Value> parameters = new ArrayList<>();
-            if (unaryExpNode.getFuncRParamsNode() != null) {
-                parameters = buildFuncRParams(unaryExpNode.getFuncRParamsNode(), paramTypes);
-            }
+    private Value buildCall(int call) {
+        // 获取函数定义
+        Function function = ((FunctionSymbol) ast.symbol(call)).getLLVMIR();
 
-            // 创建函数调用指令
-            Call callInstr = new Call(function, tempName + getVarId(), parameters, curBlock);
-            curBlock.addInstr(callInstr);
+        // 获取形参类型列表
+        List<LLVMType> paramTypes = function.getParams().stream()
+                .map(Param::getType)
+                .toList();
 
-            // 转换返回值类型（如有必要）
-            return convertType(callInstr, LLVMType.Int32);
-        }
-        // 如果是一元运算符
-        else if (unaryExpNode.getUnaryExpNode() != null) {
-            // 获取一元运算符类型
-            TokenType operatorType = unaryExpNode.getUnaryOpNode().getToken().getType();
-            // 构建一元表达式的操作数
-            Value operand = buildUnaryExp(unaryExpNode.getUnaryExpNode());
-
-//            // 如果操作数类型为char（Int8），则首先进行类型扩展
-//            if (operand.getType() == LLVMType.Int8) {
-//                operand = new Zext(tempName + getVarId(), operand, curBlock, LLVMType.Int32);
-//                curBlock.addInstr((Instruction) operand);
-//            }
+        // 构建实参
+        ArrayList<Value> parameters = buildFuncRParams(call, paramTypes);
 
-            // 根据一元运算符类型进行相应的IR指令构建
-            if (operatorType == TokenType.PLUS) {
-                // 一元加运算符，通常无需操作，直接返回操作数
-                return operand;
-            } else if (operatorType == TokenType.MINU) {
-                // 一元减运算符，生成取负指令
-                Alu negativeInstr = new Alu(tempName + getVarId(), new Constant(0), operand, Alu.OP.SUB, curBlock);
-                curBlock.addInstr(negativeInstr);
-                return negativeInstr;
-            } else if (operatorType == TokenType.NOT) {
-                // 一元非运算符，先比较是否为0，然后扩展结果
-                Icmp cmpInstr = new Icmp(operand, new Constant(0), tempName + getVarId(), curBlock, Icmp.OP.EQ);
-                curBlock.addInstr(cmpInstr);
-                Zext zextInstr = new Zext(tempName + getVarId(), cmpInstr, curBlock, LLVMType.Int32);
-                curBlock.addInstr(zextInstr);
-                return zextInstr;
-            }
-        }
+        // 创建函数调用指令
+        Call callInstr = new Call(function, tempName + getVarId(), parameters, curBlock);
+        curBlock.addInstr(callInstr);
 
-        // 如果没有匹配的类型，返回null
-        return null;
+        // 转换返回值类型（如有必要）
+        return convertType(callInstr, LLVMType.Int32);
     }
 
-
-
     /**
-     * 遍历基本表达式
-     * PrimaryExp → '(' Exp ')' | LVal | Number | Character
+     * 生成一元运算
+     * UnaryExp → UnaryOp UnaryExp
      */
+    private Value buildUnaryExp(int node) {
+        // 获取一元运算符类型
+        TokenType operatorType = ast.op(node);
+        // 构建一元表达式的操作数
+        Value operand = buildExp(ast.firstChild(node));
+
+        // 根据一元运算符类型进行相应的IR指令构建
+        if (operatorType == TokenType.MINU) {
+            // 一元减运算符，生成取负指令
+            Alu negativeInstr = new Alu(tempName + getVarId(), new Constant(0), operand, Alu.OP.SUB, curBlock);
+            curBlock.addInstr(negativeInstr);
+            return negativeInstr;
+        } else if (operatorType == TokenType.NOT) {
+            // 一元非运算符，先比较是否为0，然后扩展结果
+            Icmp cmpInstr = new Icmp(operand, new Constant(0), tempName + getVarId(), curBlock, Icmp.OP.EQ);
+            curBlock.addInstr(cmpInstr);
+            Zext zextInstr = new Zext(tempName + getVarId(), cmpInstr, curBlock, LLVMType.Int32);
+            curBlock.addInstr(zextInstr);
+            return zextInstr;
+        }
+        // 一元加运算符，通常无需操作，直接返回操作数
+        return operand;
+    }
+
     /**
-     * 解析基本表达式，包括括号内表达式、变量引用、整数常量和字符常量。
-     * @param primaryExpNode 基本表达式节点。
-     * @return 生成的LLVM IR值。
+     * 生成字符常量
+     * @param charConst 包含两侧单引号的字符常量文本
      */
-    private Value buildPrimaryExp(PrimaryExpNode primaryExpNode) {
-        // 处理括号内的表达式
-        if (primaryExpNode.getExpNode() != null) {
-            return buildExp(primaryExpNode.getExpNode());
-        }
-        // 处理变量或数组引用
-        else if (primaryExpNode.getlValNode() != null) {
-            return buildLValForValue(primaryExpNode.getlValNode());
-        }
-        // 处理整数常量
-        else if (primaryExpNode.getNumberNode() != null) {
-            return new Constant(primaryExpNode.getNumberNode().getIntConst());
-        }
-        // 处理字符常量
-        else if (primaryExpNode.getCharacterNode() != null) {
-            // 提取字符常量字符串中的第一个字符，并转换为整数值,注意处理转义字符
-            // 提取字符常量字符串中的第一个字符，并转换为整数值,注意处理转义字符
-            String charConst = primaryExpNode.getCharacterNode().getCharConst();
-            int charValue;
-            if (charConst.charAt(1) == '\\') {
-                switch (charConst.charAt(2)) {
-                    case 'a': charValue = '\u0007'; break; // 警报字符
-                    case 'b': charValue = '\b'; break;    // 退格
-                    case 't': charValue = '\t'; break;    // 水平制表符
-                    case 'n': charValue = '\n'; break;    // 换行
-                    case 'v': charValue = '\u000B'; break; // 垂直制表符
-                    case 'f': charValue = '\f'; break;    // 换页
-                    case 'r': charValue = '\r'; break;    // 回车
-                    case '\\': charValue = '\\'; break;   // 反斜杠
-                    case '\'': charValue = '\''; break;   // 单引号
-                    case '"': charValue = '\"'; break;    // 双引号
-                    case '0': charValue = '\0'; break;    // 空字符
-                    default: throw new IllegalArgumentException("Unsupported escape sequence: \\" + charConst.charAt(2));
-                }
-            } else {
-                charValue = charConst.charAt(1);
+    private Value buildCharacter(String charConst) {
+        // 提取字符常量字符串中的第一个字符，并转换为整数值,注意处理转义字符
+        int charValue;
+        if (charConst.charAt(1) == '\\') {
+            switch (charConst.charAt(2)) {
+                case 'a': charValue = '\u0007'; break; // 警报字符
+                case 'b': charValue = '\b'; break;    // 退格
+                case 't': charValue = '\t'; break;    // 水平制表符
+                case 'n': charValue = '\n'; break;    // 换行
+                case 'v': charValue = '\u000B'; break; // 垂直制表符
+                case 'f': charValue = '\f'; break;    // 换页
+                case 'r': charValue = '\r'; break;    // 回车
+                case '\\': charValue = '\\'; break;   // 反斜杠
+                case '\'': charValue = '\''; break;   // 单引号
+                case '"': charValue = '\"'; break;    // 双引号
+                case '0': charValue = '\0'; break;    // 空字符
+                default: throw new IllegalArgumentException("Unsupported escape sequence: \\" + charConst.charAt(2));
             }
-            // 创建并返回字符常量，通常需要将字符常量值截取为8位整数
-            return new Constant(charValue & 0xFF);
+        } else {
+            charValue = charConst.charAt(1);
         }
-
-        return null;  // 如果没有匹配的类型，返回null
+        // 创建并返回字符常量，通常需要将字符常量值截取为8位整数
+        return new Constant(charValue & 0xFF);
     }
 
 
@@ -1209,12 +1235,12 @@ public class IRBuilder {
 
     /**
      * 构建用于从变量或数组加载值的LLVM IR代码。
-     * @param lValNode LVal节点，表示变量或数组访问。
+     * @param lVal LVal节点，表示变量或数组访问。
      * @return LLVM IR值，表示加载的变量或数组元素。
      */
-    private Value buildLValForValue(LValNode lValNode) {
-        // 从符号表中查找变量或数组的符号信息
-        VariableSymbol symbol = lValNode.getVariableSymbol();
+    private Value buildLValForValue(int lVal) {
+        // 语义分析时绑定的变量或数组
+        VariableSymbol symbol = (VariableSymbol) ast.symbol(lVal);
         Value baseValue = symbol.getLLVMIR();
 
         if (symbol.getDimension() == 0) {
@@ -1226,9 +1252,9 @@ public class IRBuilder {
             return convertType(loadInstr, LLVMType.Int32);
         } else if (symbol.getDimension() == 1) {
             // 一维数组
-            if (lValNode.getExpNode() != null) {
+            if (ast.firstChild(lVal) != AstArena.NONE) {
                 // 数组元素访问：通过索引访问特定元素
-                Value index = buildExp(lValNode.getExpNode());
+                Value index = buildExp(ast.firstChild(lVal));
 
                 // 计算数组元素的指针
                 GetPtr getPtrInstr = new GetPtr(tempName + getVarId(), baseValue, index, curBlock);
@@ -1265,136 +1291,54 @@ public class IRBuilder {
     // 条件表达式 Cond → LOrExp // 存在即可
     public void buildCond(CondNode condNode, BasicBlock thenBlock, BasicBlock elseBlock) {
         // 构建逻辑或表达式（LOrExp）的LLVM IR表示
-        buildLOrExp(condNode.getlOrExpNode(), thenBlock, elseBlock);
+        buildLOrExp(condNode.getRoot(), thenBlock, elseBlock);
     }
 
-    // RelExp → AddExp | RelExp ('<' | '<=' | '>' | '>=') AddExp
-    public Value buildRelExp(RelExpNode relExpNode) {
-        // 构建操作数和运算符列表
-        relExpNode.populateLists();
-        List<AddExpNode> addExpNodes = relExpNode.getAddExpNodes();
-        List<Token> operators = relExpNode.getOperators();
-
-        // 初始操作数
-        Value operand1 = buildAddExp(addExpNodes.get(0));
-        if (operators.size() == 0) {
-            return operand1; // 如果没有运算符，直接返回初始操作数
+    //LOrExp → LAndExp | LOrExp '||' LAndExp
+    public void buildLOrExp(int node, BasicBlock thenBlock, BasicBlock elseBlock) {
+        if (ast.kind(node) != AstArena.OR) { // 如果没有运算符
+            buildLAndExp(node, thenBlock, elseBlock); // 直接构建逻辑与表达式
+            return; // 返回
         }
-        // 遍历后续的 AddExp 和运算符
-        for (int i = 0; i < operators.size(); i++) {
-            // 构建下一个操作数
-            Value operand2 = buildAddExp(addExpNodes.get(i + 1));
-            Token operator = operators.get(i);
-            // 如果操作数类型为Int1，进行类型扩展
-            if (operand1.getType() == LLVMType.Int1) {
-                operand1 = new Zext(tempName + getVarId(), operand1, curBlock, LLVMType.Int32);
-                curBlock.addInstr((Instruction) operand1);
-            }
-            if (operand2.getType() == LLVMType.Int1) {
-                operand2 = new Zext(tempName + getVarId(), operand2, curBlock, LLVMType.Int32);
-                curBlock.addInstr((Instruction) operand2);
-            }
-            // 根据操作符生成比较指令
-            Icmp.OP op = switch (operator.getType()) {
-                case LSS -> Icmp.OP.SLT;
-                case LEQ -> Icmp.OP.SLE;
-                case GRE -> Icmp.OP.SGT;
-                case GEQ -> Icmp.OP.SGE;
-                default -> throw new IllegalStateException("Unexpected value: " + operator.getType());
-            };
-            Icmp icmpInstr = new Icmp(operand1, operand2, tempName + getVarId(), curBlock, op);
-            curBlock.addInstr(icmpInstr);
-
-            // 更新操作数
-            operand1 = icmpInstr;
+        int operand = ast.firstChild(node);
+        for (; ast.nextSibling(operand) != AstArena.NONE; operand = ast.nextSibling(operand)) { // 遍历除最后一个以外的操作数
+            BasicBlock nextBlock = new BasicBlock(blockName + getBlockId(), curFunc); // 创建下一个基本块
+            curFunc.addBasicBlock(nextBlock); // 将基本块添加到当前函数
+            buildLAndExp(operand, thenBlock, nextBlock); // 构建当前逻辑与表达式
+            curBlock = nextBlock; // 更新当前块
         }
-
-        return operand1; // 返回最终的比较结果
+        buildLAndExp(operand, thenBlock, elseBlock); // 构建最后一个逻辑与表达式
     }
 
     // LAndExp → EqExp | LAndExp '&&' EqExp
-    public void buildLAndExp(LAndExpNode lAndExpNode, BasicBlock thenBlock, BasicBlock elseBlock) {
-        // 构建操作数和运算符列表
-        lAndExpNode.populateLists();
-        List<EqExpNode> eqExpNodes = lAndExpNode.getEqExpNodes();
-        List<String> operators = lAndExpNode.getOperators();
-        if (operators.isEmpty()) {
+    public void buildLAndExp(int node, BasicBlock thenBlock, BasicBlock elseBlock) {
+        if (ast.kind(node) != AstArena.AND) {
             // 如果没有运算符，直接构建第一个操作数
-            buildEqExp(eqExpNodes.get(0), thenBlock, elseBlock);
+            buildEqExp(node, thenBlock, elseBlock);
             return;
         }
-        // 遍历操作数和运算符
-        for (int i = 0; i < operators.size(); i++) {
+        // 遍历操作数
+        int operand = ast.firstChild(node);
+        for (; ast.nextSibling(operand) != AstArena.NONE; operand = ast.nextSibling(operand)) {
             // 创建下一个基本块
             BasicBlock nextBlock = new BasicBlock(blockName + getBlockId(), curFunc);
             curFunc.addBasicBlock(nextBlock);
             // 构建当前操作数
-            buildEqExp(eqExpNodes.get(i), nextBlock, elseBlock);
+            buildEqExp(operand, nextBlock, elseBlock);
             curBlock = nextBlock; // 更新当前块
         }
         // 构建最后一个操作数
-        buildEqExp(eqExpNodes.get(eqExpNodes.size() - 1), thenBlock, elseBlock);
+        buildEqExp(operand, thenBlock, elseBlock);
     }
-    //LOrExp → LAndExp | LOrExp '||' LAndExp
-    public void buildLOrExp(LOrExpNode lOrExpNode, BasicBlock thenBlock, BasicBlock elseBlock) {
-        lOrExpNode.populateLists(); // 填充操作数和运算符列表
-        List<LAndExpNode> lAndExpNodes = lOrExpNode.getlAndExpNodes(); // 获取逻辑与表达式列表
-        List<String> operators = lOrExpNode.getOperators(); // 获取运算符列表
-        if (operators.isEmpty()) { // 如果没有运算符
-            buildLAndExp(lAndExpNodes.get(0), thenBlock, elseBlock); // 直接构建第一个逻辑与表达式
-            return; // 返回
-        }
-        for (int i = 0; i < operators.size(); i++) { // 遍历运算符
-            BasicBlock nextBlock = new BasicBlock(blockName + getBlockId(), curFunc); // 创建下一个基本块
-            curFunc.addBasicBlock(nextBlock); // 将基本块添加到当前函数
-            buildLAndExp(lAndExpNodes.get(i), thenBlock, nextBlock); // 构建当前逻辑与表达式
-            curBlock = nextBlock; // 更新当前块
-        }
-        buildLAndExp(lAndExpNodes.get(lAndExpNodes.size() - 1), thenBlock, elseBlock); // 构建最后一个逻辑与表达式
-    }
-
-    //EqExp → RelExp | EqExp ('==' | '!=') RelExp
-    public void buildEqExp(EqExpNode eqExpNode, BasicBlock thenBlock, BasicBlock elseBlock) {
-        eqExpNode.populateLists(); // 填充操作数和运算符列表
-        List<RelExpNode> relExpNodes = eqExpNode.getRelExpNodes(); // 获取关系表达式列表
-        List<Token> operators = eqExpNode.getOperators(); // 获取运算符列表
-
-        Value operand1 = buildRelExp(relExpNodes.get(0)); // 构建初始操作数
-        if (operators.isEmpty()) { // 如果没有运算符
-            Value result;
-            if(operand1.getType() != LLVMType.Int1){ // 如果操作数类型不是Int1
-                result = new Icmp(new Constant(0), operand1, tempName + getVarId(), curBlock, Icmp.OP.NE); // 生成比较指令
-                curBlock.addInstr((Instruction) result); // 添加指令到当前块
-            } else {
-                result = operand1; // 否则直接使用操作数
-            }
-            curBlock.addInstr(new Branch(result, thenBlock, elseBlock, curBlock)); // 根据结果跳转到不同的基本块
-            return; // 返回
-        }
-        for (int i = 0; i < operators.size(); i++) { // 遍历运算符
-            Value operand2 = buildRelExp(relExpNodes.get(i + 1)); // 构建下一个操作数
-            Token operator = operators.get(i); // 获取当前运算符
-
-            Icmp.OP op = switch (operator.getType()) { // 根据运算符类型生成比较指令
-                case EQL -> Icmp.OP.EQ;
-                case NEQ -> Icmp.OP.NE;
-                default -> throw new IllegalStateException("Unexpected value: " + operator.getType());
-            };
-            if(operand1.getType() == LLVMType.Int1){ // 如果操作数类型是Int1
-                operand1 = new Zext(tempName + getVarId(), operand1, curBlock, LLVMType.Int32); // 进行类型扩展
-                curBlock.addInstr((Instruction) operand1); // 添加指令到当前块
-            }
-            if(operand2.getType() == LLVMType.Int1){ // 如果操作数类型是Int1
-                operand2 = new Zext(tempName + getVarId(), operand2, curBlock, LLVMType.Int32); // 进行类型扩展
-                curBlock.addInstr((Instruction) operand2); // 添加指令到当前块
-            }
-            Icmp icmpInstr = new Icmp(operand1, operand2, tempName + getVarId(), curBlock, op); // 生成比较指令
-            curBlock.addInstr(icmpInstr); // 添加指令到当前块
 
-            operand1 = icmpInstr; // 更新操作数
+    // EqExp → RelExp | EqExp ('==' | '!=') RelExp，根据结果跳转
+    public void buildEqExp(int node, BasicBlock thenBlock, BasicBlock elseBlock) {
+        Value result = buildExp(node); // 构建操作数
+        if (result.getType() != LLVMType.Int1) { // 如果操作数类型不是Int1
+            result = new Icmp(new Constant(0), result, tempName + getVarId(), curBlock, Icmp.OP.NE); // 生成比较指令
+            curBlock.addInstr((Instruction) result); // 添加指令到当前块
         }
-
-        curBlock.addInstr(new Branch(operand1, thenBlock, elseBlock, curBlock)); // 根据结果跳转到不同的基本块
+        curBlock.addInstr(new Branch(result, thenBlock, elseBlock, curBlock)); // 根据结果跳转到不同的基本块
     }
 
 
@@ -87,15 +87,34 @@ public class Alu extends Instruction {
     public void setOp(OP op) {
         this.op = op;
     }
-    public String getGvnHash(){
-        String op1=operands.get(0).getName();
-        String op2=operands.get(1).getName();
-        if(op==OP.ADD || op==OP.MUL){
-            if(op1.compareTo(op2)<0){
-                op2=operands.get(0).getName();
-                op1=operands.get(1).getName();
-            }
+
+    // 加法和乘法可交换
+    private boolean isCommutative() {
+        return op == OP.ADD || op == OP.MUL;
+    }
+
+    @Override
+    public int valueNumberHash() {
+        int hash1 = operandHash(operands.get(0));
+        int hash2 = operandHash(operands.get(1));
+        // 可交换运算的哈希值与操作数顺序无关
+        int combined = isCommutative() ? hash1 + hash2 : hash1 * 31 + hash2;
+        return (InstrType.ALU.ordinal() * 8 + op.ordinal()) * 0x01000193 + combined;
+    }
+
+    /**
+     * 运算相同且操作数对应相同；加法和乘法的两个操作数交换后相同也算
+     */
+    @Override
+    public boolean isSameValueAs(Instruction other) {
+        if (!(other instanceof Alu alu) || alu.op != op) {
+            return false;
         }
-        return op1+op+op2;
+        Value a = operands.get(0);
+        Value b = operands.get(1);
+        Value c = alu.operands.get(0);
+        Value d = alu.operands.get(1);
+        return sameOperand(a, c) && sameOperand(b, d)
+                || isCommutative() && sameOperand(a, d) && sameOperand(b, c);
     }
 }
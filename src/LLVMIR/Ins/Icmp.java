@@ -102,27 +102,27 @@ public class Icmp extends Instruction {
         }
         return true;
     }
-    public String getGvnHash(){
-        String name1=operands.get(0).getName();
-        String name2=operands.get(1).getName();
-        OP temp = op;
-        if(name1.compareTo(name2)<0){
-            name1=operands.get(1).getName();
-            name2=operands.get(0).getName();
-            if(op==OP.SGE){
-                temp=OP.SLE;
-            }
-            else if(op==OP.SLE){
-                temp=OP.SGE;
-            }
-            else if(op==OP.SGT){
-                temp=OP.SLT;
-            }
-            else if(op==OP.SLT){
-                temp=OP.SGT;
-            }
-        }
-        return name1+temp+name2;
+    @Override
+    public int valueNumberHash() {
+        // a < b 与 b > a 同值：比较符与其对称符取同一个哈希，操作数的组合与顺序无关
+        int opClass = Math.min(op.ordinal(), op.getSymmetric().ordinal());
+        int combined = operandHash(operands.get(0)) + operandHash(operands.get(1));
+        return (InstrType.ICMP.ordinal() * 8 + opClass) * 0x01000193 + combined;
     }
 
+    /**
+     * 比较符与操作数对应相同，或交换两个操作数并换成对称比较符后相同
+     */
+    @Override
+    public boolean isSameValueAs(Instruction other) {
+        if (!(other instanceof Icmp icmp)) {
+            return false;
+        }
+        Value a = operands.get(0);
+        Value b = operands.get(1);
+        Value c = icmp.operands.get(0);
+        Value d = icmp.operands.get(1);
+        return icmp.op == op && sameOperand(a, c) && sameOperand(b, d)
+                || icmp.op == op.getSymmetric() && sameOperand(a, d) && sameOperand(b, c);
+    }
 }
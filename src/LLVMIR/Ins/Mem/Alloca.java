@@ -5,15 +5,13 @@ import LLVMIR.Base.Instruction;
 import LLVMIR.LLVMType.LLVMType;
 import LLVMIR.LLVMType.PointerType;
 
-import java.util.ArrayList;
-
 /**
  * 表示 LLVM 中的内存分配指令
  */
 public class Alloca extends Instruction {
     private final LLVMType pointedType;  // 指针指向的类型
     private final boolean isConst;       // 是否为常量
-    private final ArrayList<Integer> initials; // 初始值（仅适用于数组）
+    private final int[] initials;        // 初始值（仅适用于常量数组），与常量符号共享，不应修改
 
     /**
      * 构造标量 Alloca 指令
@@ -37,19 +35,20 @@ public class Alloca extends Instruction {
      * @param pointedType 指针指向的类型
      * @param initial     数组的初始值
      */
-    public Alloca(String name, BasicBlock parentBlock, LLVMType pointedType, ArrayList<Integer> initial) {
+    public Alloca(String name, BasicBlock parentBlock, LLVMType pointedType, int[] initial) {
         super(name, new PointerType(pointedType), InstrType.ALLOCA, parentBlock);
         this.pointedType = pointedType;
         this.isConst = true;
-        this.initials = initial != null ? new ArrayList<>(initial) : new ArrayList<>(); // 深拷贝初始值
+        this.initials = initial != null ? initial : new int[0];
     }
 
     public boolean isConst() {
         return isConst;
     }
 
-    public ArrayList<Integer> getInitial() {
-        return initials != null ? new ArrayList<>(initials) : new ArrayList<>(); // 返回副本
+    // 常量数组第 index 个元素的初始值
+    public int getInitial(int index) {
+        return initials[index];
     }
 
     public LLVMType getPointedType() {
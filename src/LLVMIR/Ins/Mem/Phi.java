@@ -3,54 +3,69 @@ package LLVMIR.Ins.Mem;
 import LLVMIR.Base.BasicBlock;
 import LLVMIR.Base.Instruction;
 import LLVMIR.LLVMType.LLVMType;
+import LLVMIR.Base.Core.Use;
 import LLVMIR.Base.Core.Value;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 public class Phi extends Instruction {
-    private ArrayList<BasicBlock> incomingBlocks;
+    private final ArrayList<BasicBlock> incomingBlocks;
+    private final List<BasicBlock> incomingView;
+    // 对各前驱块的使用，与 incomingBlocks 同下标；Phi 被删除后为 null
+    private final ArrayList<Use> blockUses = new ArrayList<>();
 
     public Phi(String name, BasicBlock parentBlock, ArrayList<BasicBlock> incomingBlocks, LLVMType type) {
         super(name, type, InstrType.PHI, parentBlock);
         this.incomingBlocks = incomingBlocks;
-        // 确保 operands 被初始化
-        if (this.operands == null) {
-            this.operands = new ArrayList<>();
-        }
+        this.incomingView = Collections.unmodifiableList(incomingBlocks);
         for (int i = 0; i < incomingBlocks.size(); i++) {
-            operands.add(null);
-            incomingBlocks.get(i).addUser(this);
+            addOperand(null);
+            blockUses.add(link(incomingBlocks.get(i), i));
         }
     }
 
     public void addIncomingValue(BasicBlock block, Value value) {
-        int index = incomingBlocks.indexOf(block);
-        operands.set(index, value);
-        value.addUser(this);
-
+        setOperand(value, incomingBlocks.indexOf(block));
     }
 
+    // 前驱块的使用改写 incomingBlocks，其余使用改写对应的操作数
     @Override
-    public void modifyValue(Value oldValue, Value newValue) {
-        if (oldValue instanceof BasicBlock) {
-            while (true) {
-                int index = incomingBlocks.indexOf(oldValue);
-                if (index == -1) break;
-                incomingBlocks.set(index, (BasicBlock) newValue);
-                newValue.addUser(this);
-            }
+    protected void replaceUse(Use use, Value newValue) {
+        if (blockUses.get(use.getIndex()) == use) {
+            incomingBlocks.set(use.getIndex(), (BasicBlock) newValue);
+            moveUse(use, newValue);
         } else {
-            while (true) {
-                int index = operands.indexOf(oldValue);
-                if (index == -1) break;
-                operands.set(index, newValue);
-                newValue.addUser(this);
-            }
+            super.replaceUse(use, newValue);
+        }
+    }
+
+    @Override
+    public void removeOperands() {
+        super.removeOperands();
+        for (int i = 0; i < blockUses.size(); i++) {
+            unlink(blockUses.get(i));
+            blockUses.set(i, null);
         }
     }
 
-    public ArrayList<BasicBlock> getIncomingBlocks() {
-        return incomingBlocks;
+    /**
+     * 删除第 index 个前驱块及其对应的值
+     *
+     * @param index 位置
+     */
+    public void removeIncoming(int index) {
+        unlink(blockUses.get(index));
+        incomingBlocks.remove(index);
+        blockUses.remove(index);
+        removeOperand(index);
+        renumber(blockUses, index);
+    }
+
+    // 前驱块列表的只读视图，删除前驱块用 removeIncoming
+    public List<BasicBlock> getIncomingBlocks() {
+        return incomingView;
     }
 
     @Override
@@ -21,8 +21,7 @@ public class Move extends Instruction {
         return operands.get(0);
     }
     public void setFrom(Value value){
-        if(value!=null) value.addUser(this);
-        operands.set(1,value);
+        setOperand(value,1);
     }
     public String toString(){
         return "move "+getTo().getName()+","+getFrom().getName();
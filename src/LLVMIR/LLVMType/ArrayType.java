@@ -43,6 +43,12 @@ public class ArrayType extends LLVMType {
         return length;
     }
 
+    @Override
+    public boolean isSameType(LLVMType other) {
+        return other instanceof ArrayType array && length == array.length
+                && elementType.isSameType(array.elementType);
+    }
+
     /**
      * 返回 LLVM IR 格式的数组类型字符串
      *
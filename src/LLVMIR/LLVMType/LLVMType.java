@@ -53,6 +53,17 @@ public class LLVMType {
         return this instanceof FuncType;
     }
 
+    /**
+     * 判断两个类型的结构是否相同。基本类型都是共享的单例，直接比较引用；
+     * 指针和数组类型每次新建，由子类按结构比较
+     *
+     * @param other 另一个类型
+     * @return 是否是同一类型
+     */
+    public boolean isSameType(LLVMType other) {
+        return this == other;
+    }
+
     /**
      * 比较当前类型与目标类型的大小关系
      *
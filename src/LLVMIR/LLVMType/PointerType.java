@@ -27,6 +27,11 @@ public class PointerType extends LLVMType {
         return pointedType;
     }
 
+    @Override
+    public boolean isSameType(LLVMType other) {
+        return other instanceof PointerType pointer && pointedType.isSameType(pointer.pointedType);
+    }
+
     /**
      * 返回 LLVM IR 格式的指针类型字符串
      *
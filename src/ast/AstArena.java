@@ -0,0 +1,311 @@
+package ast;
+
+import symbol.Symbol;
+import symbol.SymbolTable;
+import token.TokenType;
+
+import java.util.Arrays;
+
+/**
+ * 表达式语法树的扁平存储。
+ * 表达式节点不再是 Exp → AddExp → MulExp → UnaryExp → PrimaryExp 这样一层层包装的对象，
+ * 而是同一组 int 数组中的一个下标：种类、数据、行号、第一个子节点和下一个兄弟节点各占一个 int。
+ * 只有一个操作数的文法层次不产生节点，括号也不产生节点，一个数字常量就是一个节点。
+ * 标识符名和字符常量放在字面量表中，LVal 和函数调用在语义分析中查到的符号也按同一下标保存。
+ * <p>
+ * 节点下标同时就是遍历用的游标：{@link #kind(int)}、{@link #firstChild(int)}、{@link #nextSibling(int)} 等
+ * 方法接收一个节点下标，返回它的属性或者相邻节点的下标，没有对应节点时返回 {@link #NONE}
+ */
+public class AstArena {
+    public static final int NONE = -1;
+
+    // 节点种类
+    public static final int NUMBER = 0;    // 整数常量，数据是数值
+    public static final int CHARACTER = 1; // 字符常量，数据是字面量下标，文本包含两侧的单引号
+    public static final int LVAL = 2;      // Ident ['[' Exp ']']，数据是名字的字面量下标，子节点是可选的下标表达式
+    public static final int CALL = 3;      // Ident '(' [FuncRParams] ')'，数据是函数名的字面量下标，子节点依次是实参
+    public static final int UNARY = 4;     // UnaryOp UnaryExp，数据是运算符，唯一的子节点是操作数
+    public static final int BINARY = 5;    // 左结合的二元运算，数据是运算符，两个子节点依次是左、右操作数
+    public static final int AND = 6;       // EqExp '&&' EqExp ...，子节点依次是各个操作数
+    public static final int OR = 7;        // LAndExp '||' LAndExp ...，子节点依次是各个操作数
+    public static final int EMPTY = 8;     // 语法错误导致缺失的操作数
+
+    private static final TokenType[] TYPES = TokenType.values();
+
+    private int size = 0;
+    private int[] kinds;
+    private int[] data;
+    private int[] lines;
+    private int[] firstChildren;
+    private int[] nextSiblings;
+
+    private int literalCount = 0;
+    private String[] literals; // 标识符名和字符常量
+    private Symbol[] symbols;  // 与字面量同下标，保存 LVal 和函数调用引用的符号
+    private ConstantFolder folder; // 常量求值，第一次求值时创建
+
+    public AstArena() {
+        this(256);
+    }
+
+    /**
+     * @param capacity 预计的节点数
+     */
+    public AstArena(int capacity) {
+        capacity = Math.max(16, capacity);
+        kinds = new int[capacity];
+        data = new int[capacity];
+        lines = new int[capacity];
+        firstChildren = new int[capacity];
+        nextSiblings = new int[capacity];
+        literals = new String[capacity / 2];
+        symbols = new Symbol[capacity / 2];
+    }
+
+    // ---------------- 构建，由语法分析器调用 ----------------
+
+    private int add(int kind, int value, int line, int firstChild) {
+        if (size == kinds.length) {
+            int capacity = size * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            data = Arrays.copyOf(data, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+            firstChildren = Arrays.copyOf(firstChildren, capacity);
+            nextSiblings = Arrays.copyOf(nextSiblings, capacity);
+        }
+        kinds[size] = kind;
+        data[size] = value;
+        lines[size] = line;
+        firstChildren[size] = firstChild;
+        nextSiblings[size] = NONE;
+        return size++;
+    }
+
+    private int addLiteral(String text) {
+        if (literalCount == literals.length) {
+            int capacity = literalCount * 2;
+            literals = Arrays.copyOf(literals, capacity);
+            symbols = Arrays.copyOf(symbols, capacity);
+        }
+        literals[literalCount] = text;
+        return literalCount++;
+    }
+
+    // 语法错误时子表达式可能缺失，用 EMPTY 节点占位，保证子节点链表完整
+    public int orEmpty(int node, int line) {
+        return node == NONE ? add(EMPTY, 0, line, NONE) : node;
+    }
+
+    public int number(int value, int line) {
+        return add(NUMBER, value, line, NONE);
+    }
+
+    public int character(String text, int line) {
+        return add(CHARACTER, addLiteral(text), line, NONE);
+    }
+
+    /**
+     * @param name  变量名
+     * @param line  行号
+     * @param index 下标表达式，没有时为 {@link #NONE}
+     */
+    public int lVal(String name, int line, int index) {
+        return add(LVAL, addLiteral(name), line, index);
+    }
+
+    /**
+     * @param name      函数名
+     * @param line      行号
+     * @param arguments 已经用 {@link #link(int, int)} 串起来的实参中的第一个，没有实参时为 {@link #NONE}
+     */
+    public int call(String name, int line, int arguments) {
+        return add(CALL, addLiteral(name), line, arguments);
+    }
+
+    public int unary(TokenType op, int line, int operand) {
+        return add(UNARY, op.ordinal(), line, operand);
+    }
+
+    public int binary(TokenType op, int line, int left, int right) {
+        nextSiblings[left] = right;
+        return add(BINARY, op.ordinal(), line, left);
+    }
+
+    /**
+     * @param kind     {@link #AND} 或 {@link #OR}
+     * @param operands 已经用 {@link #link(int, int)} 串起来的操作数中的第一个
+     */
+    public int logical(int kind, int line, int operands) {
+        return add(kind, 0, line, operands);
+    }
+
+    /**
+     * 把 next 接在 previous 之后作为兄弟节点
+     *
+     * @return next，便于继续向后链接
+     */
+    public int link(int previous, int next) {
+        nextSiblings[previous] = next;
+        return next;
+    }
+
+    // ---------------- 游标 ----------------
+
+    public int size() {
+        return size;
+    }
+
+    public int kind(int node) {
+        return kinds[node];
+    }
+
+    public int line(int node) {
+        return lines[node];
+    }
+
+    public int firstChild(int node) {
+        return firstChildren[node];
+    }
+
+    public int nextSibling(int node) {
+        return nextSiblings[node];
+    }
+
+    public int childCount(int node) {
+        int count = 0;
+        for (int child = firstChildren[node]; child != NONE; child = nextSiblings[child]) {
+            count++;
+        }
+        return count;
+    }
+
+    // UNARY 和 BINARY 节点的运算符
+    public TokenType op(int node) {
+        return TYPES[data[node]];
+    }
+
+    // NUMBER 节点的值
+    public int intValue(int node) {
+        return data[node];
+    }
+
+    // CHARACTER 节点的原始文本，LVAL 和 CALL 节点的名字
+    public String text(int node) {
+        return literals[data[node]];
+    }
+
+    // LVAL 和 CALL 节点在语义分析中绑定的符号，未绑定时为 null
+    public Symbol symbol(int node) {
+        return symbols[data[node]];
+    }
+
+    public void setSymbol(int node, Symbol symbol) {
+        symbols[data[node]] = symbol;
+    }
+
+    // 解除所有绑定并丢弃已求出的常量值，重新做语义分析之前调用
+    public void clearSymbols() {
+        Arrays.fill(symbols, 0, literalCount, null);
+        if (folder != null) {
+            folder.clear();
+        }
+    }
+
+    // ---------------- 常量求值 ----------------
+
+    /**
+     * 计算常量表达式的值，结果按节点记录，见 {@link ConstantFolder}
+     *
+     * @param node 表达式节点
+     * @return 表达式的值
+     */
+    public int evaluate(int node) {
+        if (folder == null) {
+            folder = new ConstantFolder(this);
+        }
+        return folder.fold(node);
+    }
+
+    // 语义分析时已绑定的符号；没有绑定时（如 case 标签中的常量）在当前作用域中查找并绑定
+    Symbol resolve(int node) {
+        Symbol symbol = symbols[data[node]];
+        if (symbol == null) {
+            symbol = SymbolTable.getInstance().lookup(text(node));
+            symbols[data[node]] = symbol;
+        }
+        return symbol;
+    }
+
+    // ---------------- 调试输出 ----------------
+
+    /**
+     * 按中缀形式输出表达式，括号按结构补全
+     *
+     * @param node 表达式节点
+     */
+    public void print(int node) {
+        StringBuilder out = new StringBuilder();
+        appendTo(out, node);
+        System.out.println(out);
+    }
+
+    private void appendTo(StringBuilder out, int node) {
+        switch (kinds[node]) {
+            case NUMBER -> out.append(data[node]);
+            case CHARACTER -> out.append(text(node));
+            case LVAL -> {
+                out.append(text(node));
+                if (firstChildren[node] != NONE) {
+                    out.append('[');
+                    appendTo(out, firstChildren[node]);
+                    out.append(']');
+                }
+            }
+            case CALL -> {
+                out.append(text(node)).append('(');
+                for (int child = firstChildren[node]; child != NONE; child = nextSiblings[child]) {
+                    if (child != firstChildren[node]) {
+                        out.append(", ");
+                    }
+                    appendTo(out, child);
+                }
+                out.append(')');
+            }
+            case UNARY -> {
+                out.append(opText(op(node)));
+                appendTo(out, firstChildren[node]);
+            }
+            case BINARY, AND, OR -> {
+                String separator = kinds[node] == AND ? " && "
+                        : kinds[node] == OR ? " || " : " " + opText(op(node)) + " ";
+                out.append('(');
+                for (int child = firstChildren[node]; child != NONE; child = nextSiblings[child]) {
+                    if (child != firstChildren[node]) {
+                        out.append(separator);
+                    }
+                    appendTo(out, child);
+                }
+                out.append(')');
+            }
+            default -> out.append("<error>");
+        }
+    }
+
+    private static String opText(TokenType op) {
+        return switch (op) {
+            case PLUS -> "+";
+            case MINU -> "-";
+            case NOT -> "!";
+            case MULT -> "*";
+            case DIV -> "/";
+            case MOD -> "%";
+            case LSS -> "<";
+            case LEQ -> "<=";
+            case GRE -> ">";
+            case GEQ -> ">=";
+            case EQL -> "==";
+            case NEQ -> "!=";
+            default -> op.name();
+        };
+    }
+}
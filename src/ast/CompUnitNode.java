@@ -13,11 +13,19 @@ public class CompUnitNode {
     private List<FuncDefNode> funcDefNodes;
     // 主函数定义
     private MainFuncDefNode mainFuncDefNode;
+    // 所有表达式节点
+    private AstArena arena;
 
-    public CompUnitNode(List<DeclNode> declNodes, List<FuncDefNode> funcDefNodes, MainFuncDefNode mainFuncDefNode) {
+    public CompUnitNode(List<DeclNode> declNodes, List<FuncDefNode> funcDefNodes, MainFuncDefNode mainFuncDefNode,
+                        AstArena arena) {
         this.declNodes = declNodes;
         this.funcDefNodes = funcDefNodes;
         this.mainFuncDefNode = mainFuncDefNode;
+        this.arena = arena;
+    }
+
+    public AstArena getArena() {
+        return arena;
     }
 
     public List<DeclNode> getDeclNodes() {
@@ -3,21 +3,27 @@ package ast;
 /**
  * 条件表达式节点
  * 对应文法：Cond → LOrExp
+ * 根节点是 {@link AstArena#OR}、{@link AstArena#AND}，或者没有 '||'、'&&' 时的 EqExp 子树
  */
 public class CondNode {
-    private LOrExpNode lOrExpNode;
+    private final AstArena arena;
+    private final int root;
 
-    public CondNode(LOrExpNode lOrExpNode) {
-        this.lOrExpNode = lOrExpNode;
+    public CondNode(AstArena arena, int root) {
+        this.arena = arena;
+        this.root = root;
     }
 
-    public LOrExpNode getlOrExpNode() {
-        return lOrExpNode;
+    public AstArena getArena() {
+        return arena;
     }
 
-    public void print() {
-        lOrExpNode.print();
+    public int getRoot() {
+        return root;
+    }
 
+    public void print() {
+        arena.print(root);
         System.out.println("<Cond>");
     }
 }
@@ -5,6 +5,7 @@ import LLVMIR.LLVMType.LLVMType;
 import symbol.VariableSymbol;
 import token.Token;
 
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -64,7 +65,7 @@ public class ConstDefNode {
             // 全局常量
             if (constInitValNode != null) {
                 // 设置初始值
-                variableSymbol.setInitialValues(constInitValNode.evaluate());
+                variableSymbol.setInitialValues(padToLength(constInitValNode.evaluate(), length));
                 variableSymbol.setZeroInitialized(constInitValNode.isZero());
             } else {
                 // 未初始化全局常量默认置零
@@ -73,11 +74,16 @@ public class ConstDefNode {
         } else {
             // 局部常量
             if (constInitValNode != null) {
-                variableSymbol.setInitialValues(constInitValNode.evaluate());
+                variableSymbol.setInitialValues(padToLength(constInitValNode.evaluate(), length));
             }
         }
     }
 
+    // 初值个数少于数组长度时补零，常量数组的任意元素都可以直接按下标读取
+    static int[] padToLength(int[] values, int length) {
+        return values.length >= length ? values : Arrays.copyOf(values, length);
+    }
+
     // 辅助方法：确定 LLVM 类型
     private LLVMType determineLLVMType(String baseType, int length) {
         if (constInitValNode.isStringConst()) {
@@ -3,24 +3,31 @@ package ast;
 /**
  * 常量表达式节点
  * 对应文法：ConstExp → AddExp
+ * 表达式本身保存在 {@link AstArena} 中，这里只记录根节点的下标
  */
 public class ConstExpNode {
-    private AddExpNode addExpNode;
-    int result;
+    private final AstArena arena;
+    private final int root;
 
-    public ConstExpNode(AddExpNode addExpNode) {
-        this.addExpNode = addExpNode;
+    public ConstExpNode(AstArena arena, int root) {
+        this.arena = arena;
+        this.root = root;
     }
 
-    public AddExpNode getAddExpNode() {
-        return addExpNode;
+    public AstArena getArena() {
+        return arena;
     }
-    public int evaluate(){
-        result = addExpNode.evaluate();
-        return addExpNode.evaluate();
+
+    public int getRoot() {
+        return root;
+    }
+
+    public int evaluate() {
+        return arena.evaluate(root);
     }
+
     public void print() {
-        addExpNode.print();
+        arena.print(root);
         // 不需要输出 <ConstExp>，根据您的要求
     }
 }
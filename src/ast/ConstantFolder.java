@@ -0,0 +1,171 @@
+package ast;
+
+import symbol.VariableSymbol;
+
+import java.util.Arrays;
+
+/**
+ * 常量表达式求值器。
+ * 每个节点的值在第一次求值后记录下来，同一表达式（如 switch 的 case 标签在语义分析和生成 IR 时各求值一次）
+ * 或共享的子表达式不会重复计算；LVal 取绑定符号中已折叠好的初值数组，按下标直接读取。
+ * 常量的值在定义处求出后不再改变，因此记录的结果始终有效
+ */
+public class ConstantFolder {
+    private final AstArena arena;
+    private int[] values = new int[0];         // 节点的值
+    private boolean[] folded = new boolean[0]; // 节点的值是否已求出
+
+    public ConstantFolder(AstArena arena) {
+        this.arena = arena;
+    }
+
+    /**
+     * 计算常量表达式的值，LVal 取绑定符号的初始值，函数调用记为 0
+     *
+     * @param node 表达式节点
+     * @return 表达式的值
+     */
+    public int fold(int node) {
+        if (node >= folded.length) {
+            int capacity = Math.max(arena.size(), node + 1);
+            values = Arrays.copyOf(values, capacity);
+            folded = Arrays.copyOf(folded, capacity);
+        } else if (folded[node]) {
+            return values[node];
+        }
+        int value = compute(node);
+        values[node] = value;
+        folded[node] = true;
+        return value;
+    }
+
+    // 丢弃所有记录的值
+    public void clear() {
+        Arrays.fill(folded, false);
+    }
+
+    private int compute(int node) {
+        switch (arena.kind(node)) {
+            case AstArena.NUMBER:
+                return arena.intValue(node);
+            case AstArena.CHARACTER:
+                return evaluateCharacter(arena.text(node));
+            case AstArena.LVAL: {
+                VariableSymbol varSymbol = (VariableSymbol) arena.resolve(node);
+                if (varSymbol.getDimension() == 0) {
+                    return varSymbol.getInitialValue(0);
+                }
+                return varSymbol.getInitialValue(fold(arena.firstChild(node)));
+            }
+            case AstArena.UNARY: {
+                int operand = fold(arena.firstChild(node));
+                switch (arena.op(node)) {
+                    case MINU:
+                        return -operand;
+                    case NOT:
+                        return operand == 0 ? 1 : 0;
+                    default:
+                        return operand;
+                }
+            }
+            case AstArena.BINARY: {
+                int left = arena.firstChild(node);
+                int lhs = fold(left);
+                int rhs = fold(arena.nextSibling(left));
+                switch (arena.op(node)) {
+                    case PLUS:
+                        return lhs + rhs;
+                    case MINU:
+                        return lhs - rhs;
+                    case MULT:
+                        return lhs * rhs;
+                    case DIV:
+                        return lhs / rhs;
+                    case MOD:
+                        return lhs % rhs;
+                    default:
+                        return 0;
+                }
+            }
+            default:
+                return 0;
+        }
+    }
+
+    // 字符常量的 ASCII 值，文本形如 'a' 或 '\n'
+    private static int evaluateCharacter(String charConst) {
+        if (charConst.charAt(1) == '\\') {
+            switch (charConst.charAt(2)) {
+                case '0':
+                    return 0;
+                case 'n':
+                    return 10;
+                case 'r':
+                    return 13;
+                case 't':
+                    return 9;
+                case '\\':
+                    return 92;
+                case '\'':
+                    return 39;
+                case '\"':
+                    return 34;
+                default:
+                    return charConst.charAt(2);
+            }
+        }
+        return charConst.charAt(1);
+    }
+
+    /**
+     * 字符串常量逐字符的值（处理转义字符），末尾补 '\0'
+     *
+     * @param stringConst 带两侧引号的字符串常量
+     * @return 各字符的值
+     */
+    public static int[] foldString(String stringConst) {
+        String strippedString = stringConst;
+        // 去掉字符串两侧的引号
+        if (stringConst.length() > 1 && stringConst.charAt(0) == '\"' && stringConst.charAt(stringConst.length() - 1) == '\"') {
+            strippedString = stringConst.substring(1, stringConst.length() - 1);
+        }
+
+        int[] values = new int[strippedString.length() + 1];
+        int count = 0;
+        // 遍历字符串并处理字符和转义字符
+        for (int i = 0; i < strippedString.length(); i++) {
+            char c = strippedString.charAt(i);
+            if (c == '\\' && i + 1 < strippedString.length()) { // 检测到转义字符
+                char nextChar = strippedString.charAt(++i);
+                switch (nextChar) {
+                    case 'a': c = '\u0007'; break; // 警报字符
+                    case 'b': c = '\b';    break; // 退格
+                    case 't': c = '\t';    break; // 水平制表符
+                    case 'n': c = '\n';    break; // 换行
+                    case 'v': c = '\u000B'; break; // 垂直制表符
+                    case 'f': c = '\f';    break; // 换页
+                    case 'r': c = '\r';    break; // 回车
+                    case '\\': c = '\\';   break; // 反斜杠
+                    case '\'': c = '\'';   break; // 单引号
+                    case '"': c = '\"';    break; // 双引号
+                    case '0': c = '\0';    break; // 空字符
+                    default: throw new IllegalArgumentException("Unsupported escape sequence: \\" + nextChar);
+                }
+            }
+            values[count++] = c;
+        }
+        // 添加结束符 '\0'
+        values[count++] = 0;
+        return Arrays.copyOf(values, count);
+    }
+
+    // 所有值是否均为 0
+    public static boolean isZero(int[] values) {
+        for (int value : values) {
+            if (value != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -3,22 +3,31 @@ package ast;
 /**
  * 表达式节点
  * 对应文法：Exp → AddExp
+ * 表达式本身保存在 {@link AstArena} 中，这里只记录根节点的下标
  */
 public class ExpNode {
-    private AddExpNode addExpNode;
+    private final AstArena arena;
+    private final int root;
 
-    public ExpNode(AddExpNode addExpNode) {
-        this.addExpNode = addExpNode;
+    public ExpNode(AstArena arena, int root) {
+        this.arena = arena;
+        this.root = root;
     }
 
-    public AddExpNode getAddExpNode() {
-        return addExpNode;
+    public AstArena getArena() {
+        return arena;
     }
-    public int evaluate(){
-        return addExpNode.evaluate();
+
+    public int getRoot() {
+        return root;
+    }
+
+    public int evaluate() {
+        return arena.evaluate(root);
     }
+
     public void print() {
-        addExpNode.print();
+        arena.print(root);
         System.out.println("<Exp>");
     }
 }
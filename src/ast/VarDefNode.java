@@ -67,7 +67,7 @@ public class VarDefNode {
         if (variableSymbol.isGlobal()) {
             // 全局变量
             if (initValNode != null) {
-                variableSymbol.setInitialValues(initValNode.evaluate());
+                variableSymbol.setInitialValues(ConstDefNode.padToLength(initValNode.evaluate(), length));
                 variableSymbol.setZeroInitialized(initValNode.isZero());
             } else {
                 variableSymbol.setZeroInitialized(true);
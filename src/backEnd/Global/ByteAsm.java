@@ -1,41 +1,20 @@
 package backEnd.Global;
 
-import java.util.List;
-
 public class ByteAsm extends GlobalAsm {
-    private List<Integer> bytes;
-    private int count;
-
-    // 用于初始化为零的情况
-    public ByteAsm(String label, int count) {
-        super(label);
-        this.count = count;
-    }
+    private int[] bytes;
 
-    // 用于指定字节值的情况
-    public ByteAsm(String label, List<Integer> bytes) {
+    // 每个值只保留低 8 位
+    public ByteAsm(String label, int[] values) {
         super(label);
-        this.bytes = bytes;
+        this.bytes = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            bytes[i] = values[i] & 0xFF;
+        }
     }
 
     @Override
     public String toString() {
-        StringBuilder sb = new StringBuilder();
-        sb.append(label).append(": .byte ");
-        if (bytes != null) {
-            for (int i = 0; i < bytes.size(); i++) {
-                sb.append(bytes.get(i));
-                if (i != bytes.size() - 1) {
-                    sb.append(", ");
-                }
-            }
-        } else {
-            if(count == 0) {
-                sb.append("0");
-            }else {
-                sb.append("0:").append(count);
-            }
-        }
-        return sb.toString();
+        // 字节数据不要求对齐，零游程直接写成 .space N
+        return runs(".byte", bytes, ".space");
     }
 }
@@ -6,13 +6,72 @@ import backEnd.Base.Register;
 import java.util.List;
 
 public abstract class GlobalAsm extends AsmInstruction {
+    // 连续相同的值达到这个长度时按 value:count 单独成行
+    private static final int MIN_RUN = 4;
+
     protected String label;
 
     public GlobalAsm(String label) {
         this.label = label;
     }
 
+    /**
+     * 按游程输出数据：较长的相同值写成 value:count（零游程由 zeroRun 决定写法），
+     * 其余值逐个列出；第一行带标号，后续各行是不带标号的同类伪指令，地址依次相接
+     *
+     * @param directive 伪指令，如 .word
+     * @param values    数据
+     * @param zeroRun   零游程的写法，为 null 时与其他游程相同
+     */
+    protected String runs(String directive, int[] values, String zeroRun) {
+        StringBuilder sb = new StringBuilder(label).append(": ");
+        if (values.length == 0) {
+            return sb.append(directive).append(" 0").toString();
+        }
+        int literalStart = 0;
+        int i = 0;
+        while (i < values.length) {
+            int runEnd = i + 1;
+            while (runEnd < values.length && values[runEnd] == values[i]) {
+                runEnd++;
+            }
+            if (runEnd - i >= MIN_RUN) {
+                appendLiterals(sb, directive, values, literalStart, i);
+                newLine(sb);
+                if (values[i] == 0 && zeroRun != null) {
+                    sb.append(zeroRun).append(' ').append(runEnd - i);
+                } else {
+                    sb.append(directive).append(' ').append(values[i]).append(':').append(runEnd - i);
+                }
+                literalStart = runEnd;
+            }
+            i = runEnd;
+        }
+        appendLiterals(sb, directive, values, literalStart, values.length);
+        return sb.toString();
+    }
+
+    private static void appendLiterals(StringBuilder sb, String directive, int[] values, int from, int to) {
+        if (from == to) {
+            return;
+        }
+        newLine(sb);
+        sb.append(directive).append(' ');
+        for (int i = from; i < to; i++) {
+            if (i != from) {
+                sb.append(", ");
+            }
+            sb.append(values[i]);
+        }
+    }
+
+    // 标号之后的第一条伪指令与标号同行
+    private static void newLine(StringBuilder sb) {
+        if (sb.charAt(sb.length() - 1) != ' ') {
+            sb.append("\n\t");
+        }
+    }
+
     @Override
     public abstract String toString();
 }
-
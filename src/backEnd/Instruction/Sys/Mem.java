@@ -4,7 +4,7 @@ import backEnd.Base.AsmInstruction;
 import backEnd.Base.Register;
 public class Mem extends AsmInstruction {
     public enum MemOp {
-        lb, lh, lw, sb, sh, sw
+        lb, lbu, lh, lw, sb, sh, sw
     }
     private MemOp op;
     private int offset;
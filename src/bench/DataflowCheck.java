@@ -0,0 +1,322 @@
+package bench;
+
+import LLVMIR.Base.BasicBlock;
+import LLVMIR.Base.Core.Value;
+import LLVMIR.Base.Instruction;
+import LLVMIR.Global.Function;
+import LLVMIR.Ins.Alu;
+import LLVMIR.Ins.GetPtr;
+import LLVMIR.Ins.Icmp;
+import LLVMIR.Ins.Move;
+import driver.CompilerDriver;
+import midEnd.base.CFGBuilder;
+import midEnd.dataflow.AvailableExpressions;
+import midEnd.dataflow.BitVector;
+import midEnd.dataflow.ReachingDefinitions;
+import util.CompilationContext;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.IntFunction;
+
+/**
+ * 数据流分析对照检查：对优化后的每个函数求解 {@link ReachingDefinitions} 与 {@link AvailableExpressions}，
+ * 与按教科书方程逐条指令计算、以 HashSet 表示集合、按块顺序轮转迭代到不动点的参照实现比较每个块的 In 与 Out，
+ * 任何不一致都会输出首个不同的块并以非零状态退出。
+ * <p>
+ * 参照实现中前向问题的入口块总取边界值（空集）与前驱的交汇，交汇为交的问题从全集开始迭代，
+ * 可用表达式按 {@link Instruction#isSameValueAs} 线性查找划分，不经过值编号表。
+ * 每个函数在原 CFG 上检查一次，再把所有出口块连回入口块检查一次，使入口块成为回边的目标。
+ * <p>
+ * 输入为 {@link SysYGenerator} 生成的程序，以及命令行给出的源文件。
+ * 用法：DataflowCheck [-programs 40] [-seed 1] [源文件...]
+ */
+public class DataflowCheck {
+    private static final PrintStream QUIET = new PrintStream(OutputStream.nullOutputStream());
+
+    private final PrintStream report;
+    private int failures = 0;
+    private int functions = 0;
+
+    public DataflowCheck(PrintStream report) {
+        this.report = report;
+    }
+
+    /**
+     * 编译一段源代码并检查其中的每个函数，存在编译错误时跳过
+     *
+     * @param name   输入的名称，用于报告
+     * @param source 源代码
+     * @return 是否一致
+     * @throws IOException 创建临时目录或写输出失败
+     */
+    public boolean check(String name, String source) throws IOException {
+        Path workDir = Files.createTempDirectory("sysy-dfcheck");
+        try {
+            CompilationContext context = new CompilationContext(workDir);
+            if (!CompilerDriver.compile(context, source)) {
+                report.println("SKIP " + name + ": compile errors");
+                return true;
+            }
+            boolean ok = true;
+            for (Function function : context.getIRBuilder().getModule().getFunctions()) {
+                if (function.getBasicBlocks().isEmpty()) {
+                    continue;
+                }
+                // 消除 Phi 时插入的块不一定登记了前驱与后继，先按指令重建 CFG
+                new CFGBuilder(QUIET).buildCFG(function);
+                String functionName = name + " " + function.getName();
+                ok &= checkFunction(functionName, function);
+                addBackEdgesToEntry(function);
+                ok &= checkFunction(functionName + " [entry back-edge]", function);
+                functions++;
+            }
+            if (!ok) {
+                failures++;
+            }
+            return ok;
+        } finally {
+            try (var files = Files.list(workDir)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.deleteIfExists(file);
+                }
+            }
+            Files.deleteIfExists(workDir);
+        }
+    }
+
+    public int getFailures() {
+        return failures;
+    }
+
+    public int getFunctions() {
+        return functions;
+    }
+
+    // 把没有后继的块连回入口块，只改动 CFG，不改动指令
+    private static void addBackEdgesToEntry(Function function) {
+        List<BasicBlock> blocks = function.getBasicBlocks();
+        BasicBlock entry = blocks.get(0);
+        for (BasicBlock block : blocks) {
+            if (block.getSuccessors().isEmpty()) {
+                block.addSuccessor(entry);
+                entry.addPredecessor(block);
+            }
+        }
+    }
+
+    private boolean checkFunction(String name, Function function) {
+        List<BasicBlock> blocks = function.getBasicBlocks();
+
+        ReachingDefinitions reaching = new ReachingDefinitions(function);
+        reaching.solve();
+        Solution<Instruction> expectedReaching = solveForward(blocks, null, DataflowCheck::reachingTransfer);
+        boolean ok = compare(name + " reaching", blocks, expectedReaching,
+                reaching::getIn, reaching::getOut, reaching::getDefinition);
+
+        // 参照划分：每个表达式类的代表是按块顺序第一条同值的指令，与 AvailableExpressions 的代表一致
+        List<Instruction> representatives = new ArrayList<>();
+        Map<Instruction, Instruction> representativeOf = new HashMap<>();
+        for (BasicBlock block : blocks) {
+            for (Instruction instr : block.getInstrs()) {
+                if (!isExpression(instr)) {
+                    continue;
+                }
+                Instruction representative = null;
+                for (Instruction candidate : representatives) {
+                    if (candidate.isSameValueAs(instr)) {
+                        representative = candidate;
+                        break;
+                    }
+                }
+                if (representative == null) {
+                    representatives.add(instr);
+                    representative = instr;
+                }
+                representativeOf.put(instr, representative);
+            }
+        }
+        AvailableExpressions available = new AvailableExpressions(function);
+        available.solve();
+        for (Map.Entry<Instruction, Instruction> entry : representativeOf.entrySet()) {
+            int index = available.indexOf(entry.getKey());
+            if (index < 0 || available.getExpression(index) != entry.getValue()) {
+                report.printf("MISMATCH %s available: %s is numbered as %s, expected %s%n", name, entry.getKey(),
+                        index < 0 ? "<none>" : available.getExpression(index), entry.getValue());
+                return false;
+            }
+        }
+        Solution<Instruction> expectedAvailable = solveForward(blocks, new HashSet<>(representatives),
+                (block, in) -> availableTransfer(block, in, representatives));
+        ok &= compare(name + " available", blocks, expectedAvailable,
+                available::getIn, available::getOut, available::getExpression);
+        return ok;
+    }
+
+    private static boolean isExpression(Instruction instr) {
+        return instr instanceof Alu || instr instanceof Icmp || instr instanceof GetPtr;
+    }
+
+    // 参照解：每个块入口与出口处的事实集合
+    private record Solution<T>(Map<BasicBlock, Set<T>> in, Map<BasicBlock, Set<T>> out) {
+    }
+
+    /**
+     * 前向问题的参照求解：按块顺序反复计算，直到一整轮没有任何块的 Out 改变
+     *
+     * @param blocks   函数的基本块，第一个为入口
+     * @param top      交汇为交时的全集；为 null 表示交汇为并
+     * @param transfer 由块的 In 逐条指令计算 Out，不应修改传入的集合
+     * @return 每个块的 In 与 Out
+     */
+    private static <T> Solution<T> solveForward(List<BasicBlock> blocks, Set<T> top,
+                                                BiFunction<BasicBlock, Set<T>, Set<T>> transfer) {
+        Map<BasicBlock, Set<T>> in = new HashMap<>();
+        Map<BasicBlock, Set<T>> out = new HashMap<>();
+        for (BasicBlock block : blocks) {
+            out.put(block, top == null ? new HashSet<>() : new HashSet<>(top));
+        }
+        BasicBlock entry = blocks.get(0);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (BasicBlock block : blocks) {
+                Set<T> blockIn = new HashSet<>();
+                List<BasicBlock> predecessors = block.getPredecessors();
+                if (top == null) {
+                    // 边界值为空集，并上前驱即可
+                    for (BasicBlock predecessor : predecessors) {
+                        blockIn.addAll(out.get(predecessor));
+                    }
+                } else if (block != entry && !predecessors.isEmpty()) {
+                    blockIn.addAll(out.get(predecessors.get(0)));
+                    for (BasicBlock predecessor : predecessors) {
+                        blockIn.retainAll(out.get(predecessor));
+                    }
+                }
+                in.put(block, blockIn);
+                Set<T> blockOut = transfer.apply(block, blockIn);
+                if (!blockOut.equals(out.get(block))) {
+                    out.put(block, blockOut);
+                    changed = true;
+                }
+            }
+        }
+        return new Solution<>(in, out);
+    }
+
+    // 每个定值点注销同一个值此前的所有定值点
+    private static Set<Instruction> reachingTransfer(BasicBlock block, Set<Instruction> in) {
+        Set<Instruction> facts = new HashSet<>(in);
+        for (Instruction instr : block.getInstrs()) {
+            Value defined = ReachingDefinitions.definedValue(instr);
+            if (defined != null) {
+                facts.removeIf(definition -> ReachingDefinitions.definedValue(definition) == defined);
+                facts.add(instr);
+            }
+        }
+        return facts;
+    }
+
+    // Move 注销以其目标为操作数的表达式，表达式指令使自己所在的类可用
+    private static Set<Instruction> availableTransfer(BasicBlock block, Set<Instruction> in,
+                                                      List<Instruction> representatives) {
+        Set<Instruction> facts = new HashSet<>(in);
+        for (Instruction instr : block.getInstrs()) {
+            if (instr instanceof Move move) {
+                facts.removeIf(expression -> expression.getOperands().contains(move.getTo()));
+            } else if (isExpression(instr)) {
+                for (Instruction representative : representatives) {
+                    if (representative.isSameValueAs(instr)) {
+                        facts.add(representative);
+                        break;
+                    }
+                }
+            }
+        }
+        return facts;
+    }
+
+    // 比较每个块的 In 与 Out，不一致时输出首个不同的块和首个多出或缺少的事实
+    private boolean compare(String name, List<BasicBlock> blocks, Solution<Instruction> expected,
+                            java.util.function.Function<BasicBlock, BitVector> actualIn,
+                            java.util.function.Function<BasicBlock, BitVector> actualOut,
+                            IntFunction<Instruction> fact) {
+        for (BasicBlock block : blocks) {
+            if (!compareSet(name, block, "In", expected.in().get(block), toSet(actualIn.apply(block), fact))
+                    || !compareSet(name, block, "Out", expected.out().get(block), toSet(actualOut.apply(block), fact))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean compareSet(String name, BasicBlock block, String side, Set<Instruction> expected,
+                               Set<Instruction> actual) {
+        if (expected.equals(actual)) {
+            return true;
+        }
+        Set<Instruction> missing = new HashSet<>(expected);
+        missing.removeAll(actual);
+        Set<Instruction> extra = new HashSet<>(actual);
+        extra.removeAll(expected);
+        report.printf("MISMATCH %s: %s[%s] has %d facts, expected %d; missing %s, extra %s%n", name, side,
+                block.getName(), actual.size(), expected.size(),
+                missing.isEmpty() ? "-" : missing.iterator().next(), extra.isEmpty() ? "-" : extra.iterator().next());
+        return false;
+    }
+
+    private static Set<Instruction> toSet(BitVector bits, IntFunction<Instruction> fact) {
+        Set<Instruction> set = new HashSet<>();
+        for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+            set.add(fact.apply(i));
+        }
+        return set;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int programs = 40;
+        long seed = 1;
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-programs" -> programs = Integer.parseInt(args[++i]);
+                case "-seed" -> seed = Long.parseLong(args[++i]);
+                default -> files.add(Path.of(args[i]));
+            }
+        }
+
+        // 各 pass 的调试输出不计入报告
+        PrintStream report = System.out;
+        System.setOut(QUIET);
+
+        DataflowCheck check = new DataflowCheck(report);
+        int checked = 0;
+        for (Path file : files) {
+            check.check(file.toString(), Files.readString(file));
+            checked++;
+        }
+        for (int i = 0; i < programs; i++) {
+            // 轮流改变循环深度、表达式深度与语句数，得到形状不同的 CFG
+            String source = new SysYGenerator(1 + i % 4, 1 + i % 3, 16, 2 + i % 3, 0.05, 2 + i % 5, seed + i).generate();
+            check.check("generated seed=" + (seed + i), source);
+            checked++;
+        }
+
+        report.printf("%d programs, %d functions checked, %d mismatched%n", checked, check.getFunctions(),
+                check.getFailures());
+        if (check.getFailures() > 0) {
+            System.exit(1);
+        }
+    }
+}
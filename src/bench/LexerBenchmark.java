@@ -0,0 +1,130 @@
+package bench;
+
+import frontEnd.Lexer;
+import util.Artifact;
+import util.CompilationContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Supplier;
+
+/**
+ * 词法分析基准测试：只运行 Lexer，输出每个规模下的吞吐量（MB/s 与每个 Token 的纳秒数）。
+ * 不写出 lexer.txt，计时只包含扫描与 Token 存储，不含编译上下文的创建。
+ * 同时测量 {@link ReferenceLexer}（表驱动之前的实现）作为对照，并给出两者的耗时比；
+ * 两者结果是否一致由 {@link LexerCheck} 检查。
+ * <p>
+ * 用法：LexerBenchmark [-sizes 1,4,16,64] [-warmup 20] [-iterations 50] [-seed 1]
+ */
+public class LexerBenchmark {
+    private final int warmup;     // 预热次数
+    private final int iterations; // 测量次数
+
+    public LexerBenchmark(int warmup, int iterations) {
+        this.warmup = warmup;
+        this.iterations = iterations;
+    }
+
+    /**
+     * 对一段源代码多次进行词法分析
+     *
+     * @param source 源代码
+     * @return {平均耗时（纳秒）, Token 数}
+     * @throws IOException 创建临时目录失败
+     */
+    public long[] measure(String source) throws IOException {
+        Path workDir = Files.createTempDirectory("sysy-lex");
+        try {
+            return time(() -> lexOnce(workDir, source));
+        } finally {
+            Files.deleteIfExists(workDir);
+        }
+    }
+
+    /**
+     * 用 {@link ReferenceLexer} 对同一段源代码多次进行词法分析
+     *
+     * @param source 源代码
+     * @return {平均耗时（纳秒）, Token 数}
+     */
+    public long[] measureReference(String source) {
+        ReferenceLexer reference = new ReferenceLexer();
+        return time(() -> {
+            long begin = System.nanoTime();
+            int tokens = reference.analyze(source).size();
+            return new long[]{System.nanoTime() - begin, tokens};
+        });
+    }
+
+    // 预热后多次运行，每次运行返回 {耗时（纳秒）, Token 数}；结果为 {平均耗时, 最后一次的 Token 数}
+    private long[] time(Supplier<long[]> lexOnce) {
+        for (int i = 0; i < warmup; i++) {
+            lexOnce.get();
+        }
+        long total = 0;
+        long tokens = 0;
+        for (int i = 0; i < iterations; i++) {
+            long[] run = lexOnce.get();
+            total += run[0];
+            tokens = run[1];
+        }
+        return new long[]{total / iterations, tokens};
+    }
+
+    // 在新的编译上下文中进行一次词法分析，只对 analyze 计时，返回 {耗时（纳秒）, Token 数}
+    private long[] lexOnce(Path workDir, String source) {
+        CompilationContext context = new CompilationContext(workDir);
+        context.setArtifactEnabled(Artifact.LEXER, false);
+        CompilationContext previous = context.activate();
+        try {
+            Lexer lexer = Lexer.getInstance();
+            long begin = System.nanoTime();
+            lexer.analyze(source);
+            return new long[]{System.nanoTime() - begin, context.getTokenManager().getTotalTokens()};
+        } finally {
+            context.finishArtifacts();
+            CompilationContext.restore(previous);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int[] sizes = {1, 4, 16, 64};
+        int warmup = 20;
+        int iterations = 50;
+        long seed = 1;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "-sizes" -> {
+                    String[] parts = args[i + 1].split(",");
+                    sizes = new int[parts.length];
+                    for (int j = 0; j < parts.length; j++) {
+                        sizes[j] = Integer.parseInt(parts[j].trim());
+                    }
+                }
+                case "-warmup" -> warmup = Integer.parseInt(args[i + 1]);
+                case "-iterations" -> iterations = Integer.parseInt(args[i + 1]);
+                case "-seed" -> seed = Long.parseLong(args[i + 1]);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        LexerBenchmark benchmark = new LexerBenchmark(warmup, iterations);
+        System.out.printf("%10s %12s %10s %12s %10s %12s %10s %8s%n", "functions", "chars", "tokens",
+                "ms", "MB/s", "ref ms", "ref MB/s", "speedup");
+        for (int size : sizes) {
+            String source = new SysYGenerator(4 * size, 2, 16, 4, 0.05, 4, seed).generate();
+            long[] result = benchmark.measure(source);
+            long[] reference = benchmark.measureReference(source);
+            if (reference[1] != result[1]) {
+                System.err.println("Token count differs from the reference lexer: " + reference[1] + " vs " + result[1]);
+            }
+            double millis = result[0] / 1e6;
+            double referenceMillis = reference[0] / 1e6;
+            System.out.printf("%10d %12d %10d %12.3f %10.1f %12.3f %10.1f %7.2fx   (%.1f ns/token)%n", 4 * size,
+                    source.length(), result[1], millis, source.length() / 1e6 / (millis / 1e3), referenceMillis,
+                    source.length() / 1e6 / (referenceMillis / 1e3), referenceMillis / millis,
+                    (double) result[0] / result[1]);
+        }
+    }
+}
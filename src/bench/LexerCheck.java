@@ -0,0 +1,242 @@
+package bench;
+
+import frontEnd.Lexer;
+import token.TokenStore;
+import util.Artifact;
+import util.CompilationContext;
+import util.IOUtils;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 词法分析对照检查：用 {@link ReferenceLexer}（表驱动之前的逐字符实现）与当前的 Lexer
+ * 分析同一批输入，比较 lexer.txt 的内容和词法错误，任何不一致都会输出首个不同的行并以非零状态退出。
+ * <p>
+ * 输入包括 {@link SysYGenerator} 生成的程序、在生成的程序中随机截断或插入片段得到的变体，
+ * 以及由注释、未闭合的字符串与字符、单独的 &amp;/|、非 ASCII 与控制字符等片段拼成的随机文本。
+ * 当前 Lexer 在三种方式下分别检查：串行批量扫描、流式扫描，以及对足够大的输入进行的分块并行扫描。
+ * <p>
+ * 用法：LexerCheck [-cases 2000] [-seed 1] [-threads 4]
+ */
+public class LexerCheck {
+    // 随机文本的组成片段，覆盖各个词素的边界情况
+    private static final String[] FRAGMENTS = {
+            "int", "const", "char", "void", "main", "if", "else", "for", "break", "continue", "return",
+            "printf", "getint", "getchar", "_a1", "x", "0", "123", " ", "\t", "\n", "\r\n",
+            "+", "-", "*", "/", "%", "(", ")", "{", "}", "[", "]", ",", ";",
+            "!", "!=", "<", "<=", ">", ">=", "=", "==", "&&", "||", "&", "|",
+            "//", "// line\n", "/*", "*/", "/* a\nb */", "/*\n*", "\"", "\"%d\\n\"", "\"a\nb\"",
+            "'", "'a'", "'\\n'", "'\\'", "'\\", "\\", "#", "$", "@", "?", "~", "`",
+            "é", "中文", "٠", " ", " ", "\u0000", "\u0007", "\u007f"
+    };
+
+    private final int threads;  // 分块并行扫描的线程数
+    private int failures = 0;
+
+    public LexerCheck(int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * 检查一个输入，不一致时输出首个不同的行
+     *
+     * @param name   输入的名称，用于报告
+     * @param source 源代码
+     * @param chunked 是否同时检查分块并行扫描
+     * @return 是否一致
+     */
+    public boolean check(String name, String source, boolean chunked) throws IOException {
+        ReferenceLexer reference = new ReferenceLexer();
+        String expectedTokens = render(reference.analyze(source));
+        List<String> expectedErrors = new ArrayList<>(reference.getErrors());
+
+        boolean ok = compare(name + " [batch]", expectedTokens, expectedErrors, runBatch(source, 1));
+        // 流式模式写出的 lexer.txt 按默认字符集编码，期望结果也经同样的编码后再比较
+        Charset charset = Charset.defaultCharset();
+        ok &= compare(name + " [stream]", new String(expectedTokens.getBytes(charset), charset), expectedErrors,
+                runStream(source));
+        if (chunked) {
+            ok &= compare(name + " [chunked x" + threads + "]", expectedTokens, expectedErrors, runBatch(source, threads));
+        }
+        if (!ok) {
+            failures++;
+        }
+        return ok;
+    }
+
+    public int getFailures() {
+        return failures;
+    }
+
+    // 两次分析的结果：lexer.txt 的内容与词法错误
+    private record Result(String tokens, List<String> errors) {
+    }
+
+    // 批量模式，不写出 lexer.txt，直接把 TokenStore 按 lexer.txt 的格式输出
+    private Result runBatch(String source, int lexerThreads) throws IOException {
+        Path workDir = Files.createTempDirectory("sysy-lexcheck");
+        CompilationContext context = new CompilationContext(workDir);
+        context.setArtifactEnabled(Artifact.LEXER, false);
+        context.getLexer().setThreads(lexerThreads);
+        CompilationContext previous = context.activate();
+        try {
+            Lexer.getInstance().analyze(source);
+            return new Result(render(context.getTokenManager().getStore()),
+                    new ArrayList<>(context.getErrorHandler().getErrors()));
+        } finally {
+            context.finishArtifacts();
+            CompilationContext.restore(previous);
+            Files.deleteIfExists(workDir);
+        }
+    }
+
+    // 流式模式，语法分析器不读取任何 Token，由 finishStream 扫描全部输入并写出 lexer.txt
+    private Result runStream(String source) throws IOException {
+        Path workDir = Files.createTempDirectory("sysy-lexcheck");
+        Path lexerFile = workDir.resolve(Artifact.LEXER.getFileName());
+        CompilationContext context = new CompilationContext(workDir);
+        CompilationContext previous = context.activate();
+        try {
+            Lexer lexer = Lexer.getInstance();
+            lexer.openStream(new StringReader(source));
+            lexer.finishStream();
+            context.finishArtifacts();
+            return new Result(new String(Files.readAllBytes(lexerFile), Charset.defaultCharset()),
+                    new ArrayList<>(context.getErrorHandler().getErrors()));
+        } finally {
+            CompilationContext.restore(previous);
+            Files.deleteIfExists(lexerFile);
+            Files.deleteIfExists(workDir);
+        }
+    }
+
+    private static String render(TokenStore tokens) {
+        StringWriter writer = new StringWriter();
+        try {
+            IOUtils.writeTokens(tokens, writer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return writer.toString();
+    }
+
+    private static boolean compare(String name, String expectedTokens, List<String> expectedErrors, Result actual) {
+        if (!expectedTokens.equals(actual.tokens())) {
+            String[] expected = expectedTokens.split("\n", -1);
+            String[] got = actual.tokens().split("\n", -1);
+            int i = 0;
+            while (i < expected.length && i < got.length && expected[i].equals(got[i])) {
+                i++;
+            }
+            System.out.printf("MISMATCH %s: lexer.txt line %d: expected \"%s\", got \"%s\"%n", name, i + 1,
+                    i < expected.length ? expected[i].strip() : "<end>", i < got.length ? got[i].strip() : "<end>");
+            return false;
+        }
+        if (!expectedErrors.equals(actual.errors())) {
+            List<String> got = actual.errors();
+            int i = 0;
+            while (i < expectedErrors.size() && i < got.size() && expectedErrors.get(i).equals(got.get(i))) {
+                i++;
+            }
+            System.out.printf("MISMATCH %s: error %d: expected \"%s\", got \"%s\"%n", name, i + 1,
+                    i < expectedErrors.size() ? expectedErrors.get(i) : "<end>", i < got.size() ? got.get(i) : "<end>");
+            return false;
+        }
+        return true;
+    }
+
+    // 由随机片段拼成的文本
+    private static String randomText(Random random, int fragments) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < fragments; i++) {
+            builder.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+            if (random.nextInt(4) == 0) {
+                builder.append(' ');
+            }
+        }
+        return builder.toString();
+    }
+
+    // 在生成的程序中随机插入片段，并以一定概率在随机位置截断
+    private static String mutate(Random random, String program) {
+        StringBuilder builder = new StringBuilder(program);
+        int edits = 1 + random.nextInt(8);
+        for (int i = 0; i < edits; i++) {
+            builder.insert(random.nextInt(builder.length() + 1), randomText(random, 1 + random.nextInt(3)));
+        }
+        if (random.nextBoolean()) {
+            builder.setLength(random.nextInt(builder.length() + 1));
+        }
+        return builder.toString();
+    }
+
+    // 足够大的输入，使分块并行扫描生效；每隔若干行插入跨行的注释、字符串等，使其中一些落在块边界上
+    private static String largeInput(Random random, String program, int minLength) {
+        StringBuilder builder = new StringBuilder();
+        String[] lines = program.split("\n");
+        while (builder.length() < minLength) {
+            for (String line : lines) {
+                builder.append(line).append('\n');
+                if (random.nextInt(16) == 0) {
+                    switch (random.nextInt(4)) {
+                        case 0 -> builder.append("/* ").append("x\n".repeat(1 + random.nextInt(64))).append("*/\n");
+                        case 1 -> builder.append("\"").append("s\n".repeat(1 + random.nextInt(8))).append("\"\n");
+                        case 2 -> builder.append("a & b | c\n");
+                        default -> builder.append("// ").append(randomText(random, 4).replace('\n', ' ')).append('\n');
+                    }
+                }
+            }
+        }
+        return builder.toString();
+    }
+
+    public static void main(String[] args) throws IOException {
+        int cases = 2000;
+        long seed = 1;
+        int threads = 4;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "-cases" -> cases = Integer.parseInt(args[i + 1]);
+                case "-seed" -> seed = Long.parseLong(args[i + 1]);
+                case "-threads" -> threads = Integer.parseInt(args[i + 1]);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        LexerCheck check = new LexerCheck(threads);
+        Random random = new Random(seed);
+        int checked = 0;
+        for (int size : new int[]{1, 4, 16}) {
+            String program = new SysYGenerator(4 * size, 2, 16, 4, 0.05, 4, seed + size).generate();
+            check.check("generated functions=" + 4 * size, program, false);
+            checked++;
+        }
+        String program = new SysYGenerator(4, 2, 16, 4, 0.2, 4, seed).generate();
+        for (int i = 0; i < cases; i++) {
+            if (i % 2 == 0) {
+                check.check("mutated #" + i, mutate(random, program), false);
+            } else {
+                check.check("random #" + i, randomText(random, 1 + random.nextInt(200)), false);
+            }
+            checked++;
+        }
+        // 每块至少 1M 个字符时才分块扫描
+        String large = largeInput(random, new SysYGenerator(64, 2, 16, 4, 0.05, 4, seed).generate(), threads << 21);
+        check.check("large chars=" + large.length(), large, true);
+        checked++;
+
+        System.out.printf("%d inputs checked, %d mismatched%n", checked, check.getFailures());
+        if (check.getFailures() > 0) {
+            System.exit(1);
+        }
+    }
+}
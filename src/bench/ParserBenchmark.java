@@ -0,0 +1,132 @@
+package bench;
+
+import frontEnd.Lexer;
+import frontEnd.Parser;
+import util.Artifact;
+import util.CompilationContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * 语法分析基准测试：生成每条语句都写在一行内的超长表达式（赋值语句与表达式语句交替），
+ * 测量语法分析阶段每个 Token 的平均耗时。各规模下该值应基本不变，随单行长度增长说明语法分析不是线性的。
+ * <p>
+ * 用法：ParserBenchmark [-tokens 1000,10000,40000] [-statements 20] [-warmup 5] [-iterations 10]
+ */
+public class ParserBenchmark {
+    private final int warmup;     // 预热次数
+    private final int iterations; // 测量次数
+
+    public ParserBenchmark(int warmup, int iterations) {
+        this.warmup = warmup;
+        this.iterations = iterations;
+    }
+
+    /**
+     * 生成 main 函数中的若干条单行长语句
+     *
+     * @param tokens     每条语句中表达式的大致 Token 数
+     * @param statements 语句条数
+     * @return 源代码
+     */
+    public static String generate(int tokens, int statements) {
+        StringBuilder source = new StringBuilder();
+        source.append("int a[16];\n");
+        source.append("int main() {\n");
+        source.append("    int x = 1;\n");
+        for (int i = 0; i < statements; i++) {
+            source.append("    ");
+            if (i % 2 == 0) {
+                source.append("a[x % 16] = ");
+            }
+            // 每一项 "x * 3 +" 或 "a[x % 16] -" 约 4~7 个 Token
+            int emitted = 0;
+            for (int term = 0; emitted < tokens; term++) {
+                if (term % 3 == 2) {
+                    source.append("a[x % 16] - ");
+                    emitted += 7;
+                } else {
+                    source.append("x * ").append(term % 7 + 1).append(" + ");
+                    emitted += 4;
+                }
+            }
+            source.append("1;\n");
+        }
+        source.append("    printf(\"%d\\n\", a[1]);\n");
+        source.append("    return 0;\n");
+        source.append("}\n");
+        return source.toString();
+    }
+
+    /**
+     * @param source 源代码
+     * @return {语法分析的平均耗时（纳秒）, Token 数}
+     * @throws IOException 创建临时目录失败
+     */
+    public long[] measure(String source) throws IOException {
+        for (int i = 0; i < warmup; i++) {
+            parseOnce(source);
+        }
+        long total = 0;
+        long tokens = 0;
+        for (int i = 0; i < iterations; i++) {
+            long[] result = parseOnce(source);
+            total += result[0];
+            tokens = result[1];
+        }
+        return new long[]{total / iterations, tokens};
+    }
+
+    // 只运行词法与语法分析，关闭所有调试输出，计时只包含 parseCompUnit
+    private long[] parseOnce(String source) throws IOException {
+        Path workDir = Files.createTempDirectory("sysy-parse");
+        CompilationContext context = new CompilationContext(workDir);
+        for (Artifact artifact : Artifact.values()) {
+            context.setArtifactEnabled(artifact, false);
+        }
+        CompilationContext previous = context.activate();
+        try {
+            Lexer.getInstance().analyze(source);
+            long begin = System.nanoTime();
+            Parser.getInstance().parseCompUnit();
+            long nanos = System.nanoTime() - begin;
+            return new long[]{nanos, context.getTokenManager().getTotalTokens()};
+        } finally {
+            context.finishArtifacts();
+            CompilationContext.restore(previous);
+            Files.deleteIfExists(workDir);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int[] sizes = {1000, 10000, 40000};
+        int statements = 20;
+        int warmup = 5;
+        int iterations = 10;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "-tokens" -> {
+                    String[] parts = args[i + 1].split(",");
+                    sizes = new int[parts.length];
+                    for (int j = 0; j < parts.length; j++) {
+                        sizes[j] = Integer.parseInt(parts[j].trim());
+                    }
+                }
+                case "-statements" -> statements = Integer.parseInt(args[i + 1]);
+                case "-warmup" -> warmup = Integer.parseInt(args[i + 1]);
+                case "-iterations" -> iterations = Integer.parseInt(args[i + 1]);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        ParserBenchmark benchmark = new ParserBenchmark(warmup, iterations);
+        System.out.printf("%12s %10s %12s %12s%n", "tokens/line", "tokens", "parse ms", "ns/token");
+        for (int size : sizes) {
+            long[] result = benchmark.measure(generate(size, statements));
+            System.out.printf("%12d %10d %12.3f %12.1f%n", size, result[1], result[0] / 1e6,
+                    (double) result[0] / result[1]);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package bench;
+
+import driver.CompilerDriver;
+import util.CompilationContext;
+import util.PassTimer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 分阶段基准测试：用 {@link SysYGenerator} 生成不同规模的程序，
+ * 分别测量词法、语法、语义、中间代码生成、每个优化 pass（含 analyze）与后端的耗时，
+ * 并根据相邻规模的耗时比估计各阶段的增长阶数，用于发现超线性的阶段。
+ * <p>
+ * 每个阶段只计自身的执行时间，输入（词法单元、AST、上一个 pass 的结果）由同一次编译的前序阶段产生。
+ * 用法：PhaseBenchmark [-sizes 1,2,4,8] [-warmup 2] [-iterations 5] [-fused true] [生成器参数...]
+ */
+public class PhaseBenchmark {
+    private final int warmup;     // 预热次数
+    private final int iterations; // 测量次数
+    private final boolean fused;  // 是否以融合模式编译，此时 semantic 与 irgen 合并为一个阶段
+
+    public PhaseBenchmark(int warmup, int iterations, boolean fused) {
+        this.warmup = warmup;
+        this.iterations = iterations;
+        this.fused = fused;
+    }
+
+    /**
+     * 对一段源代码进行多次编译，返回各阶段每次编译的平均耗时（纳秒）
+     *
+     * @param source 源代码
+     * @return 阶段名到平均耗时的映射，按首次执行顺序排列
+     * @throws IOException 创建临时目录或写输出失败
+     */
+    public Map<String, Long> measure(String source) throws IOException {
+        for (int i = 0; i < warmup; i++) {
+            compileOnce(source);
+        }
+        Map<String, Long> totals = new LinkedHashMap<>();
+        for (int i = 0; i < iterations; i++) {
+            for (Map.Entry<String, Long> entry : compileOnce(source).entrySet()) {
+                totals.merge(entry.getKey(), entry.getValue(), Long::sum);
+            }
+        }
+        totals.replaceAll((name, nanos) -> nanos / iterations);
+        return totals;
+    }
+
+    // 完整编译一次，返回本次编译中各阶段与 pass 的耗时（同名累加，例如 10 轮的 GVN）
+    private Map<String, Long> compileOnce(String source) throws IOException {
+        Path workDir = Files.createTempDirectory("sysy-bench");
+        try {
+            CompilationContext context = new CompilationContext(workDir);
+            context.enableTimePasses();
+            if (fused) {
+                context.enableFusedFrontEnd();
+            }
+            CompilerDriver.compile(context, source);
+            Map<String, Long> nanos = new LinkedHashMap<>();
+            for (PassTimer.Record record : context.getPassTimer().getRecords()) {
+                nanos.merge(record.getName(), record.getNanos(), Long::sum);
+            }
+            return nanos;
+        } finally {
+            try (var files = Files.list(workDir)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.deleteIfExists(file);
+                }
+            }
+            Files.deleteIfExists(workDir);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int[] sizes = {1, 2, 4, 8};
+        int warmup = 2;
+        int iterations = 5;
+        int functions = 4;
+        int loopDepth = 2;
+        int arraySize = 16;
+        int exprDepth = 4;
+        double printfDensity = 0.05;
+        int statements = 4;
+        long seed = 1;
+        boolean fused = false;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "-sizes" -> {
+                    String[] parts = args[i + 1].split(",");
+                    sizes = new int[parts.length];
+                    for (int j = 0; j < parts.length; j++) {
+                        sizes[j] = Integer.parseInt(parts[j].trim());
+                    }
+                }
+                case "-warmup" -> warmup = Integer.parseInt(args[i + 1]);
+                case "-iterations" -> iterations = Integer.parseInt(args[i + 1]);
+                case "-functions" -> functions = Integer.parseInt(args[i + 1]);
+                case "-depth" -> loopDepth = Integer.parseInt(args[i + 1]);
+                case "-array" -> arraySize = Integer.parseInt(args[i + 1]);
+                case "-expr" -> exprDepth = Integer.parseInt(args[i + 1]);
+                case "-printf" -> printfDensity = Double.parseDouble(args[i + 1]);
+                case "-statements" -> statements = Integer.parseInt(args[i + 1]);
+                case "-seed" -> seed = Long.parseLong(args[i + 1]);
+                case "-fused" -> fused = Boolean.parseBoolean(args[i + 1]);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        // 各 pass 的调试输出不计入报告，也不应干扰计时
+        PrintStream report = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        PhaseBenchmark benchmark = new PhaseBenchmark(warmup, iterations, fused);
+        List<Integer> lines = new ArrayList<>();
+        List<Map<String, Long>> results = new ArrayList<>();
+        for (int size : sizes) {
+            String source = new SysYGenerator(functions * size, loopDepth, arraySize, exprDepth,
+                    printfDensity, statements, seed).generate();
+            lines.add(source.split("\n").length);
+            results.add(benchmark.measure(source));
+            report.println("measured " + functions * size + " functions, " + lines.get(lines.size() - 1) + " lines");
+        }
+        printReport(report, lines, results);
+    }
+
+    // 输出每个规模下各阶段的平均耗时，以及与上一规模相比的增长阶数 log(t2/t1)/log(n2/n1)
+    private static void printReport(PrintStream out, List<Integer> lines, List<Map<String, Long>> results) {
+        out.println();
+        out.printf("%-22s", "phase \\ lines");
+        for (int n : lines) {
+            out.printf(" %12d", n);
+        }
+        out.printf("   %s%n", "growth order");
+        for (String phase : results.get(results.size() - 1).keySet()) {
+            out.printf("%-22s", phase);
+            for (Map<String, Long> result : results) {
+                out.printf(" %12.3f", result.getOrDefault(phase, 0L) / 1e6);
+            }
+            StringBuilder growth = new StringBuilder();
+            for (int i = 1; i < results.size(); i++) {
+                long before = results.get(i - 1).getOrDefault(phase, 0L);
+                long after = results.get(i).getOrDefault(phase, 0L);
+                if (before > 0 && after > 0 && !lines.get(i).equals(lines.get(i - 1))) {
+                    double order = Math.log((double) after / before) / Math.log((double) lines.get(i) / lines.get(i - 1));
+                    growth.append(String.format(" %.2f", order));
+                } else {
+                    growth.append(" -");
+                }
+            }
+            out.printf("  %s%n", growth);
+        }
+        out.println("(times in ms per compile; growth order ~1 is linear, ~2 is quadratic)");
+    }
+}
@@ -0,0 +1,182 @@
+package bench;
+
+import error.ErrorType;
+import token.TokenFactory;
+import token.TokenStore;
+import token.TokenType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 表驱动之前的逐字符词法分析器，保留原先的分支结构与全部边界行为，只用于对照检查和基准测试。
+ * 保留字和运算符直接查 TokenFactory 的 HashMap，不经过完美哈希表；
+ * Token 写入独立的 TokenStore，错误按 ErrorHandler 的格式记录在本对象中，不依赖编译上下文
+ */
+public class ReferenceLexer {
+    private final Map<String, TokenType> keywords = TokenFactory.getInstance().getKeywords();
+    private final List<String> errors = new ArrayList<>(); // 词法错误，格式与 ErrorHandler 相同
+    private TokenStore store;
+    private int line;
+    private String content;
+    private int position;
+
+    /**
+     * 对源代码进行词法分析
+     *
+     * @param content 源代码
+     * @return 全部 Token
+     */
+    public TokenStore analyze(String content) {
+        this.content = content;
+        this.store = new TokenStore(content);
+        this.line = 1;
+        this.position = 0;
+        errors.clear();
+        while (position < content.length()) {
+            char currentChar = content.charAt(position);
+
+            if (Character.isWhitespace(currentChar)) { // 处理空白字符
+                if (currentChar == '\n') {
+                    line++;
+                }
+                position++;
+            } else if (Character.isLetter(currentChar) || currentChar == '_') { // 处理标识符或关键字
+                analyzeIdentifierOrKeyword();
+            } else if (Character.isDigit(currentChar)) { // 处理数字
+                analyzeNumber();
+            } else if (currentChar == '"') { // 处理字符串
+                analyzeString();
+            } else if (currentChar == '\'') { // 处理字符
+                analyzeChar();
+            } else if (isSingleCharDelimiter(currentChar)) { // 处理单字符分隔符
+                analyzeSingleCharDelimiter();
+            } else if (currentChar == '/') { // 处理注释或除号
+                analyzeCommentOrDivide();
+            } else if (currentChar == '&' || currentChar == '|') { // 处理逻辑运算符
+                analyzeLogicalOperators();
+            } else {
+                // 遇到无法识别的符号
+                position++;
+            }
+        }
+        return store;
+    }
+
+    // 最近一次分析报告的词法错误
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    private void analyzeIdentifierOrKeyword() {
+        int start = position;
+        char currentChar;
+        while (position < content.length() && (Character.isLetterOrDigit(currentChar = content.charAt(position)) || currentChar == '_')) {
+            position++;
+        }
+        TokenType type = keywords.get(content.substring(start, position));
+        store.add(type != null ? type : TokenType.IDENFR, line, start, position - start);
+    }
+
+    private void analyzeNumber() {
+        int start = position;
+        while (position < content.length() && Character.isDigit(content.charAt(position))) {
+            position++;
+        }
+        store.add(TokenType.INTCON, line, start, position - start);
+    }
+
+    // 字符串中的换行不增加行号，未闭合的字符串不产生 Token
+    private void analyzeString() {
+        int start = position;
+        position++;
+        while (position < content.length() && content.charAt(position) != '"') {
+            position++;
+        }
+        if (position < content.length() && content.charAt(position) == '"') {
+            position++;
+            store.add(TokenType.STRCON, line, start, position - start);
+        }
+    }
+
+    private void analyzeChar() {
+        int start = position;
+        position++;
+        if (position < content.length()) {
+            if (content.charAt(position) == '\\') {
+                position++;
+                if (position < content.length()) {
+                    position++;
+                }
+            } else {
+                position++;
+            }
+
+            if (position < content.length() && content.charAt(position) == '\'') {
+                position++;
+                store.add(TokenType.CHRCON, line, start, position - start);
+            }
+        }
+    }
+
+    private void analyzeSingleCharDelimiter() {
+        int start = position;
+        char currentChar = content.charAt(position);
+        position++;
+        if (position < content.length() && "!<>=".indexOf(currentChar) >= 0 && content.charAt(position) == '=') {
+            position++;
+            store.add(keywords.get(content.substring(start, position)), line, start, 2);
+        } else {
+            store.add(keywords.get(String.valueOf(currentChar)), line, start, 1);
+        }
+    }
+
+    // 源代码末尾单独的 '/' 不产生 Token
+    private void analyzeCommentOrDivide() {
+        position++;
+        if (position < content.length()) {
+            char nextChar = content.charAt(position);
+            if (nextChar == '/') {
+                position++;
+                while (position < content.length() && content.charAt(position) != '\n') {
+                    position++;
+                }
+            } else if (nextChar == '*') {
+                position++;
+                while (position < content.length()) {
+                    char currentChar = content.charAt(position);
+                    if (currentChar == '*' && position + 1 < content.length() && content.charAt(position + 1) == '/') {
+                        position += 2;
+                        break;
+                    }
+                    if (currentChar == '\n') {
+                        line++;
+                    }
+                    position++;
+                }
+            } else {
+                store.add(TokenType.DIV, line, position - 1, 1);
+            }
+        }
+    }
+
+    // 单独的 & 或 | 报告非法符号，按 && 或 || 继续分析
+    private void analyzeLogicalOperators() {
+        int start = position;
+        char currentChar = content.charAt(position);
+        TokenType type = currentChar == '&' ? TokenType.AND : TokenType.OR;
+        position++;
+        if (position < content.length() && content.charAt(position) == currentChar) {
+            position++;
+            store.add(type, line, start, 2);
+        } else {
+            errors.add(line + " " + ErrorType.ILLEGAL_SYMBOL.getCode());
+            store.add(type, line, start, 1);
+        }
+    }
+
+    private boolean isSingleCharDelimiter(char c) {
+        return "+-*%(){}[],;!<>=".indexOf(c) >= 0;
+    }
+}
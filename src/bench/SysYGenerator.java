@@ -0,0 +1,233 @@
+package bench;
+
+import java.util.Random;
+
+/**
+ * 确定性的 SysY 程序生成器，用于基准测试。
+ * 相同的参数与种子总是生成相同的程序；生成的程序只使用本编译器支持的语法，且没有语义错误。
+ */
+public class SysYGenerator {
+    private final int functions;       // 函数个数（不含 main）
+    private final int loopDepth;       // 每个函数中循环的最大嵌套深度
+    private final int arraySize;       // 全局与局部数组的长度
+    private final int exprDepth;       // 表达式树的最大深度
+    private final double printfDensity; // 每条语句为 printf 的概率
+    private final int statements;      // 每层循环体中的语句条数
+    private final long seed;           // 随机种子
+
+    private Random random;
+    private StringBuilder out;
+    private int indent;
+
+    /**
+     * 构造生成器
+     *
+     * @param functions     函数个数（不含 main）
+     * @param loopDepth     循环最大嵌套深度
+     * @param arraySize     数组长度
+     * @param exprDepth     表达式最大深度
+     * @param printfDensity 每条语句为 printf 的概率，取值 [0, 1]
+     * @param statements    每层循环体中的语句条数
+     * @param seed          随机种子
+     */
+    public SysYGenerator(int functions, int loopDepth, int arraySize, int exprDepth,
+                         double printfDensity, int statements, long seed) {
+        if (functions < 0 || loopDepth < 0 || arraySize <= 0 || exprDepth <= 0 || statements <= 0) {
+            throw new IllegalArgumentException("Invalid generator parameters");
+        }
+        this.functions = functions;
+        this.loopDepth = loopDepth;
+        this.arraySize = arraySize;
+        this.exprDepth = exprDepth;
+        this.printfDensity = printfDensity;
+        this.statements = statements;
+        this.seed = seed;
+    }
+
+    /**
+     * 生成完整的 SysY 程序
+     *
+     * @return 源代码
+     */
+    public String generate() {
+        random = new Random(seed);
+        out = new StringBuilder();
+        indent = 0;
+        line("const int K = " + (random.nextInt(9) + 1) + ";");
+        line("const int table[" + arraySize + "] = {" + constList(arraySize) + "};");
+        line("int g = " + random.nextInt(100) + ";");
+        line("int garr[" + arraySize + "];");
+        line("");
+        for (int f = 0; f < functions; f++) {
+            generateFunction(f);
+        }
+        generateMain();
+        return out.toString();
+    }
+
+    private void generateFunction(int index) {
+        line("int f" + index + "(int a, int b, int p[]) {");
+        indent++;
+        line("int x = a + " + random.nextInt(10) + ";");
+        line("int y = b - " + random.nextInt(10) + ";");
+        line("int arr[" + arraySize + "];");
+        generateLoops(0);
+        if (index > 0) {
+            // 调用前一个函数，形成调用链
+            line("x = x + f" + (index - 1) + "(y % " + (random.nextInt(7) + 2) + ", x, arr);");
+        }
+        line("p[" + random.nextInt(arraySize) + "] = x;");
+        line("return " + expr(exprDepth) + ";");
+        indent--;
+        line("}");
+        line("");
+    }
+
+    // 生成 depth 层起的嵌套循环，每层包含若干语句
+    private void generateLoops(int depth) {
+        String var = "i" + depth;
+        line("int " + var + ";");
+        line("for (" + var + " = 0; " + var + " < " + (random.nextInt(8) + 2) + "; " + var + " = " + var + " + 1) {");
+        indent++;
+        for (int s = 0; s < statements; s++) {
+            generateStatement(depth);
+        }
+        if (depth + 1 < loopDepth) {
+            generateLoops(depth + 1);
+        }
+        indent--;
+        line("}");
+    }
+
+    private void generateStatement(int depth) {
+        if (random.nextDouble() < printfDensity) {
+            line("printf(\"%d %d\\n\", x, " + expr(2) + ");");
+            return;
+        }
+        switch (random.nextInt(5)) {
+            case 0 -> line("x = " + expr(exprDepth) + ";");
+            case 1 -> line("y = " + expr(exprDepth) + ";");
+            case 2 -> line("arr[" + index(depth) + "] = " + expr(exprDepth) + ";");
+            case 3 -> line("garr[" + index(depth) + "] = garr[" + index(depth) + "] + " + expr(exprDepth - 1) + ";");
+            default -> {
+                line("if (" + cond() + ") {");
+                indent++;
+                line("x = " + expr(exprDepth) + ";");
+                indent--;
+                line("} else {");
+                indent++;
+                line("y = y + " + expr(exprDepth - 1) + ";");
+                indent--;
+                line("}");
+            }
+        }
+    }
+
+    // 数组下标，取模保证不越界
+    private String index(int depth) {
+        return "(i" + random.nextInt(depth + 1) + " + " + random.nextInt(arraySize) + ") % " + arraySize;
+    }
+
+    private String cond() {
+        String[] ops = {"<", ">", "<=", ">=", "==", "!="};
+        String cond = expr(2) + " " + ops[random.nextInt(ops.length)] + " " + expr(2);
+        if (random.nextInt(3) == 0) {
+            cond = cond + (random.nextBoolean() ? " && " : " || ") + "x " + ops[random.nextInt(ops.length)] + " " + random.nextInt(50);
+        }
+        return cond;
+    }
+
+    private String expr(int depth) {
+        if (depth <= 1 || random.nextInt(4) == 0) {
+            return leaf();
+        }
+        String left = expr(depth - 1);
+        switch (random.nextInt(5)) {
+            case 0:
+                return left + " + " + expr(depth - 1);
+            case 1:
+                return left + " - " + expr(depth - 1);
+            case 2:
+                return "(" + left + ") * " + leaf();
+            case 3:
+                // 除数为非零常量
+                return "(" + left + ") / " + (random.nextInt(9) + 1);
+            default:
+                return "(" + left + ") % " + (random.nextInt(9) + 2);
+        }
+    }
+
+    private String leaf() {
+        switch (random.nextInt(6)) {
+            case 0:
+                return String.valueOf(random.nextInt(100));
+            case 1:
+                return "x";
+            case 2:
+                return "y";
+            case 3:
+                return "g";
+            case 4:
+                return "K";
+            default:
+                return "table[" + random.nextInt(arraySize) + "]";
+        }
+    }
+
+    private void generateMain() {
+        line("int main() {");
+        indent++;
+        line("int n;");
+        line("n = getint();");
+        line("int s = 0;");
+        for (int f = 0; f < functions; f++) {
+            line("s = s + f" + f + "(n + " + f + ", s, garr);");
+            if (random.nextDouble() < printfDensity) {
+                line("printf(\"%d\\n\", s);");
+            }
+        }
+        line("printf(\"%d\\n\", s);");
+        line("return 0;");
+        indent--;
+        line("}");
+    }
+
+    private String constList(int size) {
+        StringBuilder list = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                list.append(", ");
+            }
+            list.append(random.nextInt(100));
+        }
+        return list.toString();
+    }
+
+    private void line(String text) {
+        out.append("    ".repeat(indent)).append(text).append('\n');
+    }
+
+    public static void main(String[] args) {
+        int functions = 10;
+        int loopDepth = 2;
+        int arraySize = 16;
+        int exprDepth = 4;
+        double printfDensity = 0.05;
+        int statements = 4;
+        long seed = 1;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "-functions" -> functions = Integer.parseInt(args[i + 1]);
+                case "-depth" -> loopDepth = Integer.parseInt(args[i + 1]);
+                case "-array" -> arraySize = Integer.parseInt(args[i + 1]);
+                case "-expr" -> exprDepth = Integer.parseInt(args[i + 1]);
+                case "-printf" -> printfDensity = Double.parseDouble(args[i + 1]);
+                case "-statements" -> statements = Integer.parseInt(args[i + 1]);
+                case "-seed" -> seed = Long.parseLong(args[i + 1]);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        System.out.print(new SysYGenerator(functions, loopDepth, arraySize, exprDepth,
+                printfDensity, statements, seed).generate());
+    }
+}
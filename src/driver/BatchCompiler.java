@@ -0,0 +1,155 @@
+package driver;
+
+import util.CompilationContext;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 批量编译入口：在一个 JVM 中用固定大小的线程池并发编译多个源文件。
+ * 每个源文件使用独立的编译上下文，输出写入 输出根目录/源文件名/ 下。
+ * 用法：BatchCompiler [-j 线程数] [-o 输出根目录] 源文件...
+ */
+public class BatchCompiler {
+    private final int threads; // 线程池大小
+
+    /**
+     * 单个源文件的编译结果
+     */
+    public static class Result {
+        private final Path source;
+        private final Path outputDir;
+        private final boolean success;
+        private final String message;
+
+        public Result(Path source, Path outputDir, boolean success, String message) {
+            this.source = source;
+            this.outputDir = outputDir;
+            this.success = success;
+            this.message = message;
+        }
+
+        public Path getSource() {
+            return source;
+        }
+
+        public Path getOutputDir() {
+            return outputDir;
+        }
+
+        public boolean isSuccess() {
+            return success;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+
+    public BatchCompiler(int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Thread count must be positive");
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * 并发编译所有源文件，结果顺序与输入顺序一致
+     *
+     * @param sources    源文件列表
+     * @param outputRoot 输出根目录
+     * @return 编译结果列表
+     * @throws InterruptedException 等待编译任务时被中断
+     */
+    public List<Result> compileAll(List<Path> sources, Path outputRoot) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Result>> futures = new ArrayList<>();
+            Set<String> usedNames = new HashSet<>();
+            for (Path source : sources) {
+                Path outputDir = outputRoot.resolve(uniqueName(source, usedNames));
+                futures.add(pool.submit(compileTask(source, outputDir)));
+            }
+            List<Result> results = new ArrayList<>();
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    results.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    results.add(new Result(sources.get(i), null, false, String.valueOf(e.getCause())));
+                }
+            }
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private Callable<Result> compileTask(Path source, Path outputDir) {
+        return () -> {
+            try {
+                Files.createDirectories(outputDir);
+                String content = new String(Files.readAllBytes(source));
+                CompilationContext context = new CompilationContext(outputDir);
+                // 文件之间已经并行编译，单个文件的优化与代码生成不再另开线程
+                context.getOptimizer().setThreads(1);
+                context.getMipsBuilder().setThreads(1);
+                context.getLexer().setThreads(1);
+                boolean success = CompilerDriver.compile(context, content);
+                return new Result(source, outputDir, success, success ? "" : "compile errors, see error.txt");
+            } catch (Exception e) {
+                // 与单文件入口一致，异常只影响当前源文件
+                return new Result(source, outputDir, false, String.valueOf(e.getMessage()));
+            }
+        };
+    }
+
+    // 以源文件名（去掉扩展名）作为输出子目录，重名时追加序号
+    private static String uniqueName(Path source, Set<String> usedNames) {
+        String fileName = source.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        String base = dot > 0 ? fileName.substring(0, dot) : fileName;
+        String name = base;
+        for (int i = 1; !usedNames.add(name); i++) {
+            name = base + "_" + i;
+        }
+        return name;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        Path outputRoot = Paths.get("out");
+        List<Path> sources = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-j") && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-o") && i + 1 < args.length) {
+                outputRoot = Paths.get(args[++i]);
+            } else {
+                sources.add(Paths.get(args[i]));
+            }
+        }
+        if (sources.isEmpty()) {
+            System.err.println("Usage: BatchCompiler [-j threads] [-o outputRoot] source...");
+            return;
+        }
+        List<Result> results = new BatchCompiler(threads).compileAll(sources, outputRoot);
+        int failed = 0;
+        for (Result result : results) {
+            if (!result.isSuccess()) {
+                failed++;
+                System.err.println(result.getSource() + ": " + result.getMessage());
+            }
+        }
+        System.err.println(results.size() - failed + "/" + results.size() + " compiled");
+    }
+}
@@ -0,0 +1,275 @@
+package driver;
+
+import util.CompilationContext;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 常驻编译守护进程：通过 stdin/stdout 行协议接收编译请求，JVM 与 JIT 在多次请求间保持预热。
+ * <p>
+ * 请求（每行一条，可连续发送多条，无需等待前一条的响应）：
+ * <pre>
+ * compile &lt;id&gt; &lt;path&gt;     编译磁盘上的源文件
+ * source &lt;id&gt; &lt;n&gt;        编译紧随其后的 n 行源代码
+ * stats                    输出各请求的阶段耗时统计
+ * quit                     等待进行中的请求完成后退出
+ * </pre>
+ * 响应按完成顺序输出，以 id 区分：
+ * <pre>
+ * result &lt;id&gt; ok|fail|crash &lt;毫秒&gt;
+ * section mips|llvm_ir|error|message &lt;n&gt;   之后 n 行为该部分内容
+ * end &lt;id&gt;
+ * </pre>
+ * 用法：CompileDaemon [-j 最大并发编译数]
+ */
+public class CompileDaemon {
+    private static final int RECENT_LIMIT = 100; // stats 中保留的最近请求数
+    // 随响应返回的产物，按输出顺序排列
+    private static final String[][] SECTIONS = {
+            {"mips", "mips.txt"},
+            {"llvm_ir", "llvm_ir.txt"},
+            {"error", "error.txt"}
+    };
+
+    private final BufferedWriter out;      // 协议输出
+    private final ExecutorService pool;    // 编译线程池，大小即并发上限
+    private final int maxPending;          // 已接收但未完成的请求数上限
+    private final Semaphore pending;       // 限制已接收但未完成的请求数，形成背压
+
+    // 统计信息，访问时以 this 加锁
+    private int completed = 0;
+    private int failed = 0;
+    private final Map<String, long[]> phaseTotals = new LinkedHashMap<>(); // 阶段 -> {次数, 总纳秒, 最大纳秒}
+    private final ArrayDeque<String> recent = new ArrayDeque<>();
+
+    public CompileDaemon(OutputStream output, int concurrency) {
+        this.out = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        this.pool = Executors.newFixedThreadPool(concurrency);
+        this.maxPending = concurrency * 4;
+        this.pending = new Semaphore(maxPending);
+    }
+
+    /**
+     * 读取并处理请求，直到 quit 或输入结束
+     *
+     * @param reader 请求输入
+     * @throws IOException 读写失败
+     * @throws InterruptedException 等待请求完成时被中断
+     */
+    public void serve(BufferedReader reader) throws IOException, InterruptedException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String[] parts = line.trim().split("\\s+");
+            switch (parts[0]) {
+                case "compile" -> {
+                    if (parts.length < 3) {
+                        respondError("?", "usage: compile <id> <path>");
+                    } else {
+                        submit(parts[1], null, Paths.get(line.trim().split("\\s+", 3)[2]));
+                    }
+                }
+                case "source" -> {
+                    int lines = parts.length < 3 ? -1 : parseLineCount(parts[2]);
+                    if (lines < 0) {
+                        // 行数无效时无法确定源代码的范围，其后的行仍按请求解析
+                        respondError(parts.length < 2 ? "?" : parts[1], "usage: source <id> <lines>");
+                    } else {
+                        submit(parts[1], readSource(reader, lines), null);
+                    }
+                }
+                case "stats" -> writeStats();
+                case "quit" -> {
+                    shutdown();
+                    return;
+                }
+                case "" -> {
+                }
+                default -> respondError("?", "unknown command: " + parts[0]);
+            }
+        }
+        shutdown();
+    }
+
+    // 解析非负的行数，格式错误时返回 -1
+    private static int parseLineCount(String text) {
+        try {
+            return Math.max(Integer.parseInt(text), -1);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static String readSource(BufferedReader reader, int lines) throws IOException {
+        StringBuilder source = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            String line = reader.readLine();
+            if (line == null) {
+                break;
+            }
+            source.append(line).append('\n');
+        }
+        return source.toString();
+    }
+
+    private void submit(String id, String source, Path path) throws InterruptedException {
+        pending.acquire();
+        pool.execute(() -> {
+            try {
+                handle(id, source, path);
+            } finally {
+                pending.release();
+            }
+        });
+    }
+
+    // 在独立的临时目录中编译，读回需要返回的产物后删除
+    private void handle(String id, String source, Path path) {
+        long start = System.nanoTime();
+        Path workDir = null;
+        try {
+            String content = source != null ? source : new String(Files.readAllBytes(path));
+            workDir = Files.createTempDirectory("sysy-daemon");
+            CompilationContext context = new CompilationContext(workDir);
+            // 请求之间已经并行编译，单个请求的优化、代码生成与词法分析不再另开线程
+            context.getOptimizer().setThreads(1);
+            context.getMipsBuilder().setThreads(1);
+            context.getLexer().setThreads(1);
+            boolean success = CompilerDriver.compile(context, content);
+            long total = System.nanoTime() - start;
+            List<String> response = new ArrayList<>();
+            response.add("result " + id + " " + (success ? "ok" : "fail") + " " + millis(total));
+            for (String[] section : SECTIONS) {
+                Path file = workDir.resolve(section[1]);
+                List<String> lines = Files.exists(file) ? Files.readAllLines(file) : Collections.emptyList();
+                response.add("section " + section[0] + " " + lines.size());
+                response.addAll(lines);
+            }
+            response.add("end " + id);
+            record(id, success, total, context.getPhaseNanos());
+            write(response);
+        } catch (Throwable e) {
+            // 包括深度嵌套的源代码导致的 StackOverflowError，客户端总能收到该请求的响应
+            record(id, false, System.nanoTime() - start, Collections.emptyMap());
+            respondError(id, String.valueOf(e));
+        } finally {
+            deleteQuietly(workDir);
+        }
+    }
+
+    private synchronized void record(String id, boolean success, long total, Map<String, Long> phases) {
+        completed++;
+        if (!success) {
+            failed++;
+        }
+        StringBuilder line = new StringBuilder("recent ").append(id).append(" total_ms=").append(millis(total));
+        for (Map.Entry<String, Long> phase : phases.entrySet()) {
+            long[] totals = phaseTotals.computeIfAbsent(phase.getKey(), k -> new long[3]);
+            totals[0]++;
+            totals[1] += phase.getValue();
+            totals[2] = Math.max(totals[2], phase.getValue());
+            line.append(' ').append(phase.getKey()).append("_ms=").append(millis(phase.getValue()));
+        }
+        recent.addLast(line.toString());
+        if (recent.size() > RECENT_LIMIT) {
+            recent.removeFirst();
+        }
+    }
+
+    private void writeStats() {
+        List<String> lines = new ArrayList<>();
+        synchronized (this) {
+            int inFlight = maxPending - pending.availablePermits();
+            lines.add("stats requests=" + completed + " failed=" + failed + " inflight=" + inFlight);
+            for (Map.Entry<String, long[]> entry : phaseTotals.entrySet()) {
+                long[] totals = entry.getValue();
+                lines.add("phase " + entry.getKey() + " count=" + totals[0]
+                        + " avg_ms=" + millis(totals[1] / totals[0]) + " max_ms=" + millis(totals[2]));
+            }
+            lines.addAll(recent);
+        }
+        lines.add("end stats");
+        write(lines);
+    }
+
+    private void respondError(String id, String message) {
+        List<String> response = new ArrayList<>();
+        response.add("result " + id + " crash 0.000");
+        response.add("section message 1");
+        response.add(message.replace('\n', ' '));
+        response.add("end " + id);
+        write(response);
+    }
+
+    // 一个响应整体写出，避免并发请求的输出交错
+    private void write(List<String> lines) {
+        synchronized (out) {
+            try {
+                for (String line : lines) {
+                    out.write(line);
+                    out.newLine();
+                }
+                out.flush();
+            } catch (IOException e) {
+                System.err.println("Error writing response: " + e.getMessage());
+            }
+        }
+    }
+
+    private void shutdown() throws InterruptedException {
+        pool.shutdown();
+        pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.3f", nanos / 1e6);
+    }
+
+    private static void deleteQuietly(Path dir) {
+        if (dir == null) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(dir);
+        } catch (IOException e) {
+            System.err.println("Error deleting " + dir + ": " + e.getMessage());
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int concurrency = Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-j") && i + 1 < args.length) {
+                concurrency = Integer.parseInt(args[++i]);
+            }
+        }
+        // stdout 用作协议通道，各 pass 的调试输出一律丢弃
+        PrintStream protocol = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        CompileDaemon daemon = new CompileDaemon(protocol, concurrency);
+        daemon.serve(new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)));
+    }
+}
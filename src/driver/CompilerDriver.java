@@ -0,0 +1,133 @@
+package driver;
+
+import LLVMIR.Base.Core.Module;
+import LLVMIR.IRBuilder;
+import ast.CompUnitNode;
+import backEnd.MipsBuilder;
+import error.ErrorHandler;
+import frontEnd.Lexer;
+import frontEnd.Parser;
+import frontEnd.SemanticAnalyzer;
+import midEnd.Optimizer;
+import util.CompilationContext;
+import util.MappedFileReader;
+import util.PassTimer;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * 编译流水线：在给定的编译上下文中完成从源代码到 MIPS 汇编的全部阶段
+ */
+public class CompilerDriver {
+
+    /**
+     * 在指定上下文中编译一段源代码，输出文件写入上下文的输出目录
+     *
+     * @param context 编译上下文，每次编译应使用新的上下文
+     * @param content 源代码
+     * @return 是否生成了目标代码（存在编译错误时返回 false）
+     * @throws IOException 输出错误信息失败
+     */
+    public static boolean compile(CompilationContext context, String content) throws IOException {
+        return compile(context, content, null);
+    }
+
+    /**
+     * 以流式模式编译一个源文件：文件以内存映射方式读取，词法分析随语法分析按需进行，
+     * 词法分析阶段占用的内存只取决于语法分析器的超前查看距离，与文件大小无关
+     *
+     * @param context    编译上下文，每次编译应使用新的上下文
+     * @param sourceFile 源文件
+     * @return 是否生成了目标代码（存在编译错误时返回 false）
+     * @throws IOException 读取源文件或输出错误信息失败
+     */
+    public static boolean compile(CompilationContext context, Path sourceFile) throws IOException {
+        return compile(context, null, sourceFile);
+    }
+
+    private static boolean compile(CompilationContext context, String content, Path sourceFile) throws IOException {
+        CompilationContext previous = context.activate();
+        try {
+            return runPipeline(context, content, sourceFile);
+        } finally {
+            // 调试文件在后台写出，返回前须全部落盘
+            context.finishArtifacts();
+            CompilationContext.restore(previous);
+        }
+    }
+
+    // content 与 sourceFile 只有一个非空，sourceFile 非空时使用流式词法分析
+    private static boolean runPipeline(CompilationContext context, String content, Path sourceFile) throws IOException {
+        PassTimer timer = context.getPassTimer();
+        // 获取词法分析器实例
+        Lexer lexer = Lexer.getInstance();
+        // 进行词法分析；流式模式下这里只打开输入，扫描计入语法分析阶段
+        timer.begin("lex", 0, null);
+        if (sourceFile == null) {
+            lexer.analyze(content);
+        } else {
+            lexer.openStream(new MappedFileReader(sourceFile));
+        }
+        timer.end(null);
+        // 获取解析器实例
+        Parser parser = Parser.getInstance();
+        // 进行语法分析，生成 AST
+        timer.begin("parse", 0, null);
+        CompUnitNode compUnitNode = parser.parseCompUnit();
+        if (sourceFile != null) {
+            lexer.finishStream();
+        }
+        timer.end(null);
+        // 融合模式下没有语法错误时，语义检查与 IR 生成一次完成
+        if (context.isFusedFrontEnd() && !ErrorHandler.getInstance().errorOccured()) {
+            Module module = IRBuilder.getInstance().getModule();
+            timer.begin("semantic+irgen", 0, module);
+            boolean built = IRBuilder.getInstance().analyzeFused(compUnitNode, SemanticAnalyzer.getInstance());
+            timer.end(module);
+            if (built) {
+                // 没有错误，输出空的 error.txt
+                ErrorHandler.getInstance().outputErrors();
+                return runBackEnd(timer, IRBuilder.getInstance(), module);
+            }
+            // 存在语义错误：丢弃不完整的 IR，按常规流程重新分析以报告全部错误
+            context.resetSemanticState();
+            compUnitNode.getArena().clearSymbols();
+            ErrorHandler.getInstance().clear();
+        }
+        //进行语义分析
+        SemanticAnalyzer semanticAnalyzer = SemanticAnalyzer.getInstance();
+        timer.begin("semantic", 0, null);
+        semanticAnalyzer.analyze(compUnitNode);
+        // 输出错误信息到 error.txt
+        ErrorHandler.getInstance().outputErrors();
+        timer.end(null);
+        // 如果存在错误，不继续进行后续操作
+        if (ErrorHandler.getInstance().errorOccured()) {
+            return false;
+        }
+        // 构建并生成main函数
+        IRBuilder irBuilder = IRBuilder.getInstance();
+        Module module = irBuilder.getModule();
+        timer.begin("irgen", 0, module);
+        irBuilder.analyze(compUnitNode);
+        timer.end(module);
+        return runBackEnd(timer, irBuilder, module);
+    }
+
+    // 优化并输出 LLVM IR，再生成 MIPS 汇编
+    private static boolean runBackEnd(PassTimer timer, IRBuilder irBuilder, Module module) throws IOException {
+        // optimize
+        Optimizer optimizer = Optimizer.getInstance();
+        timer.begin("optimize", 0, module);
+        optimizer.run(module);
+        irBuilder.outputLLVMIRToFile();
+        timer.end(module);
+        // 构建并生成 MIPS 汇编代码
+        MipsBuilder mipsBuilder = MipsBuilder.getInstance();
+        timer.begin("codegen", 0, module);
+        mipsBuilder.mipsBuilder(module);
+        timer.end(module);
+        return true;
+    }
+}
@@ -1,9 +1,9 @@
 package error;
 
 import frontEnd.Parser;
+import util.Artifact;
+import util.CompilationContext;
 
-import java.io.BufferedWriter;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -12,10 +12,8 @@ import java.util.List;
 
 @SuppressWarnings("all")
 public class ErrorHandler {
-    private static final ErrorHandler instance = new ErrorHandler();
-
     public static ErrorHandler getInstance() {
-        return instance;
+        return CompilationContext.current().getErrorHandler();
     }
     private List<String> errors = new ArrayList<>();
 
@@ -35,34 +33,33 @@ public class ErrorHandler {
         errors.clear();
     }
 
+    private static boolean isLexical(String error) {
+        return error.endsWith(" " + ErrorType.ILLEGAL_SYMBOL.getCode());
+    }
+
     // 将错误输出到 error.txt
     public void outputErrors()throws IOException {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter("error.txt"))) {
-            // 自定义排序，按行号（数字）升序排序
-            Collections.sort(errors, new Comparator<String>() {
-                @Override
-                public int compare(String error1, String error2) {
-                    // 提取行号
-                    int line1 = Integer.parseInt(error1.split(" ")[0]);
-                    int line2 = Integer.parseInt(error2.split(" ")[0]);
+        // 自定义排序，按行号（数字）升序排序
+        Collections.sort(errors, new Comparator<String>() {
+            @Override
+            public int compare(String error1, String error2) {
+                // 提取行号
+                int line1 = Integer.parseInt(error1.split(" ")[0]);
+                int line2 = Integer.parseInt(error2.split(" ")[0]);
+                if (line1 != line2) {
                     return Integer.compare(line1, line2);
                 }
-            });
-
-            // 输出排序后的错误
-            for (String error : errors) {
-                String type = error.split(" ")[1];
-//                if(!type.equals("e")) {
-//                    writer.write(error + "\n");
-//                }
+                // 同一行中词法错误在前：流式模式下词法错误与语法错误交替报告，这样输出顺序与先完成词法分析时相同
+                return Boolean.compare(!isLexical(error1), !isLexical(error2));
+            }
+        });
+        // 输出排序后的错误，由后台线程写入
+        List<String> sorted = new ArrayList<>(errors);
+        CompilationContext.current().getArtifactWriter().write(Artifact.ERROR, writer -> {
+            for (String error : sorted) {
                 writer.write(error + "\n");
             }
-//            if(errors.size() > 3) {
-//                throw new IOException();
-//            }
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+        });
     }
 
 }
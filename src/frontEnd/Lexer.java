@@ -1,33 +1,307 @@
 package frontEnd;
 
 import error.ErrorType;
-import token.Token;
 import token.TokenFactory;
 import error.ErrorHandler;
+import token.NameInterner;
 import token.TokenManager;
+import token.TokenRing;
+import token.TokenStore;
 import token.TokenType;
+import util.CompilationContext;
+import util.Artifact;
 import util.IOUtils;
+import util.PassTimer;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 
 /**
  * Lexer类用于将输入的源代码转换为Token。
+ * <p>
+ * 采用表驱动的确定有限自动机：每个字符先经字符类表映射为字符类，再按 (状态, 字符类) 查转移表，
+ * 直到没有转移为止（最长匹配），最后由终止状态决定产生的 Token 或跳过的内容。
+ * 扫描过程中没有按字符的分支判断，也不创建任何对象。
+ * <p>
+ * 有两种工作方式：批量模式 {@link #analyze(String)} 一次扫描完整个源代码，Token 全部保存在 TokenStore 中；
+ * 流式模式 {@link #openStream(Reader)} 只在语法分析器需要下一个 Token 时才继续扫描，
+ * 源代码按块读入一个窗口，Token 放入 TokenRing，两者的大小都与源代码长度无关。
+ * <p>
+ * 批量模式下源代码很大时按换行切成若干块并行扫描，每块假定从起始状态开始；
+ * 合并时若上一块末尾的词素（多行注释、字符串或字符）跨入下一块，就从该词素起串行扫描，
+ * 直到某个 Token 的起点与该块的扫描结果重合，此后的 Token 只需平移行号。结果与串行扫描完全一致。
  */
 public class Lexer {
-    private static Lexer instance = new Lexer(); // Lexer单例对象
+    // 字符类
+    private static final int C_OTHER = 0;     // 无法识别的字符
+    private static final int C_LETTER = 1;    // 字母与下划线
+    private static final int C_DIGIT = 2;     // 数字
+    private static final int C_SPACE = 3;     // 换行以外的空白字符
+    private static final int C_NEWLINE = 4;   // '\n'
+    private static final int C_SINGLE = 5;    // + - % ( ) { } [ ] , ;
+    private static final int C_STAR = 6;      // '*'
+    private static final int C_SLASH = 7;     // '/'
+    private static final int C_COMPARE = 8;   // ! < >
+    private static final int C_EQUAL = 9;     // '='
+    private static final int C_AMP = 10;      // '&'
+    private static final int C_BAR = 11;      // '|'
+    private static final int C_DQUOTE = 12;   // '"'
+    private static final int C_QUOTE = 13;    // '\''
+    private static final int C_BACKSLASH = 14; // '\\'
+    private static final int CLASS_COUNT = 15;
+
+    // 状态，NONE 表示没有转移，扫描在此结束
+    private static final int NONE = -1;
+    private static final int S_START = 0;
+    private static final int S_IDENT = 1;
+    private static final int S_NUMBER = 2;
+    private static final int S_SPACE = 3;
+    private static final int S_NEWLINE = 4;
+    private static final int S_UNKNOWN = 5;
+    private static final int S_SINGLE = 6;     // 单字符运算符或分隔符
+    private static final int S_COMPARE = 7;    // ! < > =
+    private static final int S_COMPARE_EQ = 8; // != <= >= ==
+    private static final int S_AMP = 9;
+    private static final int S_AND = 10;
+    private static final int S_BAR = 11;
+    private static final int S_OR = 12;
+    private static final int S_SLASH = 13;
+    private static final int S_LINE_COMMENT = 14;
+    private static final int S_BLOCK_COMMENT = 15;
+    private static final int S_BLOCK_STAR = 16;  // 多行注释中刚读到 '*'
+    private static final int S_BLOCK_END = 17;
+    private static final int S_STRING = 18;      // 字符串内部
+    private static final int S_STRING_END = 19;
+    private static final int S_CHAR_OPEN = 20;   // 刚读到起始单引号
+    private static final int S_CHAR_ESCAPE = 21; // 刚读到转义的反斜杠
+    private static final int S_CHAR_BODY = 22;   // 已读到字符内容，等待结束单引号
+    private static final int S_CHAR_END = 23;
+    private static final int STATE_COUNT = 24;
+
+    // 终止状态的动作
+    private static final byte A_SKIP = 0;        // 丢弃，不产生 Token
+    private static final byte A_IDENT = 1;       // 标识符或关键字
+    private static final byte A_NUMBER = 2;
+    private static final byte A_NEWLINE = 3;
+    private static final byte A_OPERATOR = 4;    // 运算符与分隔符，类型由文本决定
+    private static final byte A_ILLEGAL = 5;     // 单个 & 或 |，报错后按 && 或 || 处理
+    private static final byte A_DIV = 6;
+    private static final byte A_BLOCK = 7;       // 多行注释，需要统计其中的换行
+    private static final byte A_STRING = 8;
+    private static final byte A_CHAR = 9;
+
+    private static final int BUFFER_SIZE = 1 << 16; // 流式模式下输入窗口的初始大小
+    private static final int RING_CAPACITY = 64;    // 流式模式下 Token 缓冲区的初始容量
+    private static final int MIN_CHUNK_SIZE = 1 << 20; // 并行扫描时每块的最小字符数
+
+    private static final byte[] CHAR_CLASS = new byte[128];
+    private static final byte[] TRANSITIONS = new byte[STATE_COUNT * CLASS_COUNT];
+    private static final byte[] ACTIONS = new byte[STATE_COUNT];
+    // 状态是否还有出边：块末尾停在这样的状态时，词素可能延续到下一块
+    private static final boolean[] HAS_TRANSITIONS = new boolean[STATE_COUNT];
+
+    static {
+        for (char c = 0; c < 128; c++) {
+            CHAR_CLASS[c] = (byte) classifyUnicode(c);
+        }
+        CHAR_CLASS['\n'] = C_NEWLINE;
+        for (char c : "+-%(){}[],;".toCharArray()) {
+            CHAR_CLASS[c] = C_SINGLE;
+        }
+        for (char c : "!<>".toCharArray()) {
+            CHAR_CLASS[c] = C_COMPARE;
+        }
+        CHAR_CLASS['*'] = C_STAR;
+        CHAR_CLASS['/'] = C_SLASH;
+        CHAR_CLASS['='] = C_EQUAL;
+        CHAR_CLASS['&'] = C_AMP;
+        CHAR_CLASS['|'] = C_BAR;
+        CHAR_CLASS['"'] = C_DQUOTE;
+        CHAR_CLASS['\''] = C_QUOTE;
+        CHAR_CLASS['\\'] = C_BACKSLASH;
+
+        Arrays.fill(TRANSITIONS, (byte) NONE);
+        // 起始状态：由首字符决定 Token 种类
+        on(S_START, C_OTHER, S_UNKNOWN);
+        on(S_START, C_BACKSLASH, S_UNKNOWN);
+        on(S_START, C_LETTER, S_IDENT);
+        on(S_START, C_DIGIT, S_NUMBER);
+        on(S_START, C_SPACE, S_SPACE);
+        on(S_START, C_NEWLINE, S_NEWLINE);
+        on(S_START, C_SINGLE, S_SINGLE);
+        on(S_START, C_STAR, S_SINGLE);
+        on(S_START, C_COMPARE, S_COMPARE);
+        on(S_START, C_EQUAL, S_COMPARE);
+        on(S_START, C_AMP, S_AMP);
+        on(S_START, C_BAR, S_BAR);
+        on(S_START, C_SLASH, S_SLASH);
+        on(S_START, C_DQUOTE, S_STRING);
+        on(S_START, C_QUOTE, S_CHAR_OPEN);
+        // 标识符与数字
+        on(S_IDENT, C_LETTER, S_IDENT);
+        on(S_IDENT, C_DIGIT, S_IDENT);
+        on(S_NUMBER, C_DIGIT, S_NUMBER);
+        // 双字符运算符
+        on(S_COMPARE, C_EQUAL, S_COMPARE_EQ);
+        on(S_AMP, C_AMP, S_AND);
+        on(S_BAR, C_BAR, S_OR);
+        // 注释
+        on(S_SLASH, C_SLASH, S_LINE_COMMENT);
+        on(S_SLASH, C_STAR, S_BLOCK_COMMENT);
+        onAllExcept(S_LINE_COMMENT, C_NEWLINE, S_LINE_COMMENT);
+        onAllExcept(S_BLOCK_COMMENT, C_STAR, S_BLOCK_COMMENT);
+        on(S_BLOCK_COMMENT, C_STAR, S_BLOCK_STAR);
+        onAllExcept(S_BLOCK_STAR, C_STAR, S_BLOCK_COMMENT);
+        on(S_BLOCK_STAR, C_STAR, S_BLOCK_STAR);
+        on(S_BLOCK_STAR, C_SLASH, S_BLOCK_END);
+        // 字符串：引号之间的任意字符
+        onAllExcept(S_STRING, C_DQUOTE, S_STRING);
+        on(S_STRING, C_DQUOTE, S_STRING_END);
+        // 字符：一个字符或一个转义序列，之后必须是单引号
+        onAllExcept(S_CHAR_OPEN, C_BACKSLASH, S_CHAR_BODY);
+        on(S_CHAR_OPEN, C_BACKSLASH, S_CHAR_ESCAPE);
+        onAllExcept(S_CHAR_ESCAPE, -1, S_CHAR_BODY);
+        on(S_CHAR_BODY, C_QUOTE, S_CHAR_END);
+        // 起始状态必须对每个字符类都有转移，否则扫描无法前进
+        for (int charClass = 0; charClass < CLASS_COUNT; charClass++) {
+            if (TRANSITIONS[S_START * CLASS_COUNT + charClass] == NONE) {
+                throw new IllegalStateException("No transition from start state for character class " + charClass);
+            }
+        }
+
+        for (int state = 0; state < STATE_COUNT; state++) {
+            for (int charClass = 0; charClass < CLASS_COUNT; charClass++) {
+                if (TRANSITIONS[state * CLASS_COUNT + charClass] != NONE) {
+                    HAS_TRANSITIONS[state] = true;
+                }
+            }
+        }
+
+        // 未列出的状态（未闭合的字符串和字符等）默认丢弃
+        ACTIONS[S_IDENT] = A_IDENT;
+        ACTIONS[S_NUMBER] = A_NUMBER;
+        ACTIONS[S_NEWLINE] = A_NEWLINE;
+        ACTIONS[S_SINGLE] = A_OPERATOR;
+        ACTIONS[S_COMPARE] = A_OPERATOR;
+        ACTIONS[S_COMPARE_EQ] = A_OPERATOR;
+        ACTIONS[S_AND] = A_OPERATOR;
+        ACTIONS[S_OR] = A_OPERATOR;
+        ACTIONS[S_AMP] = A_ILLEGAL;
+        ACTIONS[S_BAR] = A_ILLEGAL;
+        ACTIONS[S_SLASH] = A_DIV;
+        ACTIONS[S_BLOCK_COMMENT] = A_BLOCK;
+        ACTIONS[S_BLOCK_STAR] = A_BLOCK;
+        ACTIONS[S_BLOCK_END] = A_BLOCK;
+        ACTIONS[S_STRING_END] = A_STRING;
+        ACTIONS[S_CHAR_END] = A_CHAR;
+    }
+
+    private static void on(int state, int charClass, int target) {
+        TRANSITIONS[state * CLASS_COUNT + charClass] = (byte) target;
+    }
 
-    private TokenManager tokenManager = TokenManager.getInstance();  // TokenManager单例对象
+    private static void onAllExcept(int state, int excluded, int target) {
+        for (int charClass = 0; charClass < CLASS_COUNT; charClass++) {
+            if (charClass != excluded) {
+                on(state, charClass, target);
+            }
+        }
+    }
+
+    // 非 ASCII 字符的字符类，与 Character 的判定保持一致，标识符中可以出现 Unicode 字母
+    private static int classifyUnicode(char c) {
+        if (Character.isLetter(c) || c == '_') {
+            return C_LETTER;
+        }
+        if (Character.isDigit(c)) {
+            return C_DIGIT;
+        }
+        if (Character.isWhitespace(c)) {
+            return C_SPACE;
+        }
+        return C_OTHER;
+    }
+
+    private final TokenManager tokenManager;           // TokenManager单例对象，分块扫描器为 null
+    private int threads = Runtime.getRuntime().availableProcessors(); // 批量模式下并行扫描的线程数
     private int line = 1;                             // 当前行号
-    private String content;                           // 输入的源代码
-    private int position = 0;                         // 当前读取到的字符位置
+    private TokenStore store;                         // 批量模式下保存 Token
+
+    // 输入窗口：buffer[0, limit) 是已读入的源代码，buffer[0] 位于源代码的 bufferOffset 处
+    private char[] buffer;
+    private int limit;
+    private int bufferOffset;
+    private int position;      // 下一个要读取的字符在窗口中的位置
+    private int tokenStart;    // 正在扫描的词素在窗口中的起始位置
+    private int emitted = 0;   // 已产生的 Token 数
+
+    // 流式模式的状态，批量模式下均为 null
+    private Reader input;              // 源代码输入
+    private boolean inputEnded;        // 输入是否已读完
+    private TokenRing ring;            // 供语法分析器读取的 Token 缓冲区
+    private Writer lexerWriter;        // 边扫描边输出 lexer.txt，关闭该输出时为 null
+    private NameInterner names;        // 标识符驻留表
+
+    // 分块扫描器的状态：块的范围、跨入下一块的词素以及暂存的错误（行号与词素起点交替存放）
+    private int chunkStart;
+    private int chunkEnd;
+    private boolean splitAtLimit;      // 块末尾不是源代码末尾
+    private int crossStart = -1;       // 跨入下一块的词素的起点，没有时为 -1
+    private int crossLine;             // 该词素起点处的行号
+    private int[] chunkErrors;         // 非分块扫描器为 null，错误直接报告给 ErrorHandler
+    private int chunkErrorCount = 0;
+    private int syncCursor = 0;        // 合并时查找重合 Token 的位置
+
+    public Lexer(TokenManager tokenManager) {
+        this.tokenManager = tokenManager;
+    }
+
+    // 分块扫描器，只读共享整个源代码的字符数组，行号从 1 开始计
+    private Lexer(String content, char[] buffer, int start, int end) {
+        this.tokenManager = null;
+        this.store = new TokenStore(content, Math.max(64, (end - start) / 8));
+        this.buffer = buffer;
+        this.position = start;
+        this.limit = end;
+        this.inputEnded = true;
+        this.chunkStart = start;
+        this.chunkEnd = end;
+        this.splitAtLimit = end < buffer.length;
+        this.chunkErrors = new int[16];
+    }
+
+    public int getThreads() {
+        return threads;
+    }
 
     /**
-     * 获取Lexer单例对象。
-     * @return Lexer单例对象
+     * 设置批量模式下并行扫描的线程数，源代码较小时总是串行扫描
+     *
+     * @param threads 线程数，为 1 时串行扫描
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be positive");
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * 获取当前编译上下文中的Lexer对象。
+     * @return Lexer对象
      */
     public static Lexer getInstance() {
-        return instance;
+        return CompilationContext.current().getLexer();
     }
 
     /**
@@ -35,226 +309,363 @@ public class Lexer {
      * @param content 输入的源代码
      */
     public void analyze(String content) {
-        this.content = content;
-        while (position < content.length()) {
-            char currentChar = content.charAt(position);
-
-            if (Character.isWhitespace(currentChar)) { // 处理空白字符
-                if (currentChar == '\n') {
-                    line++;
-                }
-                position++;
-            } else if (Character.isLetter(currentChar) || currentChar == '_') { // 处理标识符或关键字
-                analyzeIdentifierOrKeyword();
-            } else if (Character.isDigit(currentChar)) { // 处理数字
-                analyzeNumber();
-            } else if (currentChar == '"') { // 处理字符串
-                analyzeString();
-            } else if (currentChar == '\'') { // 处理字符
-                analyzeChar();
-            } else if (isSingleCharDelimiter(currentChar)) { // 处理单字符分隔符
-                analyzeSingleCharDelimiter();
-            } else if (currentChar == '/') { // 处理注释或除号
-                analyzeCommentOrDivide();
-            } else if (currentChar == '&' || currentChar == '|') { // 处理逻辑运算符
-                analyzeLogicalOperators();
-            } else {
-                // 遇到无法识别的符号
-                position++;
+        tokenManager.reset(content);
+        store = tokenManager.getStore();
+        buffer = content.toCharArray();
+        limit = buffer.length;
+        inputEnded = true;
+        int chunks = Math.min(threads, buffer.length / MIN_CHUNK_SIZE);
+        if (chunks > 1) {
+            analyzeChunks(content, chunks);
+        } else {
+            while (scan()) {
+                // 逐个词素扫描到源代码末尾
             }
         }
+        buffer = null;
         saveResults(); // 保存Token和错误到文件
     }
 
-    /**
-     * 处理标识符或关键字。
-     */
-    private void analyzeIdentifierOrKeyword() {
-        StringBuilder tokenBuilder = new StringBuilder();
-        char currentChar;
-        while (position < content.length() && (Character.isLetterOrDigit(currentChar = content.charAt(position)) || currentChar == '_')) {
-            tokenBuilder.append(currentChar);
-            position++;
-        }
-        String tokenStr = tokenBuilder.toString();
-        Token token = TokenFactory.getInstance().createToken(tokenStr, line);
-        tokenManager.saveToken(token);
+    // 在换行处把源代码切成至多 count 块，各块并行扫描后按顺序合并
+    private void analyzeChunks(String content, int count) {
+        List<Lexer> chunks = new ArrayList<>();
+        int start = 0;
+        for (int i = 1; i <= count && start < limit; i++) {
+            int end = limit;
+            if (i < count) {
+                // 每块结束于换行之后，块的开头总是一行的开头
+                int newline = content.indexOf('\n', Math.max(start, (int) ((long) limit * i / count)));
+                end = newline < 0 ? limit : newline + 1;
+            }
+            chunks.add(new Lexer(content, buffer, start, end));
+            start = end;
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(chunks.size());
+        PassTimer timer = CompilationContext.current().getPassTimer();
+        try {
+            List<Future<Lexer>> pending = new ArrayList<>();
+            for (Lexer chunk : chunks) {
+                pending.add(pool.submit(() -> timer.measureWorker(chunk::scanChunk)));
+            }
+            for (Future<Lexer> future : pending) {
+                merge(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Lexing interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Lexing failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // 在工作线程中扫描本块，直到块末尾或遇到跨入下一块的词素
+    private Lexer scanChunk() {
+        while (scan()) {
+            // 逐个词素扫描到块末尾
+        }
+        return this;
     }
 
     /**
-     * 处理数字。
+     * 把一块的扫描结果接到已确定的 Token 之后。
+     * 本扫描器的 position 和 line 是串行扫描到目前为止的确切状态：
+     * position 恰好是块的起点时，块内的结果全部有效，只需平移行号；
+     * 否则说明有词素跨入本块，块的开头不是起始状态，需要从 position 起串行扫描，
+     * 直到产生的 Token 与块内某个 Token 起点相同，两次扫描从此处起完全一致
      */
-    private void analyzeNumber() {
-        StringBuilder numberBuilder = new StringBuilder();
-        char currentChar;
-        while (position < content.length() && Character.isDigit(currentChar = content.charAt(position))) {
-            numberBuilder.append(currentChar);
-            position++;
-        }
-        String numberStr = numberBuilder.toString();
-        tokenManager.saveToken(TokenFactory.getInstance().createToken(numberStr, line, TokenType.INTCON));
+    private void merge(Lexer chunk) {
+        int from = 0;          // 块内从这个 Token 起的结果有效
+        int errorsAfter = -1;  // 起点大于它的块内错误有效
+        if (position != chunk.chunkStart) {
+            int synced = -1;
+            while (synced < 0 && position < chunk.chunkEnd) {
+                int before = emitted;
+                scan();
+                if (emitted > before) {
+                    synced = chunk.findToken(tokenStart);
+                }
+            }
+            if (synced < 0) {
+                // 整块都由串行扫描得到
+                return;
+            }
+            from = synced + 1;
+            errorsAfter = tokenStart;
+        }
+        int lineDelta = from == 0 ? line - 1 : line - chunk.store.getLine(from - 1);
+        store.append(chunk.store, from, lineDelta);
+        for (int i = 0; i < chunk.chunkErrorCount; i += 2) {
+            if (chunk.chunkErrors[i + 1] > errorsAfter) {
+                ErrorHandler.getInstance().reportError(chunk.chunkErrors[i] + lineDelta, ErrorType.ILLEGAL_SYMBOL);
+            }
+        }
+        if (chunk.crossStart >= 0) {
+            position = chunk.crossStart;
+            line = chunk.crossLine + lineDelta;
+        } else {
+            position = chunk.chunkEnd;
+            line = chunk.line + lineDelta;
+        }
+    }
+
+    // 查找起点为 start 的 Token，起点单调递增地查询，找不到时返回 -1
+    private int findToken(int start) {
+        while (syncCursor < store.size() && store.getStart(syncCursor) < start) {
+            syncCursor++;
+        }
+        return syncCursor < store.size() && store.getStart(syncCursor) == start ? syncCursor : -1;
     }
 
     /**
-     * 处理字符串。
+     * 以流式模式开始词法分析：此后 TokenManager 中的 Token 在语法分析器读取时才扫描产生，
+     * 语法分析结束后须调用 {@link #finishStream()}
+     *
+     * @param input 源代码输入
      */
-    private void analyzeString() {
-        position++; // 跳过起始的引号
-        StringBuilder stringBuilder = new StringBuilder();
-        stringBuilder.append('"');
-        char currentChar;
-        while (position < content.length() && (currentChar = content.charAt(position)) != '"') {
-            stringBuilder.append(currentChar);
-            position++;
-        }
-        if (position < content.length() && content.charAt(position) == '"') {
-            position++; // 跳过结束引号
-            stringBuilder.append('"');
-            tokenManager.saveToken(TokenFactory.getInstance().createToken(stringBuilder.toString(), line, TokenType.STRCON));
-        }
+    public void openStream(Reader input) {
+        this.input = input;
+        buffer = new char[BUFFER_SIZE];
+        names = new NameInterner();
+        ring = new TokenRing(this::pull, RING_CAPACITY);
+        tokenManager.reset(ring);
+        lexerWriter = CompilationContext.current().getArtifactWriter().open(Artifact.LEXER);
     }
 
     /**
-     * 处理字符。
+     * 结束流式词法分析：扫描语法分析器没有读到的剩余部分（输出 lexer.txt 并报告其中的错误），然后关闭输入
+     *
+     * @throws IOException 读取或关闭输入失败
      */
-    private void analyzeChar() {
-        position++; // 跳过起始的单引号
-        if (position < content.length()) {
-            StringBuilder charBuilder = new StringBuilder();
-            charBuilder.append("'");
-            char charContent = content.charAt(position);
-
-            if (charContent == '\\') { // 处理转义字符
-                position++;
-                if (position < content.length()) {
-                    charContent = content.charAt(position);
-                    switch (charContent) {
-                        case '0': charBuilder.append("\\0"); break;
-                        case 'a': charBuilder.append("\\a"); break;
-                        case 'b': charBuilder.append("\\b"); break;
-                        case 't': charBuilder.append("\\t"); break;
-                        case 'n': charBuilder.append("\\n"); break;
-                        case 'v': charBuilder.append("\\v"); break;
-                        case 'f': charBuilder.append("\\f"); break;
-                        case '\\': charBuilder.append("\\\\"); break;
-                        case '\'': charBuilder.append("\\'"); break;
-                        case '"': charBuilder.append("\\\""); break;
-                        default:
-                            // 如果未知的转义字符，保持原样输出并报错
-                            charBuilder.append("\\").append(charContent);
-                            break;
-                    }
-                    position++;
-                }
-            } else {
-                charBuilder.append(charContent);
-                position++;
-            }
+    public void finishStream() throws IOException {
+        // 语法分析已结束，之后的 Token 不会再被读取，缓冲区可以直接覆盖
+        ring.release(Integer.MAX_VALUE);
+        while (scan()) {
+            // 扫描到源代码末尾
+        }
+        if (lexerWriter != null) {
+            lexerWriter.close();
+        }
+        input.close();
+        buffer = null;
+    }
 
-            if (position < content.length() && content.charAt(position) == '\'') {
-                position++; // 跳过结束单引号
-                charBuilder.append("'");
-                tokenManager.saveToken(TokenFactory.getInstance().createToken(charBuilder.toString(), line, TokenType.CHRCON));
+    // 流式模式下由 TokenRing 调用：继续扫描，直到产生至少一个 Token；已到源代码末尾时返回 false
+    private boolean pull() {
+        int before = emitted;
+        while (emitted == before) {
+            if (!scan()) {
+                return false;
             }
         }
+        return true;
     }
 
     /**
-     * 处理单字符分隔符。
+     * 扫描一个词素（可能不产生 Token，例如空白和注释）
+     * @return 已到源代码末尾、没有可扫描的内容时返回 false
      */
-    private void analyzeSingleCharDelimiter() {
-        StringBuilder stringBuilder = new StringBuilder();
-        char currentChar = content.charAt(position);
-        position++;
-        if(position < content.length() && "!<>=".indexOf(currentChar) >= 0) {
-                char nextChar = content.charAt(position);
-                if(nextChar == '=') {
-                    stringBuilder.append(currentChar).append(nextChar);
-                    tokenManager.saveToken(TokenFactory.getInstance().createToken(stringBuilder.toString(), line));
-                    position++;
-                }else {
-                    tokenManager.saveToken(TokenFactory.getInstance().createToken(String.valueOf(currentChar), line));
+    private boolean scan() {
+        char[] chars = buffer;
+        int pos = position;
+        int end = limit;
+        // 空格、制表符和换行不产生 Token，直接跳过，不必每段空白都走一遍自动机和动作分派
+        while (true) {
+            if (pos == end) {
+                position = pos;
+                tokenStart = pos;
+                if (!refill(S_START)) {
+                    return false;
+                }
+                chars = buffer;
+                pos = position;
+                end = limit;
+            }
+            char c = chars[pos];
+            if (c == '\n') {
+                line++;
+            } else if (c != ' ' && c != '\t' && c != '\r') {
+                break;
+            }
+            pos++;
+        }
+        tokenStart = pos;
+        int state = S_START;
+        // 最长匹配：沿转移表前进，直到当前字符在当前状态下没有转移
+        while (true) {
+            if (pos == end) {
+                // 读入更多字符，窗口可能被移动，即使没有读到新字符
+                position = pos;
+                boolean more = refill(state);
+                chars = buffer;
+                pos = position;
+                end = limit;
+                if (!more) {
+                    break;
                 }
+            }
+            char c = chars[pos];
+            int charClass = c < 128 ? CHAR_CLASS[c] : classifyUnicode(c);
+            int next = TRANSITIONS[state * CLASS_COUNT + charClass];
+            if (next == NONE) {
+                break;
+            }
+            state = next;
+            pos++;
         }
-        else {
-            tokenManager.saveToken(TokenFactory.getInstance().createToken(String.valueOf(currentChar), line));
+        position = pos;
+        if (splitAtLimit && position == limit && HAS_TRANSITIONS[state]) {
+            // 词素可能延续到下一块，留给合并时串行扫描
+            crossStart = tokenStart;
+            crossLine = line;
+            return false;
         }
+        int tokenLength = position - tokenStart;
+        TokenFactory factory = TokenFactory.getInstance();
+        switch (ACTIONS[state]) {
+            case A_IDENT:
+                emit(factory.lookupWord(buffer, tokenStart, tokenLength), tokenLength);
+                break;
+            case A_NUMBER:
+                emit(TokenType.INTCON, tokenLength);
+                break;
+            case A_NEWLINE:
+                line++;
+                break;
+            case A_OPERATOR:
+                emit(factory.lookupOperator(buffer, tokenStart, tokenLength), tokenLength);
+                break;
+            case A_ILLEGAL:
+                // 处理非法符号 & 或 |，按 && 或 || 继续分析，文本由类型决定
+                reportIllegalSymbol();
+                emit(buffer[tokenStart] == '&' ? TokenType.AND : TokenType.OR, 1);
+                break;
+            case A_DIV:
+                // 源代码最后一个字符是 '/' 时不产生除号
+                if (position < limit) {
+                    emit(TokenType.DIV, 1);
+                }
+                break;
+            case A_BLOCK:
+                // 多行注释中的换行符也要计算行号
+                countNewlines();
+                break;
+            case A_STRING:
+                // Token 文本包含两侧引号，字符串中的换行不计入行号
+                emit(TokenType.STRCON, tokenLength);
+                break;
+            case A_CHAR:
+                // Token 文本包含两侧单引号，转义字符原样保留在文本中，由后续阶段解释
+                emit(TokenType.CHRCON, tokenLength);
+                break;
+            default:
+                // 空白、单行注释、无法识别的符号和未闭合的字符串或字符
+                break;
+        }
+        return true;
     }
 
-    /**
-     * 处理注释或除号。
-     */
-    private void analyzeCommentOrDivide() {
-        position++;  // 假设已经遇到了第一个 '/'
-        if (position < content.length()) {
-            char nextChar = content.charAt(position);
-            if (nextChar == '/') {
-                // 处理单行注释
-                position++;  // 跳过第二个 '/'
-                while (position < content.length() && content.charAt(position) != '\n') {
-                    position++;  // 继续前进直到行末
-                }
-                // 这里不需要创建Token，单行注释忽略掉
-            } else if (nextChar == '*') {
-                // 处理多行注释
-                position++;  // 跳过 '*'
-                boolean foundEnd = false;
-                while (position < content.length()) {
-                    char currentChar = content.charAt(position);
-                    if (currentChar == '*' && position + 1 < content.length() && content.charAt(position + 1) == '/') {
-                        position += 2;  // 跳过结束的 "*/"
-                        foundEnd = true;
-                        break;
-                    }
-                    if (currentChar == '\n') {
-                        line++;  // 多行注释中的换行符也要计算行号
-                    }
-                    position++;
-                }
-            } else {
-                // 不是注释，而是除号
-                tokenManager.saveToken(TokenFactory.getInstance().createToken("/", line, TokenType.DIV));
+    private void countNewlines() {
+        for (int i = tokenStart; i < position; i++) {
+            if (buffer[i] == '\n') {
+                line++;
             }
         }
     }
 
     /**
-     * 处理逻辑运算符。
+     * 窗口中的字符读完时，把正在扫描的词素移到窗口开头并继续读入源代码
+     * @param state 当前的自动机状态
+     * @return 读入了新的字符时返回 true；批量模式或输入已读完时返回 false
      */
-    private void analyzeLogicalOperators() {
-        char currentChar = content.charAt(position);
-        position++;
-        if (position < content.length() && content.charAt(position) == currentChar) {
-            if (currentChar == '&') {
-                tokenManager.saveToken(TokenFactory.getInstance().createToken("&&", line, TokenType.AND));
-            } else if (currentChar == '|') {
-                tokenManager.saveToken(TokenFactory.getInstance().createToken("||", line, TokenType.OR));
+    private boolean refill(int state) {
+        if (inputEnded) {
+            return false;
+        }
+        if (state == S_LINE_COMMENT || ACTIONS[state] == A_BLOCK) {
+            // 注释不产生 Token，已扫描的部分统计完换行即可丢弃，长注释不会撑大窗口
+            if (state != S_LINE_COMMENT) {
+                countNewlines();
             }
-            position++;
-        } else {
-            // 处理非法符号 & 或 |
-            ErrorHandler.getInstance().reportError(line, ErrorType.ILLEGAL_SYMBOL);
-            if(currentChar == '&'){
-                tokenManager.saveToken(TokenFactory.getInstance().createToken("&&", line, TokenType.AND));
-            }else {
-                tokenManager.saveToken(TokenFactory.getInstance().createToken("||", line, TokenType.OR));
+            tokenStart = position;
+        }
+        int kept = limit - tokenStart;
+        if (kept == buffer.length) {
+            // 单个词素（如很长的字符串）超过了窗口大小
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        System.arraycopy(buffer, tokenStart, buffer, 0, kept);
+        bufferOffset += tokenStart;
+        position -= tokenStart;
+        tokenStart = 0;
+        limit = kept;
+        int count;
+        try {
+            count = input.read(buffer, limit, buffer.length - limit);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (count <= 0) {
+            inputEnded = true;
+            return false;
+        }
+        limit += count;
+        return true;
+    }
+
+    // 产生一个以 tokenStart 开头、长度为 length 的 Token
+    private void emit(TokenType type, int length) {
+        emitted++;
+        if (ring == null) {
+            store.add(type, line, bufferOffset + tokenStart, length);
+            return;
+        }
+        String text;
+        switch (type) {
+            case IDENFR:
+                text = names.intern(buffer, tokenStart, length);
+                break;
+            case INTCON:
+            case STRCON:
+            case CHRCON:
+                text = new String(buffer, tokenStart, length);
+                break;
+            default:
+                text = TokenFactory.getInstance().getSpelling(type);
+        }
+        ring.add(type, line, text);
+        if (lexerWriter != null) {
+            try {
+                lexerWriter.write(type.name());
+                lexerWriter.write(' ');
+                lexerWriter.write(text);
+                lexerWriter.write(System.lineSeparator());
+            } catch (IOException e) {
+                e.printStackTrace();
             }
         }
     }
 
-    /**
-     * 判断字符是否为单字符分隔符。
-     * @param c 要判断的字符
-     * @return 如果是单字符分隔符则返回true，否则返回false
-     */
-    private boolean isSingleCharDelimiter(char c) {
-        return "+-*%(){}[],;!<>=".indexOf(c) >= 0;
+    // 分块扫描器的错误先暂存，合并后才知道确切的行号以及是否有效
+    private void reportIllegalSymbol() {
+        if (chunkErrors == null) {
+            ErrorHandler.getInstance().reportError(line, ErrorType.ILLEGAL_SYMBOL);
+            return;
+        }
+        if (chunkErrorCount == chunkErrors.length) {
+            chunkErrors = Arrays.copyOf(chunkErrors, chunkErrors.length * 2);
+        }
+        chunkErrors[chunkErrorCount++] = line;
+        chunkErrors[chunkErrorCount++] = tokenStart;
     }
 
     /**
      * 保存Token和错误到文件。
      */
     private void saveResults() {
-        IOUtils.writeTokensToFile(tokenManager.getTokens(), "lexer.txt");
+        TokenStore tokens = tokenManager.getStore();
+        CompilationContext.current().getArtifactWriter().write(Artifact.LEXER,
+                writer -> IOUtils.writeTokens(tokens, writer));
     }
-}
\ No newline at end of file
+}
@@ -6,71 +6,68 @@ import token.TokenType;
 import error.ErrorHandler;
 import error.ErrorType;
 import ast.*;
+import util.Artifact;
+import util.CompilationContext;
 
-import java.io.BufferedWriter;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.List;
 
 @SuppressWarnings("all")
 public class Parser {
-    private static final Parser instance = new Parser(TokenManager.getInstance());
-    private List<String> parserOutputs = new ArrayList<>();
 
     public static Parser getInstance() {
-        return instance;
+        return CompilationContext.current().getParser();
     }
 
     private TokenManager tokenManager; // Token管理器，用于获取和管理Token
-    private Token currentToken; // 当前的Token
-    private Token prevToken; // 上一个Token
+    private int prevLine = -1; // 上一个Token的行号，缺少符号的错误报告在这一行
 
-    private BufferedWriter parserWriter; // 用于输出到 parser.txt
+    private Writer parserWriter; // 用于输出到 parser.txt，关闭该输出时为 null
+    private AstArena arena = new AstArena(); // 保存所有表达式节点
 
     public Parser(TokenManager tokenManager) {
         this.tokenManager = tokenManager;
-        this.currentToken = tokenManager.getToken(); // 初始化当前Token
-        this.prevToken = null; // 初始化prevToken
-        try {
-            parserWriter = new BufferedWriter(new FileWriter("parser.txt"));
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+        parserWriter = CompilationContext.current().getArtifactWriter().open(Artifact.PARSER);
     }
 
-    // 更新当前Token和prevToken
-    private void updateCurrentToken() {
-        prevToken = currentToken; // 更新prevToken为当前Token
-        currentToken = tokenManager.getToken(); // 获取下一个Token
+    // 前进到下一个Token，并记录刚离开的Token的行号
+    private void advance() {
+        prevLine = tokenManager.getLine();
+        tokenManager.nextToken();
     }
 
-    // 匹配并匹配预期的Token
+    // 匹配预期的Token并返回 Token 对象，供语法树保存；不匹配时跳过当前Token并返回 null
     private Token match(TokenType expectedType) {
-        if (currentToken != null && currentToken.getType() == expectedType) {
-            Token matchedToken = currentToken;
-            outputToken(matchedToken); // 输出Token
-            tokenManager.nextToken();
-            updateCurrentToken();
-            return matchedToken;
-        } else {
-            // 为了继续解析，跳过当前Token
-            tokenManager.nextToken();
-            updateCurrentToken();
-            return null;
+        Token matchedToken = checkToken(expectedType) ? tokenManager.getToken() : null;
+        expect(expectedType);
+        return matchedToken;
+    }
+
+    // 匹配预期的Token但不创建 Token 对象，用于不进入语法树的关键字和分隔符
+    private boolean expect(TokenType expectedType) {
+        boolean matched = checkToken(expectedType);
+        if (matched) {
+            outputToken(); // 输出Token
         }
+        // 不匹配时为了继续解析，跳过当前Token
+        advance();
+        return matched;
     }
 
     // 判断当前Token是否是指定类型
     private boolean checkToken(TokenType type) {
-        return currentToken != null && currentToken.getType() == type;
+        return tokenManager.getType() == type;
     }
 
-    // 输出Token
-    private void outputToken(Token token) {
+    // 输出当前Token
+    private void outputToken() {
+        if (parserWriter == null) {
+            return;
+        }
         try {
-            parserWriter.write(token.getType() + " " + token.getValue() + "\n");
-            parserOutputs.add(token.getType() + " " + token.getValue() + "\n");
+            parserWriter.write(tokenManager.getType() + " " + tokenManager.getText() + "\n");
         } catch (IOException e) {
             e.printStackTrace();
         }
@@ -78,29 +75,33 @@ public class Parser {
 
     // 输出语法成分
     private void outputGrammar(String grammar) {
+        if (parserWriter == null) {
+            return;
+        }
         try {
             parserWriter.write(grammar + "\n");
-            parserOutputs.add(grammar + "\n");
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
-    // 报告错误，传入发生错误的Token
-    private void reportError(Token token, ErrorType errorType) {
+    // 报告错误，传入发生错误的行号
+    private void reportError(int line, ErrorType errorType) {
 
-        ErrorHandler.getInstance().reportError(token.getLine(), errorType);
+        ErrorHandler.getInstance().reportError(line, errorType);
 
     }
 
     // 主入口：解析编译单元
     public CompUnitNode parseCompUnit() {
+        // 批量模式下 Token 数已知，表达式节点数不会超过它
+        arena = tokenManager.getStore() != null ? new AstArena(tokenManager.getStore().size()) : new AstArena();
         List<DeclNode> declNodes = new ArrayList<>();
         List<FuncDefNode> funcDefNodes = new ArrayList<>();
         MainFuncDefNode mainFuncDefNode = null;
 
         // 解析{Decl}
-        while (tokenManager.lookAhead(1).getType() != TokenType.MAINTK && tokenManager.lookAhead(2).getType() != TokenType.LPARENT) {
+        while (tokenManager.lookAheadType(1) != TokenType.MAINTK && tokenManager.lookAheadType(2) != TokenType.LPARENT) {
             DeclNode declNode = parseDecl();
             if (declNode != null) {
                 declNodes.add(declNode);
@@ -108,7 +109,7 @@ public class Parser {
         }
 
         // 解析{FuncDef}
-        while (tokenManager.lookAhead( 1).getType() != TokenType.MAINTK) {
+        while (tokenManager.lookAheadType(1) != TokenType.MAINTK) {
             FuncDefNode funcDefNode = parseFuncDef();
             if (funcDefNode != null) {
                 funcDefNodes.add(funcDefNode);
@@ -119,7 +120,7 @@ public class Parser {
         mainFuncDefNode = parseMainFuncDef();
 
 
-        CompUnitNode compUnitNode = new CompUnitNode(declNodes, funcDefNodes, mainFuncDefNode);
+        CompUnitNode compUnitNode = new CompUnitNode(declNodes, funcDefNodes, mainFuncDefNode, arena);
         outputGrammar("<CompUnit>");
         closeParserWriter();
         return compUnitNode;
@@ -160,7 +161,7 @@ public class Parser {
     // 解析ConstDecl
     //常量声明 ConstDecl → 'const' BType ConstDef { ',' ConstDef } ';' // i
     private ConstDeclNode parseConstDecl() {
-        match(TokenType.CONSTTK); // 匹配'const'
+        expect(TokenType.CONSTTK); // 匹配'const'
         BTypeNode bTypeNode = parseBType();
         List<ConstDefNode> constDefNodes = new ArrayList<>();
         ConstDefNode constDefNode = parseConstDef();
@@ -168,16 +169,16 @@ public class Parser {
             constDefNodes.add(constDefNode);
         }
         while (checkToken(TokenType.COMMA)) {
-            match(TokenType.COMMA); // 匹配','
+            expect(TokenType.COMMA); // 匹配','
             constDefNode = parseConstDef();
             if (constDefNode != null) {
                 constDefNodes.add(constDefNode);
             }
         }
         if (!checkToken(TokenType.SEMICN)) {
-            reportError(prevToken, ErrorType.MISSING_SEMICOLON); // 缺少分号，使用prevToken
+            reportError(prevLine, ErrorType.MISSING_SEMICOLON); // 缺少分号，使用prevLine
         } else {
-            match(TokenType.SEMICN); // 匹配';'
+            expect(TokenType.SEMICN); // 匹配';'
         }
         outputGrammar("<ConstDecl>");
         return new ConstDeclNode(bTypeNode, constDefNodes);
@@ -207,15 +208,15 @@ public class Parser {
             ConstExpNode constExpNode = null;
             // 解析零个或一个 '[' ConstExp ']'
             if (checkToken(TokenType.LBRACK)) {
-                match(TokenType.LBRACK); // 匹配'['
+                expect(TokenType.LBRACK); // 匹配'['
                 constExpNode = parseConstExp();
                 if (!checkToken(TokenType.RBRACK)) {
-                    reportError(prevToken, ErrorType.MISSING_RIGHT_RBRACK); // 缺少']'，使用prevToken
+                    reportError(prevLine, ErrorType.MISSING_RIGHT_RBRACK); // 缺少']'，使用prevLine
                 } else {
-                    match(TokenType.RBRACK); // 匹配']'
+                    expect(TokenType.RBRACK); // 匹配']'
                 }
             }
-            match(TokenType.ASSIGN); // 匹配'='
+            expect(TokenType.ASSIGN); // 匹配'='
             ConstInitValNode constInitValNode = parseConstInitVal();
             outputGrammar("<ConstDef>");
             return new ConstDefNode(identToken, constExpNode, constInitValNode);
@@ -231,7 +232,7 @@ public class Parser {
     private ConstInitValNode parseConstInitVal() {
         if (checkToken(TokenType.LBRACE)) {
             // '{' [ConstExp { ',' ConstExp }] '}'
-            match(TokenType.LBRACE); // 匹配'{'
+            expect(TokenType.LBRACE); // 匹配'{'
             List<ConstExpNode> constExpNodeList = new ArrayList<>();
             if (!checkToken(TokenType.RBRACE)) {
                 ConstExpNode constExpNode = parseConstExp();
@@ -239,14 +240,14 @@ public class Parser {
                     constExpNodeList.add(constExpNode);
                 }
                 while (checkToken(TokenType.COMMA)) {
-                    match(TokenType.COMMA); // 匹配','
+                    expect(TokenType.COMMA); // 匹配','
                     constExpNode = parseConstExp();
                     if (constExpNode != null) {
                         constExpNodeList.add(constExpNode);
                     }
                 }
             }
-            match(TokenType.RBRACE); // 匹配'}'
+            expect(TokenType.RBRACE); // 匹配'}'
 
             outputGrammar("<ConstInitVal>");
             return new ConstInitValNode(constExpNodeList);
@@ -265,99 +266,112 @@ public class Parser {
 
     // 解析ConstExp
     private ConstExpNode parseConstExp() {
-        AddExpNode addExpNode = parseAddExp();
+        int line = tokenManager.getLine();
+        int root = parseAddExp();
         outputGrammar("<ConstExp>");
-        return new ConstExpNode(addExpNode);
+        return new ConstExpNode(arena, arena.orEmpty(root, line));
     }
 
     // 解析AddExp
     // AddExp → MulExp | AddExp ('+' | '−') MulExp
-    private AddExpNode parseAddExp() {
-        MulExpNode mulExpNode = parseMulExp();
-        AddExpNode addExpNode = new AddExpNode(mulExpNode);
+    private int parseAddExp() {
+        int left = parseMulExp();
         while (checkToken(TokenType.PLUS) || checkToken(TokenType.MINU)) {
             outputGrammar("<AddExp>");
-            Token opToken = currentToken;
-            match(currentToken.getType()); // 匹配'+' 或 '-'
-            MulExpNode nextMulExpNode = parseMulExp();
-            addExpNode = new AddExpNode(addExpNode, opToken, nextMulExpNode);
+            left = parseBinaryTail(left, BinaryLevel.ADD); // 匹配'+' 或 '-'
         }
         outputGrammar("<AddExp>");
-        return addExpNode;
+        return left;
     }
 
     // 解析MulExp
     // 乘除模表达式 MulExp → UnaryExp | MulExp ('*' | '/' | '%') UnaryExp // 1.UnaryExp 2.* 3./ 4.% 均需覆盖
-    private MulExpNode parseMulExp() {
-        UnaryExpNode unaryExpNode = parseUnaryExp();
-        MulExpNode mulExpNode = new MulExpNode(unaryExpNode);
+    private int parseMulExp() {
+        int left = parseUnaryExp();
         while (checkToken(TokenType.MULT) || checkToken(TokenType.DIV) || checkToken(TokenType.MOD)) {
             outputGrammar("<MulExp>");
-            Token opToken = currentToken;
-            match(currentToken.getType()); // 匹配'*'、'/'、'%'
-            UnaryExpNode nextUnaryExpNode = parseUnaryExp();
-            mulExpNode = new MulExpNode(mulExpNode, opToken, nextUnaryExpNode);
+            left = parseBinaryTail(left, BinaryLevel.MUL); // 匹配'*'、'/'、'%'
         }
         outputGrammar("<MulExp>");
-        return mulExpNode;
+        return left;
+    }
+
+    // 二元运算右侧操作数所在的文法层次
+    private enum BinaryLevel { MUL, ADD, REL, EQ }
+
+    /**
+     * 匹配当前的二元运算符并解析右侧操作数，与已解析的左侧操作数组成 BINARY 节点
+     *
+     * @param left  左侧操作数
+     * @param level 右侧操作数的文法层次
+     * @return 新的 BINARY 节点
+     */
+    private int parseBinaryTail(int left, BinaryLevel level) {
+        TokenType op = tokenManager.getType();
+        int line = tokenManager.getLine();
+        expect(op);
+        int right = switch (level) {
+            case MUL -> parseUnaryExp();
+            case ADD -> parseMulExp();
+            case REL -> parseAddExp();
+            case EQ -> parseRelExp();
+        };
+        return arena.binary(op, line, arena.orEmpty(left, line), arena.orEmpty(right, line));
     }
 
     // 解析UnaryExp
     //一元表达式 UnaryExp → PrimaryExp | Ident '(' [FuncRParams] ')' | UnaryOp UnaryExp
     //// 3种情况均需覆盖,函数调用也需要覆盖FuncRParams的不同情况
-    private UnaryExpNode parseUnaryExp() {
+    // 返回表达式节点，无法解析时返回 AstArena.NONE
+    private int parseUnaryExp() {
         if (checkToken(TokenType.IDENFR)) {
             // 可能是函数调用或变量
-            Token identToken = currentToken;
-            if (tokenManager.lookAhead(1) != null && tokenManager.lookAhead(1).getType() == TokenType.LPARENT) {
-                match(TokenType.IDENFR);
+            if (tokenManager.lookAheadType(1) == TokenType.LPARENT) {
+                String name = tokenManager.getText();
+                int line = tokenManager.getLine();
+                expect(TokenType.IDENFR);
                 // 函数调用
-                match(TokenType.LPARENT); // 匹配'('
-                FuncRParamsNode funcRParamsNode = null;
-                if (isExpStartingToken(currentToken)) {
-                    funcRParamsNode = parseFuncRParams();
+                expect(TokenType.LPARENT); // 匹配'('
+                int arguments = AstArena.NONE;
+                if (isExpStartingToken(tokenManager.getType())) {
+                    arguments = parseFuncRParams();
                 }
                 if (!checkToken(TokenType.RPARENT)) {
-                    reportError(prevToken, ErrorType.MISSING_RIGHT_BRACKET); // 缺少')'，使用prevToken
+                    reportError(prevLine, ErrorType.MISSING_RIGHT_BRACKET); // 缺少')'，使用prevLine
                 } else {
-                    match(TokenType.RPARENT); // 匹配')'
+                    expect(TokenType.RPARENT); // 匹配')'
                 }
-                UnaryExpNode unaryExpNode = new UnaryExpNode(identToken, funcRParamsNode);
                 outputGrammar("<UnaryExp>");
-                return unaryExpNode;
+                return arena.call(name, line, arguments);
             } else {
                 // 变量，当作 PrimaryExp 处理
-                PrimaryExpNode primaryExpNode = parsePrimaryExp();
-                UnaryExpNode unaryExpNode = new UnaryExpNode(primaryExpNode);
+                int primary = parsePrimaryExp();
                 outputGrammar("<UnaryExp>");
-                return unaryExpNode;
+                return primary;
             }
         } else if (checkToken(TokenType.PLUS) || checkToken(TokenType.MINU) || checkToken(TokenType.NOT)) {
             // 一元运算符
-            UnaryOpNode unaryOpNode = parseUnaryOp();
-            UnaryExpNode nextUnaryExpNode = parseUnaryExp();
-            UnaryExpNode unaryExpNode = new UnaryExpNode(unaryOpNode, nextUnaryExpNode);
+            int line = tokenManager.getLine();
+            TokenType op = parseUnaryOp();
+            int operand = parseUnaryExp();
             outputGrammar("<UnaryExp>");
-            return unaryExpNode;
+            return arena.unary(op, line, arena.orEmpty(operand, line));
         } else {
             // PrimaryExp
-            PrimaryExpNode primaryExpNode = parsePrimaryExp();
-            if (primaryExpNode != null) {
-                UnaryExpNode unaryExpNode = new UnaryExpNode(primaryExpNode);
+            int primary = parsePrimaryExp();
+            if (primary != AstArena.NONE) {
                 outputGrammar("<UnaryExp>");
-                return unaryExpNode;
-            } else {
-                // 无法解析的表达式，报告错误
-//                reportError(currentToken, ErrorType.ILLEGAL_SYMBOL);
-                return null;
             }
+            // 无法解析的表达式，报告错误
+//            reportError(currentToken, ErrorType.ILLEGAL_SYMBOL);
+            return primary;
         }
     }
-    private boolean isExpStartingToken(Token token) {
-        if (token == null) {
+    private boolean isExpStartingToken(TokenType type) {
+        if (type == null) {
             return false;
         }
-        switch (token.getType()) {
+        switch (type) {
             case IDENFR: // 标识符
             case INTCON: // 整数常量
             case CHRCON: // 字符常量
@@ -374,119 +388,160 @@ public class Parser {
 
     // 解析UnaryOp
     // 单目运算符 UnaryOp → '+' | '−' | '!' 注：'!'仅出现在条件表达式中 // 三种均需覆盖
-    private UnaryOpNode parseUnaryOp() {
-       Token opToken = currentToken;
-       match(currentToken.getType()); // 匹配一元运算符
+    private TokenType parseUnaryOp() {
+       TokenType op = tokenManager.getType();
+       expect(op); // 匹配一元运算符
        // 输出 <UnaryOp>
        outputGrammar("<UnaryOp>");
-       return new UnaryOpNode(opToken);
+       return op;
 
     }
     // 解析PrimaryExp
     //基本表达式 PrimaryExp → '(' Exp ')' | LVal | Number | Character// 四种情况均需覆盖
-    private PrimaryExpNode parsePrimaryExp() {
+    // 括号不产生节点，直接返回括号内表达式的根节点
+    private int parsePrimaryExp() {
         if (checkToken(TokenType.LPARENT)) {
             // '(' Exp ')'
-            match(TokenType.LPARENT); // 匹配'('
-            ExpNode expNode = parseExp();
+            expect(TokenType.LPARENT); // 匹配'('
+            int exp = parseExpTree();
             if (!checkToken(TokenType.RPARENT)) {
-                reportError(prevToken, ErrorType.MISSING_RIGHT_BRACKET); // 缺少')'，使用prevToken
+                reportError(prevLine, ErrorType.MISSING_RIGHT_BRACKET); // 缺少')'，使用prevLine
             } else {
-                match(TokenType.RPARENT); // 匹配')'
+                expect(TokenType.RPARENT); // 匹配')'
             }
-            PrimaryExpNode primaryExpNode = new PrimaryExpNode(expNode);
             outputGrammar("<PrimaryExp>");
-            return primaryExpNode;
+            return exp;
         } else if (checkToken(TokenType.IDENFR)) {
             // LVal
-            LValNode lValNode = parseLVal();
-            PrimaryExpNode primaryExpNode = new PrimaryExpNode(lValNode);
+            int lVal = parseLVal();
             outputGrammar("<PrimaryExp>");
-            return primaryExpNode;
+            return lVal;
         } else if (checkToken(TokenType.INTCON)) {
             // Number
-            NumberNode numberNode = parseNumber();
-            PrimaryExpNode primaryExpNode = new PrimaryExpNode(numberNode);
+            int number = parseNumber();
             outputGrammar("<PrimaryExp>");
-            return primaryExpNode;
+            return number;
         } else if (checkToken(TokenType.CHRCON)) {
             // Character
-            CharacterNode characterNode = parseCharacter();
-            PrimaryExpNode primaryExpNode = new PrimaryExpNode(characterNode);
+            int character = parseCharacter();
             outputGrammar("<PrimaryExp>");
-            return primaryExpNode;
+            return character;
         } else {
 //            reportError(currentToken, ErrorType.UNDEFINED_IDENT);
-            return null;
+            return AstArena.NONE;
         }
     }
     // 解析Number
-    private NumberNode parseNumber() {
-        Token intToken = match(TokenType.INTCON);
-        NumberNode numberNode = new NumberNode(intToken);
+    private int parseNumber() {
+        int number = arena.number(Integer.parseInt(tokenManager.getText()), tokenManager.getLine());
+        expect(TokenType.INTCON);
         outputGrammar("<Number>");
-        return numberNode;
+        return number;
     }
     // 解析Character
-    private CharacterNode parseCharacter() {
-         Token charToken = match(TokenType.CHRCON);
-         CharacterNode characterNode = new CharacterNode(charToken);
+    private int parseCharacter() {
+         int character = arena.character(tokenManager.getText(), tokenManager.getLine());
+         expect(TokenType.CHRCON);
          outputGrammar("<Character>");
-         return characterNode;
+         return character;
     }
 
 
     // 解析LVal
     // 左值表达式 LVal → Ident ['[' Exp ']'] //1.普通变量、常量 2.一维数组
-    private LValNode parseLVal() {
+    private int parseLVal() {
 
-        Token identToken = match(TokenType.IDENFR);
-        if (identToken == null) {
+        if (!checkToken(TokenType.IDENFR)) {
+            expect(TokenType.IDENFR);
 //            reportError(currentToken, ErrorType.UNDEFINED_IDENT);
-            return null;
+            return AstArena.NONE;
         }
+        String name = tokenManager.getText();
+        int line = tokenManager.getLine();
+        expect(TokenType.IDENFR);
 
-        ExpNode expNode = null;
+        int index = AstArena.NONE;
         if (checkToken(TokenType.LBRACK)) {
-            match(TokenType.LBRACK); // 匹配'['
-            expNode = parseExp();
+            expect(TokenType.LBRACK); // 匹配'['
+            index = parseExpTree();
             if (!checkToken(TokenType.RBRACK)) {
-                reportError(prevToken, ErrorType.MISSING_RIGHT_RBRACK); // 缺少']'，使用prevToken
+                reportError(prevLine, ErrorType.MISSING_RIGHT_RBRACK); // 缺少']'，使用prevLine
             } else {
-                match(TokenType.RBRACK); // 匹配']'
+                expect(TokenType.RBRACK); // 匹配']'
             }
         }
-        LValNode lValNode = new LValNode(identToken, expNode);
+        int lVal = arena.lVal(name, line, index);
         outputGrammar("<LVal>");
-        return lValNode;
+        return lVal;
+    }
+
+    // 解析作为语句左侧的LVal
+    private LValNode parseLValNode() {
+        int lVal = parseLVal();
+        return lVal == AstArena.NONE ? null : new LValNode(arena, lVal);
+    }
+
+    /**
+     * 预测当前语句是否为赋值语句。
+     * 在检查点上按 LVal → Ident ['[' Exp ']'] 预读（不输出、不报错、不建树），看 LVal 之后是否为 '='，然后回到检查点。
+     * 预读的 Token 数不超过 LVal 的长度，语句跨行时也能正确判断。
+     * 下标中缺少 ']' 时预读在 '='、';' 或大括号处停下，与缺少 ']' 的赋值语句由 parseLVal 报错一致
+     */
+    private boolean isAssignmentAhead() {
+        if (!checkToken(TokenType.IDENFR)) {
+            return false;
+        }
+        int checkpoint = tokenManager.mark();
+        tokenManager.nextToken(); // 跳过 Ident
+        if (checkToken(TokenType.LBRACK)) {
+            int depth = 0; // 下标表达式中尚未闭合的括号数
+            while (tokenManager.hasLookAhead(1)) {
+                TokenType type = tokenManager.getType();
+                if (type == TokenType.LBRACK || type == TokenType.LPARENT) {
+                    depth++;
+                } else if (type == TokenType.RBRACK || type == TokenType.RPARENT) {
+                    depth--;
+                } else if (type == TokenType.ASSIGN || type == TokenType.SEMICN
+                        || type == TokenType.LBRACE || type == TokenType.RBRACE) {
+                    break;
+                }
+                tokenManager.nextToken();
+                if (depth == 0) {
+                    break;
+                }
+            }
+        }
+        boolean isAssignment = checkToken(TokenType.ASSIGN);
+        tokenManager.rewindToIndex(checkpoint);
+        return isAssignment;
     }
 
     // 解析FuncRParams
     // 函数实参表 FuncRParams → Exp { ',' Exp }
-    private FuncRParamsNode parseFuncRParams() {
-        List<ExpNode> expNodes = new ArrayList<>();
-        ExpNode expNode = parseExp();
-        if (expNode != null) {
-            expNodes.add(expNode);
-        }
+    // 返回第一个实参，各实参依次链接为兄弟节点
+    private int parseFuncRParams() {
+        int first = parseExpTree();
+        int last = first;
         while (checkToken(TokenType.COMMA)) {
-            match(TokenType.COMMA); // 匹配','
-            expNode = parseExp();
-            if (expNode != null) {
-                expNodes.add(expNode);
-            }
+            expect(TokenType.COMMA); // 匹配','
+            last = arena.link(last, parseExpTree());
         }
         outputGrammar("<FuncRParams>");
-        return new FuncRParamsNode(expNodes);
+        return first;
     }
 
     // 解析Exp
     // 表达式 Exp → AddExp // 存在即可
     private ExpNode parseExp() {
-        AddExpNode addExpNode = parseAddExp();
-        ExpNode expNode = new ExpNode(addExpNode);
+        return new ExpNode(arena, parseExpTree());
+    }
+
+    // 解析Exp，返回它在 arena 中的根节点
+    private int parseExpTree() {
+        int line = tokenManager.getLine();
+        int root = arena.orEmpty(parseAddExp(), line);
         outputGrammar("<Exp>");
-        return expNode;
+        return root;
     }
 
     // 解析VarDecl
@@ -499,16 +554,16 @@ public class Parser {
             varDefNodes.add(varDefNode);
         }
         while (checkToken(TokenType.COMMA)) {
-            match(TokenType.COMMA); // 匹配','
+            expect(TokenType.COMMA); // 匹配','
             varDefNode = parseVarDef();
             if (varDefNode != null) {
                 varDefNodes.add(varDefNode);
             }
         }
         if (!checkToken(TokenType.SEMICN)) {
-            reportError(prevToken, ErrorType.MISSING_SEMICOLON); // 缺少分号，使用prevToken
+            reportError(prevLine, ErrorType.MISSING_SEMICOLON); // 缺少分号，使用prevLine
         } else {
-            match(TokenType.SEMICN); // 匹配';'
+            expect(TokenType.SEMICN); // 匹配';'
         }
         outputGrammar("<VarDecl>");
         return new VarDeclNode(bTypeNode, varDefNodes);
@@ -521,17 +576,17 @@ public class Parser {
             Token identToken = match(TokenType.IDENFR);
             ConstExpNode constExpNode = null;
             if (checkToken(TokenType.LBRACK)) {
-                match(TokenType.LBRACK); // 匹配'['
+                expect(TokenType.LBRACK); // 匹配'['
                 constExpNode = parseConstExp();
                 if (!checkToken(TokenType.RBRACK)) {
-                    reportError(prevToken, ErrorType.MISSING_RIGHT_RBRACK); // 缺少']'，使用prevToken
+                    reportError(prevLine, ErrorType.MISSING_RIGHT_RBRACK); // 缺少']'，使用prevLine
                 } else {
-                    match(TokenType.RBRACK); // 匹配']'
+                    expect(TokenType.RBRACK); // 匹配']'
                 }
             }
             InitValNode initValNode = null;
             if (checkToken(TokenType.ASSIGN)) {
-                match(TokenType.ASSIGN); // 匹配'='
+                expect(TokenType.ASSIGN); // 匹配'='
                 initValNode = parseInitVal();
             }
             VarDefNode varDefNode = new VarDefNode(identToken, constExpNode, initValNode);
@@ -548,7 +603,7 @@ public class Parser {
     private InitValNode parseInitVal() {
         if (checkToken(TokenType.LBRACE)) {
             // '{' [Exp { ',' Exp }] '}'
-            match(TokenType.LBRACE); // 匹配'{'
+            expect(TokenType.LBRACE); // 匹配'{'
             List<ExpNode> expNodeList = new ArrayList<>();
             if (!checkToken(TokenType.RBRACE)) {
                 ExpNode expNode = parseExp();
@@ -556,7 +611,7 @@ public class Parser {
                     expNodeList.add(expNode);
                 }
                 while (checkToken(TokenType.COMMA)) {
-                    match(TokenType.COMMA); // 匹配','
+                    expect(TokenType.COMMA); // 匹配','
                     expNode = parseExp();
                     if (expNode != null) {
                         expNodeList.add(expNode);
@@ -564,7 +619,7 @@ public class Parser {
                 }
             }
 
-            match(TokenType.RBRACE); // 匹配'}'
+            expect(TokenType.RBRACE); // 匹配'}'
 
             outputGrammar("<InitVal>");
             return new InitValNode(expNodeList);
@@ -587,15 +642,15 @@ public class Parser {
         FuncTypeNode funcTypeNode = parseFuncType();
         if (checkToken(TokenType.IDENFR)) {
             Token identToken = match(TokenType.IDENFR);
-            match(TokenType.LPARENT); // 匹配'('
+            expect(TokenType.LPARENT); // 匹配'('
             FuncFParamsNode funcFParamsNode = null;
             if (!checkToken(TokenType.RPARENT)) {
                 funcFParamsNode = parseFuncFParams();
             }
             if (!checkToken(TokenType.RPARENT)) {
-                reportError(prevToken, ErrorType.MISSING_RIGHT_BRACKET); // 缺少')'，使用prevToken
+                reportError(prevLine, ErrorType.MISSING_RIGHT_BRACKET); // 缺少')'，使用prevLine
             } else {
-                match(TokenType.RPARENT); // 匹配')'
+                expect(TokenType.RPARENT); // 匹配')'
             }
             BlockNode blockNode = parseBlock();
             outputGrammar("<FuncDef>");
@@ -635,7 +690,7 @@ public class Parser {
             funcFParamNodes.add(funcFParamNode);
         }
         while (checkToken(TokenType.COMMA)) {
-            match(TokenType.COMMA); // 匹配','
+            expect(TokenType.COMMA); // 匹配','
             funcFParamNode = parseFuncFParam();
             if (funcFParamNode != null) {
                 funcFParamNodes.add(funcFParamNode);
@@ -653,11 +708,11 @@ public class Parser {
             Token identToken = match(TokenType.IDENFR);
             boolean isArray = false;
             if (checkToken(TokenType.LBRACK)) {
-                match(TokenType.LBRACK); // 匹配'['
+                expect(TokenType.LBRACK); // 匹配'['
                 if (!checkToken(TokenType.RBRACK)) {
-                    reportError(prevToken, ErrorType.MISSING_RIGHT_RBRACK); // 缺少']'，使用prevToken
+                    reportError(prevLine, ErrorType.MISSING_RIGHT_RBRACK); // 缺少']'，使用prevLine
                 } else {
-                    match(TokenType.RBRACK); // 匹配']'
+                    expect(TokenType.RBRACK); // 匹配']'
                 }
                 isArray = true;
             }
@@ -673,9 +728,9 @@ public class Parser {
     // 语句块 Block → '{' { BlockItem } '}' // 1.花括号内重复0次 2.花括号内重复多次
     private BlockNode parseBlock() {
         Token RbraceToken = null;
-        match(TokenType.LBRACE); // 匹配'{'
+        expect(TokenType.LBRACE); // 匹配'{'
         List<BlockItemNode> blockItemNodes = new ArrayList<>();
-        while (!checkToken(TokenType.RBRACE) && currentToken != null) {
+        while (!checkToken(TokenType.RBRACE) && tokenManager.getType() != null) {
             BlockItemNode blockItemNode = parseBlockItem();
             if (blockItemNode != null) {
                 blockItemNodes.add(blockItemNode);
@@ -701,9 +756,9 @@ public class Parser {
     }
     private CaseStmtNode parseCaseStmtNode(){
         //CaseStmt → 'case' ConstExp ':' Stmt
-        match(TokenType.CASETK);
+        expect(TokenType.CASETK);
         ConstExpNode constExpNode = parseConstExp();
-        match(TokenType.COLON);
+        expect(TokenType.COLON);
         StmtNode stmtNode = parseStmt();
         outputGrammar("<Case>");
         return new CaseStmtNode(constExpNode,stmtNode);
@@ -711,8 +766,8 @@ public class Parser {
 
     private DefaultStmtNode parseDefaultStmtNode(){
         //DefaultStmt → 'default' ':' Stmt
-        match(TokenType.DEFAULTTK);
-        match(TokenType.COLON);
+        expect(TokenType.DEFAULTTK);
+        expect(TokenType.COLON);
         StmtNode stmtNode = parseStmt();
         outputGrammar("<Default>");
         return  new DefaultStmtNode(stmtNode);
@@ -739,14 +794,14 @@ public class Parser {
         } else if(checkToken(TokenType.SWITCHTK)){
             // Stmt → 'switch' '(' Exp ')' '{' {CaseStmt} [DefaultStmt] '}'
             Token switchToken = match(TokenType.SWITCHTK);
-            match(TokenType.LPARENT);
+            expect(TokenType.LPARENT);
             ExpNode expNode = parseExp();
             if (!checkToken(TokenType.RPARENT)) {
-                reportError(prevToken, ErrorType.MISSING_RIGHT_BRACKET); // 缺少')'，使用prevToken
+                reportError(prevLine, ErrorType.MISSING_RIGHT_BRACKET); // 缺少')'，使用prevLine
             } else {
-                match(TokenType.RPARENT); // 匹配')'
+                expect(TokenType.RPARENT); // 匹配')'
             }
-            match(TokenType.LBRACE);
+            expect(TokenType.LBRACE);
             List<CaseStmtNode> caseStmtNodes = new ArrayList<>();
             DefaultStmtNode defaultStmtNode = null;
             while(checkToken(TokenType.CASETK) || checkToken(TokenType.DEFAULTTK)){
@@ -756,58 +811,58 @@ public class Parser {
                     defaultStmtNode = parseDefaultStmtNode();
                 }
             }
-            match(TokenType.RBRACE);
+            expect(TokenType.RBRACE);
             outputGrammar("<Stmt>");
             return new StmtNode(switchToken,expNode, caseStmtNodes, defaultStmtNode);
         }
         else if (checkToken(TokenType.IFTK)) {
             // 'if' '(' Cond ')' Stmt [ 'else' Stmt ]
-            match(TokenType.IFTK); // 匹配'if'
-            match(TokenType.LPARENT); // 匹配'('
+            expect(TokenType.IFTK); // 匹配'if'
+            expect(TokenType.LPARENT); // 匹配'('
             CondNode condNode = parseCond();
             if (!checkToken(TokenType.RPARENT)) {
-                reportError(prevToken, ErrorType.MISSING_RIGHT_BRACKET); // 缺少')'，使用prevToken
+                reportError(prevLine, ErrorType.MISSING_RIGHT_BRACKET); // 缺少')'，使用prevLine
             } else {
-                match(TokenType.RPARENT); // 匹配')'
+                expect(TokenType.RPARENT); // 匹配')'
             }
             StmtNode thenStmt = parseStmt();
             StmtNode elseStmt = null;
             if (checkToken(TokenType.ELSETK)) {
-                match(TokenType.ELSETK); // 匹配'else'
+                expect(TokenType.ELSETK); // 匹配'else'
                 elseStmt = parseStmt();
             }
             outputGrammar("<Stmt>");
             return new StmtNode(condNode, thenStmt, elseStmt);
         } else if (checkToken(TokenType.FORTK)) {
             // 'for' '(' [ForStmt] ';' [Cond] ';' [ForStmt] ')' Stmt
-            match(TokenType.FORTK); // 匹配'for'
-            match(TokenType.LPARENT); // 匹配'('
+            expect(TokenType.FORTK); // 匹配'for'
+            expect(TokenType.LPARENT); // 匹配'('
             ForStmtNode forInit = null;
             if (!checkToken(TokenType.SEMICN)) {
                 forInit = parseForStmt();
             }
             if (!checkToken(TokenType.SEMICN)) {
-                reportError(prevToken, ErrorType.MISSING_SEMICOLON); // 缺少';'，使用prevToken
+                reportError(prevLine, ErrorType.MISSING_SEMICOLON); // 缺少';'，使用prevLine
             } else {
-                match(TokenType.SEMICN); // 匹配';'
+                expect(TokenType.SEMICN); // 匹配';'
             }
             CondNode condNode = null;
             if (!checkToken(TokenType.SEMICN)) {
                 condNode = parseCond();
             }
             if (!checkToken(TokenType.SEMICN)) {
-                reportError(prevToken, ErrorType.MISSING_SEMICOLON); // 缺少';'，使用prevToken
+                reportError(prevLine, ErrorType.MISSING_SEMICOLON); // 缺少';'，使用prevLine
             } else {
-                match(TokenType.SEMICN); // 匹配';'
+                expect(TokenType.SEMICN); // 匹配';'
             }
             ForStmtNode forUpdate = null;
             if (!checkToken(TokenType.RPARENT)) {
                 forUpdate = parseForStmt();
             }
             if (!checkToken(TokenType.RPARENT)) {
-                reportError(prevToken, ErrorType.MISSING_RIGHT_BRACKET); // 缺少')'，使用prevToken
+                reportError(prevLine, ErrorType.MISSING_RIGHT_BRACKET); // 缺少')'，使用prevLine
             } else {
-                match(TokenType.RPARENT); // 匹配')'
+                expect(TokenType.RPARENT); // 匹配')'
             }
             StmtNode bodyStmt = parseStmt();
             outputGrammar("<Stmt>");
@@ -816,9 +871,9 @@ public class Parser {
             // 'break' ';'
             Token breakToken = match(TokenType.BREAKTK); // 匹配'break'
             if (!checkToken(TokenType.SEMICN)) {
-                reportError(prevToken, ErrorType.MISSING_SEMICOLON); // 缺少';'，使用prevToken
+                reportError(prevLine, ErrorType.MISSING_SEMICOLON); // 缺少';'，使用prevLine
             } else {
-                match(TokenType.SEMICN); // 匹配';'
+                expect(TokenType.SEMICN); // 匹配';'
             }
             outputGrammar("<Stmt>");
             return new StmtNode(breakToken);
@@ -826,9 +881,9 @@ public class Parser {
             // 'continue' ';'
             Token continueToken = match(TokenType.CONTINUETK); // 匹配'continue'
             if (!checkToken(TokenType.SEMICN)) {
-                reportError(prevToken, ErrorType.MISSING_SEMICOLON); // 缺少';'，使用prevToken
+                reportError(prevLine, ErrorType.MISSING_SEMICOLON); // 缺少';'，使用prevLine
             } else {
-                match(TokenType.SEMICN); // 匹配';'
+                expect(TokenType.SEMICN); // 匹配';'
             }
             outputGrammar("<Stmt>");
             return new StmtNode(continueToken);
@@ -840,99 +895,63 @@ public class Parser {
                 expNode = parseExp();
             }
             if (!checkToken(TokenType.SEMICN)) {
-                reportError(prevToken, ErrorType.MISSING_SEMICOLON); // 缺少';'，使用prevToken
+                reportError(prevLine, ErrorType.MISSING_SEMICOLON); // 缺少';'，使用prevLine
             } else {
-                match(TokenType.SEMICN); // 匹配';'
+                expect(TokenType.SEMICN); // 匹配';'
             }
             outputGrammar("<Stmt>");
             return new StmtNode(returnToken, expNode);
         } else if (checkToken(TokenType.PRINTFTK)) {
             // 'printf' '(' StringConst {',' Exp} ')' ';'
-            match(TokenType.PRINTFTK); // 匹配'printf'
-            match(TokenType.LPARENT); // 匹配'('
+            expect(TokenType.PRINTFTK); // 匹配'printf'
+            expect(TokenType.LPARENT); // 匹配'('
             if (!checkToken(TokenType.STRCON)) {
 //                reportError(currentToken, ErrorType.UNDEFINED_IDENT); // 缺少格式字符串，使用currentToken
             }
             Token formatStringToken = match(TokenType.STRCON);
             List<ExpNode> expNodes = new ArrayList<>();
             while (checkToken(TokenType.COMMA)) {
-                match(TokenType.COMMA); // 匹配','
+                expect(TokenType.COMMA); // 匹配','
                 ExpNode expNode = parseExp();
                 expNodes.add(expNode);
             }
             if (!checkToken(TokenType.RPARENT)) {
-                reportError(prevToken, ErrorType.MISSING_RIGHT_BRACKET); // 缺少')'，使用prevToken
+                reportError(prevLine, ErrorType.MISSING_RIGHT_BRACKET); // 缺少')'，使用prevLine
             } else {
-                match(TokenType.RPARENT); // 匹配')'
+                expect(TokenType.RPARENT); // 匹配')'
             }
             if (!checkToken(TokenType.SEMICN)) {
-                reportError(prevToken, ErrorType.MISSING_SEMICOLON); // 缺少';'，使用prevToken
+                reportError(prevLine, ErrorType.MISSING_SEMICOLON); // 缺少';'，使用prevLine
             } else {
-                match(TokenType.SEMICN); // 匹配';'
+                expect(TokenType.SEMICN); // 匹配';'
             }
             outputGrammar("<Stmt>");
             return new StmtNode(formatStringToken, expNodes);
         } else if (checkToken(TokenType.SEMICN)) {
             // 空语句 ';'
-            match(TokenType.SEMICN); // 匹配';'
+            expect(TokenType.SEMICN); // 匹配';'
             outputGrammar("<Stmt>");
             return new StmtNode(); // 使用默认构造函数
         } else {
-            // 处理赋值语句或者表达式
-            //// 定义index为当前token位置
-            //// assign为下一次分号之前出现的等号的位置（仅限当前行）
-            //if assign > index then
-            //    if 下一个字符是'=' then
-            //        if 后面的字符是"getint" or "getchar"then
-            //            // 满足条件的情况下执行以下操作
-            //            LVal = "getint()" or "getchar()";
-            //        else
-            //            // 否则处理普通的赋值操作
-            //            LVal = Exp;
-            //        end if
-            //    else
-            //        // 否则是表达式的情况
-            //        [Exp];
-            //    end if
-            //else
-            //    // 如果assign <= index
-            //    [Exp];
-            //end if
-            int currentIndex = tokenManager.getCurrentPosition();
-            boolean isAssignment = false;
-
-            // 获取总令牌数，防止扫描超出范围
-            int totalTokens = tokenManager.getTotalTokens(); // 假设有此方法
-
-            // 扫描直到这一行下一个分号，寻找赋值符号 '='
-            for (int i = 0; (currentIndex + i) < totalTokens && tokenManager.lookAhead(i).getLine() == currentToken.getLine(); i++) {
-                Token token = tokenManager.lookAhead(i);
-                if (token.getType() == TokenType.SEMICN) {
-                    break;
-                }
-                if (token.getType() == TokenType.ASSIGN) {
-                    isAssignment = true;
-                    break;
-                }
-            }
+            // 处理赋值语句或者表达式：LVal 之后紧跟 '=' 的是赋值语句，否则是 [Exp] ';'
+            boolean isAssignment = isAssignmentAhead();
             if (isAssignment) {
                 // 解析赋值语句
-                LValNode lValNode = parseLVal(); // 仅在确定是赋值语句时调用
-                match(TokenType.ASSIGN); // 匹配'='
+                LValNode lValNode = parseLValNode(); // 仅在确定是赋值语句时调用
+                expect(TokenType.ASSIGN); // 匹配'='
                 if (checkToken(TokenType.GETINTTK) || checkToken(TokenType.GETCHARTK)) {
                     // LVal '=' 'getint' '(' ')' ';' 或 LVal '=' 'getchar' '(' ')' ';'
-                    Token getFuncToken = currentToken;
-                    match(currentToken.getType()); // 匹配 'getint' 或 'getchar'
-                    match(TokenType.LPARENT); // 匹配 '('
+                    Token getFuncToken = match(tokenManager.getType()); // 匹配 'getint' 或 'getchar'
+                    expect(TokenType.LPARENT); // 匹配 '('
                     if (!checkToken(TokenType.RPARENT)) {
-                        reportError(prevToken, ErrorType.MISSING_RIGHT_BRACKET); // 缺少 ')'
+                        reportError(prevLine, ErrorType.MISSING_RIGHT_BRACKET); // 缺少 ')'
                     } else {
-                        match(TokenType.RPARENT); // 匹配 ')'
+                        expect(TokenType.RPARENT); // 匹配 ')'
                     }
                     if (!checkToken(TokenType.SEMICN)) {
-                        reportError(prevToken, ErrorType.MISSING_SEMICOLON); // 缺少 ';'
+                        reportError(prevLine, ErrorType.MISSING_SEMICOLON); // 缺少 ';'
                     } else {
-                        match(TokenType.SEMICN); // 匹配 ';'
+                        expect(TokenType.SEMICN); // 匹配 ';'
                     }
                     outputGrammar("<Stmt>");
                     return new StmtNode(lValNode, getFuncToken.getValue());
@@ -940,9 +959,9 @@ public class Parser {
                     // LVal '=' Exp ';'
                     ExpNode expNode = parseExp();
                     if (!checkToken(TokenType.SEMICN)) {
-                        reportError(prevToken, ErrorType.MISSING_SEMICOLON); // 缺少 ';'
+                        reportError(prevLine, ErrorType.MISSING_SEMICOLON); // 缺少 ';'
                     } else {
-                        match(TokenType.SEMICN); // 匹配 ';'
+                        expect(TokenType.SEMICN); // 匹配 ';'
                     }
                     outputGrammar("<Stmt>");
                     return new StmtNode(lValNode, expNode);
@@ -951,9 +970,9 @@ public class Parser {
                 // 解析 [Exp] ';'
                 ExpNode expNode = parseExp();
                 if (!checkToken(TokenType.SEMICN)) {
-                    reportError(prevToken, ErrorType.MISSING_SEMICOLON); // 缺少 ';'
+                    reportError(prevLine, ErrorType.MISSING_SEMICOLON); // 缺少 ';'
                 } else {
-                    match(TokenType.SEMICN); // 匹配 ';'
+                    expect(TokenType.SEMICN); // 匹配 ';'
                 }
                 outputGrammar("<Stmt>");
                 return new StmtNode(expNode);
@@ -963,9 +982,9 @@ public class Parser {
 
     // 解析ForStmt
     private ForStmtNode parseForStmt() {
-        LValNode lValNode = parseLVal();
+        LValNode lValNode = parseLValNode();
         if (lValNode != null && checkToken(TokenType.ASSIGN)) {
-            match(TokenType.ASSIGN); // 匹配 '='
+            expect(TokenType.ASSIGN); // 匹配 '='
             ExpNode expNode = parseExp();
             outputGrammar("<ForStmt>");
             return new ForStmtNode(lValNode, expNode);
@@ -977,78 +996,79 @@ public class Parser {
 
     // 解析Cond
     private CondNode parseCond() {
-        LOrExpNode lOrExpNode = parseLOrExp();
+        int line = tokenManager.getLine();
+        int root = parseLOrExp();
         outputGrammar("<Cond>");
-        return new CondNode(lOrExpNode);
+        return new CondNode(arena, arena.orEmpty(root, line));
     }
 
     // 解析LOrExp
-    private LOrExpNode parseLOrExp() {
-        LAndExpNode lAndExpNode = parseLAndExp();
-        LOrExpNode lOrExpNode = new LOrExpNode(lAndExpNode);
+    // 有 '||' 时返回 OR 节点，各个 LAndExp 依次是它的子节点
+    private int parseLOrExp() {
+        int line = tokenManager.getLine();
+        int first = parseLAndExp();
+        int last = first;
         while (checkToken(TokenType.OR)) {
             outputGrammar("<LOrExp>");
-            match(TokenType.OR); // 匹配'||'
-            LAndExpNode nextLAndExpNode = parseLAndExp();
-            lOrExpNode = new LOrExpNode(lOrExpNode, nextLAndExpNode);
+            expect(TokenType.OR); // 匹配'||'
+            if (last == first) {
+                first = last = arena.orEmpty(first, line);
+            }
+            last = arena.link(last, arena.orEmpty(parseLAndExp(), line));
         }
         outputGrammar("<LOrExp>");
-        return lOrExpNode;
+        return last == first ? first : arena.logical(AstArena.OR, line, first);
     }
 
     // 解析LAndExp
-    private LAndExpNode parseLAndExp() {
-        EqExpNode eqExpNode = parseEqExp();
-        LAndExpNode lAndExpNode = new LAndExpNode(eqExpNode);
+    // 有 '&&' 时返回 AND 节点，各个 EqExp 依次是它的子节点
+    private int parseLAndExp() {
+        int line = tokenManager.getLine();
+        int first = parseEqExp();
+        int last = first;
         while (checkToken(TokenType.AND)) {
             outputGrammar("<LAndExp>");
-            match(TokenType.AND); // 匹配'&&'
-            EqExpNode nextEqExpNode = parseEqExp();
-            lAndExpNode = new LAndExpNode(lAndExpNode, nextEqExpNode);
+            expect(TokenType.AND); // 匹配'&&'
+            if (last == first) {
+                first = last = arena.orEmpty(first, line);
+            }
+            last = arena.link(last, arena.orEmpty(parseEqExp(), line));
         }
         outputGrammar("<LAndExp>");
-        return lAndExpNode;
+        return last == first ? first : arena.logical(AstArena.AND, line, first);
     }
 
     // 解析EqExp
-    private EqExpNode parseEqExp() {
-        RelExpNode relExpNode = parseRelExp();
-        EqExpNode eqExpNode = new EqExpNode(relExpNode);
+    private int parseEqExp() {
+        int left = parseRelExp();
         while (checkToken(TokenType.EQL) || checkToken(TokenType.NEQ)) {
             outputGrammar("<EqExp>");
-            Token opToken = currentToken;
-            match(currentToken.getType()); // 匹配'==' 或 '!='
-            RelExpNode nextRelExpNode = parseRelExp();
-            eqExpNode = new EqExpNode(eqExpNode, opToken, nextRelExpNode);
+            left = parseBinaryTail(left, BinaryLevel.EQ); // 匹配'==' 或 '!='
         }
         outputGrammar("<EqExp>");
-        return eqExpNode;
+        return left;
     }
 
     // 解析RelExp
-    private RelExpNode parseRelExp() {
-        AddExpNode addExpNode = parseAddExp();
-        RelExpNode relExpNode = new RelExpNode(addExpNode);
+    private int parseRelExp() {
+        int left = parseAddExp();
         while (checkToken(TokenType.LSS) || checkToken(TokenType.GRE) || checkToken(TokenType.LEQ) || checkToken(TokenType.GEQ)) {
             outputGrammar("<RelExp>");
-            Token opToken = currentToken;
-            match(currentToken.getType()); // 匹配关系运算符
-            AddExpNode nextAddExpNode = parseAddExp();
-            relExpNode = new RelExpNode(relExpNode, opToken, nextAddExpNode);
+            left = parseBinaryTail(left, BinaryLevel.REL); // 匹配关系运算符
         }
         outputGrammar("<RelExp>");
-        return relExpNode;
+        return left;
     }
 
     // 解析MainFuncDef
     private MainFuncDefNode parseMainFuncDef() {
         Token Inttoken = match(TokenType.INTTK); // 匹配'int'
-        match(TokenType.MAINTK); // 匹配'main'
-        match(TokenType.LPARENT); // 匹配'('
+        expect(TokenType.MAINTK); // 匹配'main'
+        expect(TokenType.LPARENT); // 匹配'('
         if (!checkToken(TokenType.RPARENT)) {
-            reportError(prevToken, ErrorType.MISSING_RIGHT_BRACKET); // 缺少')'，使用prevToken
+            reportError(prevLine, ErrorType.MISSING_RIGHT_BRACKET); // 缺少')'，使用prevLine
         } else {
-            match(TokenType.RPARENT); // 匹配')'
+            expect(TokenType.RPARENT); // 匹配')'
         }
         BlockNode blockNode = parseBlock();
         outputGrammar("<MainFuncDef>");
@@ -6,6 +6,8 @@ import error.ErrorType;
 import symbol.*;
 import token.Token;
 import token.TokenType;
+import util.CompilationContext;
+import util.Artifact;
 import util.IOUtils;
 
 import java.util.*;
@@ -15,14 +17,15 @@ import java.util.*;
  * 编译单元 CompUnit → {Decl} {FuncDef} MainFuncDef
  */
 public class SemanticAnalyzer {
-    private static final SemanticAnalyzer instance = new SemanticAnalyzer();
     public static SemanticAnalyzer getInstance() {
-        return instance;
+        return CompilationContext.current().getSemanticAnalyzer();
     }
     private SymbolTable symbolTable; // 符号表
     private ErrorHandler errorHandler; // 错误处理器
     private int loopCount = 0; // 循环嵌套层数，用于检测错误类型'm'
     private FunctionSymbol currentFunction = null;
+    private AstArena ast; // 表达式节点
+    private Token funcTypeToken = null; // 融合模式下当前函数的返回类型，IRBuilder 不向子语句传递它
 
     public SemanticAnalyzer() {
         this.symbolTable = SymbolTable.getInstance();
@@ -34,12 +37,106 @@ public class SemanticAnalyzer {
      * CompUnit → {Decl} {FuncDef} MainFuncDef
      */
     public void analyze(CompUnitNode compUnitNode) {
+        ast = compUnitNode.getArena();
         // 进入全局作用域
         traverseCompUnit(compUnitNode);
         // 输出符号表信息到 symbol.txt
         outputSymbolTable();
     }
 
+    // ---------------- 融合模式 ----------------
+    // IRBuilder 在生成每个语法成分之前调用下面的方法完成该成分本层的检查，子语句由 IRBuilder 递归时再检查。
+    // 作用域的进入和退出也由这里完成，与常规遍历建立的作用域序号和符号完全相同
+
+    /**
+     * 开始融合遍历
+     */
+    public void beginFused(CompUnitNode compUnitNode) {
+        ast = compUnitNode.getArena();
+    }
+
+    /**
+     * 融合遍历结束，输出符号表
+     */
+    public void endFused() {
+        outputSymbolTable();
+    }
+
+    /**
+     * 声明并检查一个常量定义
+     */
+    public void checkConstDef(ConstDefNode constDefNode, Token bTypeToken) {
+        traverseConstDef(constDefNode, bTypeToken);
+    }
+
+    /**
+     * 声明并检查一个变量定义
+     */
+    public void checkVarDef(VarDefNode varDefNode, Token bTypeToken) {
+        traverseVarDef(varDefNode, bTypeToken);
+    }
+
+    /**
+     * 声明函数及其形参并进入函数作用域
+     */
+    public void enterFunction(FuncDefNode funcDefNode) {
+        enterFuncDef(funcDefNode);
+        funcTypeToken = funcDefNode.getFuncTypeNode().getToken();
+    }
+
+    /**
+     * 进入 main 函数作用域
+     */
+    public void enterFunction(MainFuncDefNode mainFuncDefNode) {
+        enterMainFuncDef(mainFuncDefNode);
+        funcTypeToken = mainFuncDefNode.getToken();
+    }
+
+    /**
+     * 检查函数体末尾的 return 并退出函数作用域
+     */
+    public void exitFunction(BlockNode blockNode) {
+        checkMissingReturn(blockNode, funcTypeToken);
+        symbolTable.exitScope();
+        currentFunction = null;
+        funcTypeToken = null;
+    }
+
+    /**
+     * 检查语句本身（不含子语句），代码块语句进入新的作用域，for 语句进入循环
+     */
+    public void enterStmt(StmtNode stmtNode) {
+        switch (stmtNode.getStmtType()) {
+            case SWITCH -> {
+                traverseExp(stmtNode.getExpNode());
+                Set<Integer> caseValues = new HashSet<>();
+                for (CaseStmtNode caseStmtNode : stmtNode.getCaseStmtNodes()) {
+                    checkCaseValue(stmtNode, caseStmtNode, caseValues);
+                }
+            }
+            case BLOCK -> symbolTable.enterScope();
+            case IF -> traverseCond(stmtNode.getCondNode());
+            case FOR -> {
+                traverseForHeader(stmtNode);
+                loopCount++;
+            }
+            // 其余语句没有子语句，本层检查就是完整的检查
+            default -> traverseStmt(stmtNode, funcTypeToken);
+        }
+    }
+
+    /**
+     * 语句的子语句都已处理，退出 {@link #enterStmt(StmtNode)} 进入的作用域或循环
+     */
+    public void exitStmt(StmtNode stmtNode) {
+        switch (stmtNode.getStmtType()) {
+            case BLOCK -> symbolTable.exitScope();
+            case FOR -> loopCount--;
+            default -> {
+            }
+        }
+    }
+
     /**
      * 遍历编译单元
      * CompUnit → {Decl} {FuncDef} MainFuncDef
@@ -176,7 +273,7 @@ public class SemanticAnalyzer {
      * ConstExp → AddExp
      */
     private void traverseConstExp(ConstExpNode constExpNode) {
-        traverseAddExp(constExpNode.getAddExpNode());
+        traverseExp(constExpNode.getRoot());
     }
 
     /**
@@ -198,6 +295,21 @@ public class SemanticAnalyzer {
      * FuncDef → FuncType Ident '(' [FuncFParams] ')' Block
      */
     private void traverseFuncDef(FuncDefNode funcDefNode) {
+        Token funcTypeToken = funcDefNode.getFuncTypeNode().getToken();
+        enterFuncDef(funcDefNode);
+        // 遍历函数体 Block → '{' { BlockItem } '}'
+        traverseBlock(funcDefNode.getBlockNode(), funcTypeToken,true);
+        // 退出函数作用域
+        symbolTable.exitScope();
+        // 清除 currentFunction
+        currentFunction = null;
+    }
+
+    /**
+     * 声明函数符号，进入函数作用域并声明形参，函数体由调用方遍历
+     * FuncDef → FuncType Ident '(' [FuncFParams] ')' Block
+     */
+    private void enterFuncDef(FuncDefNode funcDefNode) {
         String name = funcDefNode.getToken().getValue();
         int lineNumber = funcDefNode.getToken().getLine();
         Token funcTypeToken = funcDefNode.getFuncTypeNode().getToken();
@@ -240,15 +352,6 @@ public class SemanticAnalyzer {
         if (funcDefNode.getFuncFParamsNode() != null) {
             traverseFuncFParams(funcDefNode.getFuncFParamsNode(), funcDefNode.getFuncTypeNode().getToken());
         }
-        // 遍历函数体 Block → '{' { BlockItem } '}'
-        traverseBlock(funcDefNode.getBlockNode(), funcTypeToken,true);
-        // 退出函数作用域
-        symbolTable.exitScope();
-        // 清除 currentFunction
-        currentFunction = null;
-
-
-
     }
 
     /**
@@ -256,6 +359,19 @@ public class SemanticAnalyzer {
      * MainFuncDef → 'int' 'main' '(' ')' Block
      */
     private void traverseMainFuncDef(MainFuncDefNode mainFuncDefNode) {
+        enterMainFuncDef(mainFuncDefNode);
+
+        // 遍历函数体 Block → '{' { BlockItem } '}'
+        traverseBlock(mainFuncDefNode.getBlockNode(), mainFuncDefNode.getToken(),true);
+
+        // 退出 main 函数作用域
+        symbolTable.exitScope();
+        currentFunction = null;
+
+    }
+
+    // 创建 main 函数符号（不加入符号表）并进入 main 函数作用域
+    private void enterMainFuncDef(MainFuncDefNode mainFuncDefNode) {
         String name = "main";
         String typeName = "IntFunc";
 
@@ -266,14 +382,6 @@ public class SemanticAnalyzer {
 
         // 进入 main 函数作用域
         symbolTable.enterScope(); // scopeLevel + 1
-
-        // 遍历函数体 Block → '{' { BlockItem } '}'
-        traverseBlock(mainFuncDefNode.getBlockNode(), mainFuncDefNode.getToken(),true);
-
-        // 退出 main 函数作用域
-        symbolTable.exitScope();
-        currentFunction = null;
-
     }
 
     /**
@@ -321,8 +429,14 @@ public class SemanticAnalyzer {
             traverseBlockItem(blockItemNode, funcTypeToken);
         }
 
-        // 若此时处于函数体最外层，检查有返回值的函数是否缺少 return 语句（错误类型 'g'）
-        if (isOutermostBlock && isInFunction() && isFuncTypeWithReturn(funcTypeToken)) {
+        if (isOutermostBlock) {
+            checkMissingReturn(blockNode, funcTypeToken);
+        }
+    }
+
+    // 函数体最外层的代码块结束时，检查有返回值的函数是否缺少 return 语句（错误类型 'g'）
+    private void checkMissingReturn(BlockNode blockNode, Token funcTypeToken) {
+        if (isInFunction() && isFuncTypeWithReturn(funcTypeToken)) {
             // 获取代码块中的最后一个 BlockItemNode
             List<BlockItemNode> blockItems = blockNode.getBlockItemNodes();
             if (blockItems.isEmpty() ||
@@ -333,7 +447,6 @@ public class SemanticAnalyzer {
                 errorHandler.reportError(lineNumber, ErrorType.MISSING_RETURN_VALUE);
             }
         }
-
     }
 
 
@@ -364,12 +477,7 @@ public class SemanticAnalyzer {
                 traverseExp(stmtNode.getExpNode());
                 Set<Integer> caseValues = new HashSet<>();
                 for(CaseStmtNode caseStmtNode : stmtNode.getCaseStmtNodes()){
-                    int caseValue = caseStmtNode.getConstExpNode().evaluate();
-                    if(caseValues.contains(caseValue)){
-                        errorHandler.reportError(stmtNode.getToken().getLine(),ErrorType.REDEFINED_IDENT);
-                    }else {
-                        caseValues.add(caseValue);
-                    }
+                    checkCaseValue(stmtNode, caseStmtNode, caseValues);
                     traverseStmt(caseStmtNode.getStmtNode(),funcTypeToken);
                 }
                 if(stmtNode.getDefaultStmtNode()!=null){
@@ -379,7 +487,7 @@ public class SemanticAnalyzer {
 
             case ASSIGN:
                 // 赋值语句 Stmt → LVal '=' Exp ';'
-                traverseLVal(stmtNode.getlValNode(), true); // Corrected method name
+                traverseLVal(stmtNode.getlValNode().getNode(), true); // Corrected method name
                 traverseExp(stmtNode.getExpNode());
                 break;
 
@@ -408,15 +516,7 @@ public class SemanticAnalyzer {
 
             case FOR:
                 // for 语句 Stmt → 'for' '(' [ForStmt] ';' [Cond] ';' [ForStmt] ')' Stmt
-                if (stmtNode.getForStmtNode1() != null) {
-                    traverseForStmt(stmtNode.getForStmtNode1());
-                }
-                if (stmtNode.getCondNode() != null) {
-                    traverseCond(stmtNode.getCondNode());
-                }
-                if (stmtNode.getForStmtNode2() != null) {
-                    traverseForStmt(stmtNode.getForStmtNode2());
-                }
+                traverseForHeader(stmtNode);
                 loopCount++;
                 traverseStmt(stmtNode.getStmtNode1(), funcTypeToken); // Corrected to traverse the body of the loop
                 loopCount--;
@@ -447,7 +547,7 @@ public class SemanticAnalyzer {
 
             case GET:
                 // 读取整数或字符 Stmt → LVal '=' 'getint' '(' ')' ';' | LVal '=' 'getchar' '(' ')' ';'
-                traverseLVal(stmtNode.getlValNode(), true); // Corrected method name
+                traverseLVal(stmtNode.getlValNode().getNode(), true); // Corrected method name
                 break;
 
             case PRINTF:
@@ -469,6 +569,29 @@ public class SemanticAnalyzer {
                 break;
         }
     }
+    // case 的值在同一 switch 中重复时报告错误，记在 switch 所在行
+    private void checkCaseValue(StmtNode switchStmtNode, CaseStmtNode caseStmtNode, Set<Integer> caseValues) {
+        int caseValue = caseStmtNode.getConstExpNode().evaluate();
+        if(caseValues.contains(caseValue)){
+            errorHandler.reportError(switchStmtNode.getToken().getLine(),ErrorType.REDEFINED_IDENT);
+        }else {
+            caseValues.add(caseValue);
+        }
+    }
+
+    // for 语句括号内的两个 ForStmt 和 Cond，循环体由调用方遍历
+    private void traverseForHeader(StmtNode forStmtNode) {
+        if (forStmtNode.getForStmtNode1() != null) {
+            traverseForStmt(forStmtNode.getForStmtNode1());
+        }
+        if (forStmtNode.getCondNode() != null) {
+            traverseCond(forStmtNode.getCondNode());
+        }
+        if (forStmtNode.getForStmtNode2() != null) {
+            traverseForStmt(forStmtNode.getForStmtNode2());
+        }
+    }
+
     /**
      * 遍历 ForStmt
      * ForStmt → LVal '=' Exp
@@ -476,7 +599,7 @@ public class SemanticAnalyzer {
     private void traverseForStmt(ForStmtNode forStmtNode) {
         if (forStmtNode.getlValNode() != null && forStmtNode.getExpNode() != null) {
             // 遍历赋值的左值
-            traverseLVal(forStmtNode.getlValNode(), true);
+            traverseLVal(forStmtNode.getlValNode().getNode(), true);
             // 遍历赋值的表达式
             traverseExp(forStmtNode.getExpNode());
         }
@@ -487,7 +610,7 @@ public class SemanticAnalyzer {
      * Exp → AddExp
      */
     private void traverseExp(ExpNode expNode) {
-        traverseAddExp(expNode.getAddExpNode());
+        traverseExp(expNode.getRoot());
     }
 
     /**
@@ -495,16 +618,45 @@ public class SemanticAnalyzer {
      * Cond → LOrExp
      */
     private void traverseCond(CondNode condNode) {
-        traverseLOrExp(condNode.getlOrExpNode());
+        traverseExp(condNode.getRoot());
+    }
+
+    /**
+     * 遍历表达式节点。
+     * 二元运算先遍历右侧操作数，'&&'、'||' 从最后一个操作数开始，与按文法左递归展开时报告错误的顺序一致
+     */
+    private void traverseExp(int node) {
+        switch (ast.kind(node)) {
+            case AstArena.LVAL -> traverseLVal(node, false);
+            case AstArena.CALL -> traverseCall(node);
+            case AstArena.UNARY -> traverseExp(ast.firstChild(node));
+            case AstArena.BINARY -> {
+                int left = ast.firstChild(node);
+                traverseExp(ast.nextSibling(left));
+                traverseExp(left);
+            }
+            case AstArena.AND, AstArena.OR -> traverseReversed(ast.firstChild(node));
+            default -> {
+                // 数字或字符常量，不需要处理
+            }
+        }
+    }
+
+    // 从最后一个兄弟节点开始，倒序遍历 first 及其之后的兄弟节点
+    private void traverseReversed(int first) {
+        if (ast.nextSibling(first) != AstArena.NONE) {
+            traverseReversed(ast.nextSibling(first));
+        }
+        traverseExp(first);
     }
 
     /**
      * 遍历 LVal
      * LVal → Ident ['[' Exp ']']
      */
-    private void traverseLVal(LValNode lValNode, boolean isAssignment) {
-        String name = lValNode.getToken().getValue();
-        int lineNumber = lValNode.getToken().getLine();
+    private void traverseLVal(int lVal, boolean isAssignment) {
+        String name = ast.text(lVal);
+        int lineNumber = ast.line(lVal);
 
         Symbol symbol = symbolTable.lookup(name);
         if (symbol == null) {
@@ -512,7 +664,7 @@ public class SemanticAnalyzer {
             errorHandler.reportError(lineNumber, ErrorType.UNDEFINED_IDENT);
         } else if (symbol instanceof VariableSymbol) {
             VariableSymbol variableSymbol = (VariableSymbol) symbol;
-            lValNode.setVariableSymbol(variableSymbol);
+            ast.setSymbol(lVal, variableSymbol);
             if (isAssignment && variableSymbol.isConst()) {
                 // 检测错误类型 'h'
                 errorHandler.reportError(lineNumber, ErrorType.MODIFY_CONST);
@@ -520,105 +672,68 @@ public class SemanticAnalyzer {
         }
 
         // 处理数组下标表达式 Exp
-        if(lValNode.getExpNode() != null) {
-            traverseExp(lValNode.getExpNode());
+        if (ast.firstChild(lVal) != AstArena.NONE) {
+            traverseExp(ast.firstChild(lVal));
         }
     }
 
     /**
-     * 遍历加减表达式
-     * AddExp → MulExp | AddExp ('+' | '−') MulExp
+     * 遍历函数调用
+     * UnaryExp → Ident '(' [FuncRParams] ')'
      */
-    private void traverseAddExp(AddExpNode addExpNode) {
-        if(addExpNode.getSingleMulExpNode()!=null){
-            traverseMulExp(addExpNode.getSingleMulExpNode());
-        }else {
-            traverseMulExp(addExpNode.getMulExpNode());
-            if (addExpNode.getAddExpNode() != null) {
-                traverseAddExp(addExpNode.getAddExpNode());
-            }
-        }
-    }
+    private void traverseCall(int call) {
+        String name = ast.text(call); // 获取函数名
+        int lineNumber = ast.line(call); // 获取行号
 
-    /**
-     * 遍历乘除模表达式
-     * MulExp → UnaryExp | MulExp ('*' | '/' | '%') UnaryExp
-     */
-    private void traverseMulExp(MulExpNode mulExpNode) {
-        if(mulExpNode.getSingleUnaryExpNode()!=null){
-            traverseUnaryExp(mulExpNode.getSingleUnaryExpNode());
-        }else {
-            traverseUnaryExp(mulExpNode.getUnaryExpNode());
-            if (mulExpNode.getMulExpNode() != null) {
-                traverseMulExp(mulExpNode.getMulExpNode());
-            }
-        }
-    }
-
-    /**
-     * 遍历一元表达式
-     * UnaryExp → PrimaryExp | Ident '(' [FuncRParams] ')' | UnaryOp UnaryExp
-     */
-    private void traverseUnaryExp(UnaryExpNode unaryExpNode) {
-        if(unaryExpNode == null) return; // 如果unaryExpNode为空，直接返回
-        if (unaryExpNode.getPrimaryExpNode() != null) {
-            traversePrimaryExp(unaryExpNode.getPrimaryExpNode()); // 如果存在PrimaryExpNode，遍历它
-        } else if (unaryExpNode.getUnaryExpNode() != null) {
-            traverseUnaryExp(unaryExpNode.getUnaryExpNode()); // 如果存在UnaryExpNode，递归遍历它
-        } else if (unaryExpNode.getToken() != null) {
-            // 函数调用 UnaryExp → Ident '(' [FuncRParams] ')'
-            String name = unaryExpNode.getToken().getValue(); // 获取函数名
-            int lineNumber = unaryExpNode.getToken().getLine(); // 获取行号
-
-            Symbol symbol = symbolTable.lookup(name); // 在符号表中查找符号
-            if (symbol == null) {
-                // 检测错误类型 'c'
-                errorHandler.reportError(lineNumber, ErrorType.UNDEFINED_IDENT); // 报告未定义标识符错误
-                return; // 返回
+        Symbol symbol = symbolTable.lookup(name); // 在符号表中查找符号
+        if (symbol == null) {
+            // 检测错误类型 'c'
+            errorHandler.reportError(lineNumber, ErrorType.UNDEFINED_IDENT); // 报告未定义标识符错误
+            return; // 返回
+        }
+        if (symbol instanceof FunctionSymbol) {
+            FunctionSymbol functionSymbol = (FunctionSymbol) symbol; // 将符号转换为FunctionSymbol
+            ast.setSymbol(call, functionSymbol); // 生成 IR 时直接使用
+            int expectedParamCount = functionSymbol.getParameters() != null ? functionSymbol.getParameters().size() : 0; // 获取期望的参数个数
+            int actualParamCount = ast.childCount(call); // 实际参数个数
+            // 遍历函数实参 FuncRParams → Exp { ',' Exp }
+            for (int argument = ast.firstChild(call); argument != AstArena.NONE; argument = ast.nextSibling(argument)) {
+                traverseExp(argument);
             }
-            if (symbol instanceof FunctionSymbol) {
-                FunctionSymbol functionSymbol = (FunctionSymbol) symbol; // 将符号转换为FunctionSymbol
-                int expectedParamCount = functionSymbol.getParameters() != null ? functionSymbol.getParameters().size() : 0; // 获取期望的参数个数
-                int actualParamCount = 0; // 实际参数个数初始化为0
-                if (unaryExpNode.getFuncRParamsNode() != null) {
-                    actualParamCount = unaryExpNode.getFuncRParamsNode().getExpNodes() != null ? unaryExpNode.getFuncRParamsNode().getExpNodes().size() : 0; // 获取实际参数个数
-                    traverseFuncRParams(unaryExpNode.getFuncRParamsNode()); // 遍历函数实参
-                }
-                // 检测函数参数个数不匹配（错误类型 'd'）
-                if (expectedParamCount != actualParamCount) {
-                    errorHandler.reportError(lineNumber, ErrorType.FUNC_PARAM_COUNT_MISMATCH); // 报告参数个数不匹配错误
-                } else {
-                    // 检测函数参数类型不匹配（错误类型 'e'）
-                    boolean typeMismatch = false; // 类型不匹配标志初始化为false
-                    for (int i = 0; i < expectedParamCount; i++) {
-                        VariableSymbol formalParam = functionSymbol.getParameters().get(i); // 获取形式参数
-                        int formalParamDimension = formalParam.getDimension(); // 获取形式参数维度
-                        String formalParamBaseType = formalParam.getBaseType(); // 获取形式参数基础类型
-
-                        ExpNode actualParamExp = unaryExpNode.getFuncRParamsNode().getExpNodes().get(i); // 获取实际参数表达式
-                        int actualParamDimension = getDimension(actualParamExp); // 获取实际参数维度
-                        String actualParamBaseType = getBaseType(actualParamExp); // 获取实际参数基础类型
-
-                        if (formalParamDimension != actualParamDimension) {
-                            typeMismatch = true; // 如果维度不匹配，设置类型不匹配标志为true
+            // 检测函数参数个数不匹配（错误类型 'd'）
+            if (expectedParamCount != actualParamCount) {
+                errorHandler.reportError(lineNumber, ErrorType.FUNC_PARAM_COUNT_MISMATCH); // 报告参数个数不匹配错误
+            } else {
+                // 检测函数参数类型不匹配（错误类型 'e'）
+                boolean typeMismatch = false; // 类型不匹配标志初始化为false
+                int argument = ast.firstChild(call);
+                for (int i = 0; i < expectedParamCount; i++, argument = ast.nextSibling(argument)) {
+                    VariableSymbol formalParam = functionSymbol.getParameters().get(i); // 获取形式参数
+                    int formalParamDimension = formalParam.getDimension(); // 获取形式参数维度
+                    String formalParamBaseType = formalParam.getBaseType(); // 获取形式参数基础类型
+
+                    int actualParamDimension = getDimension(argument); // 获取实际参数维度
+                    String actualParamBaseType = getBaseType(argument); // 获取实际参数基础类型
+
+                    if (formalParamDimension != actualParamDimension) {
+                        typeMismatch = true; // 如果维度不匹配，设置类型不匹配标志为true
+                        break; // 退出循环
+                    } else if (formalParamDimension == 0) {
+                        // 如果是标量类型，允许 int 和 char 之间的隐式转换
+                        if (!areTypesCompatible(formalParamBaseType, actualParamBaseType)) {
+                            typeMismatch = true; // 如果类型不兼容，设置类型不匹配标志为true
+                            break; // 退出循环
+                        }
+                    } else {
+                        // 对于数组，基础类型必须完全匹配
+                        if (!formalParamBaseType.equals(actualParamBaseType)) {
+                            typeMismatch = true; // 如果基础类型不匹配，设置类型不匹配标志为true
                             break; // 退出循环
-                        } else if (formalParamDimension == 0) {
-                            // 如果是标量类型，允许 int 和 char 之间的隐式转换
-                            if (!areTypesCompatible(formalParamBaseType, actualParamBaseType)) {
-                                typeMismatch = true; // 如果类型不兼容，设置类型不匹配标志为true
-                                break; // 退出循环
-                            }
-                        } else {
-                            // 对于数组，基础类型必须完全匹配
-                            if (!formalParamBaseType.equals(actualParamBaseType)) {
-                                typeMismatch = true; // 如果基础类型不匹配，设置类型不匹配标志为true
-                                break; // 退出循环
-                            }
                         }
                     }
-                    if (typeMismatch) {
-                        errorHandler.reportError(lineNumber, ErrorType.FUNC_PARAM_TYPE_MISMATCH); // 报告参数类型不匹配错误
-                    }
+                }
+                if (typeMismatch) {
+                    errorHandler.reportError(lineNumber, ErrorType.FUNC_PARAM_TYPE_MISMATCH); // 报告参数类型不匹配错误
                 }
             }
         }
@@ -633,91 +748,6 @@ public class SemanticAnalyzer {
         return formalType.equals(actualType); // 否则，检查类型是否相等
     }
 
-    /**
-     * 遍历基本表达式
-     * PrimaryExp → '(' Exp ')' | LVal | Number | Character
-     */
-    private void traversePrimaryExp(PrimaryExpNode primaryExpNode) {
-        if (primaryExpNode.getExpNode() != null) {
-            traverseExp(primaryExpNode.getExpNode());
-        } else if (primaryExpNode.getlValNode() != null) {
-            traverseLVal(primaryExpNode.getlValNode(), false);
-        } else {
-            // 数字或字符常量，不需要处理
-        }
-    }
-
-    /**
-     * 遍历函数实参列表
-     * FuncRParams → Exp { ',' Exp }
-     */
-    private void traverseFuncRParams(FuncRParamsNode funcRParamsNode) {
-        for (ExpNode expNode : funcRParamsNode.getExpNodes()) {
-            traverseExp(expNode);
-        }
-    }
-
-    /**
-     * 遍历逻辑或表达式
-     * LOrExp → LAndExp | LOrExp '||' LAndExp
-     */
-    private void traverseLOrExp(LOrExpNode lOrExpNode) {
-        if(lOrExpNode.getSingleLAndExpNode()!= null){
-            traverseLAndExp(lOrExpNode.getSingleLAndExpNode());
-        }else {
-            traverseLAndExp(lOrExpNode.getlAndExpNode());
-            if (lOrExpNode.getlOrExpNode() != null) {
-                traverseLOrExp(lOrExpNode.getlOrExpNode());
-            }
-        }
-    }
-
-    /**
-     * 遍历逻辑与表达式
-     * LAndExp → EqExp | LAndExp '&&' EqExp
-     */
-    private void traverseLAndExp(LAndExpNode lAndExpNode) {
-        if(lAndExpNode.getSingleEqExpNode() != null){
-            traverseEqExp(lAndExpNode.getSingleEqExpNode());
-        }else {
-            traverseEqExp(lAndExpNode.getEqExpNode());
-            if (lAndExpNode.getlAndExpNode() != null) {
-                traverseLAndExp(lAndExpNode.getlAndExpNode());
-            }
-        }
-    }
-
-    /**
-     * 遍历相等性表达式
-     * EqExp → RelExp | EqExp ('==' | '!=') RelExp
-     */
-    private void traverseEqExp(EqExpNode eqExpNode) {
-        if (eqExpNode.getSingleRelExpNode() != null) {
-            traverseRelExp(eqExpNode.getSingleRelExpNode());
-
-        }else {
-            traverseRelExp(eqExpNode.getRelExpNode());
-            if (eqExpNode.getEqExpNode() != null) {
-                traverseEqExp(eqExpNode.getEqExpNode());
-            }
-        }
-    }
-
-    /**
-     * 遍历关系表达式
-     * RelExp → AddExp | RelExp ('<' | '>' | '<=' | '>=') AddExp
-     */
-    private void traverseRelExp(RelExpNode relExpNode) {
-        if(relExpNode.getSingleAddExpNode() != null){
-            traverseAddExp(relExpNode.getSingleAddExpNode());
-        }else {
-            traverseAddExp(relExpNode.getAddExpNode());
-            if (relExpNode.getRelExpNode() != null) {
-                traverseRelExp(relExpNode.getRelExpNode());
-            }
-        }
-    }
-
     /**
      * 判断是否在函数内部
      */
@@ -794,157 +824,47 @@ public class SemanticAnalyzer {
     }
     /**
      * 获取表达式的基本类型
-     */
-    private String getBaseType(ExpNode expNode) {
-        if (expNode == null) {
-            return "error"; // 如果expNode为空，返回"error"类型
-        }
-        return getBaseType(expNode.getAddExpNode()); // 获取AddExpNode的基本类型
-    }
-
-    private String getBaseType(AddExpNode addExpNode) {
-        if (addExpNode == null) {
-            return "int"; // 如果addExpNode为空，返回"int"类型
-        }
-        if (addExpNode.getSingleMulExpNode() != null) {
-            return getBaseType(addExpNode.getSingleMulExpNode()); // 获取SingleMulExpNode的基本类型
-        } else {
-            return "int"; // 对于加减运算，结果为"int"类型
-        }
-    }
-
-    private String getBaseType(MulExpNode mulExpNode) {
-        if (mulExpNode == null) {
-            return "int"; // 如果mulExpNode为空，返回"int"类型
-        }
-        if (mulExpNode.getSingleUnaryExpNode() != null) {
-            return getBaseType(mulExpNode.getSingleUnaryExpNode()); // 获取SingleUnaryExpNode的基本类型
-        } else {
-            return "int"; // 对于乘除模运算，结果为"int"类型
-        }
-    }
-
-    private String getBaseType(UnaryExpNode unaryExpNode) {
-        if (unaryExpNode == null) {
-            return "int"; // 如果unaryExpNode为空，返回"int"类型
-        }
-        if (unaryExpNode.getPrimaryExpNode() != null) {
-            return getBaseType(unaryExpNode.getPrimaryExpNode()); // 获取PrimaryExpNode的基本类型
-        } else if (unaryExpNode.getUnaryExpNode() != null) {
-            return getBaseType(unaryExpNode.getUnaryExpNode()); // 获取UnaryExpNode的基本类型
-        } else if (unaryExpNode.getToken() != null) {
-            String funcName = unaryExpNode.getToken().getValue(); // 获取函数名
-            Symbol symbol = symbolTable.lookup(funcName); // 在符号表中查找符号
-            if (symbol instanceof FunctionSymbol) {
-                FunctionSymbol funcSymbol = (FunctionSymbol) symbol;
-                return funcSymbol.getReturnType(); // 返回函数的返回类型
-            }
-        }
-        return "error"; // 默认返回"error"类型
-    }
-
-    private String getBaseType(PrimaryExpNode primaryExpNode) {
-        if (primaryExpNode == null) {
-            return "int"; // 如果primaryExpNode为空，返回"int"类型
-        }
-        if (primaryExpNode.getExpNode() != null) {
-            return getBaseType(primaryExpNode.getExpNode()); // 获取ExpNode的基本类型
-        } else if (primaryExpNode.getlValNode() != null) {
-            return getBaseType(primaryExpNode.getlValNode()); // 获取LValNode的基本类型
-        } else {
-            if (primaryExpNode.getNumberNode() != null) {
-                return "int"; // 数字常量，返回"int"类型
-            } else if (primaryExpNode.getCharacterNode() != null) {
-                return "char"; // 字符常量，返回"char"类型
+     * 只有单个操作数的表达式沿用操作数的类型（一元运算也是如此），其余运算的结果为 int
+     */
+    private String getBaseType(int node) {
+        switch (ast.kind(node)) {
+            case AstArena.CHARACTER:
+                return "char";
+            case AstArena.UNARY:
+                int operand = ast.firstChild(node);
+                return ast.kind(operand) == AstArena.EMPTY ? "error" : getBaseType(operand);
+            case AstArena.LVAL: {
+                Symbol symbol = ast.symbol(node); // 遍历实参时绑定的符号
+                if (symbol instanceof VariableSymbol) {
+                    return ((VariableSymbol) symbol).getBaseType(); // 返回变量的基本类型
+                }
+                return "error";
             }
-        }
-        return "error"; // 默认返回"error"类型
-    }
-
-    private String getBaseType(LValNode lValNode) {
-        String name = lValNode.getToken().getValue(); // 获取标识符名称
-        Symbol symbol = symbolTable.lookup(name); // 在符号表中查找符号
-        if (symbol instanceof VariableSymbol) {
-            return ((VariableSymbol) symbol).getBaseType(); // 返回变量的基本类型
-        }
-        return "error"; // 默认返回"error"类型
-    }
-
-    private int getDimension(ExpNode expNode) {
-        if (expNode == null) {
-            return 0; // 如果expNode为空，返回0维
-        }
-        return getDimension(expNode.getAddExpNode()); // 获取AddExpNode的维数
-    }
-
-    private int getDimension(AddExpNode addExpNode) {
-        if (addExpNode == null) {
-            return 0; // 如果addExpNode为空，返回0维
-        }
-        if (addExpNode.getSingleMulExpNode() != null) {
-            return getDimension(addExpNode.getSingleMulExpNode()); // 获取SingleMulExpNode的维数
-        } else {
-            return 0; // 对于加减运算，结果为标量（0维）
-        }
-    }
-
-    private int getDimension(MulExpNode mulExpNode) {
-        if (mulExpNode == null) {
-            return 0; // 如果mulExpNode为空，返回0维
-        }
-        if (mulExpNode.getSingleUnaryExpNode() != null) {
-            return getDimension(mulExpNode.getSingleUnaryExpNode()); // 获取SingleUnaryExpNode的维数
-        } else {
-            return 0; // 对于乘除模运算，结果为标量（0维）
-        }
-    }
-
-    private int getDimension(UnaryExpNode unaryExpNode) {
-        if (unaryExpNode == null) {
-            return 0; // 如果unaryExpNode为空，返回0维
-        }
-        if (unaryExpNode.getPrimaryExpNode() != null) {
-            return getDimension(unaryExpNode.getPrimaryExpNode()); // 获取PrimaryExpNode的维数
-        } else if (unaryExpNode.getUnaryExpNode() != null) {
-            return 0; // 一元运算，结果为标量（0维）
-        } else if (unaryExpNode.getToken() != null) {
-            String funcName = unaryExpNode.getToken().getValue(); // 获取函数名
-            Symbol symbol = symbolTable.lookup(funcName); // 在符号表中查找符号
-            if (symbol instanceof FunctionSymbol) {
-                FunctionSymbol funcSymbol = (FunctionSymbol) symbol;
-                return 0; // 假设函数的返回类型维数为0（标量）
+            case AstArena.CALL: {
+                Symbol symbol = ast.symbol(node); // 遍历实参时绑定的符号
+                if (symbol instanceof FunctionSymbol) {
+                    return ((FunctionSymbol) symbol).getReturnType(); // 返回函数的返回类型
+                }
+                return "error";
             }
-        }
-        return 0; // 默认返回0维
-    }
-
-    private int getDimension(PrimaryExpNode primaryExpNode) {
-        if (primaryExpNode == null) {
-            return 0; // 如果primaryExpNode为空，返回0维
-        }
-        if (primaryExpNode.getExpNode() != null) {
-            return getDimension(primaryExpNode.getExpNode()); // 获取ExpNode的维数
-        } else if (primaryExpNode.getlValNode() != null) {
-            return getDimension(primaryExpNode.getlValNode()); // 获取LValNode的维数
-        } else {
-            return 0; // 数字或字符常量，维数为0
+            default:
+                return "int"; // 数字常量和各种二元运算
         }
     }
 
-    private int getDimension(LValNode lValNode) {
-        if (lValNode == null) {
-            return 0; // 如果lValNode为空，返回0维
+    /**
+     * 获取表达式的维数，只有不带下标或下标数少于维数的 LVal 不是标量
+     */
+    private int getDimension(int node) {
+        if (ast.kind(node) != AstArena.LVAL) {
+            return 0;
         }
-        String name = lValNode.getToken().getValue(); // 获取标识符名称
-        Symbol symbol = symbolTable.lookup(name); // 在符号表中查找符号
+        Symbol symbol = ast.symbol(node); // 遍历实参时绑定的符号
         int varDimension = 0;
-        if (symbol != null && symbol instanceof VariableSymbol) {
+        if (symbol instanceof VariableSymbol) {
             varDimension = ((VariableSymbol) symbol).getDimension(); // 获取变量的维数
         }
-        int indicesUsed = 0;
-        if (lValNode.getExpNode() != null) {
-            indicesUsed = 1; // 使用的下标个数
-        }
+        int indicesUsed = ast.firstChild(node) != AstArena.NONE ? 1 : 0; // 使用的下标个数
         int resultDimension = varDimension - indicesUsed; // 计算结果维数
         return resultDimension >= 0 ? resultDimension : 0; // 返回结果维数，确保不小于0
     }
@@ -953,22 +873,22 @@ public class SemanticAnalyzer {
      * 输出符号表信息到 symbol.txt
      */
     private void outputSymbolTable() {
+        if (!CompilationContext.current().isArtifactEnabled(Artifact.SYMBOL)) {
+            return;
+        }
         // 获取符号表中的所有符号
         List<Symbol> symbols = symbolTable.getAllSymbols();
 
         // 按照 getScopeLevel 进行升序排序
         symbols.sort(Comparator.comparingInt(Symbol::getScopeLevel));
 
-        // 创建一个列表来存储所有输出的内容
-        List<String> outputLines = new ArrayList<>();
-
-        // 生成每一行输出并添加到列表
-        for (Symbol symbol : symbols) {
-            String output = symbol.getScopeLevel() + " " + symbol.getName() + " " + symbol.getTypeName();
-            outputLines.add(output);
-        }
-
-        // 将所有行一次性写入 symbol.txt 文件
-        IOUtils.writeToFile("symbol.txt", outputLines);
+        // 符号的层次、名称和类型在语义分析后不再变化，交给后台线程格式化并写入 symbol.txt
+        CompilationContext.current().getArtifactWriter().write(Artifact.SYMBOL, writer -> {
+            List<String> outputLines = new ArrayList<>();
+            for (Symbol symbol : symbols) {
+                outputLines.add(symbol.getScopeLevel() + " " + symbol.getName() + " " + symbol.getTypeName());
+            }
+            IOUtils.writeLines(outputLines, writer);
+        });
     }
 }
\ No newline at end of file
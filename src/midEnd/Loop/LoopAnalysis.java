@@ -1,7 +1,6 @@
 package midEnd.Loop;
 
 import LLVMIR.Base.BasicBlock;
-import LLVMIR.Base.Core.Module;
 import LLVMIR.Global.Function;
 
 import java.util.ArrayList;
@@ -16,25 +15,23 @@ import java.util.HashSet;
  */
 public class LoopAnalysis {
     // 用于深度优先遍历时记录已访问的基本块
-    private static HashSet<BasicBlock> visitedBlocks;
+    private HashSet<BasicBlock> visitedBlocks;
 
     /**
-     * 对整个模块进行循环分析
-     * @param module 待分析的LLVM IR模块
+     * 对单个函数进行循环分析，要求该函数的 CFG 与支配树已经构建
+     * @param function 待分析的函数
      */
-    public static void analyzeLoop(Module module) {
-        for (Function function : module.getFunctions()) {
-            // 初始化所有基本块的循环信息
-            initializeLoopInfo(function);
-            // 对每个函数进行循环分析
-            analyzeLoopsInFunction(function);
-        }
+    public void analyzeLoop(Function function) {
+        // 初始化所有基本块的循环信息
+        initializeLoopInfo(function);
+        // 对每个函数进行循环分析
+        analyzeLoopsInFunction(function);
     }
 
     /**
      * 初始化函数中所有基本块的循环信息
      */
-    private static void initializeLoopInfo(Function function) {
+    private void initializeLoopInfo(Function function) {
         for (BasicBlock block : function.getBasicBlocks()) {
             block.setParentLoop(null);
         }
@@ -44,7 +41,7 @@ public class LoopAnalysis {
      * 分析函数中的循环结构
      * @param function 待分析的函数
      */
-    public static void analyzeLoopsInFunction(Function function) {
+    public void analyzeLoopsInFunction(Function function) {
         // 获取支配树的后序遍历序列
         ArrayList<BasicBlock> postOrderBlocks = function.getPostOrderForIdomTree();
 
@@ -60,7 +57,7 @@ public class LoopAnalysis {
      * 识别所有循环结构
      * @param postOrderBlocks 后序遍历的基本块序列
      */
-    private static void identifyLoops(ArrayList<BasicBlock> postOrderBlocks) {
+    private void identifyLoops(ArrayList<BasicBlock> postOrderBlocks) {
         for (BasicBlock headerBlock : postOrderBlocks) {
             ArrayList<BasicBlock> loopBackEdges = findBackEdges(headerBlock);
             if (!loopBackEdges.isEmpty()) {
@@ -75,11 +72,11 @@ public class LoopAnalysis {
      * @param headerBlock 可能的循环头节点
      * @return 回边的集合
      */
-    private static ArrayList<BasicBlock> findBackEdges(BasicBlock headerBlock) {
+    private ArrayList<BasicBlock> findBackEdges(BasicBlock headerBlock) {
         ArrayList<BasicBlock> backEdges = new ArrayList<>();
         for (BasicBlock predecessor : headerBlock.getPredecessors()) {
             // 如果前驱节点被循环头支配，说明找到了一个回边
-            if (headerBlock.getDominators().contains(predecessor)) {
+            if (headerBlock.strictlyDominates(predecessor)) {
                 backEdges.add(predecessor);
             }
         }
@@ -90,7 +87,7 @@ public class LoopAnalysis {
      * 构建循环体
      * 使用广度优先搜索确定循环中的所有基本块
      */
-    public static void buildLoopBody(LoopInfo loop, ArrayList<BasicBlock> loopBackEdges) {
+    public void buildLoopBody(LoopInfo loop, ArrayList<BasicBlock> loopBackEdges) {
         ArrayList<BasicBlock> workList = new ArrayList<>(loopBackEdges);
         while (!workList.isEmpty()) {
             BasicBlock currentBlock = workList.remove(0);
@@ -101,7 +98,7 @@ public class LoopAnalysis {
     /**
      * 处理循环中的一个基本块
      */
-    private static void processLoopBlock(BasicBlock block, LoopInfo loop,
+    private void processLoopBlock(BasicBlock block, LoopInfo loop,
                                          ArrayList<BasicBlock> workList) {
         LoopInfo existingLoop = block.getParentLoop();
 
@@ -117,7 +114,7 @@ public class LoopAnalysis {
     /**
      * 将基本块添加到循环中
      */
-    private static void addBlockToLoop(BasicBlock block, LoopInfo loop,
+    private void addBlockToLoop(BasicBlock block, LoopInfo loop,
                                        ArrayList<BasicBlock> workList) {
         block.setParentLoop(loop);
         if (block != loop.getEntry()) {
@@ -128,7 +125,7 @@ public class LoopAnalysis {
     /**
      * 处理嵌套循环的情况
      */
-    private static void handleNestedLoop(LoopInfo existingLoop, LoopInfo newLoop,
+    private void handleNestedLoop(LoopInfo existingLoop, LoopInfo newLoop,
                                          ArrayList<BasicBlock> workList) {
         // 找到最外层的父循环
         LoopInfo outerMostLoop = findOuterMostLoop(existingLoop);
@@ -147,7 +144,7 @@ public class LoopAnalysis {
     /**
      * 找到最外层的父循环
      */
-    private static LoopInfo findOuterMostLoop(LoopInfo loop) {
+    private LoopInfo findOuterMostLoop(LoopInfo loop) {
         LoopInfo outerLoop = loop;
         LoopInfo parent = loop.getParentLoop();
         while (parent != null) {
@@ -161,7 +158,7 @@ public class LoopAnalysis {
      * 分析循环的嵌套关系和深度
      * 通过深度优先遍历计算每个循环的深度
      */
-    private static void analyzeLoopNesting(BasicBlock block) {
+    private void analyzeLoopNesting(BasicBlock block) {
         visitedBlocks.add(block);
 
         // 如果当前块是循环入口，计算循环深度
@@ -182,7 +179,7 @@ public class LoopAnalysis {
      * 计算循环的深度
      * 深度等于从当前循环到最外层循环的路径长度
      */
-    private static void calculateLoopDepth(LoopInfo loop) {
+    private void calculateLoopDepth(LoopInfo loop) {
         int depth = 1;
         LoopInfo parent = loop.getParentLoop();
         while (parent != null) {
@@ -5,12 +5,10 @@ import LLVMIR.Base.Instruction;
 import LLVMIR.Base.Core.Value;
 import LLVMIR.Global.Function;
 import LLVMIR.Global.GlobalVar;
-import LLVMIR.Base.Core.Module;
 import LLVMIR.Ins.Call;
 import LLVMIR.Ins.Mem.Load;
 import LLVMIR.Ins.Mem.Store;
 
-import java.util.ArrayList;
 import java.util.HashMap;
 
 /**
@@ -22,51 +20,54 @@ import java.util.HashMap;
 public class MemoryAccessOptimize {
 
     /**
-     * 对整个模块进行内存访问优化
-     * @param module 待优化的LLVM IR模块
+     * 对单个函数进行内存访问优化
+     * @param function 待优化的函数
+     * @return 是否修改了 IR
      */
-    public static void optimize(Module module) {
-        for (Function function : module.getFunctions()) {
-            for (BasicBlock block : function.getBasicBlocks()) {
-                optimizeGlobalVarAccess(block);
-                eliminateRedundantLoads(block);
-            }
+    public boolean optimize(Function function) {
+        boolean changed = false;
+        for (BasicBlock block : function.getBasicBlocks()) {
+            changed |= optimizeGlobalVarAccess(block);
+            changed |= eliminateRedundantLoads(block);
         }
+        return changed;
     }
 
     /**
      * 优化基本块中的全局变量访问
-     * 将全局变量的读写转换为本地变量操作，仅在必要时写回内存
+     * 块内已知值的全局变量不再从内存读取；被块内后一次 store 覆盖、且中间没有函数调用的 store 直接删除。
+     * 保留的 store 留在原位，其余指令的先后不变，因此对同一个块重复执行不会再产生变化
      * @param block 待优化的基本块
+     * @return 基本块是否发生了变化
      */
-    private static void optimizeGlobalVarAccess(BasicBlock block) {
-        ArrayList<Instruction> instructions = new ArrayList<>(block.getInstrs());
-
+    private boolean optimizeGlobalVarAccess(BasicBlock block) {
         // 维护全局变量的本地缓存
         HashMap<Value, Value> globalVarCache = new HashMap<>();
-        // 记录需要写回的全局变量
-        HashMap<Value, Value> pendingWrites = new HashMap<>();
+        // 自上次函数调用以来每个全局变量最后一次的 store
+        HashMap<Value, Store> lastStores = new HashMap<>();
+        boolean changed = false;
 
-        for (Instruction instruction : instructions) {
+        // 只会删除当前指令或已经访问过的 store，直接遍历指令序列
+        for (Instruction instruction : block.getInstrs()) {
             if (instruction instanceof Load) {
-                handleLoadInstruction((Load) instruction, block, globalVarCache);
+                changed |= handleLoadInstruction((Load) instruction, block, globalVarCache);
             } else if (instruction instanceof Store) {
-                handleStoreInstruction((Store) instruction, block, globalVarCache, pendingWrites);
+                changed |= handleStoreInstruction((Store) instruction, block, globalVarCache, lastStores);
             } else if (instruction instanceof Call) {
-                // 函数调用可能修改全局变量，需要写回并清空缓存
-                handleCallInstruction((Call) instruction, block, globalVarCache, pendingWrites);
+                // 函数调用可能读写全局变量，此前的 store 都要保留，缓存失效
+                globalVarCache.clear();
+                lastStores.clear();
             }
         }
-
-        // 在基本块结束前写回所有待写入的全局变量
-        writeBackGlobalVars(block, pendingWrites);
+        return changed;
     }
 
     /**
      * 处理加载指令的优化
+     * @return 是否删除了该加载指令
      */
-    private static void handleLoadInstruction(Load load, BasicBlock block,
-                                              HashMap<Value, Value> globalVarCache) {
+    private boolean handleLoadInstruction(Load load, BasicBlock block,
+                                          HashMap<Value, Value> globalVarCache) {
         Value pointer = load.getOperands().get(0);
         if (pointer instanceof GlobalVar) {
             if (globalVarCache.containsKey(pointer)) {
@@ -74,70 +75,51 @@ public class MemoryAccessOptimize {
                 load.modifyValueForUsers(globalVarCache.get(pointer));
                 load.removeOperands();
                 block.getInstrs().remove(load);
-            } else {
-                // 否则缓存当前加载的值
-                globalVarCache.put(pointer, load);
+                return true;
             }
+            // 否则缓存当前加载的值
+            globalVarCache.put(pointer, load);
         }
+        return false;
     }
 
     /**
      * 处理存储指令的优化
+     * @return 是否删除了被本条覆盖的 store
      */
-    private static void handleStoreInstruction(Store store, BasicBlock block,
-                                               HashMap<Value, Value> globalVarCache,
-                                               HashMap<Value, Value> pendingWrites) {
+    private boolean handleStoreInstruction(Store store, BasicBlock block,
+                                           HashMap<Value, Value> globalVarCache,
+                                           HashMap<Value, Store> lastStores) {
         Value pointer = store.getTo();
-        if (pointer instanceof GlobalVar) {
-            Value storedValue = store.getFrom();
-            globalVarCache.put(pointer, storedValue);
-            pendingWrites.put(pointer, storedValue);
-            store.removeOperands();
-            block.getInstrs().remove(store);
+        if (!(pointer instanceof GlobalVar)) {
+            return false;
         }
-    }
-
-    /**
-     * 处理函数调用指令
-     */
-    private static void handleCallInstruction(Call call, BasicBlock block,
-                                              HashMap<Value, Value> globalVarCache,
-                                              HashMap<Value, Value> pendingWrites) {
-        int insertPosition = block.getInstrs().indexOf(call);
-        // 在函数调用前写回所有待写入的全局变量
-        pendingWrites.forEach((globalVar, value) -> {
-            Store store = new Store(value, globalVar, block);
-            block.getInstrs().add(insertPosition, store);
-        });
-
-        globalVarCache.clear();
-        pendingWrites.clear();
-    }
-
-    /**
-     * 将待写入的全局变量写回内存
-     */
-    private static void writeBackGlobalVars(BasicBlock block,
-                                            HashMap<Value, Value> pendingWrites) {
-        pendingWrites.forEach((globalVar, value) -> {
-            Store store = new Store(value, globalVar, block);
-            block.getInstrs().add(block.getInstrs().size() - 1, store);
-        });
+        globalVarCache.put(pointer, store.getFrom());
+        Store overwritten = lastStores.put(pointer, store);
+        if (overwritten == null) {
+            return false;
+        }
+        // 两次 store 之间对该全局变量的读取都已改用缓存值，前一次写入不会被观察到
+        overwritten.removeOperands();
+        block.getInstrs().remove(overwritten);
+        return true;
     }
 
     /**
      * 消除基本块中的冗余加载指令
      * 合并对同一内存地址的重复加载
      * @param block 待优化的基本块
+     * @return 是否消除了加载指令
      */
-    public static void eliminateRedundantLoads(BasicBlock block) {
-        ArrayList<Instruction> instructions = new ArrayList<>(block.getInstrs());
+    public boolean eliminateRedundantLoads(BasicBlock block) {
         // 记录地址到最近一次加载值的映射
         HashMap<Value, Value> addressValueMap = new HashMap<>();
+        boolean changed = false;
 
-        for (Instruction instruction : instructions) {
+        // 只会删除当前的 load，直接遍历指令序列
+        for (Instruction instruction : block.getInstrs()) {
             if (instruction instanceof Load) {
-                processLoadInstruction((Load) instruction, block, addressValueMap);
+                changed |= processLoadInstruction((Load) instruction, block, addressValueMap);
             } else if (instruction instanceof Store) {
                 processStoreInstruction((Store) instruction, addressValueMap);
             } else if (instruction instanceof Call) {
@@ -145,29 +127,32 @@ public class MemoryAccessOptimize {
                 addressValueMap.clear();
             }
         }
+        return changed;
     }
 
     /**
      * 处理加载指令的冗余消除
+     * @return 是否删除了该加载指令
      */
-    private static void processLoadInstruction(Load load, BasicBlock block,
-                                               HashMap<Value, Value> addressValueMap) {
+    private boolean processLoadInstruction(Load load, BasicBlock block,
+                                                  HashMap<Value, Value> addressValueMap) {
         Value address = load.getOperands().get(0);
         if (addressValueMap.containsKey(address)) {
             // 发现重复加载，使用之前加载的值
             load.modifyValueForUsers(addressValueMap.get(address));
             load.removeOperands();
             block.getInstrs().remove(load);
-        } else {
-            // 记录新的加载
-            addressValueMap.put(address, load);
+            return true;
         }
+        // 记录新的加载
+        addressValueMap.put(address, load);
+        return false;
     }
 
     /**
      * 处理存储指令的影响
      */
-    private static void processStoreInstruction(Store store,
+    private void processStoreInstruction(Store store,
                                                 HashMap<Value, Value> addressValueMap) {
         // 存储指令会改变内存内容，更新映射
         addressValueMap.clear();
@@ -190,9 +175,9 @@ public class MemoryAccessOptimize {
 //具体策略：
 //
 //遇到Load：优先使用缓存值，避免内存读取
-//遇到Store：更新缓存，加入待写回队列
-//遇到函数调用：写回所有待写全局变量并清空缓存
-//基本块结束：写回所有待写变量
+//遇到Store：更新缓存，删除被本次写入覆盖的上一次写入
+//遇到函数调用：保留此前的写入并清空缓存
+//保留的写入留在原位，不移动其他指令
 //
 //
 //
@@ -1,28 +1,48 @@
 package midEnd;
 import LLVMIR.Base.Core.Module;
 import LLVMIR.Global.Function;
-import midEnd.Loop.LoopAnalysis;
 import midEnd.Loop.MemoryAccessOptimize;
 import midEnd.Var.GCM;
 import midEnd.Var.GVN;
 import midEnd.Var.GlobalVarLocalize;
 import midEnd.base.ActiveVarAnalyzer;
+import midEnd.base.AnalysisManager;
+import midEnd.base.AnalysisManager.Analysis;
 import midEnd.base.CFGBuilder;
+import midEnd.base.FunctionPassRunner;
+import midEnd.base.FunctionPassRunner.FunctionPass;
 import midEnd.base.RegAlloc;
-import midEnd.helper.SideEffectsAnalyze;
 import midEnd.helper.delete;
 import midEnd.mem.MemToReg;
 import midEnd.mem.Remove;
+import util.CompilationContext;
+import util.PassTimer;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.function.Supplier;
 
 public class Optimizer {
-    // 单例模式
-    private static Optimizer instance = new Optimizer();
     public static boolean againstLlvm = true;
-    private Optimizer() {
+    // 变换 pass 声明保持有效的分析
+    private static final EnumSet<Analysis> PRESERVES_NONE = EnumSet.noneOf(Analysis.class);
+    private static final EnumSet<Analysis> PRESERVES_CFG = EnumSet.of(Analysis.CFG, Analysis.LOOPS);
+    private static final EnumSet<Analysis> PRESERVES_ALL = EnumSet.allOf(Analysis.class);
+    // 按函数缓存的分析结果
+    private final AnalysisManager analysisManager = new AnalysisManager();
+    // 优化轮数上限，IR 不再变化时提前结束
+    private int maxRounds = 10;
+    // 上一次 run 实际执行的轮数
+    private int roundsRun = 0;
+    // 按函数并行执行 pass 的线程数，结果与线程数无关
+    private int threads = Runtime.getRuntime().availableProcessors();
+    // 本次 run 使用的调度器
+    private FunctionPassRunner runner;
+    public Optimizer() {
     }
 
     public static Optimizer getInstance() {
-        return instance;
+        return CompilationContext.current().getOptimizer();
     }
     public  static boolean basicOptimize = false;
 
@@ -30,55 +50,201 @@ public class Optimizer {
         return basicOptimize;
     }
 
-    public void analyze(Module module) {
-//         调用delete的simplify方法
-        delete.simplify(module);
-        // 再次调用CFGBuilder的run方法
-        CFGBuilder.buildCFG(module);
-        // 调用ActiveVarAnalyzer的analyze方法
-        SideEffectsAnalyze.analyzeSideEffects(module);
-        for (Function func : module.getFunctions()) {
-            ActiveVarAnalyzer.analyze(func);
+    public int getMaxRounds() {
+        return maxRounds;
+    }
+
+    public void setMaxRounds(int maxRounds) {
+        if (maxRounds < 1) {
+            throw new IllegalArgumentException("Optimizer needs at least one round");
+        }
+        this.maxRounds = maxRounds;
+    }
+
+    public int getRoundsRun() {
+        return roundsRun;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Optimizer needs at least one thread");
         }
-        delete.simplify(module);
-        LoopAnalysis.analyzeLoop(module);
+        this.threads = threads;
+    }
+
+    public AnalysisManager getAnalysisManager() {
+        return analysisManager;
+    }
+
+    /**
+     * 清理死代码，然后确保 CFG、副作用、活跃变量与循环信息有效。
+     * 只有自上次分析以来被修改过的函数才会重新分析；
+     * 清理与过程内分析按函数并行执行，副作用传播等跨函数部分随后串行完成
+     *
+     * @param module 模块
+     * @return 清理死代码时修改了的函数
+     */
+    public List<Function> analyze(Module module) {
+        List<Function> simplified = runner.run(module, (function, out) -> {
+//             调用delete的simplify方法
+            boolean changed = delete.simplify(function);
+            if (changed) {
+                analysisManager.invalidate(function, PRESERVES_NONE);
+            }
+            analysisManager.analyzeFunction(function, out);
+            return changed;
+        });
+        analysisManager.finishAnalysis(module);
+        return simplified;
     }
 
     public void run(Module module) {
+        runner = new FunctionPassRunner(threads);
+        try {
+            // 最大活跃变量数是跨函数累积的，每次编译从零开始
+            analysisManager.invalidateAll();
+            runPasses(module);
+        } finally {
+            runner.shutdown();
+            runner = null;
+        }
+    }
+
+    private void runPasses(Module module) {
         if (basicOptimize) {
-            delete.simplify(module);
-            CFGBuilder.buildCFG(module);
-            MemToReg.execute(module);
-            CFGBuilder.buildCFG(module);
-            for (Function func : module.getFunctions()) {
-                ActiveVarAnalyzer.analyze(func);
-            }
-            RegAlloc regAlloc = new RegAlloc();
-            regAlloc.allocateRegisters(module);
-            Remove.removePhi(module);
-            delete.simplify(module);
+            runFunctionPass("simplify", 0, module, (function, out) -> delete.simplify(function));
+            runFunctionPass("CFGBuilder", 0, module, (function, out) -> {
+                new CFGBuilder(out).buildCFG(function);
+                return false;
+            });
+            runFunctionPass("MemToReg", 0, module, (function, out) -> new MemToReg().execute(function));
+            runFunctionPass("CFGBuilder", 0, module, (function, out) -> {
+                new CFGBuilder(out).buildCFG(function);
+                return false;
+            });
+            runFunctionPass("ActiveVarAnalyzer", 0, module, (function, out) -> {
+                new ActiveVarAnalyzer(out).analyze(function);
+                return false;
+            });
+            runBackEndPasses(module);
+            runFunctionPass("simplify", 0, module, (function, out) -> delete.simplify(function));
         } else {
-            for (int i = 1; i <= 10; i++) {
-                analyze(module);
-                // 调用GlobalVarLocalize的globalVarLocalize方法
-                GlobalVarLocalize.globalVarLocalize(module);
-                analyze(module);
-                // 调用MemToReg的execute方法
-                MemToReg.execute(module);
-                analyze(module);
-                // 调用GVN的execute方法
-                GVN.optimize(module);
-                analyze(module);
-                delete.mergeBlocks(module);
-                analyze(module);
-                MemoryAccessOptimize.optimize(module);
-                // 调用GCM的execute方法
-                analyze(module);
-                GCM.moveInstrs(module);
+            roundsRun = 0;
+            for (int round = 1; round <= maxRounds; round++) {
+                roundsRun = round;
+                boolean changed = runRound(module, round);
+                // 不动点：本轮没有任何 pass 修改 IR，再跑一轮结果也不会变化
+                if (!changed) {
+                    break;
+                }
+            }
+            runBackEndPasses(module);
+        }
+    }
+
+    // 寄存器分配与消除 phi 都只依赖本函数的活跃变量信息
+    private void runBackEndPasses(Module module) {
+        runFunctionPass("RegAlloc", 0, module, (function, out) -> {
+            new RegAlloc(out).allocateRegisters(function);
+            return false;
+        });
+        runFunctionPass("RemovePhi", 0, module, (function, out) -> {
+            new Remove().removePhi(function);
+            return false;
+        });
+    }
+
+    /**
+     * 执行一轮完整的优化序列。
+     * 除全局变量本地化外的变换都是过程内的，按函数并行执行，每个 pass 结束时等待所有函数完成
+     *
+     * @param module 模块
+     * @param round  轮次，从 1 开始
+     * @return 本轮是否有 pass 修改了 IR
+     */
+    private boolean runRound(Module module, int round) {
+        boolean changed = runAnalyze(round, module);
+        // 跨函数：依据各函数对全局变量的使用和调用关系决定本地化，串行执行；
+        // 只在入口块插入 alloca 和 store，不改变控制流
+        int globalVarCount = module.getGlobalVars().size();
+        changed |= runTransform("GlobalVarLocalize", round, module, PRESERVES_CFG,
+                () -> new GlobalVarLocalize().globalVarLocalize(module));
+        // 删除未使用的全局变量不改动任何函数，但同样是对 IR 的修改
+        changed |= module.getGlobalVars().size() != globalVarCount;
+        changed |= runAnalyze(round, module);
+        // 插入 phi、删除 load/store，不改变控制流
+        changed |= runTransform("MemToReg", round, module, PRESERVES_CFG,
+                () -> runner.run(module, (function, out) -> new MemToReg().execute(function)));
+        changed |= runAnalyze(round, module);
+        // 常量分支折叠会删除边和基本块
+        changed |= runTransform("GVN", round, module, PRESERVES_NONE, () -> {
+            // 判断调用能否编号需要读取被调用函数的指令，先串行求出并缓存，并行改写时不再跨函数访问
+            for (Function function : module.getFunctions()) {
+                function.isGvnAble();
             }
-            RegAlloc regAlloc = new RegAlloc();
-            regAlloc.allocateRegisters(module);
-            Remove.removePhi(module);
+            return runner.run(module, (function, out) -> new GVN().optimize(function));
+        });
+        changed |= runAnalyze(round, module);
+        changed |= runTransform("mergeBlocks", round, module, PRESERVES_NONE,
+                () -> runner.run(module, (function, out) -> delete.mergeBlocks(function)));
+        changed |= runAnalyze(round, module);
+        // 只在基本块内部移动和删除访存指令
+        changed |= runTransform("MemoryAccessOptimize", round, module, PRESERVES_CFG,
+                () -> runner.run(module, (function, out) -> new MemoryAccessOptimize().optimize(function)));
+        changed |= runAnalyze(round, module);
+        // 在基本块之间移动指令，不改变控制流；移动调用可能改变副作用分析收集到的调用关系
+        changed |= runTransform("GCM", round, module, PRESERVES_CFG,
+                () -> runner.run(module, (function, out) -> new GCM().moveInstrs(function)));
+        return changed;
+    }
+
+    private boolean runAnalyze(int round, Module module) {
+        return runTransform("analyze", round, module, PRESERVES_ALL, () -> analyze(module));
+    }
+
+    /**
+     * 对每个函数运行一个 pass，并在当前编译上下文的计时器中记录
+     *
+     * @param name   pass 名称
+     * @param round  优化轮次，不属于某一轮时为 0
+     * @param module 模块
+     * @param pass   对单个函数的执行体
+     */
+    private void runFunctionPass(String name, int round, Module module, FunctionPass pass) {
+        PassTimer timer = CompilationContext.current().getPassTimer();
+        timer.begin(name, round, module);
+        try {
+            runner.run(module, pass);
+        } finally {
+            timer.end(module);
+        }
+    }
+
+    /**
+     * 运行一个按函数报告修改的 pass，并在当前编译上下文的计时器中记录。
+     * pass 结束后，它报告修改了的函数只保留 preserved 中的分析
+     *
+     * @param name      pass 名称
+     * @param round     优化轮次，不属于某一轮时为 0
+     * @param module    模块
+     * @param preserved pass 保持有效的分析
+     * @param pass      pass 的执行体，返回修改了的函数
+     * @return pass 是否修改了 IR
+     */
+    private boolean runTransform(String name, int round, Module module, EnumSet<Analysis> preserved,
+                                 Supplier<List<Function>> pass) {
+        PassTimer timer = CompilationContext.current().getPassTimer();
+        timer.begin(name, round, module);
+        try {
+            List<Function> modified = pass.get();
+            analysisManager.invalidate(modified, preserved);
+            return !modified.isEmpty();
+        } finally {
+            timer.end(module);
         }
     }
 }
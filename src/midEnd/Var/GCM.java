@@ -3,7 +3,6 @@ package midEnd.Var;
 import LLVMIR.Base.*;
 import LLVMIR.Base.Core.User;
 import LLVMIR.Base.Core.Value;
-import LLVMIR.Base.Core.Module;
 import LLVMIR.Ins.*;
 import LLVMIR.Global.Function;
 import LLVMIR.Ins.Mem.Load;
@@ -12,30 +11,22 @@ import LLVMIR.LLVMType.PointerType;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 
 public class GCM {
     // 当前处理的函数
-    private static Function currentFunction;
+    private Function currentFunction;
     // 存储已访问的指令，防止重复处理
-    private static HashSet<Instruction> visitedInstructions = new HashSet<>();
+    private final HashSet<Instruction> visitedInstructions = new HashSet<>();
 
     /**
-     * 移动模块中的所有函数的指令
-     * @param module LLVM IR 模块
-     */
-    public static void moveInstrs(Module module) {
-        for (Function function : module.getFunctions()) {
-            currentFunction = function;
-            processFunctionInstructions(function);
-        }
-    }
-
-    /**
-     * 处理单个函数中的指令移动
+     * 移动单个函数中的指令
      * @param function 当前处理的函数
+     * @return 是否有指令被移动到了其他基本块，或块内指令的顺序发生了变化
      */
-    public static void processFunctionInstructions(Function function) {
+    public boolean moveInstrs(Function function) {
         visitedInstructions.clear();
         currentFunction = function;
         // 获取支配树的后序遍历并反转
@@ -43,6 +34,7 @@ public class GCM {
         Collections.reverse(postOrderBlocks);
         // 收集所有指令
         ArrayList<Instruction> instructionList = collectAllInstructions(postOrderBlocks);
+        ArrayList<Instruction> originalOrder = new ArrayList<>(instructionList);
         // 早期调度
         for (Instruction instr : instructionList) {
             scheduleEarly(instr);
@@ -53,6 +45,67 @@ public class GCM {
         for (Instruction instr : instructionList) {
             scheduleLate(instr);
         }
+        // 调度过程中块内的先后顺序取决于移动的次序，最后按规范顺序重排
+        HashMap<Instruction, Integer> originalIndex = new HashMap<>();
+        for (Instruction instr : originalOrder) {
+            originalIndex.put(instr, originalIndex.size());
+        }
+        for (BasicBlock block : postOrderBlocks) {
+            arrangeBlock(block, originalIndex);
+        }
+        return !collectAllInstructions(postOrderBlocks).equals(originalOrder);
+    }
+
+    /**
+     * 按规范顺序重排基本块：不可移动的指令保持原有先后，每条可移动的指令紧挨在块内第一个需要它的指令之前；
+     * 块内没有使用者的可移动指令按调度前的先后排在终结指令之前。
+     * 排列结果只取决于块中有哪些指令和调度前的顺序，对已排好的块再次调度不会改变顺序
+     * @param block 基本块
+     * @param originalIndex 指令在调度前的位置
+     */
+    private void arrangeBlock(BasicBlock block, HashMap<Instruction, Integer> originalIndex) {
+        Instruction terminator = block.getLastInstr();
+        ArrayList<Instruction> fixedInstrs = new ArrayList<>();
+        ArrayList<Instruction> movableInstrs = new ArrayList<>();
+        for (Instruction instr : block.getInstrs()) {
+            if (instr == terminator) {
+                continue;
+            }
+            (isMovable(instr) ? movableInstrs : fixedInstrs).add(instr);
+        }
+        movableInstrs.sort(Comparator.comparingInt(originalIndex::get));
+        ArrayList<Instruction> arranged = new ArrayList<>(block.getInstrs().size());
+        HashSet<Instruction> placed = new HashSet<>();
+        for (Instruction instr : fixedInstrs) {
+            placeAfterOperands(instr, block, placed, arranged);
+        }
+        for (Instruction instr : movableInstrs) {
+            placeAfterOperands(instr, block, placed, arranged);
+        }
+        if (terminator != null) {
+            placeAfterOperands(terminator, block, placed, arranged);
+        }
+        block.getInstrs().clear();
+        for (Instruction instr : arranged) {
+            block.getInstrs().add(instr);
+        }
+    }
+
+    // 先放置指令在本块中尚未放置的可移动操作数，再放置指令本身；phi 的操作数来自前驱，不在此处放置
+    private void placeAfterOperands(Instruction instr, BasicBlock block, HashSet<Instruction> placed,
+                                    ArrayList<Instruction> arranged) {
+        if (!placed.add(instr)) {
+            return;
+        }
+        if (!(instr instanceof Phi)) {
+            for (Value operand : instr.getOperands()) {
+                if (operand instanceof Instruction operandInstr && operandInstr.getParentBlock() == block
+                        && !placed.contains(operandInstr) && isMovable(operandInstr)) {
+                    placeAfterOperands(operandInstr, block, placed, arranged);
+                }
+            }
+        }
+        arranged.add(instr);
     }
 
     /**
@@ -60,7 +113,7 @@ public class GCM {
      * @param blocks 基本块列表
      * @return 所有指令的列表
      */
-    private static ArrayList<Instruction> collectAllInstructions(ArrayList<BasicBlock> blocks) {
+    private ArrayList<Instruction> collectAllInstructions(ArrayList<BasicBlock> blocks) {
         ArrayList<Instruction> instructions = new ArrayList<>();
         for (BasicBlock block : blocks) {
             instructions.addAll(block.getInstrs());
@@ -72,7 +125,7 @@ public class GCM {
      * 提前调度指令，将指令尽可能移动到最早的位置
      * @param instr 需要移动的指令
      */
-    public static void scheduleEarly(Instruction instr) {
+    public void scheduleEarly(Instruction instr) {
         // 如果指令不可移动或已访问，则跳过
         if (!isMovable(instr) || visitedInstructions.contains(instr)) {
             return;
@@ -83,7 +136,7 @@ public class GCM {
         // 从原块中移除指令
         instr.getParentBlock().getInstrs().remove(instr);
         // 将指令添加到第一个块的末尾前一个位置
-        firstBlock.getInstrs().add(firstBlock.getInstrs().size() - 1, instr);
+        firstBlock.getInstrs().insertBefore(firstBlock.getLastInstr(), instr);
         // 更新指令的父块
         instr.setParentBlock(firstBlock);
         // 递归提前调度操作数中的指令
@@ -104,9 +157,9 @@ public class GCM {
      * @param instr 需要移动的指令
      * @param targetBlock 目标基本块
      */
-    private static void moveInstructionToBlock(Instruction instr, BasicBlock targetBlock) {
+    private void moveInstructionToBlock(Instruction instr, BasicBlock targetBlock) {
         instr.getParentBlock().getInstrs().remove(instr);
-        targetBlock.getInstrs().add(targetBlock.getInstrs().size() - 1, instr);
+        targetBlock.getInstrs().insertBefore(targetBlock.getLastInstr(), instr);
         instr.setParentBlock(targetBlock);
     }
 
@@ -116,7 +169,7 @@ public class GCM {
      * @param block2 第二个基本块
      * @return 最近公共祖先的基本块
      */
-    public static BasicBlock findLowestCommonAncestor(BasicBlock block1, BasicBlock block2) {
+    public BasicBlock findLowestCommonAncestor(BasicBlock block1, BasicBlock block2) {
         if (block1 == null) {
             return block2;
         }
@@ -139,7 +192,7 @@ public class GCM {
      * 延后调度指令，将指令尽可能移动到最晚的位置
      * @param instr 需要移动的指令
      */
-    public static void scheduleLate(Instruction instr) {
+    public void scheduleLate(Instruction instr) {
         // 如果指令不可移动或已访问，则跳过
         if (!isMovable(instr) || visitedInstructions.contains(instr)) {
             return;
@@ -154,8 +207,6 @@ public class GCM {
         BasicBlock targetBlock = determineTargetBlock(instr, lcaBlock);
         if (targetBlock != null) {
             moveInstructionToBlock(instr, targetBlock);
-            // 确保指令在使用它的指令之前
-            reorderInstruction(instr, targetBlock);
         }
     }
 
@@ -164,7 +215,7 @@ public class GCM {
      * @param instr 需要查找的指令
      * @return 最近公共祖先的基本块
      */
-    private static BasicBlock findUsersLowestCommonAncestor(Instruction instr) {
+    private BasicBlock findUsersLowestCommonAncestor(Instruction instr) {
         BasicBlock commonAncestor = null;
         for (User user : instr.getUsers()) {
             if (user instanceof Instruction) {
@@ -183,7 +234,7 @@ public class GCM {
      * @param instr 当前指令
      * @return 用户指令所在的基本块
      */
-    private static BasicBlock getUserBlock(User user, Instruction instr) {
+    private BasicBlock getUserBlock(User user, Instruction instr) {
         if (user instanceof Phi) {
             Phi phiUser = (Phi) user;
             for (int i = 0; i < phiUser.getOperands().size(); i++) {
@@ -201,7 +252,7 @@ public class GCM {
      * @param lcaBlock 最近公共祖先块
      * @return 目标基本块
      */
-    private static BasicBlock determineTargetBlock(Instruction instr, BasicBlock lcaBlock) {
+    private BasicBlock determineTargetBlock(Instruction instr, BasicBlock lcaBlock) {
         BasicBlock target = lcaBlock;
         while (lcaBlock != instr.getParentBlock()) {
             if (lcaBlock == null) {
@@ -215,28 +266,12 @@ public class GCM {
         return target;
     }
 
-    /**
-     * 确保指令在使用它的指令之前
-     * @param instr 指令
-     * @param block 指令所在的块
-     */
-    private static void reorderInstruction(Instruction instr, BasicBlock block) {
-        for (Instruction blockInstr : new ArrayList<>(block.getInstrs())) {
-            if (blockInstr != instr && !(blockInstr instanceof Phi) && blockInstr.getOperands().contains(instr)) {
-                block.getInstrs().remove(instr);
-                int index = block.getInstrs().indexOf(blockInstr);
-                block.getInstrs().add(index, instr);
-                break;
-            }
-        }
-    }
-
     /**
      * 判断指令是否可以被移动
      * @param instr 需要判断的指令
      * @return 如果指令可移动则返回true，否则返回false
      */
-    public static boolean isMovable(Instruction instr) {
+    public boolean isMovable(Instruction instr) {
         // 检查指令类型是否为可移动的类型
         if (instr instanceof Alu ||
                 instr instanceof GetPtr ||
@@ -253,7 +288,7 @@ public class GCM {
                 return false;
             }
             // 如果调用指令没有用户，则不可移动
-            if (callInstr.getUsers().isEmpty()) {
+            if (!callInstr.hasUsers()) {
                 return false;
             }
             // 检查调用指令的所有用户
@@ -293,7 +328,7 @@ public class GCM {
 //找到所有使用该指令的点
 //计算这些使用点的最近公共祖先(LCA)
 //在保证正确性的前提下，选择循环嵌套最浅的位置
-//确保指令在使用它的指令之前
+//最后重排各基本块，确保指令在使用它的指令之前，且块内顺序与调度次序无关
 //
 //
 //
@@ -3,7 +3,6 @@ package midEnd.Var;
 import LLVMIR.Base.*;
 import LLVMIR.Base.Core.User;
 import LLVMIR.Base.Core.Value;
-import LLVMIR.Base.Core.Module;
 import LLVMIR.Global.Function;
 import LLVMIR.Global.GlobalVar;
 import LLVMIR.IRBuilder;
@@ -12,56 +11,59 @@ import LLVMIR.Ins.Mem.Alloca;
 import LLVMIR.Ins.Mem.Load;
 import midEnd.helper.delete;
 import midEnd.Optimizer;
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 
 /**
  * 全局值编号(Global Value Numbering)优化器
  * 用于消除冗余计算和优化代码
  */
 public class GVN {
-    // 存储值编号的映射关系
-    private static HashMap<String, Value> valueNumberMap = new HashMap<>();
+    // 按指令结构记录支配路径上已计算过的值
+    private ValueNumberTable valueNumbers;
     // 当前处理的基本块
-    private static BasicBlock currentBlock;
+    private BasicBlock currentBlock;
     // 需要删除的基本块集合
-    private static HashSet<BasicBlock> redundantBlocks;
+    private HashSet<BasicBlock> redundantBlocks;
+    // 当前处理的函数
+    private Function currentFunction;
+    // 本次优化是否修改了 IR
+    private boolean changed;
 
     /**
-     * 优化给定的模块
-     * @param module 待优化的LLVM IR模块
+     * 优化单个函数
+     * @param function 待优化的函数
+     * @return 是否修改了 IR
      */
-    public static void optimize(Module module) {
+    public boolean optimize(Function function) {
+        changed = false;
+        currentFunction = function;
         // 第一遍：全局值编号优化
-        performGVNPass(module);
+        valueNumbers = new ValueNumberTable();
+        processBlockRecursively(function.getBasicBlocks().get(0));
         // 第二遍：代数优化和常量传播
-        performAlgebraicPass(module);
+        performAlgebraicPass(function);
         // 清理和简化代码
-        delete.simplify(module);
+        changed |= delete.simplify(function);
+        return changed;
     }
 
     /**
-     * 执行全局值编号优化遍历
+     * 记录当前函数被修改
      */
-    private static void performGVNPass(Module module) {
-        for (Function function : module.getFunctions()) {
-            valueNumberMap = new HashMap<>();
-            processBlockRecursively(function.getBasicBlocks().get(0));
-        }
+    private void markChanged() {
+        changed = true;
     }
 
     /**
      * 递归处理基本块及其支配树
      */
-    private static void processBlockRecursively(BasicBlock block) {
-        ArrayList<Instruction> instructions = new ArrayList<>(block.getInstrs());
-        HashSet<String> processedHashes = new HashSet<>();
+    private void processBlockRecursively(BasicBlock block) {
+        int scope = valueNumbers.mark();
 
-        for (Instruction instruction : instructions) {
+        // 只会删除当前指令，直接遍历指令序列
+        for (Instruction instruction : block.getInstrs()) {
             if (isGVNEligible(instruction)) {
-                processInstruction(instruction, block, processedHashes);
+                processInstruction(instruction, block);
             }
         }
 
@@ -69,15 +71,14 @@ public class GVN {
             processBlockRecursively(dominated);
         }
 
-        for (String hash : processedHashes) {
-            valueNumberMap.remove(hash);
-        }
+        // 本块记录的值只对它支配的块可见
+        valueNumbers.rollback(scope);
     }
 
     /**
      * 判断指令是否适合进行GVN优化
      */
-    private static boolean isGVNEligible(Instruction instruction) {
+    private boolean isGVNEligible(Instruction instruction) {
         return instruction instanceof Alu ||
                 instruction instanceof Icmp ||
                 (instruction instanceof Call && ((Function) instruction.getOperands().get(0)).isGvnAble()) ||
@@ -87,25 +88,22 @@ public class GVN {
      * 处理单个指令的GVN优化
      * @param instruction 待处理的指令
      * @param block 当前基本块
-     * @param processedHashes 已处理的哈希值集合
      */
-    private static void processInstruction(Instruction instruction, BasicBlock block, HashSet<String> processedHashes) {
-        String gvnHash = instruction.getGvnHash();
-        if (valueNumberMap.containsKey(gvnHash)) {
+    private void processInstruction(Instruction instruction, BasicBlock block) {
+        // 没有同值指令时，当前指令被记为该值的代表
+        Instruction leader = valueNumbers.findOrInsert(instruction);
+        if (leader != null) {
             // 发现重复计算，用已有的值替换当前指令
-            instruction.modifyValueForUsers(valueNumberMap.get(gvnHash));
+            instruction.modifyValueForUsers(leader);
             block.getInstrs().remove(instruction);
             instruction.removeOperands();
-        } else {
-            // 记录新的值编号
-            valueNumberMap.put(gvnHash, instruction);
-            processedHashes.add(gvnHash);
+            markChanged();
         }
     }
     /**
      * 将余数运算转换为除法运算
      */
-    private static void convertRemainderToDiv(Alu instruction) {
+    private void convertRemainderToDiv(Alu instruction) {
         Value operand1 = instruction.getOperands().get(0);
         Value operand2 = instruction.getOperands().get(1);
 
@@ -120,21 +118,20 @@ public class GVN {
             Alu subInstruction = new Alu(functionName, operand1, mulInstruction, Alu.OP.SUB, currentBlock);
 
             // 替换和更新指令
-            int instructionIndex = currentBlock.getInstrs().indexOf(instruction);
-            currentBlock.getInstrs().set(instructionIndex, divInstruction);
-            currentBlock.getInstrs().add(instructionIndex + 1, mulInstruction);
-            currentBlock.getInstrs().add(instructionIndex + 2, subInstruction);
+            currentBlock.getInstrs().replace(instruction, divInstruction);
+            currentBlock.getInstrs().insertAfter(divInstruction, mulInstruction);
+            currentBlock.getInstrs().insertAfter(mulInstruction, subInstruction);
 
             instruction.modifyValueForUsers(subInstruction);
             instruction.removeOperands();
-            currentBlock.getInstrs().remove(instruction);
+            markChanged();
         }
     }
 
     /**
      * 优化分支指令
      */
-    private static void optimizeBranchInstruction(Branch branch) {
+    private void optimizeBranchInstruction(Branch branch) {
         if (!Optimizer.againstLlvm) {
             return;
         }
@@ -166,13 +163,14 @@ public class GVN {
         }
 
         branch.removeOperands();
-        currentBlock.getInstrs().set(currentBlock.getInstrs().indexOf(branch), simplifiedBranch);
+        currentBlock.getInstrs().replace(branch, simplifiedBranch);
+        markChanged();
     }
 
     /**
      * 优化比较指令
      */
-    private static void optimizeCompareInstruction(Icmp icmp) {
+    private void optimizeCompareInstruction(Icmp icmp) {
         if (Optimizer.basicOptimize) {
             return;
         }
@@ -202,12 +200,13 @@ public class GVN {
         currentBlock.getInstrs().remove(icmp);
         icmp.removeOperands();
         icmp.modifyValueForUsers(result);
+        markChanged();
     }
 
     /**
      * 优化零扩展指令
      */
-    private static void optimizeZeroExtension(Zext zext) {
+    private void optimizeZeroExtension(Zext zext) {
         if (!Optimizer.againstLlvm) {
             return;
         }
@@ -216,29 +215,27 @@ public class GVN {
         zext.modifyValueForUsers(operand);
         zext.removeOperands();
         currentBlock.getInstrs().remove(zext);
+        markChanged();
     }
 
     /**
      * 优化全局变量获取指令
      */
-    private static void optimizeGlobalVarAccess(GetPtr instruction) {
+    private void optimizeGlobalVarAccess(GetPtr instruction) {
         Value basePtr = instruction.getOperands().get(0);
         Value offset = instruction.getOperands().get(1);
 
         if (basePtr instanceof GlobalVar && ((GlobalVar) basePtr).isConst() && offset instanceof Constant) {
             int index = ((Constant) offset).getValue();
-            Constant newValue = new Constant(((GlobalVar) basePtr).getInitial().get(index));
+            Constant newValue = new Constant(((GlobalVar) basePtr).getInitial(index));
 
             boolean allLoadsRemoved = true;
-            Iterator<User> userIterator = instruction.getUsers().iterator();
-
-            while (userIterator.hasNext()) {
-                User user = userIterator.next();
+            for (User user : instruction.getUsers()) {
                 if (user instanceof Load) {
                     user.modifyValueForUsers(newValue);
-                    userIterator.remove();
                     ((Load) user).getParentBlock().getInstrs().remove(user);
                     user.removeOperands();
+                    markChanged();
                 } else {
                     allLoadsRemoved = false;
                 }
@@ -247,6 +244,7 @@ public class GVN {
             if (allLoadsRemoved) {
                 currentBlock.getInstrs().remove(instruction);
                 instruction.removeOperands();
+                markChanged();
             }
         }
     }
@@ -254,7 +252,7 @@ public class GVN {
     /**
      * 优化局部常量访问
      */
-    private static void optimizeLocalConstAccess(GetPtr getPtr) {
+    private void optimizeLocalConstAccess(GetPtr getPtr) {
         Value base = getPtr.getOperands().get(0);
         Value offset = getPtr.getOperands().get(1);
 
@@ -264,19 +262,15 @@ public class GVN {
                     alloca.isConst() &&
                     offset instanceof Constant offsetConst) {
 
-                ArrayList<Integer> initialValues = alloca.getInitial();
-                Constant newValue = new Constant(initialValues.get(offsetConst.getValue()));
+                Constant newValue = new Constant(alloca.getInitial(offsetConst.getValue()));
 
                 boolean allLoadsRemoved = true;
-                Iterator<User> userIterator = getPtr.getUsers().iterator();
-
-                while (userIterator.hasNext()) {
-                    User user = userIterator.next();
+                for (User user : getPtr.getUsers()) {
                     if (user instanceof Load) {
                         user.modifyValueForUsers(newValue);
-                        userIterator.remove();
                         ((Load) user).getParentBlock().getInstrs().remove(user);
                         user.removeOperands();
+                        markChanged();
                     } else {
                         allLoadsRemoved = false;
                     }
@@ -285,6 +279,7 @@ public class GVN {
                 if (allLoadsRemoved) {
                     currentBlock.getInstrs().remove(getPtr);
                     getPtr.removeOperands();
+                    markChanged();
                 }
             }
         }
@@ -293,7 +288,7 @@ public class GVN {
     /**
      * 优化算术指令中的常量
      */
-    private static void optimizeConstantArithmetic(Alu instruction) {
+    private void optimizeConstantArithmetic(Alu instruction) {
         Value operand1 = instruction.getOperands().get(0);
         Value operand2 = instruction.getOperands().get(1);
         int constCount = 0;
@@ -314,7 +309,7 @@ public class GVN {
     /**
      * 优化两个常量的算术运算
      */
-    private static void optimizeTwoConstantsAlu(Alu instruction) {
+    private void optimizeTwoConstantsAlu(Alu instruction) {
         Constant const1 = (Constant) instruction.getOperands().get(0);
         Constant const2 = (Constant) instruction.getOperands().get(1);
         int value1 = const1.getValue();
@@ -332,12 +327,13 @@ public class GVN {
         instruction.modifyValueForUsers(newConstant);
         currentBlock.getInstrs().remove(instruction);
         instruction.removeOperands();
+        markChanged();
     }
 
     /**
      * 优化一个常量的算术运算
      */
-    private static void optimizeOneConstantAlu(Alu instruction) {
+    private void optimizeOneConstantAlu(Alu instruction) {
         Constant constant;
         Value nonConstant;
         boolean isConstantFirstOperand;
@@ -358,7 +354,7 @@ public class GVN {
     /**
      * 优化特定的一个常量运算
      */
-    private static void optimizeOneConstantOperation(Alu instruction, Constant constant,
+    private void optimizeOneConstantOperation(Alu instruction, Constant constant,
                                                      Value nonConstant, boolean isConstantFirstOperand) {
         int constValue = constant.getValue();
         Alu.OP operation = instruction.getOp();
@@ -368,6 +364,7 @@ public class GVN {
             instruction.modifyValueForUsers(nonConstant);
             currentBlock.getInstrs().remove(instruction);
             instruction.removeOperands();
+            markChanged();
             return;
         }
 
@@ -385,24 +382,27 @@ public class GVN {
     /**
      * 处理乘法中的特殊情况
      */
-    private static void handleSpecialMultiplication(Alu instruction, int constValue, Value nonConstant) {
+    private void handleSpecialMultiplication(Alu instruction, int constValue, Value nonConstant) {
         if (constValue == 0) {
             // 乘0得0
             instruction.modifyValueForUsers(new Constant(0));
             currentBlock.getInstrs().remove(instruction);
             instruction.removeOperands();
+            markChanged();
         } else if (constValue == 1) {
             // 乘1不变
             instruction.modifyValueForUsers(nonConstant);
             currentBlock.getInstrs().remove(instruction);
             instruction.removeOperands();
+            markChanged();
         } else if (constValue == -1) {
             // 乘-1等于取反
             Alu negation = new Alu(currentBlock.getParentFunc().getVarName(),
                     new Constant(0), nonConstant, Alu.OP.SUB, currentBlock);
             instruction.modifyValueForUsers(negation);
-            currentBlock.getInstrs().set(currentBlock.getInstrs().indexOf(instruction), negation);
+            currentBlock.getInstrs().replace(instruction, negation);
             instruction.removeOperands();
+            markChanged();
         } else if (constValue >= -4 && constValue <= 5 && Optimizer.basicOptimize) {
             // 对于小的常数，使用加法替代乘法
             optimizeSmallMultiplication(instruction, constValue, nonConstant);
@@ -412,32 +412,33 @@ public class GVN {
     /**
      * 优化小常数的乘法运算
      */
-    private static void optimizeSmallMultiplication(Alu instruction, int constValue, Value nonConstant) {
+    private void optimizeSmallMultiplication(Alu instruction, int constValue, Value nonConstant) {
         String tempVarName = IRBuilder.tempName + currentBlock.getParentFunc().getVarId();
         Alu currentAlu = new Alu(tempVarName, nonConstant, nonConstant, Alu.OP.ADD, currentBlock);
-        currentBlock.getInstrs().add(currentBlock.getInstrs().indexOf(instruction), currentAlu);
+        currentBlock.getInstrs().insertBefore(instruction, currentAlu);
 
         // 通过重复加法实现乘法
         for (int i = 1; i <= Math.abs(constValue) - 2; i++) {
             currentAlu = new Alu(tempVarName, currentAlu, nonConstant, Alu.OP.ADD, currentBlock);
-            currentBlock.getInstrs().add(currentBlock.getInstrs().indexOf(instruction), currentAlu);
+            currentBlock.getInstrs().insertBefore(instruction, currentAlu);
         }
 
         // 处理负数情况
         if (constValue < 0) {
             currentAlu = new Alu(tempVarName, new Constant(0), currentAlu, Alu.OP.SUB, currentBlock);
-            currentBlock.getInstrs().add(currentBlock.getInstrs().indexOf(instruction), currentAlu);
+            currentBlock.getInstrs().insertBefore(instruction, currentAlu);
         }
 
         instruction.modifyValueForUsers(currentAlu);
         currentBlock.getInstrs().remove(instruction);
         instruction.removeOperands();
+        markChanged();
     }
 
     /**
      * 处理除法中的特殊情况
      */
-    private static void handleSpecialDivision(Alu instruction, Constant constant,
+    private void handleSpecialDivision(Alu instruction, Constant constant,
                                               Value nonConstant, boolean isConstantFirstOperand) {
         int constValue = constant.getValue();
 
@@ -446,25 +447,28 @@ public class GVN {
             instruction.modifyValueForUsers(new Constant(0));
             currentBlock.getInstrs().remove(instruction);
             instruction.removeOperands();
+            markChanged();
         } else if (constValue == 1 && !isConstantFirstOperand) {
             // 任何数除以1等于其本身
             instruction.modifyValueForUsers(nonConstant);
             currentBlock.getInstrs().remove(instruction);
             instruction.removeOperands();
+            markChanged();
         } else if (constValue == -1 && !isConstantFirstOperand) {
             // 除以-1等于取反
             Alu negation = new Alu(currentBlock.getParentFunc().getVarName(),
                     new Constant(0), nonConstant, Alu.OP.SUB, currentBlock);
             instruction.modifyValueForUsers(negation);
-            currentBlock.getInstrs().set(currentBlock.getInstrs().indexOf(instruction), negation);
+            currentBlock.getInstrs().replace(instruction, negation);
             instruction.removeOperands();
+            markChanged();
         }
     }
 
     /**
      * 优化没有常量的算术运算
      */
-    private static void optimizeNonConstantAlu(Alu instruction) {
+    private void optimizeNonConstantAlu(Alu instruction) {
         Value operand1 = instruction.getOperands().get(0);
         Value operand2 = instruction.getOperands().get(1);
 
@@ -476,18 +480,21 @@ public class GVN {
                     instruction.modifyValueForUsers(new Constant(0));
                     currentBlock.getInstrs().remove(instruction);
                     instruction.removeOperands();
+                    markChanged();
                 }
                 case SDIV -> {
                     // x / x = 1
                     instruction.modifyValueForUsers(new Constant(1));
                     currentBlock.getInstrs().remove(instruction);
                     instruction.removeOperands();
+                    markChanged();
                 }
                 case SREM -> {
                     // x % x = 0
                     instruction.modifyValueForUsers(new Constant(0));
                     currentBlock.getInstrs().remove(instruction);
                     instruction.removeOperands();
+                    markChanged();
                 }
             }
         }
@@ -496,57 +503,52 @@ public class GVN {
     /**
      * 执行代数优化和常量传播
      */
-    private static void performAlgebraicPass(Module module) {
-        for (Function function : module.getFunctions()) {
-            redundantBlocks = new HashSet<>();
-
-            for (BasicBlock block : function.getBasicBlocks()) {
-                currentBlock = block;
-                ArrayList<Instruction> instructions = new ArrayList<>(block.getInstrs());
-
-                // 处理余数转除法
-                for (Instruction instruction : instructions) {
-                    if (instruction instanceof Alu aluInstruction &&
-                            aluInstruction.getOp() == Alu.OP.SREM) {
-                        convertRemainderToDiv(aluInstruction);
-                    }
-                }
+    private void performAlgebraicPass(Function function) {
+        redundantBlocks = new HashSet<>();
 
-                // 主要优化遍历
-                instructions = new ArrayList<>(block.getInstrs());
-                for (Instruction instruction : instructions) {
-                    if (instruction instanceof Alu) {
-                        optimizeConstantArithmetic((Alu) instruction);
-                    } else if (instruction instanceof Icmp) {
-                        optimizeCompareInstruction((Icmp) instruction);
-                    } else if (instruction instanceof Branch) {
-                        optimizeBranchInstruction((Branch) instruction);
-                    } else if (instruction instanceof GetPtr getPtr) {
-                        optimizeGlobalVarAccess(getPtr);
-                        optimizeLocalConstAccess(getPtr);
-                    } else if (instruction instanceof Zext) {
-                        optimizeZeroExtension((Zext) instruction);
-                    }
+        for (BasicBlock block : function.getBasicBlocks()) {
+            currentBlock = block;
+
+            // 处理余数转除法；替换出的三条指令位于迭代器已记下的后继之前，本轮不会再被访问
+            for (Instruction instruction : block.getInstrs()) {
+                if (instruction instanceof Alu aluInstruction &&
+                        aluInstruction.getOp() == Alu.OP.SREM) {
+                    convertRemainderToDiv(aluInstruction);
                 }
+            }
 
-                // 聚合算术优化遍历
-                instructions = new ArrayList<>(block.getInstrs());
-                for (Instruction instruction : instructions) {
-                    if (instruction instanceof Alu) {
-                        optimizeConstantArithmetic((Alu) instruction);
-                    }
+            // 主要优化遍历
+            for (Instruction instruction : block.getInstrs()) {
+                if (instruction instanceof Alu) {
+                    optimizeConstantArithmetic((Alu) instruction);
+                } else if (instruction instanceof Icmp) {
+                    optimizeCompareInstruction((Icmp) instruction);
+                } else if (instruction instanceof Branch) {
+                    optimizeBranchInstruction((Branch) instruction);
+                } else if (instruction instanceof GetPtr getPtr) {
+                    optimizeGlobalVarAccess(getPtr);
+                    optimizeLocalConstAccess(getPtr);
+                } else if (instruction instanceof Zext) {
+                    optimizeZeroExtension((Zext) instruction);
                 }
             }
 
-            // 清理冗余基本块
-            for (BasicBlock block : redundantBlocks) {
-                block.setDeleted();
-                for (Instruction instruction : block.getInstrs()) {
-                    instruction.removeOperands();
+            // 聚合算术优化遍历
+            for (Instruction instruction : block.getInstrs()) {
+                if (instruction instanceof Alu) {
+                    optimizeConstantArithmetic((Alu) instruction);
                 }
             }
-            function.getBasicBlocks().removeIf(redundantBlocks::contains);
         }
+
+        // 清理冗余基本块
+        for (BasicBlock block : redundantBlocks) {
+            block.setDeleted();
+            for (Instruction instruction : block.getInstrs()) {
+                instruction.removeOperands();
+            }
+        }
+        function.getBasicBlocks().removeIf(redundantBlocks::contains);
     }
 }
 
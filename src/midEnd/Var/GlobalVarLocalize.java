@@ -17,30 +17,33 @@ import LLVMIR.Base.Instruction;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 
 public class GlobalVarLocalize {
     // 全局变量使用映射：GlobalVar -> 使用该变量的函数集合
-    private static HashMap<GlobalVar, HashSet<Function>> globalVarUsageMap;
+    private HashMap<GlobalVar, HashSet<Function>> globalVarUsageMap;
     // 函数调用映射：被调用的函数 -> 调用该函数的函数集合
-    private static HashMap<Function, HashSet<Function>> functionCallMap;
+    private HashMap<Function, HashSet<Function>> functionCallMap;
 
     /**
      * 主方法，执行全局变量的本地化处理
      * @param module LLVM IR 模块
+     * @return 本地化了全局变量的函数；删除未使用的全局变量不改动任何函数，不在其中
      */
-    public static void globalVarLocalize(Module module) {
+    public List<Function> globalVarLocalize(Module module) {
         globalVarUsageMap = new HashMap<>();
         functionCallMap = new HashMap<>();
         analyzeGlobalVarUsage(module);
         buildFunctionCallMap(module);
-        performLocalization(module);
+        return performLocalization(module);
     }
 
     /**
      * 分析全局变量的使用情况，构建 globalVarUsageMap
      * @param module LLVM IR 模块
      */
-    public static void analyzeGlobalVarUsage(Module module) {
+    public void analyzeGlobalVarUsage(Module module) {
         for (GlobalVar globalVar : module.getGlobalVars()) {
             for (User user : globalVar.getUsers()) {
                 Instruction userInstruction = (Instruction) user;
@@ -55,7 +58,7 @@ public class GlobalVarLocalize {
      * 构建函数调用映射，生成 functionCallMap
      * @param module LLVM IR 模块
      */
-    public static void buildFunctionCallMap(Module module) {
+    public void buildFunctionCallMap(Module module) {
         for (Function callerFunction : module.getFunctions()) {
             for (BasicBlock block : callerFunction.getBasicBlocks()) {
                 for (Instruction instr : block.getInstrs()) {
@@ -72,8 +75,10 @@ public class GlobalVarLocalize {
     /**
      * 执行全局变量的本地化处理
      * @param module LLVM IR 模块
+     * @return 本地化了全局变量的函数
      */
-    public static void performLocalization(Module module) {
+    public List<Function> performLocalization(Module module) {
+        LinkedHashSet<Function> modified = new LinkedHashSet<>();
         // 创建全局变量的副本以避免在迭代过程中修改集合
         ArrayList<GlobalVar> globalVarsCopy = new ArrayList<>(module.getGlobalVars());
         for (GlobalVar globalVar : globalVarsCopy) {
@@ -94,17 +99,19 @@ public class GlobalVarLocalize {
                     BasicBlock entryBlock = singleUsageFunction.getBasicBlocks().get(0);
                     // 在入口块创建 Alloca 指令分配局部变量
                     Alloca allocaInstr = createAllocaInstruction(singleUsageFunction, entryBlock);
-                    entryBlock.getInstrs().add(0, allocaInstr);
+                    entryBlock.getInstrs().addFirst(allocaInstr);
                     // 创建 Store 指令初始化局部变量
                     Store storeInstr = createStoreInstruction(globalVar, allocaInstr, entryBlock);
-                    entryBlock.getInstrs().add(1, storeInstr);
+                    entryBlock.getInstrs().insertAfter(allocaInstr, storeInstr);
                     // 修改全局变量的用户为新分配的局部变量
                     globalVar.modifyValueForUsers(allocaInstr);
                     // 从模块中移除全局变量
                     module.getGlobalVars().remove(globalVar);
+                    modified.add(singleUsageFunction);
                 }
             }
         }
+        return new ArrayList<>(modified);
     }
 
     /**
@@ -113,7 +120,7 @@ public class GlobalVarLocalize {
      * @param block 当前基本块
      * @return 创建的 Alloca 指令
      */
-    private static Alloca createAllocaInstruction(Function function, BasicBlock block) {
+    private Alloca createAllocaInstruction(Function function, BasicBlock block) {
         String allocaName = IRBuilder.tempName + function.getVarId();
         return new Alloca(allocaName, block, LLVMType.Int32);
     }
@@ -125,8 +132,8 @@ public class GlobalVarLocalize {
      * @param block 当前基本块
      * @return 创建的 Store 指令
      */
-    private static Store createStoreInstruction(GlobalVar globalVar, Alloca allocaInstr, BasicBlock block) {
-        int initialValue = globalVar.isZeroInitial() ? 0 : globalVar.getInitial().get(0);
+    private Store createStoreInstruction(GlobalVar globalVar, Alloca allocaInstr, BasicBlock block) {
+        int initialValue = globalVar.isZeroInitial() ? 0 : globalVar.getInitial(0);
         Constant initialConst = new Constant(initialValue);
         return new Store(initialConst, allocaInstr, block);
     }
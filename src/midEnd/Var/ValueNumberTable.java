@@ -0,0 +1,96 @@
+package midEnd.Var;
+
+import LLVMIR.Base.Instruction;
+
+/**
+ * GVN 的值编号表：按指令结构（种类、类型、操作数）找到先前计算过同一个值的指令。
+ * 采用开放定址、线性探测，槽位中直接存放指令并缓存其哈希值，查找时不构造任何键对象。
+ * <p>
+ * 表项随支配树的遍历成栈式插入与撤销：进入基本块时用 {@link #mark()} 记下位置，
+ * 离开时用 {@link #rollback(int)} 撤销之后插入的表项。
+ * 线性探测下，最后插入的表项所在的槽位不会出现在更早表项的探测路径上，
+ * 因此按插入的逆序直接清空槽位即可，不需要墓碑
+ */
+public class ValueNumberTable {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private Instruction[] slots = new Instruction[INITIAL_CAPACITY];
+    private int[] hashes = new int[INITIAL_CAPACITY];
+    private int[] trail = new int[INITIAL_CAPACITY / 2]; // 按插入顺序记录表项所在的槽位
+    private int size;
+
+    /**
+     * 查找与指令同值的表项，找不到时把该指令插入表中
+     *
+     * @param instruction 待编号的指令
+     * @return 先前的同值指令；没有时返回 null，此时指令本身成为该值的代表
+     */
+    public Instruction findOrInsert(Instruction instruction) {
+        int hash = instruction.valueNumberHash();
+        int mask = slots.length - 1;
+        int slot = spread(hash) & mask;
+        while (slots[slot] != null) {
+            if (hashes[slot] == hash && slots[slot].isSameValueAs(instruction)) {
+                return slots[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        if ((size + 1) * 2 > slots.length) {
+            grow();
+            slot = probeEmpty(hash);
+        }
+        slots[slot] = instruction;
+        hashes[slot] = hash;
+        trail[size++] = slot;
+        return null;
+    }
+
+    /**
+     * 当前作用域的起点
+     *
+     * @return 已插入的表项数
+     */
+    public int mark() {
+        return size;
+    }
+
+    /**
+     * 撤销 mark 之后插入的表项
+     *
+     * @param mark {@link #mark()} 的返回值
+     */
+    public void rollback(int mark) {
+        while (size > mark) {
+            slots[trail[--size]] = null;
+        }
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private int probeEmpty(int hash) {
+        int mask = slots.length - 1;
+        int slot = spread(hash) & mask;
+        while (slots[slot] != null) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    // 容量翻倍，按原插入顺序重新放入，保持逆序撤销的性质
+    private void grow() {
+        Instruction[] oldSlots = slots;
+        int[] oldHashes = hashes;
+        slots = new Instruction[oldSlots.length * 2];
+        hashes = new int[oldSlots.length * 2];
+        int[] oldTrail = trail;
+        trail = new int[slots.length / 2];
+        for (int i = 0; i < size; i++) {
+            int slot = probeEmpty(oldHashes[oldTrail[i]]);
+            slots[slot] = oldSlots[oldTrail[i]];
+            hashes[slot] = oldHashes[oldTrail[i]];
+            trail[i] = slot;
+        }
+    }
+}
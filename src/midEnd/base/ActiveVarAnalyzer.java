@@ -1,159 +1,99 @@
 package midEnd.base;
 
 import LLVMIR.Base.BasicBlock;
-import LLVMIR.Base.Core.Value;
 import LLVMIR.Global.Function;
+import midEnd.dataflow.BitVector;
+import midEnd.dataflow.Liveness;
+import midEnd.dataflow.ValueIndex;
 
-import java.util.HashSet;
+import java.io.PrintStream;
 import java.util.List;
 
 /**
  * 活跃变量分析器
  */
 public class ActiveVarAnalyzer {
-    private static int maxActiveVariables = 0; // 记录最大活跃变量数量
-    /**
-     * 对指定函数进行活跃变量分析
-     *
-     * @param function 要分析的函数
-     */
-    public static void analyze(Function function) {
-        List<BasicBlock> blocks = function.getBasicBlocks();
-
-        // 第一步：计算每个基本块的 Def 和 Use 集合
-        initializeDefUse(blocks);
-
-        // 第二步：初始化每个基本块的 In 和 Out 集合为空集
-        initializeInOutSets(blocks);
-
-        // 第三步：迭代计算 In 和 Out 集合，直到收敛
-        performLivenessAnalysis(blocks);
+    private int maxActiveVariables = 0; // 记录本函数各基本块的最大活跃变量数量
+    private final PrintStream out; // 调试信息的输出目标
 
-        // 将最大活跃变量数量设置到函数对象中
-        function.setActiveCnt(maxActiveVariables);
-
-        // 第四步：打印分析结果
-        printLivenessResults(blocks);
+    public ActiveVarAnalyzer() {
+        this(System.out);
     }
 
     /**
-     * 计算每个基本块的 Def 和 Use 集合
-     *
-     * @param blocks 函数中的基本块列表
+     * @param out 调试信息的输出目标
      */
-    private static void initializeDefUse(List<BasicBlock> blocks) {
-        for (BasicBlock bb : blocks) {
-            bb.computeDefUse();
-        }
+    public ActiveVarAnalyzer(PrintStream out) {
+        this.out = out;
     }
 
     /**
-     * 初始化每个基本块的 In 和 Out 集合为空集
+     * 获取已分析函数中的最大活跃变量数量（基本块 In 与 Out 集合大小之和的最大值）。
+     * 跨函数的累积最大值由 {@link AnalysisManager} 按函数顺序汇总
      *
-     * @param blocks 函数中的基本块列表
+     * @return 最大活跃变量数量
      */
-    private static void initializeInOutSets(List<BasicBlock> blocks) {
-        for (BasicBlock bb : blocks) {
-            bb.setInSet(new HashSet<>());
-            bb.setOutSet(new HashSet<>());
-        }
+    public int getMaxActiveVariables() {
+        return maxActiveVariables;
     }
 
     /**
-     * 执行活跃变量分析，迭代计算 In 和 Out 集合
+     * 对指定函数进行活跃变量分析
      *
-     * @param blocks 函数中的基本块列表
+     * @param function 要分析的函数
      */
-    private static void performLivenessAnalysis(List<BasicBlock> blocks) {
-        boolean changed = true;
-        while (changed) {
-            changed = false;
-
-            // 逆序遍历基本块以加速收敛
-            for (int i = blocks.size() - 1; i >= 0; i--) {
-                BasicBlock bb = blocks.get(i);
-
-                // 保存当前的 In 和 Out 集合
-                HashSet<Value> oldIn = new HashSet<>(bb.getInSet());
-                HashSet<Value> oldOut = new HashSet<>(bb.getOutSet());
+    public void analyze(Function function) {
+        List<BasicBlock> blocks = function.getBasicBlocks();
 
-                // 计算新的 Out 集合
-                HashSet<Value> newOut = computeOutSet(bb);
-                bb.setOutSet(newOut);
+        // 第一步：在位向量上迭代求解 In 和 Out，直到收敛
+        Liveness liveness = new Liveness(function);
+        liveness.solve();
 
-                // 计算新的 In 集合
-                HashSet<Value> newIn = computeInSet(bb, newOut);
-                bb.setInSet(newIn);
-                // 更新最大活跃变量数量
-                updateMaxActiveVariables(newIn, newOut);
-                // 检查是否有变化
-                if (!oldIn.equals(newIn) || !oldOut.equals(newOut)) {
-                    changed = true;
-                }
-            }
+        // 第二步：把结果写回各基本块，供寄存器分配查询，并统计最大活跃变量数量
+        for (BasicBlock bb : blocks) {
+            BitVector inBits = liveness.getIn(bb);
+            BitVector outBits = liveness.getOut(bb);
+            bb.setInSet(liveness.toValueSet(inBits));
+            bb.setOutSet(liveness.toValueSet(outBits));
+            // 集合在迭代中只增不减，收敛后的大小即为迭代过程中的最大值
+            maxActiveVariables = Math.max(maxActiveVariables, inBits.cardinality() + outBits.cardinality());
         }
-    }
-    private static void updateMaxActiveVariables(HashSet<Value> inSet, HashSet<Value> outSet) {
-        // 计算当前基本块活跃变量的总数
-        int currentActiveVariables = inSet.size() + outSet.size();
 
-        // 更新最大值
-        maxActiveVariables = Math.max(maxActiveVariables, currentActiveVariables);
-    }
-    /**
-     * 计算一个基本块的 Out 集合
-     *
-     * @param bb 要计算 Out 集合的基本块
-     * @return 新的 Out 集合
-     */
-    private static HashSet<Value> computeOutSet(BasicBlock bb) {
-        HashSet<Value> outSet = new HashSet<>();
-        for (BasicBlock succ : bb.getSuccessors()) {
-            outSet.addAll(succ.getInSet());
-        }
-        return outSet;
+        // 第三步：打印分析结果
+        printLivenessResults(blocks, liveness);
     }
 
     /**
-     * 计算一个基本块的 In 集合
+     * 打印活跃变量分析结果，变量按编号顺序输出。
+     * 先拼成一个字符串再一次写出，避免逐个变量调用输出流
      *
-     * @param bb     要计算 In 集合的基本块
-     * @param newOut 计算得到的 Out 集合
-     * @return 新的 In 集合
+     * @param blocks   函数中的基本块列表
+     * @param liveness 求解后的活跃变量问题
      */
-    private static HashSet<Value> computeInSet(BasicBlock bb, HashSet<Value> newOut) {
-        HashSet<Value> inSet = new HashSet<>(bb.getUseSet());
-        HashSet<Value> outMinusDef = new HashSet<>(newOut);
-        outMinusDef.removeAll(bb.getDefSet());
-        inSet.addAll(outMinusDef);
-        return inSet;
+    private void printLivenessResults(List<BasicBlock> blocks, Liveness liveness) {
+        StringBuilder sb = new StringBuilder("活跃变量分析结果:\n");
+        for (BasicBlock bb : blocks) {
+            sb.append("基本块: ").append(bb.getName()).append('\n');
+            sb.append("  In: ");
+            appendValues(sb, liveness.getIn(bb), liveness.getValues());
+            sb.append('\n');
+            sb.append("  Out: ");
+            appendValues(sb, liveness.getOut(bb), liveness.getValues());
+            sb.append("\n\n");
+        }
+        out.print(sb);
     }
 
-    /**
-     * 打印活跃变量分析结果
-     *
-     * @param blocks 函数中的基本块列表
-     */
-    private static void printLivenessResults(List<BasicBlock> blocks) {
-        System.out.println("活跃变量分析结果:");
-        for (BasicBlock bb : blocks) {
-            System.out.println("基本块: " + bb.getName());
-            System.out.print("  In: ");
-            for (Value var : bb.getInSet()) {
-                System.out.print(var.getName() + " ");
-            }
-            System.out.println();
-            System.out.print("  Out: ");
-            for (Value var : bb.getOutSet()) {
-                System.out.print(var.getName() + " ");
-            }
-            System.out.println("\n");
+    private void appendValues(StringBuilder sb, BitVector bits, ValueIndex values) {
+        for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+            sb.append(values.get(i).getName()).append(' ');
         }
     }
 }
 
 //这个活跃变量分析器的总体思路是:
 //采用数据流分析的基本框架，通过迭代计算的方式确定每个基本块中变量的活跃性。具体分为以下几个步骤：
+//（实现上，Def/Use/In/Out 以函数内稠密编号为下标的位向量表示，由 midEnd.dataflow 中的通用框架按后序工作表求解，最后再写回基本块的集合。）
 //第一步是准备阶段。对函数中的每个基本块计算其定值集(Def)和引用集(Use)。Def集合包含在该基本块中被赋新值的变量，Use集合包含在被使用但之前未在该块中定值的变量。
 //第二步是初始化。将所有基本块的In集合和Out集合初始化为空集。In集合表示在基本块入口处活跃的变量，Out集合表示在基本块出口处活跃的变量。
 //第三步是迭代计算。反复计算每个基本块的In集和Out集，直到达到不动点(即没有集合再发生变化)。计算采用以下数据流方程:
@@ -0,0 +1,143 @@
+package midEnd.base;
+
+import LLVMIR.Base.Core.Module;
+import LLVMIR.Global.Function;
+import midEnd.Loop.LoopAnalysis;
+import midEnd.helper.SideEffectsAnalyze;
+
+import java.io.PrintStream;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 分析管理器，按函数缓存 CFG（含支配树与支配边界）、副作用、活跃变量和循环分析的结果。
+ * <p>
+ * 变换 pass 按函数报告是否修改了 IR，并声明自己保持哪些分析仍然有效；
+ * pass 结束后由 {@link #invalidate} 让报告了修改的函数的其余分析失效。
+ * 下一次分析时只对失效的函数重新计算，未改动的函数沿用上次的结果。
+ * 过程内的分析由 {@link #analyzeFunction} 按函数计算，可以并行；
+ * 副作用传播与活跃变量计数的汇总由 {@link #finishAnalysis} 在所有函数分析完后串行完成。
+ */
+public class AnalysisManager {
+    /**
+     * 可缓存的分析种类，按计算顺序排列
+     */
+    public enum Analysis {
+        CFG,          // 前驱后继、支配树、支配边界
+        SIDE_EFFECTS, // 函数副作用与调用关系
+        LIVENESS,     // 活跃变量，依赖 CFG
+        LOOPS         // 循环结构与深度，依赖 CFG
+    }
+
+    // 各函数当前有效的分析；不同函数的条目可能由不同线程同时更新
+    private final ConcurrentHashMap<Function, EnumSet<Analysis>> validAnalyses = new ConcurrentHashMap<>();
+    // 各函数直接副作用分析的结果（未经调用关系传播）
+    private final ConcurrentHashMap<Function, Boolean> directSideEffects = new ConcurrentHashMap<>();
+    // 本次分析中重新计算了活跃变量的函数及其最大活跃变量数，等待按函数顺序汇总
+    private final ConcurrentHashMap<Function, Integer> pendingActiveVariables = new ConcurrentHashMap<>();
+    // 本次分析中是否有函数重新计算了直接副作用
+    private final AtomicBoolean sideEffectsChanged = new AtomicBoolean();
+    // 本次编译迄今为止的最大活跃变量数
+    private int maxActiveVariables = 0;
+
+    /**
+     * 在变换 pass 之后调用：pass 修改过的函数只保留 pass 声明保持的分析
+     *
+     * @param modified  pass 报告修改了的函数
+     * @param preserved pass 保持有效的分析
+     */
+    public void invalidate(List<Function> modified, EnumSet<Analysis> preserved) {
+        for (Function function : modified) {
+            invalidate(function, preserved);
+        }
+    }
+
+    /**
+     * 函数被修改后，只保留 preserved 中的分析。
+     * 只访问该函数自己的条目，可在按函数并行的任务中调用
+     *
+     * @param function  函数
+     * @param preserved 保持有效的分析
+     */
+    public void invalidate(Function function, EnumSet<Analysis> preserved) {
+        EnumSet<Analysis> valid = validAnalyses.get(function);
+        if (valid != null) {
+            valid.retainAll(preserved);
+            // 活跃变量和循环都建立在 CFG 之上
+            if (!valid.contains(Analysis.CFG)) {
+                valid.remove(Analysis.LIVENESS);
+                valid.remove(Analysis.LOOPS);
+            }
+        }
+    }
+
+    /**
+     * 使所有函数的所有分析失效，并清零最大活跃变量数，在新一次编译开始时调用
+     */
+    public void invalidateAll() {
+        validAnalyses.clear();
+        directSideEffects.clear();
+        pendingActiveVariables.clear();
+        sideEffectsChanged.set(false);
+        maxActiveVariables = 0;
+    }
+
+    /**
+     * 重新计算单个函数失效的过程内分析，计算顺序为 CFG、直接副作用、活跃变量、循环。
+     * 只读写该函数自己的 IR 与条目，可在按函数并行的任务中调用；
+     * 所有函数处理完后需调用 {@link #finishAnalysis(Module)}
+     *
+     * @param function 函数
+     * @param out      调试输出
+     */
+    public void analyzeFunction(Function function, PrintStream out) {
+        EnumSet<Analysis> valid = validAnalyses.computeIfAbsent(function, k -> EnumSet.noneOf(Analysis.class));
+        if (!valid.contains(Analysis.CFG)) {
+            new CFGBuilder(out).buildCFG(function);
+            valid.add(Analysis.CFG);
+        }
+        if (!valid.contains(Analysis.SIDE_EFFECTS)) {
+            SideEffectsAnalyze.analyzeDirectEffects(function);
+            directSideEffects.put(function, function.isHasSideEffects());
+            valid.add(Analysis.SIDE_EFFECTS);
+            sideEffectsChanged.set(true);
+        }
+        if (!valid.contains(Analysis.LIVENESS)) {
+            ActiveVarAnalyzer analyzer = new ActiveVarAnalyzer(out);
+            analyzer.analyze(function);
+            pendingActiveVariables.put(function, analyzer.getMaxActiveVariables());
+            valid.add(Analysis.LIVENESS);
+        }
+        if (!valid.contains(Analysis.LOOPS)) {
+            new LoopAnalysis().analyzeLoop(function);
+            valid.add(Analysis.LOOPS);
+        }
+    }
+
+    /**
+     * 完成跨函数的分析，需在所有函数的 {@link #analyzeFunction} 结束后串行调用：
+     * 若有函数的直接副作用被重新计算，从各函数的直接结果重新沿调用关系传播；
+     * 按函数顺序累积最大活跃变量数并写入各函数，与逐个函数依次分析时的结果一致
+     *
+     * @param module 模块
+     */
+    public void finishAnalysis(Module module) {
+        if (sideEffectsChanged.getAndSet(false)) {
+            for (Function function : module.getFunctions()) {
+                function.setHasSideEffects(directSideEffects.get(function));
+            }
+            SideEffectsAnalyze.propagateSideEffects(module);
+        }
+
+        for (Function function : module.getFunctions()) {
+            Integer activeVariables = pendingActiveVariables.remove(function);
+            if (activeVariables != null) {
+                maxActiveVariables = Math.max(maxActiveVariables, activeVariables);
+            }
+            // 活跃变量计数取的是本次编译至今的最大值，未改动的函数同样要跟上
+            function.setActiveCnt(maxActiveVariables);
+        }
+    }
+}
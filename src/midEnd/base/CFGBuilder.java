@@ -2,13 +2,14 @@ package midEnd.base;
 
 import LLVMIR.Base.BasicBlock;
 import LLVMIR.Base.Instruction;
-import LLVMIR.Base.Core.Module;
 import LLVMIR.Global.Function;
 import LLVMIR.Ins.Branch;
 
+import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 
 /**
@@ -16,55 +17,65 @@ import java.util.List;
  */
 public class CFGBuilder {
     // 基本块到其后继基本块的映射
-    private static HashMap<BasicBlock, ArrayList<BasicBlock>> sucMap;
+    private HashMap<BasicBlock, ArrayList<BasicBlock>> sucMap;
     // 基本块到其前驱基本块的映射
-    private static HashMap<BasicBlock, ArrayList<BasicBlock>> preMap;
-    // 基本块到其支配者基本块的映射
-    private static HashMap<BasicBlock, ArrayList<BasicBlock>> dominatedByMap;
-    // 基本块到其支配的基本块的映射
-    private static HashMap<BasicBlock, ArrayList<BasicBlock>> dominatesMap;
-    // 基本块到其直接支配者基本块的映射
-    private static HashMap<BasicBlock, BasicBlock> immediateDominatorMap;
+    private HashMap<BasicBlock, ArrayList<BasicBlock>> preMap;
     // 基本块到其直接支配的基本块的映射
-    private static HashMap<BasicBlock, ArrayList<BasicBlock>> immediateDominatesMap;
+    private HashMap<BasicBlock, ArrayList<BasicBlock>> immediateDominatesMap;
     // 当前处理的函数
-    private static Function currentFunction;
+    private Function currentFunction;
+    // 当前函数的基本块，按函数中的顺序
+    private List<BasicBlock> blocks;
+    // 基本块在 blocks 中的下标
+    private HashMap<BasicBlock, Integer> blockIndex;
+    // 各块是否从入口可达
+    private boolean[] reachable;
+    // 各块的直接支配者下标，入口和不可达的块为 -1
+    private int[] idom;
+    // 调试信息的输出目标
+    private final PrintStream out;
+
+    public CFGBuilder() {
+        this(System.out);
+    }
 
     /**
-     * 构建模块中所有函数的控制流图（CFG）、支配树和支配边界
+     * @param out 调试信息的输出目标，按函数并行构建时各函数使用独立的缓冲
+     */
+    public CFGBuilder(PrintStream out) {
+        this.out = out;
+    }
+
+    /**
+     * 构建单个函数的控制流图（CFG）、支配树和支配边界
      *
-     * @param module 要处理的模块
+     * @param func 要处理的函数
      */
-    public static void buildCFG(Module module) {
-        for (Function func : module.getFunctions()) { // 遍历模块中的每个函数
-            initializeMaps(); // 初始化映射关系
-            initializeBasicBlocks(func); // 初始化每个基本块的映射列表
-
-            currentFunction = func; // 设置当前处理的函数
-            buildControlFlowGraph(func); // 构建控制流图
-            printControlFlowGraph(func); // 打印控制流图
-            buildDominatorTree(); // 构建支配树
-            buildDominanceFrontier(); // 构建支配边界
-
-            // 设置函数的直接支配映射
-            currentFunction.setImdom(immediateDominatesMap);
-
-            // 打印支配相关信息
-            printDominators();
-            printImmediateDominators();
-            printDominanceFrontier();
-        }
+    public void buildCFG(Function func) {
+        initializeMaps(); // 初始化映射关系
+        initializeBasicBlocks(func); // 初始化每个基本块的映射列表
+
+        currentFunction = func; // 设置当前处理的函数
+        buildControlFlowGraph(func); // 构建控制流图
+        printControlFlowGraph(func); // 打印控制流图
+        buildDominatorTree(); // 构建支配树
+        buildDominanceFrontier(); // 构建支配边界
+
+        // 设置函数的直接支配映射
+        currentFunction.setImdom(immediateDominatesMap);
+
+        // 打印支配相关信息
+        printDominators();
+        printImmediateDominators();
+        printDominanceFrontier();
     }
 
     /**
      * 初始化所有映射关系
      */
-    private static void initializeMaps() {
+    private void initializeMaps() {
         sucMap = new HashMap<>();
         preMap = new HashMap<>();
-        dominatesMap = new HashMap<>();
-        dominatedByMap = new HashMap<>();
-        immediateDominatorMap = new HashMap<>();
         immediateDominatesMap = new HashMap<>();
     }
 
@@ -73,12 +84,10 @@ public class CFGBuilder {
      *
      * @param func 当前函数
      */
-    private static void initializeBasicBlocks(Function func) {
+    private void initializeBasicBlocks(Function func) {
         for (BasicBlock block : func.getBasicBlocks()) {
             sucMap.put(block, new ArrayList<>());
             preMap.put(block, new ArrayList<>());
-            dominatesMap.put(block, new ArrayList<>());
-            dominatedByMap.put(block, new ArrayList<>());
             immediateDominatesMap.put(block, new ArrayList<>());
         }
     }
@@ -88,7 +97,7 @@ public class CFGBuilder {
      *
      * @param func 要构建控制流图的函数
      */
-    private static void buildControlFlowGraph(Function func) {
+    private void buildControlFlowGraph(Function func) {
         preMap.clear(); // 清空前驱映射
         sucMap.clear(); // 清空后继映射
 
@@ -100,7 +109,7 @@ public class CFGBuilder {
 
         // 遍历每个基本块，分析最后一条指令以构建前驱和后继关系
         for (BasicBlock block : func.getBasicBlocks()) {
-            Instruction lastInstr = block.getInstrs().get(block.getInstrs().size() - 1); // 获取基本块的最后一条指令
+            Instruction lastInstr = block.getLastInstr(); // 获取基本块的最后一条指令
             if (lastInstr instanceof Branch) { // 如果是分支指令
                 Branch branch = (Branch) lastInstr;
                 if (branch.isConditional()) { // 条件分支
@@ -132,7 +141,7 @@ public class CFGBuilder {
      * @param block      当前基本块
      * @param successor  后继基本块
      */
-    private static void addSuccessor(BasicBlock block, BasicBlock successor) {
+    private void addSuccessor(BasicBlock block, BasicBlock successor) {
         sucMap.get(block).add(successor); // 添加后继
         preMap.get(successor).add(block); // 添加前驱
     }
@@ -140,205 +149,280 @@ public class CFGBuilder {
     /**
      * 构建当前函数的支配树
      */
-    private static void buildDominatorTree() {
-        BasicBlock entryBlock = getEntryBlock(); // 获取入口基本块
-        establishDominanceRelations(entryBlock); // 建立支配关系
-        determineImmediateDominators(); // 确定直接支配者
-        currentFunction.setImdom(immediateDominatesMap); // 设置函数的直接支配映射
+    private void buildDominatorTree() {
+        blocks = currentFunction.getBasicBlocks();
+        blockIndex = new HashMap<>();
+        for (int i = 0; i < blocks.size(); i++) {
+            blockIndex.put(blocks.get(i), i);
+        }
+        int[] reversePostOrder = computeReversePostOrder(); // 计算入口可达块的逆后序
+        computeImmediateDominators(reversePostOrder); // 迭代求直接支配者
         assignImmediateDominates(); // 分配直接支配的基本块
-        computeImmediateDominatorTreeDepth(getEntryBlock(), 0); // 计算直接支配树的深度
+        numberDominatorTree(); // 支配树编号，并计算直接支配树的深度
     }
 
     /**
-     * 获取当前函数的入口基本块
+     * 从入口出发深度优先遍历，得到可达块的逆后序
      *
-     * @return 入口基本块
+     * @return 按逆后序排列的块下标
      */
-    private static BasicBlock getEntryBlock() {
-        return currentFunction.getBasicBlocks().get(0);
-    }
-
-    /**
-     * 建立支配关系
-     *
-     * @param entryBlock 入口基本块
-     */
-    private static void establishDominanceRelations(BasicBlock entryBlock) {
-        for (BasicBlock potentialDominator : currentFunction.getBasicBlocks()) { // 遍历所有基本块
-            HashSet<BasicBlock> reachableBlocks = new HashSet<>(); // 初始化可达基本块集合
-            findReachableBlocks(entryBlock, potentialDominator, reachableBlocks); // 查找可达基本块
-            updateDominanceMaps(potentialDominator, reachableBlocks); // 更新支配映射
+    private int[] computeReversePostOrder() {
+        int blockCount = blocks.size();
+        int[] postOrder = new int[blockCount];
+        int length = 0;
+        boolean[] visited = new boolean[blockCount];
+        // 显式栈代替递归，nextChild 记录每个块下一个要访问的后继
+        int[] stack = new int[blockCount];
+        int[] nextChild = new int[blockCount];
+        int top = 0;
+        visited[0] = true;
+        stack[top++] = 0;
+        while (top > 0) {
+            int b = stack[top - 1];
+            ArrayList<BasicBlock> successors = sucMap.get(blocks.get(b));
+            if (nextChild[b] < successors.size()) {
+                int s = blockIndex.get(successors.get(nextChild[b]++));
+                if (!visited[s]) {
+                    visited[s] = true;
+                    stack[top++] = s;
+                }
+            } else {
+                postOrder[length++] = b;
+                top--;
+            }
+        }
+        reachable = visited;
+        int[] reversePostOrder = new int[length];
+        for (int i = 0; i < length; i++) {
+            reversePostOrder[i] = postOrder[length - 1 - i];
         }
+        return reversePostOrder;
     }
 
     /**
-     * 更新支配映射
+     * Cooper–Harvey–Kennedy 迭代算法：按逆后序反复用已处理前驱的直接支配者求交，直到不再变化。
+     * 求交时沿 idom 向上走，每次让逆后序编号较大的一方上移，直到两者相遇
      *
-     * @param dominator        支配者基本块
-     * @param reachableBlocks 可达基本块集合
+     * @param reversePostOrder 可达块的逆后序
      */
-    private static void updateDominanceMaps(BasicBlock dominator, HashSet<BasicBlock> reachableBlocks) {
-        for (BasicBlock block : currentFunction.getBasicBlocks()) { // 遍历所有基本块
-            if (!reachableBlocks.contains(block)) { // 如果基本块不在可达集合中
-                dominatesMap.get(dominator).add(block); // 将基本块加入支配的基本块列表
-                dominatedByMap.get(block).add(dominator); // 将支配者加入被支配的基本块列表
-            }
+    private void computeImmediateDominators(int[] reversePostOrder) {
+        int blockCount = blocks.size();
+        // 块在逆后序中的位置，不可达的块为 -1
+        int[] order = new int[blockCount];
+        Arrays.fill(order, -1);
+        for (int i = 0; i < reversePostOrder.length; i++) {
+            order[reversePostOrder[i]] = i;
         }
-        dominator.setDom(dominatesMap.get(dominator)); // 设置基本块的支配列表
-    }
+        idom = new int[blockCount];
+        Arrays.fill(idom, -1);
+        idom[0] = 0; // 迭代期间入口以自己为直接支配者，作为求交的终点
 
-    /**
-     * 确定每个基本块的直接支配者
-     */
-    private static void determineImmediateDominators() {
-        for (BasicBlock block : currentFunction.getBasicBlocks()) { // 遍历所有基本块
-            for (BasicBlock dominator : dominatedByMap.get(block)) { // 遍历被支配基本块的支配者列表
-                if (isImmediateDominator(block, dominator)) { // 检查是否为直接支配者
-                    block.setImdommedBy(dominator); // 设置直接支配者
-                    immediateDominatorMap.put(block, dominator); // 更新直接支配者映射
-                    immediateDominatesMap.get(dominator).add(block); // 将被支配基本块加入直接支配的列表
-                    break; // 找到直接支配者后退出循环
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int i = 1; i < reversePostOrder.length; i++) {
+                int b = reversePostOrder[i];
+                int newIdom = -1;
+                for (BasicBlock predecessor : preMap.get(blocks.get(b))) {
+                    int p = blockIndex.get(predecessor);
+                    if (idom[p] < 0) {
+                        continue; // 前驱尚未处理或不可达
+                    }
+                    newIdom = newIdom < 0 ? p : intersect(p, newIdom, order);
+                }
+                if (idom[b] != newIdom) {
+                    idom[b] = newIdom;
+                    changed = true;
                 }
             }
         }
+        idom[0] = -1;
+
+        for (int b = 0; b < blockCount; b++) {
+            blocks.get(b).setImdommedBy(idom[b] < 0 ? null : blocks.get(idom[b]));
+        }
     }
 
-    /**
-     * 检查一个支配者是否为另一个基本块的直接支配者
-     *
-     * @param block     被支配的基本块
-     * @param dominator 潜在的直接支配者基本块
-     * @return 如果是直接支配者，返回 true；否则返回 false
-     */
-    private static boolean isImmediateDominator(BasicBlock block, BasicBlock dominator) {
-        for (BasicBlock otherDominator : dominatedByMap.get(block)) { // 遍历其他支配者
-            if (dominatesMap.get(dominator).contains(otherDominator)) { // 如果其他支配者被当前支配者支配
-                return false; // 不是直接支配者
+    // 求两个块在当前支配树上的最近公共祖先
+    private int intersect(int a, int b, int[] order) {
+        while (a != b) {
+            while (order[a] > order[b]) {
+                a = idom[a];
+            }
+            while (order[b] > order[a]) {
+                b = idom[b];
             }
         }
-        return true; // 是直接支配者
+        return a;
     }
 
     /**
-     * 分配直接支配的基本块
+     * 分配直接支配的基本块，子节点按块在函数中的顺序排列
      */
-    private static void assignImmediateDominates() {
+    private void assignImmediateDominates() {
+        for (int b = 0; b < blocks.size(); b++) {
+            if (idom[b] >= 0) {
+                immediateDominatesMap.get(blocks.get(idom[b])).add(blocks.get(b));
+            }
+        }
         currentFunction.setImdom(immediateDominatesMap);
-        for (BasicBlock block : currentFunction.getBasicBlocks()) { // 遍历所有基本块
+        for (BasicBlock block : blocks) { // 遍历所有基本块
             block.setImdom(immediateDominatesMap.get(block)); // 设置基本块的直接支配列表
         }
     }
 
     /**
-     * 递归计算直接支配树的深度
-     *
-     * @param block 当前基本块
-     * @param depth 当前深度
+     * 深度优先遍历支配树，为每个块记录先序、后序编号和深度，供 O(1) 的支配查询使用。
+     * 不可达的块编号为 -1，深度为 0
      */
-    private static void computeImmediateDominatorTreeDepth(BasicBlock block, int depth) {
-        block.setImdomDepth(depth); // 设置基本块的直接支配深度
-        for (BasicBlock immediateDominated : block.getImdom()) { // 遍历直接支配的基本块
-            computeImmediateDominatorTreeDepth(immediateDominated, depth + 1); // 递归计算深度
+    private void numberDominatorTree() {
+        for (BasicBlock block : blocks) {
+            block.setDomOrder(-1, -1);
+            block.setImdomDepth(0);
+        }
+        int blockCount = blocks.size();
+        int[] preorder = new int[blockCount];
+        BasicBlock[] stack = new BasicBlock[blockCount];
+        int[] nextChild = new int[blockCount];
+        int top = 0;
+        int preCounter = 0;
+        int postCounter = 0;
+        stack[top++] = blocks.get(0);
+        preorder[0] = preCounter++;
+        while (top > 0) {
+            BasicBlock block = stack[top - 1];
+            int b = blockIndex.get(block);
+            ArrayList<BasicBlock> children = block.getImdom();
+            if (nextChild[b] < children.size()) {
+                BasicBlock child = children.get(nextChild[b]++);
+                preorder[blockIndex.get(child)] = preCounter++;
+                child.setImdomDepth(top); // 栈中的块都是它的祖先
+                stack[top++] = child;
+            } else {
+                block.setDomOrder(preorder[b], postCounter++);
+                top--;
+            }
         }
     }
 
     /**
-     * 查找从当前基本块到支配者基本块的可达基本块
-     *
-     * @param currentBlock 当前遍历的基本块
-     * @param dominator    支配者基本块
-     * @param reachable    已访问的可达基本块集合
+     * 构建当前函数的支配边界。
+     * 对每个块 Y 的每个前驱 P，从 P 沿直接支配者向上走到 idom(Y) 为止（不含），途经的块的支配边界都包含 Y。
+     * 与按定义逐个检查支配集合的结果相同，每个支配边界按原先的枚举顺序排列：
+     * 先按见证边的起点（被支配的块按函数中的顺序，支配者自身排最后），再按该起点的后继顺序
      */
-    private static void findReachableBlocks(BasicBlock currentBlock, BasicBlock dominator, HashSet<BasicBlock> reachable) {
-        reachable.add(currentBlock); // 将当前基本块加入可达集合
-        if (currentBlock == dominator) { // 如果到达支配者基本块
-            return; // 结束递归
+    private void buildDominanceFrontier() {
+        int blockCount = blocks.size();
+        ArrayList<ArrayList<BasicBlock>> frontiers = new ArrayList<>(blockCount);
+        for (int i = 0; i < blockCount; i++) {
+            frontiers.add(new ArrayList<>());
         }
-        for (BasicBlock child : sucMap.get(currentBlock)) { // 遍历当前基本块的后继基本块
-            if (!reachable.contains(child)) { // 如果后继基本块未被访问
-                findReachableBlocks(child, dominator, reachable); // 递归查找
+        // lastAdded[d] 记录最近加入 d 的支配边界的块，同一个 Y 的多个前驱走到同一个块时去重
+        int[] lastAdded = new int[blockCount];
+        Arrays.fill(lastAdded, -1);
+        for (int y = 0; y < blockCount; y++) {
+            if (!reachable[y]) {
+                continue;
+            }
+            BasicBlock join = blocks.get(y);
+            for (BasicBlock predecessor : preMap.get(join)) {
+                int runner = blockIndex.get(predecessor);
+                if (!reachable[runner]) {
+                    continue;
+                }
+                while (runner >= 0 && runner != idom[y]) {
+                    if (lastAdded[runner] != y) {
+                        lastAdded[runner] = y;
+                        frontiers.get(runner).add(join);
+                    }
+                    runner = idom[runner];
+                }
             }
         }
-    }
 
-    /**
-     * 构建当前函数的支配边界
-     */
-    private static void buildDominanceFrontier() {
-        for (BasicBlock dominator : currentFunction.getBasicBlocks()) { // 遍历所有基本块作为支配者
-            ArrayList<BasicBlock> dominanceFrontier = new ArrayList<>(); // 初始化支配边界列表
-            computeDominanceFrontierForDominator(dominator, dominanceFrontier); // 计算支配边界
-            dominator.setDF(dominanceFrontier); // 设置基本块的支配边界列表
+        long[] keys = new long[blockCount];
+        for (int d = 0; d < blockCount; d++) {
+            ArrayList<BasicBlock> frontier = frontiers.get(d);
+            if (frontier.size() > 1) {
+                BasicBlock dominator = blocks.get(d);
+                for (BasicBlock join : frontier) {
+                    keys[blockIndex.get(join)] = frontierOrderKey(dominator, join);
+                }
+                frontier.sort(Comparator.comparingLong(join -> keys[blockIndex.get(join)]));
+            }
+            blocks.get(d).setDF(frontier); // 设置基本块的支配边界列表
         }
     }
 
     /**
-     * 计算给定支配者的支配边界
+     * 支配边界中 join 的排序键：在支配者支配的前驱中取最先枚举到的一条边 pred -> join
      *
-     * @param dominator          支配者基本块
-     * @param dominanceFrontier  支配边界列表
+     * @param dominator 支配者
+     * @param join      支配边界中的块
+     * @return 排序键，越小越靠前
      */
-    private static void computeDominanceFrontierForDominator(BasicBlock dominator, ArrayList<BasicBlock> dominanceFrontier) {
-        for (BasicBlock dominated : dominatesMap.get(dominator)) { // 遍历支配者支配的基本块
-            for (BasicBlock child : sucMap.get(dominated)) { // 遍历被支配基本块的后继基本块
-                if (!dominatesMap.get(dominator).contains(child) && !dominanceFrontier.contains(child)) { // 如果后继基本块不被支配且未在支配边界中
-                    dominanceFrontier.add(child); // 添加到支配边界列表
-                }
-            }
-        }
-        for (BasicBlock child : sucMap.get(dominator)) { // 遍历支配者的后继基本块
-            if (!dominatesMap.get(dominator).contains(child) && !dominanceFrontier.contains(child)) { // 如果后继基本块不被支配且未在支配边界中
-                dominanceFrontier.add(child); // 添加到支配边界列表
+    private long frontierOrderKey(BasicBlock dominator, BasicBlock join) {
+        long best = Long.MAX_VALUE;
+        for (BasicBlock predecessor : preMap.get(join)) {
+            if (!dominator.dominates(predecessor)) {
+                continue;
             }
+            // 支配者自己的后继在原先的枚举中排在所有被支配块之后
+            long rank = predecessor == dominator ? blocks.size() : blockIndex.get(predecessor);
+            long key = (rank << 32) | sucMap.get(predecessor).indexOf(join);
+            best = Math.min(best, key);
         }
+        return best;
     }
 
     /**
-     * 打印当前函数的支配者信息
+     * 打印当前函数的支配者信息。
+     * 输出量与块数的平方成正比，先拼成一个字符串再一次写出
      */
-    private static void printDominators() {
-        System.out.println("支配者信息:");
+    private void printDominators() {
+        StringBuilder sb = new StringBuilder("支配者信息:\n");
         for (BasicBlock block : currentFunction.getBasicBlocks()) {
-            System.out.print("基本块: " + block.getName() + "  支配者: ");
-            ArrayList<BasicBlock> dominators = dominatesMap.get(block);
-            if (dominators != null) {
-                for (BasicBlock dominator : dominators) {
-                    System.out.print(dominator.getName() + " ");
+            sb.append("基本块: ").append(block.getName()).append("  支配者: ");
+            // 按函数中的顺序列出该块严格支配的块
+            for (BasicBlock dominated : currentFunction.getBasicBlocks()) {
+                if (block.strictlyDominates(dominated)) {
+                    sb.append(dominated.getName()).append(' ');
                 }
             }
-            System.out.println();
+            sb.append('\n');
         }
-        System.out.println();
+        sb.append('\n');
+        out.print(sb);
     }
 
     /**
      * 打印当前函数的直接支配者信息
      */
-    private static void printImmediateDominators() {
-        System.out.println("直接支配者信息:");
+    private void printImmediateDominators() {
+        out.println("直接支配者信息:");
         for (BasicBlock block : currentFunction.getBasicBlocks()) {
-            BasicBlock immediateDominator = immediateDominatorMap.get(block);
-            System.out.println("基本块: " + block.getName() + "  直接支配者: " + (immediateDominator != null ? immediateDominator.getName() : "无"));
+            BasicBlock immediateDominator = block.getImmediateDominator();
+            out.println("基本块: " + block.getName() + "  直接支配者: " + (immediateDominator != null ? immediateDominator.getName() : "无"));
         }
-        System.out.println();
+        out.println();
     }
 
     /**
      * 打印当前函数的支配边界信息
      */
-    private static void printDominanceFrontier() {
-        System.out.println("支配边界信息:");
+    private void printDominanceFrontier() {
+        out.println("支配边界信息:");
         for (BasicBlock block : currentFunction.getBasicBlocks()) {
-            System.out.print("基本块: " + block.getName() + "  支配边界: ");
+            out.print("基本块: " + block.getName() + "  支配边界: ");
             List<BasicBlock> dfList = block.getDF();
             if (dfList != null) {
                 for (BasicBlock dfBlock : dfList) {
-                    System.out.print(dfBlock.getName() + " ");
+                    out.print(dfBlock.getName() + " ");
                 }
             }
-            System.out.println();
+            out.println();
         }
-        System.out.println();
+        out.println();
     }
 
     /**
@@ -346,29 +430,29 @@ public class CFGBuilder {
      *
      * @param function 要打印控制流图的函数
      */
-    private static void printControlFlowGraph(Function function) {
-        System.out.println("函数: " + function.getName()); // 打印函数名称
+    private void printControlFlowGraph(Function function) {
+        out.println("函数: " + function.getName()); // 打印函数名称
         for (BasicBlock bb : function.getBasicBlocks()) { // 遍历函数中的所有基本块
-            System.out.print("基本块: " + bb.getName() + "\n  前驱: "); // 打印基本块名称和前驱
+            out.print("基本块: " + bb.getName() + "\n  前驱: "); // 打印基本块名称和前驱
             ArrayList<BasicBlock> predecessors = preMap.get(bb);
             if (predecessors == null || predecessors.isEmpty()) { // 如果前驱为空
-                System.out.print("无 ");
+                out.print("无 ");
             } else {
                 for (BasicBlock pred : predecessors) { // 遍历前驱基本块
-                    System.out.print(pred.getName() + " "); // 打印前驱基本块名称
+                    out.print(pred.getName() + " "); // 打印前驱基本块名称
                 }
             }
 
-            System.out.print("\n  后继: "); // 打印后继
+            out.print("\n  后继: "); // 打印后继
             ArrayList<BasicBlock> successors = sucMap.get(bb);
             if (successors == null || successors.isEmpty()) { // 如果后继为空
-                System.out.print("无 ");
+                out.print("无 ");
             } else {
                 for (BasicBlock succ : successors) { // 遍历后继基本块
-                    System.out.print(succ.getName() + " "); // 打印后继基本块名称
+                    out.print(succ.getName() + " "); // 打印后继基本块名称
                 }
             }
-            System.out.println("\n"); // 换行
+            out.println("\n"); // 换行
         }
     }
 }
@@ -387,16 +471,15 @@ public class CFGBuilder {
 //
 //
 //从入口基本块开始，对每个基本块B，如果从入口到另一个块Y的所有路径都必须经过B，则B支配Y
-//使用可达性分析来确定支配关系：如果去掉某个块后，入口无法到达另一个块，则第一个块支配第二个块
-//构建支配树：对每个被支配的块，在其所有支配者中找到最接近的一个作为直接支配者
+//按逆后序迭代计算直接支配者(Cooper–Harvey–Kennedy)：每个块的直接支配者是其已处理前驱的直接支配者在支配树上的交，反复迭代直到不再变化
+//对支配树做一次深度优先遍历，记录先序和后序编号，之后判断B是否支配Y只需比较编号
 //
 //
 //支配边界计算阶段：
 //
 //
-//对于每个支配者节点D，遍历它支配的所有节点N
-//检查N的每个后继S，如果D不支配S，则S在D的支配边界中
-//额外检查D自己的后继节点，如果不被D支配也要加入支配边界
+//对于每个块Y的每个前驱P，从P开始沿直接支配者向上走，直到Y的直接支配者为止
+//沿途经过的每个块D都支配Y的一个前驱但不严格支配Y，因此Y在D的支配边界中
 //
 //这些分析结果对后续的代码优化非常重要：
 //
@@ -0,0 +1,153 @@
+package midEnd.base;
+
+import LLVMIR.Base.Core.Module;
+import LLVMIR.Base.Core.User;
+import LLVMIR.Base.Instruction;
+import LLVMIR.Global.Function;
+import LLVMIR.Global.GlobalVar;
+import util.CompilationContext;
+import util.PassTimer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * 按函数执行过程内 pass 的调度器。
+ * 线程数大于 1 时每个函数作为一个任务提交到 ForkJoin 线程池，{@link #run} 等待所有任务结束后才返回，
+ * 跨函数的步骤（副作用传播、全局变量本地化）在两次 run 之间串行执行。
+ * <p>
+ * 为了让结果与线程数无关：
+ * 调试输出先写入各函数的缓冲区，全部任务结束后按函数顺序输出；
+ * 每次 run 结束后，函数和全局变量的使用者列表按所在函数的顺序稳定排序，消除各线程追加使用者的先后差异。
+ */
+public class FunctionPassRunner {
+    /**
+     * 对单个函数执行的 pass
+     */
+    @FunctionalInterface
+    public interface FunctionPass {
+        /**
+         * @param function 要处理的函数
+         * @param out      调试输出
+         * @return 是否修改了 IR
+         */
+        boolean run(Function function, PrintStream out);
+    }
+
+    private final int threads;  // 并行线程数，为 1 时在调用线程中依次执行
+    private ForkJoinPool pool;  // 首次并行执行时创建
+
+    public FunctionPassRunner(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be positive");
+        }
+        this.threads = threads;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * 对模块中的每个函数执行 pass，所有函数处理完后返回
+     *
+     * @param module 模块
+     * @param pass   pass 的执行体
+     * @return pass 报告修改了的函数，按模块中的顺序排列
+     */
+    public List<Function> run(Module module, FunctionPass pass) {
+        List<Function> functions = new ArrayList<>(module.getFunctions());
+        CompilationContext context = CompilationContext.current();
+        List<Function> modified = new ArrayList<>();
+        if (threads == 1 || functions.size() <= 1) {
+            for (Function function : functions) {
+                if (runScoped(context, function, pass, System.out)) {
+                    modified.add(function);
+                }
+            }
+        } else {
+            boolean[] results = new boolean[functions.size()];
+            ByteArrayOutputStream[] buffers = new ByteArrayOutputStream[functions.size()];
+            PassTimer timer = context.getPassTimer();
+            List<ForkJoinTask<?>> tasks = new ArrayList<>();
+            for (int i = 0; i < functions.size(); i++) {
+                int index = i;
+                buffers[index] = new ByteArrayOutputStream();
+                tasks.add(ForkJoinTask.adapt(() -> {
+                    PrintStream out = new PrintStream(buffers[index], false, Charset.defaultCharset());
+                    results[index] = timer.measureWorker(() -> runScoped(context, functions.get(index), pass, out));
+                    out.flush();
+                }));
+            }
+            getPool().invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+            for (int i = 0; i < functions.size(); i++) {
+                if (results[i]) {
+                    modified.add(functions.get(i));
+                }
+                System.out.write(buffers[i].toByteArray(), 0, buffers[i].size());
+            }
+            System.out.flush();
+        }
+        sortSharedUsers(module);
+        return modified;
+    }
+
+    /**
+     * 关闭线程池，编译结束时调用
+     */
+    public void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+    }
+
+    private ForkJoinPool getPool() {
+        if (pool == null) {
+            pool = new ForkJoinPool(threads);
+        }
+        return pool;
+    }
+
+    // 在当前线程上绑定编译上下文后执行 pass
+    private static boolean runScoped(CompilationContext context, Function function, FunctionPass pass,
+                                     PrintStream out) {
+        CompilationContext previousContext = context.activate();
+        try {
+            return pass.run(function, out);
+        } finally {
+            CompilationContext.restore(previousContext);
+        }
+    }
+
+    /**
+     * 将函数与全局变量的使用者按所在函数在模块中的顺序稳定排序，同一函数内的使用者保持原有先后
+     */
+    private static void sortSharedUsers(Module module) {
+        HashMap<Function, Integer> order = new HashMap<>();
+        for (Function function : module.getFunctions()) {
+            order.put(function, order.size());
+        }
+        Comparator<User> byFunction = Comparator.comparingInt(user -> functionIndex(user, order));
+        for (GlobalVar globalVar : module.getGlobalVars()) {
+            globalVar.sortUses(byFunction);
+        }
+        for (Function function : module.getFunctions()) {
+            function.sortUses(byFunction);
+        }
+    }
+
+    private static int functionIndex(User user, HashMap<Function, Integer> order) {
+        if (user instanceof Instruction instruction && instruction.getParentBlock() != null) {
+            return order.getOrDefault(instruction.getParentBlock().getParentFunc(), -1);
+        }
+        return -1;
+    }
+}
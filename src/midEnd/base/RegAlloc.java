@@ -4,12 +4,12 @@ import LLVMIR.Base.BasicBlock;
 import LLVMIR.Base.Instruction;
 import LLVMIR.Base.Core.Value;
 import LLVMIR.Global.Function;
-import LLVMIR.Base.Core.Module;
 import LLVMIR.Ins.Mem.Alloca;
 import LLVMIR.Ins.Call;
 import LLVMIR.Ins.Mem.Phi;
 import backEnd.Base.Register;
 
+import java.io.PrintStream;
 import java.util.*;
 
 /**
@@ -21,12 +21,20 @@ public class RegAlloc {
     private final Map<Register, Value> regToVarMap; // 寄存器到变量的映射
     private final Map<Value, Integer> useCountMap; // 变量的使用计数
     private Function currentFunction; // 当前处理的函数
+    private final PrintStream out; // 分配结果的调试输出
+
+    public RegAlloc() {
+        this(System.out);
+    }
 
     /**
      * 构造函数，初始化寄存器集合和映射
+     *
+     * @param out 分配结果的调试输出
      */
-    public RegAlloc() {
-        this.availableRegisters = new HashSet<>();
+    public RegAlloc(PrintStream out) {
+        this.out = out;
+        this.availableRegisters = new LinkedHashSet<>(); // 按添加顺序尝试分配
         // 添加 $t0 到 $t9
         availableRegisters.add(Register.T0);
         availableRegisters.add(Register.T1);
@@ -47,26 +55,24 @@ public class RegAlloc {
         availableRegisters.add(Register.S5);
         availableRegisters.add(Register.S6);
         availableRegisters.add(Register.S7);
-        this.varToRegMap = new HashMap<>();
-        this.regToVarMap = new HashMap<>();
+        this.varToRegMap = new LinkedHashMap<>();
+        this.regToVarMap = new EnumMap<>(Register.class);
         this.useCountMap = new HashMap<>();
     }
 
     /**
-     * 为模块中的每个函数分配寄存器
+     * 为单个函数分配寄存器，要求该函数的活跃变量与循环信息已经计算
      *
-     * @param module 要处理的模块
+     * @param func 要处理的函数
      */
-    public void allocateRegisters(Module module) {
-        for (Function func : module.getFunctions()) { // 遍历模块中的每个函数
-            resetState(); // 重置映射和计数
-            this.currentFunction = func; // 设置当前函数
-            initializeUseCounts(); // 初始化使用计数
-            performRegisterAllocation(); // 执行寄存器分配
-            annotateActiveRegs(); // 标注活跃寄存器
-            func.setRegisterPool(new HashMap<>(varToRegMap)); // 设置函数的变量到寄存器的映射
-            printRegisterAllocation(func); // 打印寄存器分配结果
-        }
+    public void allocateRegisters(Function func) {
+        resetState(); // 重置映射和计数
+        this.currentFunction = func; // 设置当前函数
+        initializeUseCounts(); // 初始化使用计数
+        performRegisterAllocation(); // 执行寄存器分配
+        annotateActiveRegs(); // 标注活跃寄存器
+        func.setRegisterPool(new HashMap<>(varToRegMap)); // 设置函数的变量到寄存器的映射
+        printRegisterAllocation(func); // 打印寄存器分配结果
     }
 
     /**
@@ -109,9 +115,10 @@ public class RegAlloc {
      */
     private void traverseBlock(BasicBlock currentBlock) {
         List<Instruction> instructions = currentBlock.getInstrs(); // 获取当前基本块的指令列表
-        Set<Value> localDefinitions = new HashSet<>(); // 当前块中局部定义的变量集合
+        // 以下集合按加入顺序遍历，分配结果只取决于指令顺序而与 Value 的哈希值无关
+        Set<Value> localDefinitions = new LinkedHashSet<>(); // 当前块中局部定义的变量集合
         Map<Value, Instruction> lastUsageMap = new HashMap<>(); // 记录变量的最后使用指令
-        Set<Value> variablesNoLongerUsed = new HashSet<>(); // 不再使用的变量集合
+        Set<Value> variablesNoLongerUsed = new LinkedHashSet<>(); // 不再使用的变量集合
 
         // 第一步：确定每个变量的最后使用指令
         for (Instruction instruction : instructions) {
@@ -144,7 +151,7 @@ public class RegAlloc {
 
         // 第三步：递归处理直接支配的子基本块
         for (BasicBlock childBlock : currentBlock.getImdom()) {
-            Map<Register, Value> temporarilyRemovedMappings = new HashMap<>(); // 临时移除的寄存器映射
+            Map<Register, Value> temporarilyRemovedMappings = new EnumMap<>(Register.class); // 临时移除的寄存器映射
 
             // 移除在子块中不活跃的变量的寄存器映射
             for (Map.Entry<Register, Value> entry : regToVarMap.entrySet()) {
@@ -284,9 +291,8 @@ public class RegAlloc {
                         }
                     }
                     // 遍历调用指令后的指令，标注活跃寄存器
-                    int instrIndex = block.getInstrs().indexOf(call);
-                    for (int i = instrIndex + 1; i < block.getInstrs().size(); i++) {
-                        Instruction subsequentInstr = block.getInstrs().get(i);
+                    for (Instruction subsequentInstr = call.getNextInstr(); subsequentInstr != null;
+                         subsequentInstr = subsequentInstr.getNextInstr()) {
                         for (Value operand : subsequentInstr.getOperands()) {
                             if (varToRegMap.containsKey(operand)) {
                                 activeRegs.add(varToRegMap.get(operand));
@@ -305,15 +311,15 @@ public class RegAlloc {
      * @param func 当前函数
      */
     private void printRegisterAllocation(Function func) {
-        System.out.println("函数: " + func.getName() + " 的寄存器分配结果:");
+        out.println("函数: " + func.getName() + " 的寄存器分配结果:");
         if (varToRegMap.isEmpty()) { // 如果映射为空
-            System.out.println("  无变量分配到寄存器");
+            out.println("  无变量分配到寄存器");
         } else {
             for (Map.Entry<Value, Register> entry : varToRegMap.entrySet()) { // 遍历映射
-                System.out.println("  变量: " + entry.getKey().getName() + " -> 寄存器: " + entry.getValue());
+                out.println("  变量: " + entry.getKey().getName() + " -> 寄存器: " + entry.getValue());
             }
         }
-        System.out.println();
+        out.println();
     }
 
 }
@@ -0,0 +1,100 @@
+package midEnd.dataflow;
+
+import LLVMIR.Base.BasicBlock;
+import LLVMIR.Base.Instruction;
+import LLVMIR.Base.Core.Value;
+import LLVMIR.Global.Function;
+import LLVMIR.Ins.Alu;
+import LLVMIR.Ins.GetPtr;
+import LLVMIR.Ins.Icmp;
+import LLVMIR.Ins.Move;
+import midEnd.Var.ValueNumberTable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * 可用表达式分析：前向、交汇为交。
+ * 表达式为无副作用的 Alu、Icmp 和 GetPtr，结构相同的指令（见 {@link Instruction#isSameValueAs}）算同一个表达式。
+ * 表达式在计算之后可用，直到某条 Move 重新定值了它的操作数
+ */
+public class AvailableExpressions extends DataflowProblem {
+    // 每个表达式的代表指令
+    private final ArrayList<Instruction> expressions = new ArrayList<>();
+    // 指令到所属表达式的编号
+    private final HashMap<Instruction, Integer> expressionOf = new HashMap<>();
+    // 以某个值为操作数的表达式编号
+    private final HashMap<Value, List<Integer>> expressionsUsing = new HashMap<>();
+
+    public AvailableExpressions(Function function) {
+        super(function, Direction.FORWARD, Meet.INTERSECTION);
+        ValueNumberTable table = new ValueNumberTable();
+        HashMap<Instruction, Integer> leaderIndex = new HashMap<>();
+        for (BasicBlock block : function.getBasicBlocks()) {
+            for (Instruction instr : block.getInstrs()) {
+                if (!isExpression(instr)) {
+                    continue;
+                }
+                Instruction leader = table.findOrInsert(instr);
+                if (leader == null) {
+                    leaderIndex.put(instr, expressions.size());
+                    for (Value operand : instr.getOperands()) {
+                        List<Integer> using = expressionsUsing.computeIfAbsent(operand, k -> new ArrayList<>());
+                        if (using.isEmpty() || using.get(using.size() - 1) != expressions.size()) {
+                            using.add(expressions.size());
+                        }
+                    }
+                    expressions.add(instr);
+                    leader = instr;
+                }
+                expressionOf.put(instr, leaderIndex.get(leader));
+            }
+        }
+    }
+
+    private static boolean isExpression(Instruction instr) {
+        return instr instanceof Alu || instr instanceof Icmp || instr instanceof GetPtr;
+    }
+
+    @Override
+    protected int universeSize() {
+        return expressions.size();
+    }
+
+    @Override
+    protected void computeGenKill(BasicBlock block, BitVector gen, BitVector kill) {
+        for (Instruction instr : block.getInstrs()) {
+            if (instr instanceof Move move) {
+                // 操作数被重新定值，用到它的表达式失效
+                for (int expression : expressionsUsing.getOrDefault(move.getTo(), List.of())) {
+                    gen.clear(expression);
+                    kill.set(expression);
+                }
+            } else if (isExpression(instr)) {
+                gen.set(expressionOf.get(instr));
+            }
+        }
+    }
+
+    /**
+     * 按编号取表达式的代表指令
+     *
+     * @param index 位向量中的下标
+     * @return 代表指令
+     */
+    public Instruction getExpression(int index) {
+        return expressions.get(index);
+    }
+
+    /**
+     * 指令所属表达式的编号
+     *
+     * @param instr 指令
+     * @return 编号，不是表达式时返回 -1
+     */
+    public int indexOf(Instruction instr) {
+        Integer index = expressionOf.get(instr);
+        return index == null ? -1 : index;
+    }
+}
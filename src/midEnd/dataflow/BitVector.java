@@ -0,0 +1,140 @@
+package midEnd.dataflow;
+
+import java.util.Arrays;
+
+/**
+ * 定长位向量，按 long[] 每 64 位一组存放。
+ * 与 java.util.BitSet 不同，长度在创建时固定，合并类操作原地进行并返回是否发生变化，
+ * 数据流迭代中判断收敛不需要另外复制、比较集合
+ */
+public class BitVector {
+    private final long[] words;
+    private final int size;
+
+    /**
+     * @param size 位数，下标范围为 [0, size)
+     */
+    public BitVector(int size) {
+        this.size = size;
+        this.words = new long[(size + 63) >>> 6];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean get(int index) {
+        return (words[index >>> 6] & (1L << index)) != 0;
+    }
+
+    public void set(int index) {
+        words[index >>> 6] |= 1L << index;
+    }
+
+    public void clear(int index) {
+        words[index >>> 6] &= ~(1L << index);
+    }
+
+    // 所有位置 1
+    public void setAll() {
+        Arrays.fill(words, -1L);
+        int tail = size & 63;
+        if (tail != 0) {
+            words[words.length - 1] = (1L << tail) - 1;
+        }
+    }
+
+    // 所有位清 0
+    public void clearAll() {
+        Arrays.fill(words, 0L);
+    }
+
+    public void copyFrom(BitVector other) {
+        System.arraycopy(other.words, 0, words, 0, words.length);
+    }
+
+    /**
+     * this |= other
+     *
+     * @return 是否有位发生变化
+     */
+    public boolean or(BitVector other) {
+        long diff = 0;
+        for (int i = 0; i < words.length; i++) {
+            long merged = words[i] | other.words[i];
+            diff |= merged ^ words[i];
+            words[i] = merged;
+        }
+        return diff != 0;
+    }
+
+    /**
+     * this &= other
+     *
+     * @return 是否有位发生变化
+     */
+    public boolean and(BitVector other) {
+        long diff = 0;
+        for (int i = 0; i < words.length; i++) {
+            long merged = words[i] & other.words[i];
+            diff |= merged ^ words[i];
+            words[i] = merged;
+        }
+        return diff != 0;
+    }
+
+    /**
+     * 数据流传递函数 this = gen | (source & ~kill)
+     *
+     * @return 是否有位发生变化
+     */
+    public boolean transfer(BitVector gen, BitVector source, BitVector kill) {
+        long diff = 0;
+        for (int i = 0; i < words.length; i++) {
+            long result = gen.words[i] | (source.words[i] & ~kill.words[i]);
+            diff |= result ^ words[i];
+            words[i] = result;
+        }
+        return diff != 0;
+    }
+
+    // 置 1 的位数
+    public int cardinality() {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * 从 from 开始的第一个置 1 的位，没有时返回 -1。
+     * 用法：for (int i = v.nextSetBit(0); i >= 0; i = v.nextSetBit(i + 1))
+     */
+    public int nextSetBit(int from) {
+        if (from >= size) {
+            return -1;
+        }
+        int wordIndex = from >>> 6;
+        long word = words[wordIndex] & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                return (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+            }
+            if (++wordIndex == words.length) {
+                return -1;
+            }
+            word = words[wordIndex];
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof BitVector other && size == other.size && Arrays.equals(words, other.words);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(words);
+    }
+}
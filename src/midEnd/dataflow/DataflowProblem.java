@@ -0,0 +1,203 @@
+package midEnd.dataflow;
+
+import LLVMIR.Base.BasicBlock;
+import LLVMIR.Global.Function;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * 基于 gen/kill 的位向量数据流问题。
+ * 子类给出位向量的长度（待分析对象的个数）和每个基本块的 gen、kill 集合，
+ * {@link #solve()} 用工作表迭代到不动点：
+ * <pre>
+ *   前向：In[B]  = ⊓ Out[P]（P 为前驱），Out[B] = gen[B] ∪ (In[B] − kill[B])
+ *   后向：Out[B] = ⊓ In[S]（S 为后继），  In[B]  = gen[B] ∪ (Out[B] − kill[B])
+ * </pre>
+ * 其中 ⊓ 为并（可能性问题）或交（必然性问题）。边界值为空集：前向问题的入口块（第一个基本块）
+ * 在前驱之外总与边界值交汇，即使它是某个循环的回边目标；其它没有前驱（前向）或没有后继（后向）的块直接取边界值。
+ * 前向问题按逆后序、后向问题按后序初始化工作表，块的结果变化时只把受影响的邻居重新加入
+ */
+public abstract class DataflowProblem {
+    public enum Direction {
+        FORWARD,
+        BACKWARD
+    }
+
+    public enum Meet {
+        UNION,
+        INTERSECTION
+    }
+
+    private final Direction direction;
+    private final Meet meet;
+    protected final Function function;
+    private final List<BasicBlock> blocks;
+    private final HashMap<BasicBlock, Integer> blockIndex = new HashMap<>();
+    private BitVector[] in;
+    private BitVector[] out;
+
+    protected DataflowProblem(Function function, Direction direction, Meet meet) {
+        this.function = function;
+        this.direction = direction;
+        this.meet = meet;
+        this.blocks = function.getBasicBlocks();
+        for (int i = 0; i < blocks.size(); i++) {
+            blockIndex.put(blocks.get(i), i);
+        }
+    }
+
+    /**
+     * @return 位向量的长度
+     */
+    protected abstract int universeSize();
+
+    /**
+     * 计算基本块的 gen 与 kill 集合，传入的两个位向量均为空
+     *
+     * @param block 基本块
+     * @param gen   块内产生的事实
+     * @param kill  块内注销的事实
+     */
+    protected abstract void computeGenKill(BasicBlock block, BitVector gen, BitVector kill);
+
+    /**
+     * 迭代求解，结果通过 {@link #getIn} 和 {@link #getOut} 查询
+     */
+    public void solve() {
+        int blockCount = blocks.size();
+        int size = universeSize();
+        BitVector[] gen = new BitVector[blockCount];
+        BitVector[] kill = new BitVector[blockCount];
+        in = new BitVector[blockCount];
+        out = new BitVector[blockCount];
+        for (int i = 0; i < blockCount; i++) {
+            gen[i] = new BitVector(size);
+            kill[i] = new BitVector(size);
+            computeGenKill(blocks.get(i), gen[i], kill[i]);
+            in[i] = new BitVector(size);
+            out[i] = new BitVector(size);
+            // 交汇为交时，传递函数的结果从全集开始向下收敛
+            if (meet == Meet.INTERSECTION) {
+                (direction == Direction.FORWARD ? out[i] : in[i]).setAll();
+            }
+        }
+
+        // 前向：meetSide 为 In，resultSide 为 Out；后向相反
+        BitVector[] meetSide = direction == Direction.FORWARD ? in : out;
+        BitVector[] resultSide = direction == Direction.FORWARD ? out : in;
+
+        int[] order = postOrder();
+        // 工作表为循环队列，queued 标记块是否已在表中
+        int[] queue = new int[blockCount];
+        boolean[] queued = new boolean[blockCount];
+        int head = 0;
+        int count = blockCount;
+        for (int i = 0; i < blockCount; i++) {
+            queue[i] = direction == Direction.FORWARD ? order[blockCount - 1 - i] : order[i];
+            queued[queue[i]] = true;
+        }
+
+        while (count > 0) {
+            int b = queue[head];
+            head = (head + 1) % blockCount;
+            count--;
+            queued[b] = false;
+
+            BasicBlock block = blocks.get(b);
+            List<BasicBlock> sources = direction == Direction.FORWARD ? block.getPredecessors() : block.getSuccessors();
+            BitVector meetValue = meetSide[b];
+            // 前向问题的入口块总要与边界值（空集）交汇，即使它有回边前驱；交汇为并时结果就是前驱的并
+            boolean entryBoundary = direction == Direction.FORWARD && b == 0 && meet == Meet.INTERSECTION;
+            if (sources.isEmpty() || entryBoundary) {
+                meetValue.clearAll();
+            } else {
+                boolean first = true;
+                for (BasicBlock source : sources) {
+                    BitVector value = resultSide[blockIndex.get(source)];
+                    if (first) {
+                        meetValue.copyFrom(value);
+                        first = false;
+                    } else if (meet == Meet.UNION) {
+                        meetValue.or(value);
+                    } else {
+                        meetValue.and(value);
+                    }
+                }
+            }
+
+            if (resultSide[b].transfer(gen[b], meetValue, kill[b])) {
+                List<BasicBlock> targets = direction == Direction.FORWARD ? block.getSuccessors() : block.getPredecessors();
+                for (BasicBlock target : targets) {
+                    int t = blockIndex.get(target);
+                    if (!queued[t]) {
+                        queued[t] = true;
+                        queue[(head + count) % blockCount] = t;
+                        count++;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 从入口块出发的后序，入口不可达的块按原顺序排在最后
+     *
+     * @return 按后序排列的块下标
+     */
+    private int[] postOrder() {
+        int blockCount = blocks.size();
+        int[] order = new int[blockCount];
+        int length = 0;
+        boolean[] visited = new boolean[blockCount];
+        // 显式栈代替递归，nextChild 记录每个块下一个要访问的后继
+        int[] stack = new int[blockCount];
+        int[] nextChild = new int[blockCount];
+        int top = 0;
+        if (blockCount > 0) {
+            visited[0] = true;
+            stack[top++] = 0;
+        }
+        while (top > 0) {
+            int b = stack[top - 1];
+            ArrayList<BasicBlock> successors = blocks.get(b).getSuccessors();
+            if (nextChild[b] < successors.size()) {
+                int s = blockIndex.get(successors.get(nextChild[b]++));
+                if (!visited[s]) {
+                    visited[s] = true;
+                    stack[top++] = s;
+                }
+            } else {
+                order[length++] = b;
+                top--;
+            }
+        }
+        for (int b = 0; b < blockCount; b++) {
+            if (!visited[b]) {
+                order[length++] = b;
+            }
+        }
+        return order;
+    }
+
+    /**
+     * 基本块入口处的事实
+     *
+     * @param block 基本块
+     * @return 位向量，调用方不应修改
+     */
+    public BitVector getIn(BasicBlock block) {
+        return in[blockIndex.get(block)];
+    }
+
+    /**
+     * 基本块出口处的事实
+     *
+     * @param block 基本块
+     * @return 位向量，调用方不应修改
+     */
+    public BitVector getOut(BasicBlock block) {
+        return out[blockIndex.get(block)];
+    }
+}
@@ -0,0 +1,77 @@
+package midEnd.dataflow;
+
+import LLVMIR.Base.BasicBlock;
+import LLVMIR.Base.Instruction;
+import LLVMIR.Base.Param;
+import LLVMIR.Base.Core.Value;
+import LLVMIR.Global.Function;
+import LLVMIR.Global.GlobalVar;
+import LLVMIR.Ins.Mem.Phi;
+
+import java.util.HashSet;
+
+/**
+ * 活跃变量分析：后向、交汇为并。
+ * gen 为块的 Use 集合（先于块内定值被使用的指令、参数和全局变量），kill 为块的 Def 集合。
+ * Phi 的操作数算作所在块的使用，与原先 BasicBlock.computeDefUse 的约定相同
+ */
+public class Liveness extends DataflowProblem {
+    private final ValueIndex values;
+
+    public Liveness(Function function) {
+        super(function, Direction.BACKWARD, Meet.UNION);
+        this.values = new ValueIndex(function);
+    }
+
+    @Override
+    protected int universeSize() {
+        return values.size();
+    }
+
+    @Override
+    protected void computeGenKill(BasicBlock block, BitVector use, BitVector def) {
+        for (Instruction instr : block.getInstrs()) {
+            if (instr instanceof Phi) {
+                for (Value value : instr.getOperands()) {
+                    if (isVariable(value)) {
+                        use.set(values.indexOf(value));
+                    }
+                }
+            }
+        }
+        for (Instruction instr : block.getInstrs()) {
+            for (Value value : instr.getOperands()) {
+                if (isVariable(value) && !def.get(values.indexOf(value))) {
+                    use.set(values.indexOf(value));
+                }
+            }
+            int index = values.indexOf(instr);
+            if (instr.hasLVal() && !use.get(index)) {
+                def.set(index);
+            }
+        }
+    }
+
+    // 参与活跃分析的值：指令结果、参数和全局变量
+    private static boolean isVariable(Value value) {
+        return value instanceof Instruction || value instanceof Param || value instanceof GlobalVar;
+    }
+
+    public ValueIndex getValues() {
+        return values;
+    }
+
+    /**
+     * 把位向量还原为值的集合
+     *
+     * @param bits 活跃变量的位向量
+     * @return 值的集合
+     */
+    public HashSet<Value> toValueSet(BitVector bits) {
+        HashSet<Value> set = new HashSet<>();
+        for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+            set.add(values.get(i));
+        }
+        return set;
+    }
+}
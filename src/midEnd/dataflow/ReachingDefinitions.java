@@ -0,0 +1,93 @@
+package midEnd.dataflow;
+
+import LLVMIR.Base.BasicBlock;
+import LLVMIR.Base.Instruction;
+import LLVMIR.Base.Core.Value;
+import LLVMIR.Global.Function;
+import LLVMIR.Ins.Move;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * 到达定值分析：前向、交汇为并。
+ * 定值点是有左值的指令（定值其自身）和 Move（定值其目标）。
+ * SSA 形式下每个值只有一个定值点；消除 Phi 之后同一个值可能被多条 Move 定值，
+ * 块内对某个值的定值会注销该值的其它定值点
+ */
+public class ReachingDefinitions extends DataflowProblem {
+    private final ArrayList<Instruction> definitions = new ArrayList<>();
+    private final HashMap<Instruction, Integer> definitionIndex = new HashMap<>();
+    // 每个值的所有定值点编号
+    private final HashMap<Value, List<Integer>> definitionsOfValue = new HashMap<>();
+
+    public ReachingDefinitions(Function function) {
+        super(function, Direction.FORWARD, Meet.UNION);
+        for (BasicBlock block : function.getBasicBlocks()) {
+            for (Instruction instr : block.getInstrs()) {
+                Value defined = definedValue(instr);
+                if (defined != null) {
+                    definitionIndex.put(instr, definitions.size());
+                    definitionsOfValue.computeIfAbsent(defined, k -> new ArrayList<>()).add(definitions.size());
+                    definitions.add(instr);
+                }
+            }
+        }
+    }
+
+    /**
+     * 指令定值的值
+     *
+     * @param instr 指令
+     * @return 被定值的值，指令不是定值点时返回 null
+     */
+    public static Value definedValue(Instruction instr) {
+        if (instr instanceof Move move) {
+            return move.getTo();
+        }
+        return instr.hasLVal() ? instr : null;
+    }
+
+    @Override
+    protected int universeSize() {
+        return definitions.size();
+    }
+
+    @Override
+    protected void computeGenKill(BasicBlock block, BitVector gen, BitVector kill) {
+        for (Instruction instr : block.getInstrs()) {
+            Value defined = definedValue(instr);
+            if (defined == null) {
+                continue;
+            }
+            // 同一个值在块内较早的定值被本条注销
+            for (int other : definitionsOfValue.get(defined)) {
+                gen.clear(other);
+                kill.set(other);
+            }
+            gen.set(definitionIndex.get(instr));
+        }
+    }
+
+    /**
+     * 按编号取定值点
+     *
+     * @param index 位向量中的下标
+     * @return 定值指令
+     */
+    public Instruction getDefinition(int index) {
+        return definitions.get(index);
+    }
+
+    /**
+     * 定值点的编号
+     *
+     * @param instr 定值指令
+     * @return 编号，不是定值点时返回 -1
+     */
+    public int indexOf(Instruction instr) {
+        Integer index = definitionIndex.get(instr);
+        return index == null ? -1 : index;
+    }
+}
@@ -0,0 +1,80 @@
+package midEnd.dataflow;
+
+import LLVMIR.Base.BasicBlock;
+import LLVMIR.Base.Instruction;
+import LLVMIR.Base.Param;
+import LLVMIR.Base.Core.Value;
+import LLVMIR.Global.Function;
+import LLVMIR.Global.GlobalVar;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * 函数内值的稠密编号，编号从 0 连续分配，可直接作位向量的下标。
+ * 依次为参数、各基本块中的指令编号，最后是指令用到而尚未编号的值（全局变量等）。
+ * <p>
+ * 编号只保存在本对象里，不写回 Value：全局变量被所有函数共享，
+ * 按函数并行分析时每个函数各自编号，互不影响
+ */
+public class ValueIndex {
+    private final HashMap<Value, Integer> indices = new HashMap<>();
+    private final ArrayList<Value> values = new ArrayList<>();
+
+    /**
+     * 为函数中的值编号
+     *
+     * @param function 函数
+     */
+    public ValueIndex(Function function) {
+        for (Param param : function.getParams()) {
+            add(param);
+        }
+        for (BasicBlock block : function.getBasicBlocks()) {
+            for (Instruction instr : block.getInstrs()) {
+                add(instr);
+            }
+        }
+        for (BasicBlock block : function.getBasicBlocks()) {
+            for (Instruction instr : block.getInstrs()) {
+                for (Value operand : instr.getOperands()) {
+                    if (operand instanceof Instruction || operand instanceof Param || operand instanceof GlobalVar) {
+                        add(operand);
+                    }
+                }
+            }
+        }
+    }
+
+    private void add(Value value) {
+        if (indices.putIfAbsent(value, values.size()) == null) {
+            values.add(value);
+        }
+    }
+
+    /**
+     * 获取值的编号
+     *
+     * @param value 值
+     * @return 编号，未编号的值返回 -1
+     */
+    public int indexOf(Value value) {
+        Integer index = indices.get(value);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * 按编号取值
+     *
+     * @param index 编号
+     * @return 值
+     */
+    public Value get(int index) {
+        return values.get(index);
+    }
+
+    // 已编号的值的个数
+    public int size() {
+        return values.size();
+    }
+}
@@ -37,15 +37,23 @@ public class SideEffectsAnalyze {
      */
     private static void analyzeFunctionDirectEffects(Module module) {
         for (Function function : module.getFunctions()) {
-            DirectEffectAnalyzer analyzer = new DirectEffectAnalyzer();
-            analyzer.analyze(function);
+            analyzeDirectEffects(function);
         }
     }
 
+    /**
+     * 分析单个函数的直接副作用，并记录其调用的函数；结果尚未沿调用关系传播
+     * @param function 待分析的函数
+     */
+    public static void analyzeDirectEffects(Function function) {
+        new DirectEffectAnalyzer().analyze(function);
+    }
+
     /**
      * 通过调用关系传播副作用信息
+     * 要求各函数的副作用标记为直接副作用分析的结果
      */
-    private static void propagateSideEffects(Module module) {
+    public static void propagateSideEffects(Module module) {
         boolean hasChanges;
         do {
             hasChanges = false;
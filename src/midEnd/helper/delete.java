@@ -1,73 +1,69 @@
 package midEnd.helper;
 
 import LLVMIR.Base.BasicBlock;
-import LLVMIR.Base.Core.Module;
 import LLVMIR.Global.Function;
 import LLVMIR.Base.Instruction;
+import LLVMIR.Base.InstructionList;
 import LLVMIR.Ins.Branch;
 import LLVMIR.Ins.Mem.Phi;
 
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.List;
 
 /**
  * 代码优化辅助类
  * 用于删除不可达代码块和合并基本块
  */
 public class delete {
-    // 存储可达的基本块集合
-    private static HashSet<BasicBlock> accessibleBlocks;
 
     /**
-     * 简化模块中的代码
+     * 简化函数中的代码
      * 包括删除死代码和不可达块
-     * @param targetModule 待处理的模块
+     * @param currentFunc 待处理的函数
+     * @return 是否删除了指令或基本块
      */
-    public static void simplify(Module targetModule) {
-        for (Function currentFunc : targetModule.getFunctions()) {
-            // 第一步：清理每个基本块中的死代码
-            for (BasicBlock currentBlock : currentFunc.getBasicBlocks()) {
-                cleanDeadCode(currentBlock);
-            }
+    public static boolean simplify(Function currentFunc) {
+        boolean changed = false;
+        // 第一步：清理每个基本块中的死代码
+        for (BasicBlock currentBlock : currentFunc.getBasicBlocks()) {
+            changed |= cleanDeadCode(currentBlock);
+        }
 
-            // 第二步：标记从入口块开始的所有可达块
-            BasicBlock startBlock = currentFunc.getBasicBlocks().get(0);
-            accessibleBlocks = new HashSet<>();
-            markReachableBlocks(startBlock);
+        // 第二步：标记从入口块开始的所有可达块
+        BasicBlock startBlock = currentFunc.getBasicBlocks().get(0);
+        HashSet<BasicBlock> accessibleBlocks = new HashSet<>();
+        markReachableBlocks(startBlock, accessibleBlocks);
 
-            // 第三步：清理不可达的基本块
-            removeUnreachableBlocks(currentFunc);
-        }
+        // 第三步：清理不可达的基本块
+        changed |= removeUnreachableBlocks(currentFunc, accessibleBlocks);
+        return changed;
     }
 
     /**
      * 清理基本块中的死代码
      * @param targetBlock 待处理的基本块
+     * @return 是否删除了指令
      */
-    public static void cleanDeadCode(BasicBlock targetBlock) {
-        List<Instruction> instrList = targetBlock.getInstrs();
-        int terminatorPos = findTerminatorPosition(instrList);
+    public static boolean cleanDeadCode(BasicBlock targetBlock) {
+        InstructionList instrList = targetBlock.getInstrs();
+        Instruction terminator = findTerminator(instrList);
 
         // 删除终止指令后的所有指令
-        removeInstructionsAfterTerminator(instrList, terminatorPos);
+        return terminator != null && removeInstructionsAfterTerminator(instrList, terminator);
     }
 
     /**
-     * 查找基本块中终止指令的位置
+     * 查找基本块中的第一条终止指令
      * @param instructions 指令列表
-     * @return 终止指令的位置
+     * @return 终止指令，没有时返回 null
      */
-    private static int findTerminatorPosition(List<Instruction> instructions) {
-        int pos = 0;
-        while (pos < instructions.size()) {
-            Instruction.InstrType currentType = instructions.get(pos).getInstrType();
-            if (isTerminator(currentType)) {
-                break;
+    private static Instruction findTerminator(InstructionList instructions) {
+        for (Instruction instruction : instructions) {
+            if (isTerminator(instruction.getInstrType())) {
+                return instruction;
             }
-            pos++;
         }
-        return pos;
+        return null;
     }
 
     /**
@@ -84,21 +80,26 @@ public class delete {
     /**
      * 删除终止指令后的所有指令
      * @param instructions 指令列表
-     * @param terminatorPos 终止指令位置
+     * @param terminator 终止指令
+     * @return 是否删除了指令
      */
-    private static void removeInstructionsAfterTerminator(List<Instruction> instructions, int terminatorPos) {
-        int nextPos = terminatorPos + 1;
-        while (nextPos < instructions.size()) {
-            instructions.get(nextPos).removeOperands();
-            instructions.remove(nextPos);
+    private static boolean removeInstructionsAfterTerminator(InstructionList instructions, Instruction terminator) {
+        boolean removed = false;
+        Instruction next;
+        while ((next = terminator.getNextInstr()) != null) {
+            next.removeOperands();
+            instructions.remove(next);
+            removed = true;
         }
+        return removed;
     }
 
     /**
      * 标记所有可达的基本块
      * @param currentBlock 当前基本块
+     * @param accessibleBlocks 已标记为可达的基本块集合
      */
-    public static void markReachableBlocks(BasicBlock currentBlock) {
+    public static void markReachableBlocks(BasicBlock currentBlock, HashSet<BasicBlock> accessibleBlocks) {
         if (accessibleBlocks.contains(currentBlock)) {
             return;
         }
@@ -106,27 +107,27 @@ public class delete {
         accessibleBlocks.add(currentBlock);
 
         // 获取块的最后一条指令
-        List<Instruction> instrList = currentBlock.getInstrs();
-        Instruction lastInstr = instrList.get(instrList.size() - 1);
+        Instruction lastInstr = currentBlock.getLastInstr();
 
         // 根据不同的分支类型处理后继块
-        processSuccessorBlocks(lastInstr);
+        processSuccessorBlocks(lastInstr, accessibleBlocks);
     }
 
     /**
      * 处理后继基本块
      * @param terminator 终止指令
+     * @param accessibleBlocks 已标记为可达的基本块集合
      */
-    private static void processSuccessorBlocks(Instruction terminator) {
+    private static void processSuccessorBlocks(Instruction terminator, HashSet<BasicBlock> accessibleBlocks) {
         if (terminator instanceof Branch) {
             Branch branchInstr = (Branch) terminator;
             if (branchInstr.isConditional()) {
                 // 条件分支：递归处理两个分支
-                markReachableBlocks(branchInstr.getThenBlock());
-                markReachableBlocks(branchInstr.getElseBlock());
+                markReachableBlocks(branchInstr.getThenBlock(), accessibleBlocks);
+                markReachableBlocks(branchInstr.getElseBlock(), accessibleBlocks);
             } else {
                 // 无条件跳转：只处理目标块
-                markReachableBlocks(branchInstr.getTargetBlock());
+                markReachableBlocks(branchInstr.getTargetBlock(), accessibleBlocks);
             }
         }
     }
@@ -134,8 +135,11 @@ public class delete {
     /**
      * 删除不可达的基本块
      * @param function 当前函数
+     * @param accessibleBlocks 可达的基本块集合
+     * @return 是否删除了基本块
      */
-    private static void removeUnreachableBlocks(Function function) {
+    private static boolean removeUnreachableBlocks(Function function, HashSet<BasicBlock> accessibleBlocks) {
+        boolean removed = false;
         Iterator<BasicBlock> blockIter = function.getBasicBlocks().iterator();
         while (blockIter.hasNext()) {
             BasicBlock currentBlock = blockIter.next();
@@ -143,8 +147,10 @@ public class delete {
                 cleanupBlock(currentBlock);
                 blockIter.remove();
                 currentBlock.setDeleted();
+                removed = true;
             }
         }
+        return removed;
     }
 
     /**
@@ -163,27 +169,31 @@ public class delete {
     /**
      * 合并基本块
      * 将只有一个后继且该后继只有一个前驱的基本块合并
-     * @param targetModule 待处理的模块
+     * @param currentFunc 待处理的函数
+     * @return 是否合并了基本块
      */
-    public static void mergeBlocks(Module targetModule) {
-        for (Function currentFunc : targetModule.getFunctions()) {
-            processFunctionBlocks(currentFunc);
-            // 移除已删除的基本块
-            currentFunc.getBasicBlocks().removeIf(BasicBlock::isDeleted);
-        }
+    public static boolean mergeBlocks(Function currentFunc) {
+        boolean changed = processFunctionBlocks(currentFunc);
+        // 移除已删除的基本块
+        changed |= currentFunc.getBasicBlocks().removeIf(BasicBlock::isDeleted);
+        return changed;
     }
 
     /**
      * 处理函数中的基本块合并
      * @param function 当前函数
+     * @return 是否合并了基本块
      */
-    private static void processFunctionBlocks(Function function) {
+    private static boolean processFunctionBlocks(Function function) {
+        boolean merged = false;
         for (BasicBlock currentBlock : function.getBasicBlocks()) {
             if (canMergeBlock(currentBlock)) {
                 BasicBlock nextBlock = currentBlock.getSuccessors().get(0);
                 mergeConsecutiveBlocks(currentBlock, nextBlock);
+                merged = true;
             }
         }
+        return merged;
     }
 
     /**
@@ -206,7 +216,7 @@ public class delete {
      */
     private static void mergeConsecutiveBlocks(BasicBlock source, BasicBlock target) {
         // 移除源块的跳转指令
-        source.getInstrs().remove(source.getInstrs().size() - 1);
+        source.getInstrs().remove(source.getLastInstr());
 
         // 处理目标块中的指令
         for (Instruction instr : target.getInstrs()) {
@@ -214,6 +224,7 @@ public class delete {
                 handlePhiInstruction((Phi) instr, source);
             } else {
                 // 移动普通指令到源块
+                target.getInstrs().remove(instr);
                 source.addInstr(instr);
                 instr.setParentBlock(source);
             }
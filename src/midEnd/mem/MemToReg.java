@@ -10,7 +10,6 @@ import LLVMIR.IRBuilder;
 import LLVMIR.Ins.Mem.Load;
 import LLVMIR.Ins.Mem.Phi;
 import LLVMIR.Ins.Mem.Store;
-import LLVMIR.Base.Core.Module;
 import LLVMIR.LLVMType.LLVMType;
 
 import java.util.ArrayList;
@@ -24,40 +23,42 @@ import java.util.Stack;
  */
 public class MemToReg {
     // 当前处理的内存分配指令
-    private static Alloca activeAllocaInstr;
+    private Alloca activeAllocaInstr;
     // 定义和使用指令列表
-    private static ArrayList<Instruction> definitionInstrs;
-    private static ArrayList<Instruction> usageInstrs;
+    private ArrayList<Instruction> definitionInstrs;
+    private ArrayList<Instruction> usageInstrs;
     // 定义和使用所在的基本块
-    private static ArrayList<BasicBlock> definitionBlocks;
-    private static ArrayList<BasicBlock> usageBlocks;
+    private ArrayList<BasicBlock> definitionBlocks;
+    private ArrayList<BasicBlock> usageBlocks;
     // 定义值栈
-    private static Stack<Value> definitionStack;
+    private Stack<Value> definitionStack;
 
     /**
-     * 执行内存到寄存器的优化转换
-     * @param module LLVM IR模块
+     * 对单个函数执行内存到寄存器的优化转换
+     * @param function 待处理的函数
+     * @return 是否提升了内存分配指令
      */
-    public static void execute(Module module) {
-        for (Function function : module.getFunctions()) {
-            for (BasicBlock block : function.getBasicBlocks()) {
-                ArrayList<Instruction> instructions = new ArrayList<>(block.getInstrs());
-                for (Instruction instruction : instructions) {
-                    if (isEligibleAlloca(instruction)) {
-                        activeAllocaInstr = (Alloca) instruction;
-                        initializeDataStructures();
-                        insertPhiNodes();
-                        performVariableRenaming(function.getBasicBlocks().get(0));
-                    }
+    public boolean execute(Function function) {
+        boolean changed = false;
+        for (BasicBlock block : function.getBasicBlocks()) {
+            // 提升时会删除当前 alloca 及其 load/store，迭代器跳过已删除的指令
+            for (Instruction instruction : block.getInstrs()) {
+                if (isEligibleAlloca(instruction)) {
+                    activeAllocaInstr = (Alloca) instruction;
+                    initializeDataStructures();
+                    insertPhiNodes();
+                    performVariableRenaming(function.getBasicBlocks().get(0));
+                    changed = true;
                 }
             }
         }
+        return changed;
     }
 
     /**
      * 检查是否为可优化的内存分配指令
      */
-    private static boolean isEligibleAlloca(Instruction instruction) {
+    private boolean isEligibleAlloca(Instruction instruction) {
         return instruction instanceof Alloca &&
                 (((Alloca) instruction).getPointedType() == LLVMType.Int32 ||
                         ((Alloca) instruction).getPointedType() == LLVMType.Int8);
@@ -66,7 +67,7 @@ public class MemToReg {
     /**
      * 初始化数据结构
      */
-    private static void initializeDataStructures() {
+    private void initializeDataStructures() {
         usageBlocks = new ArrayList<>();
         usageInstrs = new ArrayList<>();
         definitionBlocks = new ArrayList<>();
@@ -91,7 +92,7 @@ public class MemToReg {
     /**
      * 处理加载指令
      */
-    private static void processLoadInstruction(Instruction instruction) {
+    private void processLoadInstruction(Instruction instruction) {
         usageInstrs.add(instruction);
         BasicBlock parentBlock = instruction.getParentBlock();
         if (!usageBlocks.contains(parentBlock)) {
@@ -102,7 +103,7 @@ public class MemToReg {
     /**
      * 处理存储指令
      */
-    private static void processStoreInstruction(Instruction instruction) {
+    private void processStoreInstruction(Instruction instruction) {
         definitionInstrs.add(instruction);
         BasicBlock parentBlock = instruction.getParentBlock();
         if (!definitionBlocks.contains(parentBlock)) {
@@ -113,7 +114,7 @@ public class MemToReg {
     /**
      * 插入phi节点
      */
-    private static void insertPhiNodes() {
+    private void insertPhiNodes() {
         HashSet<BasicBlock> processedBlocks = new HashSet<>();
         ArrayList<BasicBlock> workList = new ArrayList<>(definitionBlocks);
 
@@ -134,12 +135,12 @@ public class MemToReg {
     /**
      * 在基本块开始处插入phi节点
      */
-    private static void insertPhiAtBlockStart(BasicBlock block) {
+    private void insertPhiAtBlockStart(BasicBlock block) {
         String varName = IRBuilder.tempName + block.getParentFunc().getVarId();
         ArrayList<BasicBlock> predecessors = new ArrayList<>(block.getPredecessors());
 
         Phi phiInstruction = new Phi(varName, block, predecessors, activeAllocaInstr.getPointedType());
-        block.getInstrs().add(0, phiInstruction);
+        block.getInstrs().addFirst(phiInstruction);
         usageInstrs.add(phiInstruction);
         definitionInstrs.add(phiInstruction);
     }
@@ -147,7 +148,7 @@ public class MemToReg {
     /**
      * 执行变量重命名过程
      */
-    private static void performVariableRenaming(BasicBlock block) {
+    private void performVariableRenaming(BasicBlock block) {
         Iterator<Instruction> iterator = block.getInstrs().iterator();
         int pushCount = 0;
 
@@ -185,28 +186,28 @@ public class MemToReg {
     /**
      * 检查是否为需要处理的加载指令
      */
-    private static boolean isLoadInstruction(Instruction instruction) {
+    private boolean isLoadInstruction(Instruction instruction) {
         return instruction instanceof Load && usageInstrs.contains(instruction);
     }
 
     /**
      * 检查是否为需要处理的存储指令
      */
-    private static boolean isStoreInstruction(Instruction instruction) {
+    private boolean isStoreInstruction(Instruction instruction) {
         return instruction instanceof Store && definitionInstrs.contains(instruction);
     }
 
     /**
      * 检查是否为需要处理的phi指令
      */
-    private static boolean isPhiInstruction(Instruction instruction) {
+    private boolean isPhiInstruction(Instruction instruction) {
         return instruction instanceof Phi && definitionInstrs.contains(instruction);
     }
 
     /**
      * 处理加载指令的重命名
      */
-    private static void processLoadRenaming(Instruction instruction, Iterator<Instruction> iterator) {
+    private void processLoadRenaming(Instruction instruction, Iterator<Instruction> iterator) {
         Value newValue = definitionStack.empty() ? new Undef() : definitionStack.peek();
         instruction.modifyValueForUsers(newValue);
         instruction.removeOperands();
@@ -217,7 +218,7 @@ public class MemToReg {
      * 处理存储指令的重命名
      * @return 压栈次数
      */
-    private static int processStoreRenaming(Instruction instruction, Iterator<Instruction> iterator) {
+    private int processStoreRenaming(Instruction instruction, Iterator<Instruction> iterator) {
         Value storedValue = ((Store) instruction).getFrom();
         definitionStack.push(storedValue);
         instruction.removeOperands();
@@ -229,7 +230,7 @@ public class MemToReg {
      * 处理phi指令的重命名
      * @return 压栈次数
      */
-    private static int processPhiRenaming(Instruction instruction) {
+    private int processPhiRenaming(Instruction instruction) {
         definitionStack.push(instruction);
         return 1;
     }
@@ -237,10 +238,10 @@ public class MemToReg {
     /**
      * 处理后继基本块中的phi节点
      */
-    private static void processSuccessorPhiNodes(BasicBlock block) {
+    private void processSuccessorPhiNodes(BasicBlock block) {
         for (BasicBlock successor : block.getSuccessors()) {
             if (!successor.getInstrs().isEmpty()) {
-                Instruction firstInstruction = successor.getInstrs().get(0);
+                Instruction firstInstruction = successor.getInstrs().getFirst();
                 if (firstInstruction instanceof Phi && usageInstrs.contains(firstInstruction)) {
                     Value value = definitionStack.empty() ? new Undef() : definitionStack.peek();
                     if (value == null) {
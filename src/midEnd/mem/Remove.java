@@ -2,7 +2,6 @@ package midEnd.mem;
 
 import LLVMIR.Base.*;
 import LLVMIR.Base.Core.Value;
-import LLVMIR.Base.Core.Module;
 import LLVMIR.Base.Util.Undef;
 import LLVMIR.Global.Function;
 import LLVMIR.IRBuilder;
@@ -23,19 +22,17 @@ import java.util.List;
  */
 public class Remove {
     // 变量到寄存器的映射关系
-    private static HashMap<Value, Register> variableToRegisterMap;
+    private HashMap<Value, Register> variableToRegisterMap;
 
     /**
-     * 移除模块中的所有Phi指令
-     * @param module 待处理的LLVM IR模块
+     * 移除单个函数中的所有Phi指令，要求该函数已完成寄存器分配
+     * @param function 待处理的函数
      */
-    public static void removePhi(Module module) {
-        for (Function function : module.getFunctions()) {
-            variableToRegisterMap = function.getRegisterPool();
-            ArrayList<BasicBlock> blocks = new ArrayList<>(function.getBasicBlocks());
-            for (BasicBlock block : blocks) {
-                processPhiInstructions(block);
-            }
+    public void removePhi(Function function) {
+        variableToRegisterMap = function.getRegisterPool();
+        ArrayList<BasicBlock> blocks = new ArrayList<>(function.getBasicBlocks());
+        for (BasicBlock block : blocks) {
+            processPhiInstructions(block);
         }
     }
 
@@ -43,7 +40,7 @@ public class Remove {
      * 处理基本块中的Phi指令
      * @param block 当前处理的基本块
      */
-    private static void processPhiInstructions(BasicBlock block) {
+    private void processPhiInstructions(BasicBlock block) {
         // 获取当前基本块中的所有Phi指令及其相关Move指令
         HashMap<BasicBlock, ArrayList<Move>> predecessorMoves = collectPhiInstructions(block);
 
@@ -69,7 +66,7 @@ public class Remove {
     /**
      * 收集基本块中的Phi指令并转换为Move指令
      */
-    private static HashMap<BasicBlock, ArrayList<Move>> collectPhiInstructions(BasicBlock block) {
+    private HashMap<BasicBlock, ArrayList<Move>> collectPhiInstructions(BasicBlock block) {
         HashMap<BasicBlock, ArrayList<Move>> predecessorMoves = new HashMap<>();
         for (BasicBlock predecessor : block.getPredecessors()) {
             predecessorMoves.put(predecessor, new ArrayList<>());
@@ -93,17 +90,16 @@ public class Remove {
     /**
      * 处理单个Phi指令
      */
-    private static void processPhiInstruction(Phi phi,
+    private void processPhiInstruction(Phi phi,
                                               HashMap<BasicBlock, ArrayList<Move>> predecessorMoves,
                                               BasicBlock block) {
         List<Value> operands = phi.getOperands();
-        ArrayList<BasicBlock> incomingBlocks = phi.getIncomingBlocks();
+        List<BasicBlock> incomingBlocks = phi.getIncomingBlocks();
 
         // 清理无效的前驱块
         for (int i = incomingBlocks.size() - 1; i >= 0; i--) {
             if (!block.getPredecessors().contains(incomingBlocks.get(i))) {
-                incomingBlocks.remove(i);
-                operands.remove(i);
+                phi.removeIncoming(i);
             }
         }
 
@@ -122,7 +118,7 @@ public class Remove {
     /**
      * 创建Move指令
      */
-    private static void createMoveInstruction(Phi phi,
+    private void createMoveInstruction(Phi phi,
                                               Value source,
                                               BasicBlock incomingBlock,
                                               HashMap<BasicBlock, ArrayList<Move>> predecessorMoves) {
@@ -136,7 +132,7 @@ public class Remove {
     /**
      * 处理Move指令的并行性
      */
-    private static ArrayList<Move> handleMoveParallelism(ArrayList<Move> originalMoves, BasicBlock block) {
+    private ArrayList<Move> handleMoveParallelism(ArrayList<Move> originalMoves, BasicBlock block) {
         ArrayList<Move> parallelMoves = new ArrayList<>();
 
         for (int i = 0; i < originalMoves.size(); i++) {
@@ -164,7 +160,7 @@ public class Remove {
     /**
      * 处理寄存器共享问题
      */
-    private static ArrayList<Move> handleRegisterSharing(ArrayList<Move> parallelMoves, BasicBlock block) {
+    private ArrayList<Move> handleRegisterSharing(ArrayList<Move> parallelMoves, BasicBlock block) {
         ArrayList<Move> finalMoves = new ArrayList<>();
 
         for (int i = 0; i < parallelMoves.size(); i++) {
@@ -192,7 +188,7 @@ public class Remove {
     /**
      * 检查两个Move指令是否共享寄存器
      */
-    private static boolean sharesRegister(Move move1, Move move2) {
+    private boolean sharesRegister(Move move1, Move move2) {
         return variableToRegisterMap.containsKey(move1.getTo()) &&
                 variableToRegisterMap.containsKey(move2.getFrom()) &&
                 variableToRegisterMap.get(move1.getTo()) == variableToRegisterMap.get(move2.getFrom());
@@ -201,7 +197,7 @@ public class Remove {
     /**
      * 创建临时变量
      */
-    private static Value createTemporaryVariable(Value original, BasicBlock block) {
+    private Value createTemporaryVariable(Value original, BasicBlock block) {
         return new Value(IRBuilder.tempName + block.getParentFunc().getVarId(),
                 original.getType());
     }
@@ -209,7 +205,7 @@ public class Remove {
     /**
      * 插入Move指令到适当的位置
      */
-    private static void insertMoveInstructions(BasicBlock predecessor,
+    private void insertMoveInstructions(BasicBlock predecessor,
                                                ArrayList<Move> moves,
                                                BasicBlock targetBlock) {
         if (predecessor.getSuccessors().size() > 1) {
@@ -224,7 +220,7 @@ public class Remove {
     /**
      * 在新的基本块中插入Move指令
      */
-    private static void insertMovesInNewBlock(BasicBlock predecessor,
+    private void insertMovesInNewBlock(BasicBlock predecessor,
                                               ArrayList<Move> moves,
                                               BasicBlock targetBlock) {
         BasicBlock newBlock = createIntermediateBlock(predecessor, targetBlock);
@@ -245,7 +241,7 @@ public class Remove {
     /**
      * 创建中间基本块
      */
-    private static BasicBlock createIntermediateBlock(BasicBlock predecessor, BasicBlock targetBlock) {
+    private BasicBlock createIntermediateBlock(BasicBlock predecessor, BasicBlock targetBlock) {
         String blockName = IRBuilder.blockName + targetBlock.getParentFunc().getBlockId();
         BasicBlock newBlock = new BasicBlock(blockName, targetBlock.getParentFunc());
 
@@ -258,19 +254,19 @@ public class Remove {
     /**
      * 更新分支指令的目标
      */
-    private static void updateBranchTarget(BasicBlock predecessor,
+    private void updateBranchTarget(BasicBlock predecessor,
                                            BasicBlock oldTarget,
                                            BasicBlock newTarget) {
-        Branch branch = (Branch) predecessor.getInstrs().get(predecessor.getInstrs().size() - 1);
-        branch.getOperands().set(branch.getOperands().indexOf(oldTarget), newTarget);
+        Branch branch = (Branch) predecessor.getLastInstr();
+        branch.setOperand(newTarget, branch.getOperands().indexOf(oldTarget));
     }
 
     /**
      * 在前驱块中直接插入Move指令
      */
-    private static void insertMovesInPredecessor(BasicBlock predecessor, ArrayList<Move> moves) {
+    private void insertMovesInPredecessor(BasicBlock predecessor, ArrayList<Move> moves) {
         for (Move move : moves) {
-            predecessor.getInstrs().add(predecessor.getInstrs().size() - 1, move);
+            predecessor.getInstrs().insertBefore(predecessor.getLastInstr(), move);
         }
     }
 }
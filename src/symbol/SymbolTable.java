@@ -1,72 +1,82 @@
 package symbol;
 
+import util.CompilationContext;
+
 import java.util.*;
 
 /**
  * SymbolTable类用于管理符号表，支持作用域嵌套和符号查找。
+ * <p>
+ * 所有作用域共用一张开放定址的名字表，每个名字对应一条绑定栈，栈顶是当前可见的符号。
+ * 声明符号时压入一条带作用域深度的绑定，退出作用域时弹出该作用域压入的全部绑定，
+ * 因此查找只需一次散列探测，不再沿父作用域逐层查找。
+ * 名字由词法分析驻留，探测时先比较引用，相同名字通常不必比较字符
  */
 public class SymbolTable {
-    private static final SymbolTable instance = new SymbolTable(); // SymbolTable单例对象
-
-    // 私有化构造器，防止外部实例化
-    private SymbolTable() {
+    // 由编译上下文创建，每次编译拥有独立的符号表
+    public SymbolTable() {
         // 初始化全局作用域
-        currentScope = new Scope(null, scopeCounter);
-        symbolsInScope.put(scopeCounter, new ArrayList<>());
+        scopeLevels[0] = scopeCounter;
+        scopeMarks[0] = 0;
+        symbolsInScope.add(null); // 作用域序号从1开始
+        symbolsInScope.add(new ArrayList<>());
     }
 
-    // 提供全局访问点
+    // 提供当前编译上下文中的访问点
     public static SymbolTable getInstance() {
-        return instance;
+        return CompilationContext.current().getSymbolTable();
     }
 
-    private Scope currentScope; // 当前作用域
     private int scopeCounter = 1; // 从1开始，表示全局作用域
-    private int scopeCounterForLLVM = 1; // 从1开始，表示全局作用域
+
+    // 作用域栈，下标为作用域深度（全局作用域为 0）
+    private int depth = 0;
+    private int[] scopeLevels = new int[16]; // 各层作用域的序号
+    private int[] scopeMarks = new int[16];  // 进入各层作用域时绑定栈的高度
+
+    // 名字表：开放定址，槽中保存名字编号，没有名字时为 -1
+    private int[] slots = newSlots(64);
+    private int nameCount = 0;
+    private String[] names = new String[32]; // 名字编号 → 名字
+    private int[] heads = new int[32];       // 名字编号 → 栈顶绑定，没有可见符号时为 -1
+
+    // 绑定栈，按声明顺序压入，退出作用域时按相反顺序弹出
+    private int bindingCount = 0;
+    private Symbol[] bindingSymbols = new Symbol[64];
+    private int[] bindingNames = new int[64];  // 绑定的名字编号
+    private int[] bindingDepths = new int[64]; // 声明时的作用域深度
+    private int[] bindingNext = new int[64];   // 同名的下一条（外层）绑定，没有时为 -1
 
     // 记录每个作用域的符号列表，按作用域序号索引
-    private Map<Integer, List<Symbol>> symbolsInScope = new HashMap<>();
+    private List<List<Symbol>> symbolsInScope = new ArrayList<>();
 
     /**
      * 进入新作用域
      */
     public void enterScope() {
         scopeCounter++;
-        currentScope = new Scope(currentScope, scopeCounter);
-        symbolsInScope.put(scopeCounter, new ArrayList<>());
-    }
-
-    /**
-     * 进入已建立的子作用域
-     */
-    public void enterScopeForLLVM() {
-        scopeCounterForLLVM++;
-        Scope targetScope = currentScope.getChildScopeByLevel(scopeCounterForLLVM);
-        if (targetScope != null) {
-            currentScope = targetScope;
-        } else {
-            throw new IllegalArgumentException("Target scope " + scopeCounterForLLVM + " does not exist or is not a child of the current scope.");
+        depth++;
+        if (depth == scopeLevels.length) {
+            scopeLevels = Arrays.copyOf(scopeLevels, depth * 2);
+            scopeMarks = Arrays.copyOf(scopeMarks, depth * 2);
         }
+        scopeLevels[depth] = scopeCounter;
+        scopeMarks[depth] = bindingCount;
+        symbolsInScope.add(new ArrayList<>());
     }
 
     /**
-     * LLVM退出当前作用域
-     */
-    public void exitScopeForLLVM() {
-        if (currentScope.getParentScope() != null) {
-            currentScope = currentScope.getParentScope();
-        } else {
-            // 已经在全局作用域，无法再退出
-            System.err.println("Cannot exit the global scope.");
-        }
-    }
-
-    /**
-     * 退出当前作用域
+     * 退出当前作用域，弹出该作用域中声明的所有绑定
      */
     public void exitScope() {
-        if (currentScope.getParentScope() != null) {
-            currentScope = currentScope.getParentScope();
+        if (depth > 0) {
+            int mark = scopeMarks[depth];
+            while (bindingCount > mark) {
+                bindingCount--;
+                heads[bindingNames[bindingCount]] = bindingNext[bindingCount];
+                bindingSymbols[bindingCount] = null;
+            }
+            depth--;
         } else {
             // 已经在全局作用域，无法再退出
             System.err.println("Cannot exit the global scope.");
@@ -78,16 +88,22 @@ public class SymbolTable {
      * @return 当前作用域的序号
      */
     public int getCurrentScopeLevel() {
-        return currentScope.getScopeLevel();
+        return scopeLevels[depth];
     }
 
     /**
-     * 在当前作用域添加符号
+     * 在当前作用域添加符号，同一作用域中的同名符号会被替换
      * @param symbol 要添加的符号
      */
     public void addSymbol(Symbol symbol) {
-        currentScope.getSymbols().put(symbol.getName(), symbol);
-        symbolsInScope.get(currentScope.getScopeLevel()).add(symbol);
+        int name = nameIndex(symbol.getName());
+        int head = heads[name];
+        if (head >= 0 && bindingDepths[head] == depth) {
+            bindingSymbols[head] = symbol;
+        } else {
+            push(name, symbol);
+        }
+        symbolsInScope.get(getCurrentScopeLevel()).add(symbol);
     }
 
     /**
@@ -96,7 +112,12 @@ public class SymbolTable {
      * @return 找到的符号，或null如果未找到
      */
     public Symbol lookupInCurrentScope(String name) {
-        return currentScope.getSymbols().get(name);
+        int index = findName(name);
+        if (index < 0) {
+            return null;
+        }
+        int head = heads[index];
+        return head >= 0 && bindingDepths[head] == depth ? bindingSymbols[head] : null;
     }
 
     /**
@@ -105,15 +126,12 @@ public class SymbolTable {
      * @return 找到的符号，或null如果未找到
      */
     public Symbol lookup(String name) {
-        Scope scope = currentScope;
-        while (scope != null) {
-            Symbol symbol = scope.getSymbols().get(name);
-            if (symbol != null) {
-                return symbol;
-            }
-            scope = scope.getParentScope();
+        int index = findName(name);
+        if (index < 0) {
+            return null;
         }
-        return null;
+        int head = heads[index];
+        return head >= 0 ? bindingSymbols[head] : null;
     }
 
     /**
@@ -122,12 +140,8 @@ public class SymbolTable {
      */
     public List<Symbol> getAllSymbols() {
         List<Symbol> allSymbols = new ArrayList<>();
-        List<Integer> sortedScopeLevels = new ArrayList<>(symbolsInScope.keySet());
-        Collections.sort(sortedScopeLevels);
-
-        for (Integer scopeLevel : sortedScopeLevels) {
-            List<Symbol> symbols = symbolsInScope.get(scopeLevel);
-            allSymbols.addAll(symbols);
+        for (int scopeLevel = 1; scopeLevel < symbolsInScope.size(); scopeLevel++) {
+            allSymbols.addAll(symbolsInScope.get(scopeLevel));
         }
         return allSymbols;
     }
@@ -137,88 +151,85 @@ public class SymbolTable {
      * @return 如果当前作用域为函数作用域则返回true，否则返回false
      */
     public boolean isCurrentScopeFunction() {
-        for (Symbol symbol : currentScope.getSymbols().values()) {
-            if (symbol.isFunction()) {
+        for (int binding = scopeMarks[depth]; binding < bindingCount; binding++) {
+            if (bindingSymbols[binding].isFunction()) {
                 return true;
             }
         }
         return false;
     }
 
-    /**
-     * 内部类，表示一个作用域
-     */
-    private static class Scope {
-        private Map<String, Symbol> symbols = new LinkedHashMap<>(); // 符号表
-        private Scope parentScope; // 父作用域
-        private int scopeLevel; // 作用域层级
-        private List<Scope> childScopes = new ArrayList<>(); // 子作用域列表
-
-        /**
-         * 构造函数
-         * @param parentScope 父作用域
-         * @param scopeLevel 作用域层级
-         */
-        public Scope(Scope parentScope, int scopeLevel) {
-            this.parentScope = parentScope;
-            this.scopeLevel = scopeLevel;
-            if (parentScope != null) {
-                parentScope.addChildScope(this); // 将当前作用域添加到父作用域的子列表
-            }
-        }
-
-        /**
-         * 获取符号表
-         * @return 符号表
-         */
-        public Map<String, Symbol> getSymbols() {
-            return symbols;
+    // 压入一条绑定，成为该名字的栈顶
+    private void push(int name, Symbol symbol) {
+        if (bindingCount == bindingSymbols.length) {
+            int capacity = bindingCount * 2;
+            bindingSymbols = Arrays.copyOf(bindingSymbols, capacity);
+            bindingNames = Arrays.copyOf(bindingNames, capacity);
+            bindingDepths = Arrays.copyOf(bindingDepths, capacity);
+            bindingNext = Arrays.copyOf(bindingNext, capacity);
         }
+        bindingSymbols[bindingCount] = symbol;
+        bindingNames[bindingCount] = name;
+        bindingDepths[bindingCount] = depth;
+        bindingNext[bindingCount] = heads[name];
+        heads[name] = bindingCount;
+        bindingCount++;
+    }
 
-        /**
-         * 获取父作用域
-         * @return 父作用域
-         */
-        public Scope getParentScope() {
-            return parentScope;
+    // 名字的编号，没有出现过时返回 -1
+    private int findName(String name) {
+        int mask = slots.length - 1;
+        int slot = name.hashCode() & mask;
+        while (slots[slot] >= 0) {
+            String candidate = names[slots[slot]];
+            if (candidate == name || candidate.equals(name)) {
+                return slots[slot];
+            }
+            slot = (slot + 1) & mask;
         }
+        return -1;
+    }
 
-        /**
-         * 获取作用域层级
-         * @return 作用域层级
-         */
-        public int getScopeLevel() {
-            return scopeLevel;
+    // 名字的编号，第一次出现时分配
+    private int nameIndex(String name) {
+        int mask = slots.length - 1;
+        int slot = name.hashCode() & mask;
+        while (slots[slot] >= 0) {
+            String candidate = names[slots[slot]];
+            if (candidate == name || candidate.equals(name)) {
+                return slots[slot];
+            }
+            slot = (slot + 1) & mask;
         }
-
-        /**
-         * 获取子作用域列表
-         * @return 子作用域列表
-         */
-        public List<Scope> getChildScopes() {
-            return childScopes;
+        if (nameCount == names.length) {
+            names = Arrays.copyOf(names, nameCount * 2);
+            heads = Arrays.copyOf(heads, nameCount * 2);
         }
-
-        /**
-         * 添加子作用域
-         * @param childScope 子作用域
-         */
-        public void addChildScope(Scope childScope) {
-            this.childScopes.add(childScope);
+        names[nameCount] = name;
+        heads[nameCount] = -1;
+        slots[slot] = nameCount;
+        if (++nameCount * 2 > slots.length) {
+            rehash();
         }
+        return nameCount - 1;
+    }
 
-        /**
-         * 根据层级获取子作用域
-         * @param scopeLevel 作用域层级
-         * @return 子作用域，或null如果未找到
-         */
-        public Scope getChildScopeByLevel(int scopeLevel) {
-            for (Scope child : childScopes) {
-                if (child.getScopeLevel() == scopeLevel) {
-                    return child;
-                }
+    // 超过半满时扩容，名字编号不变，绑定栈不受影响
+    private void rehash() {
+        slots = newSlots(slots.length * 2);
+        int mask = slots.length - 1;
+        for (int index = 0; index < nameCount; index++) {
+            int slot = names[index].hashCode() & mask;
+            while (slots[slot] >= 0) {
+                slot = (slot + 1) & mask;
             }
-            return null; // 如果未找到子作用域，返回 null
+            slots[slot] = index;
         }
     }
-}
\ No newline at end of file
+
+    private static int[] newSlots(int capacity) {
+        int[] slots = new int[capacity];
+        Arrays.fill(slots, -1);
+        return slots;
+    }
+}
@@ -3,7 +3,6 @@ package symbol;
 import LLVMIR.LLVMType.LLVMType;
 import LLVMIR.Base.Core.Value;
 
-import java.util.ArrayList;
 
 public class VariableSymbol extends Symbol {
     private String baseType; // 基本类型："int" 或 "char"
@@ -11,7 +10,7 @@ public class VariableSymbol extends Symbol {
     private boolean isConst; // 是否为常量
     private boolean isGlobal;
     private Value LLVMIR;
-    private ArrayList<Integer> initialValues;
+    private int[] initialValues; // 折叠后的初值，数组按长度补零
     public boolean isGlobal() {
         return isGlobal;
     }
@@ -36,11 +35,16 @@ public class VariableSymbol extends Symbol {
         this.LLVMIR = LLVMIR;
     }
 
-    public ArrayList<Integer> getInitialValues() {
+    public int[] getInitialValues() {
         return initialValues;
     }
 
-    public void setInitialValues(ArrayList<Integer> initialValues) {
+    // 第 index 个初值，标量取下标 0
+    public int getInitialValue(int index) {
+        return initialValues[index];
+    }
+
+    public void setInitialValues(int[] initialValues) {
         this.initialValues = initialValues;
     }
 
@@ -0,0 +1,89 @@
+package token;
+
+/**
+ * 标识符驻留表：开放定址，直接与源代码区间比较，查找已有名字时不分配对象，同名标识符共享同一个字符串。
+ * 可以从 String 或 char[] 区间查找，两者的哈希计算方式相同（与 String.hashCode 一致）
+ */
+public class NameInterner {
+    private String[] names = new String[256];
+    private int count = 0;
+
+    /**
+     * @param source 源代码
+     * @param start  起始偏移
+     * @param length 长度
+     * @return 区间文本对应的驻留字符串
+     */
+    public String intern(String source, int start, int length) {
+        int hash = 0;
+        for (int i = start; i < start + length; i++) {
+            hash = 31 * hash + source.charAt(i);
+        }
+        int mask = names.length - 1;
+        int slot = hash & mask;
+        while (names[slot] != null) {
+            String name = names[slot];
+            if (name.length() == length && source.regionMatches(start, name, 0, length)) {
+                return name;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return insert(slot, source.substring(start, start + length));
+    }
+
+    /**
+     * @param chars  字符缓冲区
+     * @param start  起始偏移
+     * @param length 长度
+     * @return 区间文本对应的驻留字符串
+     */
+    public String intern(char[] chars, int start, int length) {
+        int hash = 0;
+        for (int i = start; i < start + length; i++) {
+            hash = 31 * hash + chars[i];
+        }
+        int mask = names.length - 1;
+        int slot = hash & mask;
+        while (names[slot] != null) {
+            String name = names[slot];
+            if (name.length() == length && matches(name, chars, start)) {
+                return name;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return insert(slot, new String(chars, start, length));
+    }
+
+    private static boolean matches(String name, char[] chars, int start) {
+        for (int i = 0; i < name.length(); i++) {
+            if (name.charAt(i) != chars[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String insert(int slot, String name) {
+        names[slot] = name;
+        if (++count * 2 > names.length) {
+            rehash();
+        }
+        return name;
+    }
+
+    // 超过半满时扩容
+    private void rehash() {
+        String[] old = names;
+        names = new String[old.length * 2];
+        int mask = names.length - 1;
+        for (String name : old) {
+            if (name != null) {
+                int slot = name.hashCode() & mask;
+                while (names[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                names[slot] = name;
+            }
+        }
+    }
+}
@@ -14,10 +14,44 @@ public class TokenFactory {
 
     private Map<String, TokenType> keywords;
 
+    // 各类型的固定文本，按 TokenType 序号索引，标识符和常量为 null
+    private final String[] spellings = new String[TokenType.values().length];
+    // 保留字的完美哈希表，槽位由 wordSlot 计算，任意两个保留字不会落入同一槽位
+    private static final int WORD_TABLE_SIZE = 32;
+    private final String[] wordTable = new String[WORD_TABLE_SIZE];
+    private final TokenType[] wordTypes = new TokenType[WORD_TABLE_SIZE];
+    private int maxWordLength = 0;
+    // 单字符运算符与分隔符的类型，按字符索引
+    private final TokenType[] singleCharTypes = new TokenType[128];
+    // 双字符运算符的类型，按首字符索引（双字符运算符由首字符唯一确定）
+    private final TokenType[] doubleCharTypes = new TokenType[128];
+
     private TokenFactory() {
         keywords = new HashMap<>();
         // 初始化关键字和标识符
         loadKeywords();
+        for (Map.Entry<String, TokenType> entry : keywords.entrySet()) {
+            String word = entry.getKey();
+            spellings[entry.getValue().ordinal()] = word;
+            if (Character.isLetter(word.charAt(0))) {
+                int slot = wordSlot(word.charAt(0), word.charAt(word.length() - 1), word.length());
+                if (wordTable[slot] != null) {
+                    throw new IllegalStateException("Keyword hash collision: " + word + ", " + wordTable[slot]);
+                }
+                wordTable[slot] = word;
+                wordTypes[slot] = entry.getValue();
+                maxWordLength = Math.max(maxWordLength, word.length());
+            } else if (word.length() == 1) {
+                singleCharTypes[word.charAt(0)] = entry.getValue();
+            } else {
+                doubleCharTypes[word.charAt(0)] = entry.getValue();
+            }
+        }
+    }
+
+    // 保留字的哈希函数，只看首字符、末字符和长度；系数是对当前保留字集合搜索得到的无冲突取值
+    private static int wordSlot(char first, char last, int length) {
+        return (first * 5 + last * 15 + length) & (WORD_TABLE_SIZE - 1);
     }
 
     public static TokenFactory getInstance() {
@@ -69,6 +103,60 @@ public class TokenFactory {
         keywords.put("}", TokenType.RBRACE);
     }
 
+    /**
+     * 判断源代码区间是保留字还是标识符，不创建字符串
+     *
+     * @param source 源代码
+     * @param start  起始偏移
+     * @param length 长度
+     * @return 保留字的类型，不是保留字时返回 IDENFR
+     */
+    public TokenType lookupWord(char[] source, int start, int length) {
+        if (length > maxWordLength) {
+            return TokenType.IDENFR;
+        }
+        int slot = wordSlot(source[start], source[start + length - 1], length);
+        String word = wordTable[slot];
+        if (word == null || word.length() != length) {
+            return TokenType.IDENFR;
+        }
+        for (int i = 0; i < length; i++) {
+            if (word.charAt(i) != source[start + i]) {
+                return TokenType.IDENFR;
+            }
+        }
+        return wordTypes[slot];
+    }
+
+    /**
+     * 按源代码区间查找运算符或分隔符的类型，不创建字符串
+     *
+     * @param source 源代码
+     * @param start  起始偏移
+     * @param length 长度，只能为 1 或 2
+     * @return 运算符或分隔符的类型，不存在时返回 null
+     */
+    public TokenType lookupOperator(char[] source, int start, int length) {
+        char first = source[start];
+        if (first >= 128) {
+            return null;
+        }
+        TokenType type = length == 1 ? singleCharTypes[first] : doubleCharTypes[first];
+        if (type != null && length == 2 && spellings[type.ordinal()].charAt(1) != source[start + 1]) {
+            return null;
+        }
+        return type;
+    }
+
+    /**
+     * @param type Token 类型
+     * @return 保留字、运算符和分隔符的固定文本，其他类型返回空串
+     */
+    public String getSpelling(TokenType type) {
+        String spelling = spellings[type.ordinal()];
+        return spelling == null ? "" : spelling;
+    }
+
     // 处理标识符或关键字
     public Token createToken(String value, int line) {
         TokenType type = keywords.getOrDefault(value, TokenType.IDENFR);
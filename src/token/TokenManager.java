@@ -1,48 +1,107 @@
 package token;
 
-import java.util.ArrayList;
-import java.util.List;
+import util.CompilationContext;
 
 public class TokenManager {
-    private static final TokenManager instance = new TokenManager();
-
     public static TokenManager getInstance() {
-        return instance;
+        return CompilationContext.current().getTokenManager();
     }
-    private List<Token> tokens = new ArrayList<>(); // 保存所有的Token
+    private TokenStore store = new TokenStore(""); // 批量模式下保存所有的Token
+    private TokenSource tokens = store;              // 语法分析读取Token的来源
     private int currentPosition = 0;                 // 当前Token的位置
+    private int checkpoint = -1;                     // 尚未回退的检查点，没有时为 -1
+
+    // 开始对一段新的源代码进行词法分析
+    public void reset(String source) {
+        store = new TokenStore(source);
+        tokens = store;
+        currentPosition = 0;
+        checkpoint = -1;
+    }
+
+    // 改为从流式缓冲区读取Token，Token由词法分析器按需产生
+    public void reset(TokenRing ring) {
+        store = null;
+        tokens = ring;
+        currentPosition = 0;
+        checkpoint = -1;
+    }
+
+    // 批量模式下的全部Token，流式模式下为 null
+    public TokenStore getStore() {
+        return store;
+    }
+
+    // 获取当前Token的类型，没有Token时返回 null
+    public TokenType getType() {
+        if (tokens.available(currentPosition)) {
+            return tokens.getType(currentPosition);
+        }
+        return null;
+    }
 
-    // 保存一个Token到列表中
-    public void saveToken(Token token) {
-        tokens.add(token);
+    // 获取当前Token的行号
+    public int getLine() {
+        if (tokens.available(currentPosition)) {
+            return tokens.getLine(currentPosition);
+        }
+        return -1;
     }
 
-    public List<Token> getTokens() {
-        return tokens;
+    // 获取当前Token的文本
+    public String getText() {
+        if (tokens.available(currentPosition)) {
+            return tokens.getText(currentPosition);
+        }
+        return "";
     }
 
-    // 获取当前的Token
+    // 获取当前的Token，会创建 Token 对象，只在需要保存 Token 时使用
     public Token getToken() {
-        if (currentPosition < tokens.size()) {
-            return tokens.get(currentPosition);
+        if (tokens.available(currentPosition)) {
+            return tokens.getToken(currentPosition);
         }
         return null; // 表示没有更多的Token了
     }
 
-    // 读取下一个Token
+    // 读取下一个Token，已是最后一个Token时停留不动
     public void nextToken() {
-        if (currentPosition < tokens.size() - 1) {
+        if (tokens.available(currentPosition + 1)) {
             currentPosition++;
+            tokens.release(checkpoint < 0 ? currentPosition : checkpoint);
         }
     }
 
+    // 超前查看的第 offset 个Token是否存在
+    public boolean hasLookAhead(int offset) {
+        return tokens.available(currentPosition + offset);
+    }
+
+    // 超前查看第 offset 个Token的类型，超出末尾时返回 EOF
+    public TokenType lookAheadType(int offset) {
+        int targetIndex = currentPosition + offset;
+        if (!tokens.available(targetIndex)) {
+            return TokenType.EOF;
+        }
+        return tokens.getType(targetIndex);
+    }
+
+    // 超前查看第 offset 个Token的行号，超出末尾时返回 -1
+    public int lookAheadLine(int offset) {
+        int targetIndex = currentPosition + offset;
+        if (!tokens.available(targetIndex)) {
+            return -1;
+        }
+        return tokens.getLine(targetIndex);
+    }
+
     // 超前查看第 pos 个Token，不改变当前Token状态
     public Token lookAhead(int offset) {
         int targetIndex = currentPosition + offset;
-        if (targetIndex >= tokens.size()) {
+        if (!tokens.available(targetIndex)) {
             return new Token(TokenType.EOF, "",-1); // 假设有 EOF 类型
         }
-        return tokens.get(targetIndex);
+        return tokens.getToken(targetIndex);
     }
 
     // 获取当前Token的位置
@@ -50,15 +109,29 @@ public class TokenManager {
         return currentPosition;
     }
 
-    // 回退到指定的位置
+    /**
+     * 在当前位置设置检查点，之后可以用 {@link #rewindToIndex(int)} 回到这里。
+     * 检查点只是一个下标，不创建对象；回退之前，流式缓冲区保留检查点之后的所有Token
+     *
+     * @return 检查点
+     */
+    public int mark() {
+        checkpoint = currentPosition;
+        return checkpoint;
+    }
+
+    // 回退到指定的位置并解除检查点，流式模式下只能回到仍保留在缓冲区中的位置
     public void rewindToIndex(int index) {
-        if (index >= 0 && index < tokens.size()) {
+        if (index >= 0 && tokens.available(index)) {
             currentPosition = index;
         }
+        checkpoint = -1;
+        tokens.release(currentPosition);
     }
 
+    // 批量模式下的Token总数
     public int getTotalTokens() {
-        return tokens.size();
+        return store.size();
     }
 
 
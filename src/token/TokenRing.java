@@ -0,0 +1,111 @@
+package token;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * 流式模式下的 Token 环形缓冲区。
+ * 访问尚未读入的 Token 时调用词法分析器继续扫描；语法分析器前进后，当前 Token 之前的位置可以被新 Token 覆盖，
+ * 因此常驻的 Token 数只取决于语法分析器的超前查看距离，与源代码大小无关。
+ * 只有当一次超前查看或检查点之后保留的 Token 超过缓冲区容量（例如下标表达式很长的左值）时才扩容
+ */
+public class TokenRing implements TokenSource {
+    private static final TokenType[] TYPES = TokenType.values();
+
+    private final BooleanSupplier producer; // 至少读入一个 Token，到达源代码末尾时返回 false
+    private int[] types;
+    private int[] lines;
+    private String[] texts;
+    private int mask;
+    private int base = 0;  // 仍保留的最小下标
+    private int end = 0;   // 下一个读入的 Token 的下标
+    private int floor = 0; // 之后仍可能访问的最小下标，小于它的 Token 可以覆盖
+
+    /**
+     * @param producer 向缓冲区追加 Token 的词法分析器
+     * @param capacity 初始容量，会向上取整为 2 的幂
+     */
+    public TokenRing(BooleanSupplier producer, int capacity) {
+        this.producer = producer;
+        int size = Integer.highestOneBit(Math.max(16, capacity - 1)) << 1;
+        types = new int[size];
+        lines = new int[size];
+        texts = new String[size];
+        mask = size - 1;
+    }
+
+    /**
+     * 追加一个 Token，由词法分析器调用
+     *
+     * @param type 类型
+     * @param line 行号
+     * @param text 文本，标识符应已驻留
+     */
+    public void add(TokenType type, int line, String text) {
+        if (end - base == types.length) {
+            if (base < floor) {
+                texts[base & mask] = null;
+                base++;
+            } else {
+                grow();
+            }
+        }
+        int slot = end & mask;
+        types[slot] = type.ordinal();
+        lines[slot] = line;
+        texts[slot] = text;
+        end++;
+    }
+
+    // 缓冲区中的 Token 全部仍需保留时，容量翻倍并按下标重新放置
+    private void grow() {
+        int size = types.length * 2;
+        int[] newTypes = new int[size];
+        int[] newLines = new int[size];
+        String[] newTexts = new String[size];
+        int newMask = size - 1;
+        for (int i = base; i < end; i++) {
+            newTypes[i & newMask] = types[i & mask];
+            newLines[i & newMask] = lines[i & mask];
+            newTexts[i & newMask] = texts[i & mask];
+        }
+        types = newTypes;
+        lines = newLines;
+        texts = newTexts;
+        mask = newMask;
+    }
+
+    @Override
+    public boolean available(int index) {
+        while (index >= end) {
+            if (!producer.getAsBoolean()) {
+                return false;
+            }
+        }
+        return index >= base;
+    }
+
+    @Override
+    public TokenType getType(int index) {
+        return TYPES[types[index & mask]];
+    }
+
+    @Override
+    public int getLine(int index) {
+        return lines[index & mask];
+    }
+
+    @Override
+    public String getText(int index) {
+        return texts[index & mask];
+    }
+
+    @Override
+    public Token getToken(int index) {
+        return new Token(getType(index), getText(index), getLine(index));
+    }
+
+    @Override
+    public void release(int floor) {
+        this.floor = floor;
+    }
+}
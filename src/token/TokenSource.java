@@ -0,0 +1,30 @@
+package token;
+
+/**
+ * TokenManager 读取 Token 的来源，按全局下标访问。
+ * 批量模式下是保存全部 Token 的 {@link TokenStore}，流式模式下是按需从词法分析器拉取的 {@link TokenRing}
+ */
+public interface TokenSource {
+    /**
+     * 确保第 index 个 Token 可以访问，必要时先读入它
+     *
+     * @param index Token 下标
+     * @return 该 Token 存在且仍然保留时返回 true，超出源代码末尾时返回 false
+     */
+    boolean available(int index);
+
+    TokenType getType(int index);
+
+    int getLine(int index);
+
+    String getText(int index);
+
+    Token getToken(int index);
+
+    /**
+     * 声明下标小于 floor 的 Token 不会再被访问，流式模式可以回收它们占用的位置
+     *
+     * @param floor 之后仍可能访问的最小下标
+     */
+    void release(int floor);
+}
@@ -0,0 +1,175 @@
+package token;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * 按列存放的 Token 序列。
+ * 每个 Token 只占类型、行号、起始偏移和长度四个 int，文本直接引用源代码，
+ * 词法分析阶段不为 Token 创建任何对象；只有语法树需要保存的 Token 才通过 {@link #getToken(int)} 生成对象。
+ * 关键字和运算符的文本由类型决定，标识符的文本在首次取出时驻留，同名标识符共享同一个字符串
+ */
+public class TokenStore implements TokenSource {
+    private static final TokenType[] TYPES = TokenType.values();
+
+    private final String source; // 源代码
+    private int size = 0;
+    private int[] types;   // TokenType 的序号
+    private int[] lines;   // 行号
+    private int[] starts;  // 在源代码中的起始偏移
+    private int[] lengths; // 在源代码中的长度
+
+    private final NameInterner names = new NameInterner(); // 标识符驻留表
+
+    public TokenStore(String source) {
+        this(source, Math.max(64, source.length() / 8));
+    }
+
+    /**
+     * @param source   源代码
+     * @param capacity 预计的 Token 数
+     */
+    public TokenStore(String source, int capacity) {
+        this.source = source;
+        capacity = Math.max(1, capacity);
+        types = new int[capacity];
+        lines = new int[capacity];
+        starts = new int[capacity];
+        lengths = new int[capacity];
+    }
+
+    /**
+     * 追加一个 Token
+     *
+     * @param type   类型
+     * @param line   行号
+     * @param start  在源代码中的起始偏移
+     * @param length 在源代码中的长度
+     */
+    public void add(TokenType type, int line, int start, int length) {
+        if (size == types.length) {
+            grow(size + 1);
+        }
+        types[size] = type.ordinal();
+        lines[size] = line;
+        starts[size] = start;
+        lengths[size] = length;
+        size++;
+    }
+
+    /**
+     * 追加另一段同一源代码的 Token，行号整体平移
+     *
+     * @param other     另一段 Token
+     * @param from      从 other 的这个下标开始
+     * @param lineDelta 行号的平移量
+     */
+    public void append(TokenStore other, int from, int lineDelta) {
+        int count = other.size - from;
+        if (count <= 0) {
+            return;
+        }
+        if (size + count > types.length) {
+            grow(size + count);
+        }
+        System.arraycopy(other.types, from, types, size, count);
+        System.arraycopy(other.starts, from, starts, size, count);
+        System.arraycopy(other.lengths, from, lengths, size, count);
+        for (int i = 0; i < count; i++) {
+            lines[size + i] = other.lines[from + i] + lineDelta;
+        }
+        size += count;
+    }
+
+    // 容量至少翻倍
+    private void grow(int minCapacity) {
+        int capacity = Math.max(types.length * 2, minCapacity);
+        types = Arrays.copyOf(types, capacity);
+        lines = Arrays.copyOf(lines, capacity);
+        starts = Arrays.copyOf(starts, capacity);
+        lengths = Arrays.copyOf(lengths, capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean available(int index) {
+        return index < size;
+    }
+
+    // 全部 Token 保存到编译结束，不回收
+    @Override
+    public void release(int floor) {
+    }
+
+    @Override
+    public TokenType getType(int index) {
+        return TYPES[types[index]];
+    }
+
+    @Override
+    public int getLine(int index) {
+        return lines[index];
+    }
+
+    // Token 在源代码中的起始偏移
+    public int getStart(int index) {
+        return starts[index];
+    }
+
+    /**
+     * 取出 Token 的文本，标识符返回驻留后的字符串
+     *
+     * @param index Token 下标
+     * @return 文本
+     */
+    @Override
+    public String getText(int index) {
+        TokenType type = getType(index);
+        switch (type) {
+            case IDENFR:
+                return names.intern(source, starts[index], lengths[index]);
+            case INTCON:
+            case STRCON:
+            case CHRCON:
+                return source.substring(starts[index], starts[index] + lengths[index]);
+            default:
+                return TokenFactory.getInstance().getSpelling(type);
+        }
+    }
+
+    /**
+     * 把 Token 的文本直接写入输出，不生成字符串也不修改驻留表，可以在其他线程中调用
+     *
+     * @param index  Token 下标
+     * @param writer 输出目标
+     * @throws IOException 写入失败时抛出
+     */
+    public void writeText(int index, Writer writer) throws IOException {
+        TokenType type = getType(index);
+        switch (type) {
+            case IDENFR:
+            case INTCON:
+            case STRCON:
+            case CHRCON:
+                writer.write(source, starts[index], lengths[index]);
+                break;
+            default:
+                writer.write(TokenFactory.getInstance().getSpelling(type));
+        }
+    }
+
+    /**
+     * 生成 Token 对象，供语法树保存
+     *
+     * @param index Token 下标
+     * @return Token 对象
+     */
+    @Override
+    public Token getToken(int index) {
+        return new Token(getType(index), getText(index), lines[index]);
+    }
+}
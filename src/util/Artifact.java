@@ -0,0 +1,38 @@
+package util;
+
+/**
+ * 编译过程中输出的调试文件，可以按需关闭
+ */
+public enum Artifact {
+    LEXER("lexer.txt"),
+    PARSER("parser.txt"),
+    SYMBOL("symbol.txt"),
+    ERROR("error.txt"),
+    LLVM_IR("llvm_ir.txt");
+
+    private final String fileName; // 输出文件名
+
+    Artifact(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * 按命令行中使用的名称（文件名去掉 .txt，如 llvm_ir）查找
+     *
+     * @param name 名称
+     * @return 对应的输出文件
+     * @throws IllegalArgumentException 名称不存在时抛出
+     */
+    public static Artifact fromName(String name) {
+        for (Artifact artifact : values()) {
+            if (artifact.fileName.equals(name + ".txt")) {
+                return artifact;
+            }
+        }
+        throw new IllegalArgumentException("Unknown artifact: " + name);
+    }
+}
@@ -0,0 +1,178 @@
+package util;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * 调试文件的后台写线程。
+ * 各阶段把要输出的内容交给本类后立即返回，格式化与磁盘写入在后台线程中与后续阶段并行进行。
+ * 任务队列有界，队列满时提交方阻塞等待，因此尚未写出的内容占用的内存有上限。
+ * 任务按提交顺序依次执行，同一文件分多次提交的内容也按顺序写入
+ */
+public class ArtifactWriter {
+    /**
+     * 写入文件的内容，在后台线程中执行，不能依赖当前线程绑定的编译上下文
+     */
+    @FunctionalInterface
+    public interface Content {
+        void writeTo(Writer writer) throws IOException;
+    }
+
+    private static final int QUEUE_CAPACITY = 8;  // 最多排队的写任务数
+    private static final int CHUNK_SIZE = 1 << 16; // 流式输出每次提交的字符数
+
+    private final CompilationContext context;
+    private final BlockingQueue<Runnable> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private Thread worker; // 首次提交时启动
+    private boolean stopping = false;
+
+    public ArtifactWriter(CompilationContext context) {
+        this.context = context;
+    }
+
+    /**
+     * 在后台写出整个文件，文件被关闭时不做任何事
+     *
+     * @param artifact 输出文件
+     * @param content  文件内容
+     */
+    public void write(Artifact artifact, Content content) {
+        if (!context.isArtifactEnabled(artifact)) {
+            return;
+        }
+        String path = context.resolve(artifact.getFileName());
+        submit(() -> {
+            try (Writer writer = new ChannelWriter(path)) {
+                content.writeTo(writer);
+            } catch (IOException e) {
+                System.err.println("Error writing " + path + ": " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 打开一个边生成边输出的文件。
+     * 写入的字符攒满一块后交给后台线程，close() 时提交剩余内容并关闭文件
+     *
+     * @param artifact 输出文件
+     * @return 输出流，文件被关闭时返回 null
+     */
+    public Writer open(Artifact artifact) {
+        if (!context.isArtifactEnabled(artifact)) {
+            return null;
+        }
+        String path = context.resolve(artifact.getFileName());
+        ChannelWriter[] target = new ChannelWriter[1];
+        submit(() -> {
+            try {
+                target[0] = new ChannelWriter(path);
+            } catch (IOException e) {
+                System.err.println("Error opening " + path + ": " + e.getMessage());
+            }
+        });
+        return new Writer() {
+            private StringBuilder chunk = new StringBuilder();
+
+            @Override
+            public void write(char[] cbuf, int off, int len) {
+                chunk.append(cbuf, off, len);
+                if (chunk.length() >= CHUNK_SIZE) {
+                    flush();
+                }
+            }
+
+            @Override
+            public void write(String str) {
+                chunk.append(str);
+                if (chunk.length() >= CHUNK_SIZE) {
+                    flush();
+                }
+            }
+
+            @Override
+            public void flush() {
+                if (chunk.length() == 0) {
+                    return;
+                }
+                String text = chunk.toString();
+                chunk = new StringBuilder();
+                submit(() -> {
+                    try {
+                        if (target[0] != null) {
+                            target[0].write(text);
+                        }
+                    } catch (IOException e) {
+                        System.err.println("Error writing " + path + ": " + e.getMessage());
+                    }
+                });
+            }
+
+            @Override
+            public void close() {
+                flush();
+                submit(() -> {
+                    try {
+                        if (target[0] != null) {
+                            target[0].close();
+                        }
+                    } catch (IOException e) {
+                        System.err.println("Error closing " + path + ": " + e.getMessage());
+                    }
+                });
+            }
+        };
+    }
+
+    /**
+     * 等待所有已提交的内容写完并结束后台线程，编译结束时调用
+     */
+    public void finish() {
+        if (worker == null) {
+            return;
+        }
+        submit(() -> stopping = true);
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        worker = null;
+        stopping = false;
+    }
+
+    private void submit(Runnable task) {
+        if (worker == null) {
+            worker = new Thread(this::drain, "artifact-writer");
+            worker.setDaemon(true);
+            worker.start();
+        }
+        // 被中断时仍然要入队，否则同一文件的内容会丢失或乱序
+        boolean interrupted = false;
+        while (true) {
+            try {
+                queue.put(task);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // 后台线程：依次执行写任务，直到收到 finish() 的结束任务
+    private void drain() {
+        while (!stopping) {
+            try {
+                queue.take().run();
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
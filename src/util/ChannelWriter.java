@@ -0,0 +1,134 @@
+package util;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 基于 FileChannel 的输出流。
+ * 字符先写入固定大小的缓冲区，满后编码并写入通道，
+ * 无论输出多大，占用的内存都只有两块缓冲区，输出文件可以边生成边写出
+ */
+public class ChannelWriter extends Writer {
+    private static final int BUFFER_SIZE = 1 << 16; // 字符与字节缓冲区的容量
+
+    private final FileChannel channel;
+    private final CharsetEncoder encoder;
+    private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+    private final ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE);
+    private boolean closed = false;
+
+    /**
+     * 打开（或清空）文件，按平台默认字符集写入，与 FileWriter 一致
+     *
+     * @param filePath 文件路径
+     * @throws IOException 文件无法打开时抛出
+     */
+    public ChannelWriter(String filePath) throws IOException {
+        this.channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.encoder = Charset.defaultCharset().newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            int count = Math.min(len, chars.remaining());
+            chars.put(cbuf, off, count);
+            off += count;
+            len -= count;
+            if (!chars.hasRemaining()) {
+                encodeChars(false);
+            }
+        }
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            int count = Math.min(len, chars.remaining());
+            chars.put(str, off, off + count);
+            off += count;
+            len -= count;
+            if (!chars.hasRemaining()) {
+                encodeChars(false);
+            }
+        }
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        ensureOpen();
+        chars.put((char) c);
+        if (!chars.hasRemaining()) {
+            encodeChars(false);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        encodeChars(false);
+        writeBytes();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            encodeChars(true);
+            while (encoder.flush(bytes).isOverflow()) {
+                writeBytes();
+            }
+            writeBytes();
+        } finally {
+            closed = true;
+            channel.close();
+        }
+    }
+
+    // 将字符缓冲区编码到字节缓冲区，字节缓冲区满时写入通道；未成对的代理字符留待下次编码
+    private void encodeChars(boolean endOfInput) throws IOException {
+        chars.flip();
+        while (true) {
+            CoderResult result = encoder.encode(chars, bytes, endOfInput);
+            if (result.isOverflow()) {
+                writeBytes();
+            } else {
+                if (result.isError()) {
+                    result.throwException();
+                }
+                break;
+            }
+        }
+        chars.compact();
+    }
+
+    private void writeBytes() throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        bytes.clear();
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package util;
+
+import LLVMIR.IRBuilder;
+import backEnd.MipsBuilder;
+import error.ErrorHandler;
+import frontEnd.Lexer;
+import frontEnd.Parser;
+import frontEnd.SemanticAnalyzer;
+import midEnd.Optimizer;
+import symbol.SymbolTable;
+import token.TokenManager;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 一次编译的上下文，持有词法、语法、语义、中间代码、优化与后端各阶段的全部状态。
+ * 各组件的 getInstance() 均委托到当前线程绑定的上下文，
+ * 因此同一 JVM 中可以先后或并发地进行多次互不干扰的编译。
+ */
+public class CompilationContext {
+    // 每个线程默认拥有一个输出到当前工作目录的上下文，保持单文件编译的原有行为
+    private static final ThreadLocal<CompilationContext> current =
+            ThreadLocal.withInitial(() -> new CompilationContext(Paths.get("")));
+
+    private final Path outputDir; // 输出文件所在目录
+    private PassTimer passTimer = new PassTimer(false); // 阶段与 pass 计时
+    private final EnumSet<Artifact> enabledArtifacts = EnumSet.allOf(Artifact.class); // 需要输出的调试文件
+    private ArtifactWriter artifactWriter; // 调试文件的后台写线程
+    private boolean fusedFrontEnd = false; // 语义检查与 IR 生成是否在同一次遍历中完成
+
+    // 以下组件均在首次访问时创建，保证与原单例一致的初始化时机
+    private TokenManager tokenManager;
+    private ErrorHandler errorHandler;
+    private SymbolTable symbolTable;
+    private Lexer lexer;
+    private Parser parser;
+    private SemanticAnalyzer semanticAnalyzer;
+    private IRBuilder irBuilder;
+    private Optimizer optimizer;
+    private MipsBuilder mipsBuilder;
+
+    /**
+     * 构造编译上下文
+     *
+     * @param outputDir 输出文件（lexer.txt、mips.txt 等）所在目录
+     */
+    public CompilationContext(Path outputDir) {
+        this.outputDir = Objects.requireNonNull(outputDir, "Output directory cannot be null");
+    }
+
+    /**
+     * 获取当前线程绑定的上下文
+     *
+     * @return 当前上下文
+     */
+    public static CompilationContext current() {
+        return current.get();
+    }
+
+    /**
+     * 将本上下文绑定到当前线程
+     *
+     * @return 绑定前的上下文，供 {@link #restore(CompilationContext)} 恢复
+     */
+    public CompilationContext activate() {
+        CompilationContext previous = current.get();
+        current.set(this);
+        return previous;
+    }
+
+    /**
+     * 恢复当前线程先前绑定的上下文
+     *
+     * @param previous activate() 返回的上下文
+     */
+    public static void restore(CompilationContext previous) {
+        current.set(previous);
+    }
+
+    /**
+     * 将输出文件名解析为本次编译的输出路径
+     *
+     * @param fileName 文件名
+     * @return 输出路径
+     */
+    public String resolve(String fileName) {
+        return outputDir.resolve(fileName).toString();
+    }
+
+    public Path getOutputDir() {
+        return outputDir;
+    }
+
+    /**
+     * 开启或关闭某个调试文件的输出，需在编译开始前调用，默认全部开启
+     *
+     * @param artifact 输出文件
+     * @param enabled  是否输出
+     */
+    public void setArtifactEnabled(Artifact artifact, boolean enabled) {
+        if (enabled) {
+            enabledArtifacts.add(artifact);
+        } else {
+            enabledArtifacts.remove(artifact);
+        }
+    }
+
+    /**
+     * 判断是否需要输出某个调试文件
+     *
+     * @param artifact 输出文件
+     * @return 开启时返回 true
+     */
+    public boolean isArtifactEnabled(Artifact artifact) {
+        return enabledArtifacts.contains(artifact);
+    }
+
+    public ArtifactWriter getArtifactWriter() {
+        if (artifactWriter == null) {
+            artifactWriter = new ArtifactWriter(this);
+        }
+        return artifactWriter;
+    }
+
+    /**
+     * 等待后台写线程写完所有调试文件
+     */
+    public void finishArtifacts() {
+        if (artifactWriter != null) {
+            artifactWriter.finish();
+        }
+    }
+
+    /**
+     * 开启详细计时（-time-passes），需在编译开始前调用
+     */
+    public void enableTimePasses() {
+        passTimer = new PassTimer(true);
+    }
+
+    /**
+     * 开启融合模式（-fused）：没有语法错误时，语义检查与 IR 生成在同一次遍历中完成，需在编译开始前调用
+     */
+    public void enableFusedFrontEnd() {
+        fusedFrontEnd = true;
+    }
+
+    public boolean isFusedFrontEnd() {
+        return fusedFrontEnd;
+    }
+
+    /**
+     * 丢弃符号表、语义分析器和 IR 生成器，下次访问时重新创建。
+     * 融合遍历发现语义错误后，用全新的状态重新做一遍语义分析
+     */
+    public void resetSemanticState() {
+        symbolTable = null;
+        semanticAnalyzer = null;
+        irBuilder = null;
+    }
+
+    public PassTimer getPassTimer() {
+        return passTimer;
+    }
+
+    /**
+     * 获取各顶层阶段的耗时（纳秒），按执行顺序
+     *
+     * @return 阶段名到耗时的映射
+     */
+    public Map<String, Long> getPhaseNanos() {
+        return passTimer.getPhaseNanos();
+    }
+
+    // 组件的创建依赖当前线程已绑定本上下文（构造时会通过 getInstance() 获取其他组件）
+
+    public TokenManager getTokenManager() {
+        if (tokenManager == null) {
+            tokenManager = new TokenManager();
+        }
+        return tokenManager;
+    }
+
+    public ErrorHandler getErrorHandler() {
+        if (errorHandler == null) {
+            errorHandler = new ErrorHandler();
+        }
+        return errorHandler;
+    }
+
+    public SymbolTable getSymbolTable() {
+        if (symbolTable == null) {
+            symbolTable = new SymbolTable();
+        }
+        return symbolTable;
+    }
+
+    public Lexer getLexer() {
+        if (lexer == null) {
+            lexer = new Lexer(getTokenManager());
+        }
+        return lexer;
+    }
+
+    public Parser getParser() {
+        if (parser == null) {
+            parser = new Parser(getTokenManager());
+        }
+        return parser;
+    }
+
+    public SemanticAnalyzer getSemanticAnalyzer() {
+        if (semanticAnalyzer == null) {
+            semanticAnalyzer = new SemanticAnalyzer();
+        }
+        return semanticAnalyzer;
+    }
+
+    public IRBuilder getIRBuilder() {
+        if (irBuilder == null) {
+            irBuilder = new IRBuilder();
+        }
+        return irBuilder;
+    }
+
+    public Optimizer getOptimizer() {
+        if (optimizer == null) {
+            optimizer = new Optimizer();
+        }
+        return optimizer;
+    }
+
+    public MipsBuilder getMipsBuilder() {
+        if (mipsBuilder == null) {
+            mipsBuilder = new MipsBuilder();
+        }
+        return mipsBuilder;
+    }
+}
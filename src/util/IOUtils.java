@@ -1,22 +1,22 @@
 package util;
 
-import token.Token;
+import token.TokenStore;
 
 import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
 import java.util.List;
 
 public class IOUtils {
 
-    public static void writeTokensToFile(List<Token> tokens, String filePath) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filePath))) {
-            for (Token token : tokens) {
-                writer.write(token.getType() + " " + token.getValue());
-                writer.newLine();
-            }
-        } catch (IOException e) {
-            System.err.println("Error writing to file: " + e.getMessage());
+    // 按 lexer.txt 的格式写出 Token，文本直接从源代码写出
+    public static void writeTokens(TokenStore tokens, Writer writer) throws IOException {
+        for (int i = 0; i < tokens.size(); i++) {
+            writer.write(tokens.getType(i).name());
+            writer.write(' ');
+            tokens.writeText(i, writer);
+            writer.write(System.lineSeparator());
         }
     }
 
@@ -32,15 +32,11 @@ public class IOUtils {
     }
     private static final String FILE_PATH = "symbol.txt";
 
-    // 静态方法用于将内容写入 symbol.txt
-    public static void writeToFile(String filePath, List<String> lines) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filePath))) {
-            for (String line : lines) {
-                writer.write(line);
-                writer.newLine();
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
+    // 逐行写出内容，用于 symbol.txt
+    public static void writeLines(List<String> lines, Writer writer) throws IOException {
+        for (String line : lines) {
+            writer.write(line);
+            writer.write(System.lineSeparator());
         }
     }
 }
@@ -0,0 +1,70 @@
+package util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 以内存映射方式读取文件的 Reader。
+ * 文件内容由操作系统按页载入，不复制到堆中；读取时按需解码到调用方的缓冲区，
+ * 堆内存占用与文件大小无关。按平台默认字符集解码，非法字节替换为 U+FFFD，与 new String(bytes) 一致
+ */
+public class MappedFileReader extends Reader {
+    private final FileChannel channel;
+    private final MappedByteBuffer bytes;
+    private final CharsetDecoder decoder;
+    private boolean decoded = false; // 映射的字节是否已全部交给解码器
+    private boolean flushed = false; // 解码器缓存的剩余字符是否已输出
+
+    /**
+     * @param file 文件路径，大小不能超过 2GB
+     * @throws IOException 文件无法打开或过大时抛出
+     */
+    public MappedFileReader(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        if (channel.size() > Integer.MAX_VALUE) {
+            channel.close();
+            throw new IOException("File too large to map: " + file);
+        }
+        this.bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        this.decoder = Charset.defaultCharset().newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        CharBuffer out = CharBuffer.wrap(cbuf, off, len);
+        while (out.position() == off && !flushed) {
+            CoderResult result;
+            if (!decoded) {
+                result = decoder.decode(bytes, out, true);
+                decoded = result.isUnderflow();
+            } else {
+                result = decoder.flush(out);
+                flushed = result.isUnderflow();
+            }
+            if (result.isError()) {
+                result.throwException();
+            }
+        }
+        int count = out.position() - off;
+        return count == 0 ? -1 : count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
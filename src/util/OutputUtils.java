@@ -9,7 +9,7 @@ import java.util.List;
 
 public class OutputUtils {
     public static void outputSymbols(List<Symbol> symbols) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter("symbol.txt"))) {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(CompilationContext.current().resolve("symbol.txt")))) {
             for (Symbol symbol : symbols) {
                 writer.write(symbol.getScopeLevel() + " " + symbol.getName() + " " + symbol.getTypeName());
                 writer.newLine();
@@ -0,0 +1,261 @@
+package util;
+
+import LLVMIR.Base.Core.Module;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * 编译阶段与优化 pass 的计时器。
+ * 顶层阶段（词法、语法、优化等）的耗时总是记录，供守护进程统计使用；
+ * 开启详细模式（-time-passes）后，额外记录每个阶段和 pass 在每一轮中的耗时、
+ * 分配的字节数以及执行前后的 IR 规模（指令条数）。
+ * 分配字节数包括开始计时的线程，以及通过 {@link #measureWorker} 执行的工作线程任务。
+ */
+public class PassTimer {
+    /**
+     * 一次阶段或 pass 的执行记录
+     */
+    public static class Record {
+        private final String name;   // 阶段或 pass 名称
+        private final int round;     // 优化轮次，0 表示不属于某一轮
+        private final int depth;     // 嵌套层数，顶层阶段为 0
+        private final int irBefore;  // 执行前的指令条数，-1 表示 IR 尚未生成
+        private final long startNanos;
+        private final long startBytes;
+        private final Thread thread; // 开始计时的线程
+        private long nanos;
+        private long bytes;
+        private int irAfter;
+
+        private Record(String name, int round, int depth, int irBefore, long startNanos, long startBytes) {
+            this.name = name;
+            this.round = round;
+            this.depth = depth;
+            this.irBefore = irBefore;
+            this.startNanos = startNanos;
+            this.startBytes = startBytes;
+            this.thread = Thread.currentThread();
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getRound() {
+            return round;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public int getIrBefore() {
+            return irBefore;
+        }
+
+        public int getIrAfter() {
+            return irAfter;
+        }
+    }
+
+    private static final com.sun.management.ThreadMXBean threadBean = allocationBean();
+
+    private final boolean detailed;                                  // 是否记录详细信息
+    private final ArrayDeque<Record> open = new ArrayDeque<>();      // 尚未结束的记录
+    private final List<Record> records = new ArrayList<>();          // 已结束的详细记录，按开始顺序
+    private final Map<String, Long> phaseNanos = new LinkedHashMap<>(); // 顶层阶段耗时
+
+    public PassTimer(boolean detailed) {
+        this.detailed = detailed;
+    }
+
+    public boolean isDetailed() {
+        return detailed;
+    }
+
+    /**
+     * 开始计时一个阶段或 pass
+     *
+     * @param name   名称
+     * @param round  优化轮次，不属于某一轮时为 0
+     * @param module 当前模块，IR 尚未生成时为 null
+     */
+    public synchronized void begin(String name, int round, Module module) {
+        int irBefore = detailed ? irSize(module) : -1;
+        long bytes = detailed ? allocatedBytes() : 0;
+        Record record = new Record(name, round, open.size(), irBefore, System.nanoTime(), bytes);
+        if (detailed) {
+            records.add(record);
+        }
+        open.push(record);
+    }
+
+    /**
+     * 结束最近开始的阶段或 pass
+     *
+     * @param module 当前模块，IR 尚未生成时为 null
+     */
+    public synchronized void end(Module module) {
+        Record record = open.pop();
+        record.nanos = System.nanoTime() - record.startNanos;
+        if (detailed) {
+            // 工作线程的分配已在任务结束时累加到 bytes 中
+            record.bytes += allocatedBytes() - record.startBytes;
+            record.irAfter = irSize(module);
+        }
+        if (record.depth == 0) {
+            phaseNanos.merge(record.name, record.nanos, Long::sum);
+        }
+    }
+
+    /**
+     * 在线程池的工作线程中执行一个任务，把该线程执行期间分配的字节数计入所有尚未结束的记录。
+     * 任务恰好在开始计时的线程上执行时（如 ForkJoin 的调用线程参与执行），这部分分配已由 end() 计入，不重复累加
+     *
+     * @param task 任务
+     * @return 任务的结果
+     */
+    public <T> T measureWorker(Supplier<T> task) {
+        if (!detailed) {
+            return task.get();
+        }
+        long startBytes = allocatedBytes();
+        try {
+            return task.get();
+        } finally {
+            addWorkerBytes(allocatedBytes() - startBytes);
+        }
+    }
+
+    private synchronized void addWorkerBytes(long bytes) {
+        Thread current = Thread.currentThread();
+        for (Record record : open) {
+            if (record.thread != current) {
+                record.bytes += bytes;
+            }
+        }
+    }
+
+    public Map<String, Long> getPhaseNanos() {
+        return phaseNanos;
+    }
+
+    public List<Record> getRecords() {
+        return records;
+    }
+
+    private static int irSize(Module module) {
+        return module == null ? -1 : module.getInstrCount();
+    }
+
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean allocationBean
+                && allocationBean.isThreadAllocatedMemorySupported()) {
+            allocationBean.setThreadAllocatedMemoryEnabled(true);
+            return allocationBean;
+        }
+        return null;
+    }
+
+    // 当前线程累计分配的字节数，JVM 不支持时返回 0
+    private static long allocatedBytes() {
+        return threadBean == null ? 0 : threadBean.getCurrentThreadAllocatedBytes();
+    }
+
+    // 按名称汇总：{次数, 总纳秒, 总字节}，顺序为首次出现的顺序
+    private Map<String, long[]> totalsByName() {
+        Map<String, long[]> totals = new LinkedHashMap<>();
+        for (Record record : records) {
+            long[] total = totals.computeIfAbsent(record.name, k -> new long[3]);
+            total[0]++;
+            total[1] += record.nanos;
+            total[2] += record.bytes;
+        }
+        return totals;
+    }
+
+    /**
+     * 以表格形式输出详细记录及按名称的汇总
+     *
+     * @param out 输出流
+     */
+    public void printTable(PrintStream out) {
+        long total = 0;
+        for (long nanos : phaseNanos.values()) {
+            total += nanos;
+        }
+        out.println("===---------------------------------------------------------------------===");
+        out.println("                      Pass execution timing report");
+        out.println("===---------------------------------------------------------------------===");
+        out.printf("  Total Execution Time: %.3f ms%n%n", total / 1e6);
+        out.printf("  %-30s %5s %12s %12s %10s %10s%n", "Name", "Round", "Wall(ms)", "Alloc(KB)", "IR before", "IR after");
+        for (Record record : records) {
+            out.printf("  %-30s %5s %12.3f %12.1f %10s %10s%n",
+                    "  ".repeat(record.depth) + record.name,
+                    record.round == 0 ? "-" : String.valueOf(record.round),
+                    record.nanos / 1e6, record.bytes / 1024.0,
+                    record.irBefore < 0 ? "-" : String.valueOf(record.irBefore),
+                    record.irAfter < 0 ? "-" : String.valueOf(record.irAfter));
+        }
+        out.println();
+        out.printf("  %-30s %5s %12s %12s%n", "Total by name", "Count", "Wall(ms)", "Alloc(KB)");
+        for (Map.Entry<String, long[]> entry : totalsByName().entrySet()) {
+            long[] t = entry.getValue();
+            out.printf("  %-30s %5d %12.3f %12.1f%n", entry.getKey(), t[0], t[1] / 1e6, t[2] / 1024.0);
+        }
+    }
+
+    /**
+     * 将详细记录及汇总写成 JSON 文件
+     *
+     * @param filePath 输出路径
+     */
+    public void writeJson(String filePath) {
+        StringBuilder json = new StringBuilder("{\n  \"records\": [");
+        for (int i = 0; i < records.size(); i++) {
+            Record record = records.get(i);
+            json.append(i == 0 ? "\n" : ",\n")
+                    .append("    {\"name\": \"").append(record.name)
+                    .append("\", \"round\": ").append(record.round)
+                    .append(", \"depth\": ").append(record.depth)
+                    .append(", \"wall_ns\": ").append(record.nanos)
+                    .append(", \"alloc_bytes\": ").append(record.bytes)
+                    .append(", \"ir_before\": ").append(record.irBefore)
+                    .append(", \"ir_after\": ").append(record.irAfter)
+                    .append('}');
+        }
+        json.append("\n  ],\n  \"totals\": [");
+        boolean first = true;
+        for (Map.Entry<String, long[]> entry : totalsByName().entrySet()) {
+            long[] t = entry.getValue();
+            json.append(first ? "\n" : ",\n")
+                    .append("    {\"name\": \"").append(entry.getKey())
+                    .append("\", \"count\": ").append(t[0])
+                    .append(", \"wall_ns\": ").append(t[1])
+                    .append(", \"alloc_bytes\": ").append(t[2])
+                    .append('}');
+            first = false;
+        }
+        json.append("\n  ]\n}\n");
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filePath))) {
+            writer.write(json.toString());
+        } catch (IOException e) {
+            System.err.println("Error writing to file: " + e.getMessage());
+        }
+    }
+}